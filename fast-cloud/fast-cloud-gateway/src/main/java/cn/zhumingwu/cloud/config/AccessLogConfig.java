@@ -0,0 +1,17 @@
+package cn.zhumingwu.cloud.config;
+
+import cn.zhumingwu.cloud.filter.AccessLogWriter;
+import cn.zhumingwu.cloud.property.AccessLogProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AccessLogProperties.class)
+public class AccessLogConfig {
+
+    @Bean(destroyMethod = "close")
+    public AccessLogWriter accessLogWriter(AccessLogProperties properties) {
+        return new AccessLogWriter(properties);
+    }
+}
@@ -0,0 +1,200 @@
+package cn.zhumingwu.cloud.filter;
+
+import cn.zhumingwu.cloud.property.AccessLogProperties;
+import cn.zhumingwu.cloud.util.BoundedLockFreeQueue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 访问日志的后台写入, 请求线程只把记录放进有界无锁队列, 队列满了丢弃并计数
+ * <p>
+ * 单独的线程成批取出记录, 序列化为 json 行追加到日志文件, 文件超过大小后滚动
+ */
+@Slf4j
+public class AccessLogWriter implements Closeable {
+    private static final long DROP_REPORT_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    private final BoundedLockFreeQueue<AccessRecord> queue;
+    private final ObjectWriter json = new ObjectMapper().writerFor(AccessRecord.class);
+    private final Path file;
+    private final long maxFileSize;
+    private final int maxHistory;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // 只在写入线程使用
+    private OutputStream out;
+    private long size;
+    private long reportedDrops;
+    private long reportedAt;
+
+    public AccessLogWriter(AccessLogProperties properties) {
+        this.queue = new BoundedLockFreeQueue<>(properties.getQueueCapacity());
+        this.file = Paths.get(properties.getFile()).toAbsolutePath();
+        this.maxFileSize = properties.getMaxFileSize().toBytes();
+        this.maxHistory = properties.getMaxHistory();
+        this.batchSize = properties.getBatchSize();
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.thread = new Thread(this::run, "access-log-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 不阻塞, 队列满时丢弃
+     */
+    public boolean offer(AccessRecord record) {
+        if (this.queue.offer(record)) {
+            return true;
+        }
+        this.dropped.increment();
+        return false;
+    }
+
+    public long getWritten() {
+        return this.written.sum();
+    }
+
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    public long getFailed() {
+        return this.failed.sum();
+    }
+
+    public int getPending() {
+        return this.queue.size();
+    }
+
+    private void run() {
+        List<AccessRecord> batch = new ArrayList<>(this.batchSize);
+        while (this.running || !this.queue.isEmpty()) {
+            this.queue.drain(batch::add, this.batchSize);
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(this, this.flushIntervalNanos);
+                continue;
+            }
+            this.write(batch);
+            batch.clear();
+            this.reportDrops();
+        }
+        this.closeFile();
+    }
+
+    private void write(List<AccessRecord> batch) {
+        int done = 0;
+        try {
+            if (this.out == null) {
+                this.open();
+            }
+            for (AccessRecord record : batch) {
+                byte[] line = this.json.writeValueAsBytes(record);
+                if (this.size > 0 && this.size + line.length + 1 > this.maxFileSize) {
+                    this.roll();
+                }
+                this.out.write(line);
+                this.out.write('\n');
+                this.size += line.length + 1;
+                done++;
+            }
+            this.out.flush();
+            this.written.add(done);
+        } catch (IOException | RuntimeException e) {
+            // 下一批重新打开文件
+            this.failed.add(batch.size() - done);
+            log.warn("write access log failed: {}", e.getMessage());
+            this.closeFile();
+        }
+    }
+
+    private void open() throws IOException {
+        Path parent = this.file.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.out = new BufferedOutputStream(Files.newOutputStream(this.file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        this.size = Files.size(this.file);
+    }
+
+    private void roll() throws IOException {
+        this.out.close();
+        this.out = null;
+        if (this.maxHistory > 0) {
+            Files.deleteIfExists(this.history(this.maxHistory));
+            for (int i = this.maxHistory - 1; i >= 1; i--) {
+                Path history = this.history(i);
+                if (Files.exists(history)) {
+                    Files.move(history, this.history(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(this.file, this.history(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(this.file);
+        }
+        this.open();
+    }
+
+    private Path history(int index) {
+        return this.file.resolveSibling(this.file.getFileName() + "." + index);
+    }
+
+    private void closeFile() {
+        if (this.out != null) {
+            try {
+                this.out.close();
+            } catch (IOException e) {
+                log.warn("close access log failed: {}", e.getMessage());
+            }
+            this.out = null;
+        }
+    }
+
+    private void reportDrops() {
+        long drops = this.dropped.sum();
+        long now = System.nanoTime();
+        if (drops != this.reportedDrops && now - this.reportedAt > DROP_REPORT_INTERVAL) {
+            log.warn("access log queue full, {} records dropped", drops - this.reportedDrops);
+            this.reportedDrops = drops;
+            this.reportedAt = now;
+        }
+    }
+
+    /**
+     * 写完队列中剩余的记录后停止
+     */
+    @Override
+    public void close() {
+        this.running = false;
+        LockSupport.unpark(this.thread);
+        try {
+            this.thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
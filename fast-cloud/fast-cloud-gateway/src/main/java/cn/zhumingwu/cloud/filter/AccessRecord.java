@@ -1,21 +1,40 @@
 package cn.zhumingwu.cloud.filter;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpHeaders;
-import org.springframework.util.MultiValueMap;
 
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 一条访问日志, 在写日志的线程序列化为一行 json
+ */
 @Data
-@Slf4j
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class AccessRecord {
-    String path;
-    HttpHeaders headers;
+    long time;
     String method;
     String schema;
-
+    String path;
+    String query;
     String remoteAddress;
     String targetUri;
-    MultiValueMap<String, String> formData;
-    String body;
+    String contentType;
+    String userAgent;
+    Integer status;
+    long durationMillis;
+    /**
+     * 请求体的总字节数, 包括没有记录的部分
+     */
+    long requestBytes;
+    boolean bodyTruncated;
+
+    @JsonIgnore
+    byte[] bodyBytes;
+    @JsonIgnore
+    int bodyLength;
 
-}
\ No newline at end of file
+    public String getBody() {
+        return bodyBytes == null ? null : new String(bodyBytes, 0, bodyLength, StandardCharsets.UTF_8);
+    }
+}
@@ -1,40 +1,40 @@
 package cn.zhumingwu.cloud.filter;
 
+import cn.zhumingwu.cloud.property.AccessLogProperties;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
-import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferUtils;
-import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+/**
+ * 缓存请求体给 LoggingFilter 读取, 只缓存长度已知且不超过 maxBodyBytes 的请求体, 其他请求直接转发
+ * <p>
+ * 缓存放在 CACHED_REQUEST_BODY_ATTR, 请求结束后由网关释放
+ */
 @ConditionalOnProperty(prefix = "filter", name = "loggingFilter", havingValue = "true")
 @Component
 public class CacheBodyGlobalFilter implements Ordered, GlobalFilter {
 
+    private final AccessLogProperties properties;
+
+    public CacheBodyGlobalFilter(AccessLogProperties properties) {
+        this.properties = properties;
+    }
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        if (exchange.getRequest().getHeaders().getContentType() == null) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        long length = headers.getContentLength();
+        if (headers.getContentType() == null || length <= 0 || length > properties.getMaxBodyBytes()) {
             return chain.filter(exchange);
-        } else {
-            return DataBufferUtils.join(exchange.getRequest().getBody()).flatMap(dataBuffer -> {
-                DataBufferUtils.retain(dataBuffer);
-                Flux<DataBuffer> cachedFlux = Flux
-                        .defer(() -> Flux.just(dataBuffer.slice(0, dataBuffer.readableByteCount())));
-                ServerHttpRequest mutatedRequest = new ServerHttpRequestDecorator(exchange.getRequest()) {
-                    @Override
-                    public Flux<DataBuffer> getBody() {
-                        return cachedFlux;
-                    }
-                };
-                return chain.filter(exchange.mutate().request(mutatedRequest).build());
-            });
         }
+        return ServerWebExchangeUtils.cacheRequestBody(exchange,
+                request -> chain.filter(exchange.mutate().request(request).build()));
     }
 
     @Override
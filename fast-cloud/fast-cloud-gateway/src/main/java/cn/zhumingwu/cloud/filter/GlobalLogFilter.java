@@ -1,146 +1,154 @@
 package cn.zhumingwu.cloud.filter;
 
 
+import cn.zhumingwu.cloud.property.AccessLogProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
-import org.springframework.http.codec.HttpMessageReader;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.stereotype.Component;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.reactive.function.server.HandlerStrategies;
-import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
-import java.util.List;
-
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 访问日志, 按比例采样, 请求完成后把记录交给 AccessLogWriter 在后台写入
+ * <p>
+ * 请求体不缓存: 原样转发每个 DataBuffer, 只复制前 maxBodyBytes 个字节到记录中, 大文件上传只记录长度
+ */
 @Component
 @Slf4j
 public class GlobalLogFilter implements GlobalFilter, Ordered {
 
+    private final AccessLogProperties properties;
+    private final AccessLogWriter writer;
 
-    private static final String START_TIME = "startTime";
-    private static final List<HttpMessageReader<?>> messageReaders = HandlerStrategies.withDefaults().messageReaders();
+    public GlobalLogFilter(AccessLogProperties properties, AccessLogWriter writer) {
+        this.properties = properties;
+        this.writer = writer;
+    }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-
+        if (!properties.isEnabled() || !sampled()) {
+            return chain.filter(exchange);
+        }
         ServerHttpRequest request = exchange.getRequest();
-        // 请求路径
-        String path = request.getPath().pathWithinApplication().value();
-        // 请求schema: http/https
-        String scheme = request.getURI().getScheme();
-        // 请求方法
-        HttpMethod method = request.getMethod();
-        // 路由服务地址
-        URI targetUri = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
-        // 请求头
         HttpHeaders headers = request.getHeaders();
-        // 设置startTime
-        exchange.getAttributes().put(START_TIME, System.currentTimeMillis());
-        // 获取请求地址
-        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        long start = System.nanoTime();
 
-
-        MultiValueMap<String, String> formData = null;
         AccessRecord accessRecord = new AccessRecord();
-        accessRecord.setPath(path);
-        accessRecord.setSchema(scheme);
-        accessRecord.setMethod(method.name());
-        accessRecord.setTargetUri(targetUri.toString());
-        accessRecord.setRemoteAddress(remoteAddress.toString());
-        accessRecord.setHeaders(headers);
-
-        if (method == HttpMethod.GET) {
-            formData = request.getQueryParams();
-            accessRecord.setFormData(formData);
+        accessRecord.setTime(System.currentTimeMillis());
+        accessRecord.setMethod(request.getMethod().name());
+        accessRecord.setSchema(request.getURI().getScheme());
+        accessRecord.setPath(request.getPath().pathWithinApplication().value());
+        accessRecord.setQuery(request.getURI().getRawQuery());
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress != null) {
+            accessRecord.setRemoteAddress(remoteAddress.getHostString());
         }
+        accessRecord.setContentType(headers.getFirst(HttpHeaders.CONTENT_TYPE));
+        accessRecord.setUserAgent(headers.getFirst(HttpHeaders.USER_AGENT));
 
-        if (method == HttpMethod.POST) {
-            Mono<Void> voidMono = null;
-            if (headers.getContentType().equals(MediaType.APPLICATION_JSON) || headers.getContentType().equals(MediaType.APPLICATION_FORM_URLENCODED)) {
-                // JSON
-                voidMono = readBody(exchange, chain, accessRecord);
-
+        ServerWebExchange logged = exchange;
+        if (headers.getContentLength() > 0 || headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+            BodyTee tee = new BodyTee(accessRecord, captureLimit(headers));
+            ServerHttpRequest teed = new ServerHttpRequestDecorator(request) {
+                @Override
+                public Flux<DataBuffer> getBody() {
+                    return super.getBody().doOnNext(tee::accept);
+                }
+            };
+            logged = exchange.mutate().request(teed).build();
+        }
+        ServerWebExchange current = logged;
+        return chain.filter(logged).doFinally(signal -> {
+            accessRecord.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+            HttpStatusCode status = current.getResponse().getStatusCode();
+            if (status != null) {
+                accessRecord.setStatus(status.value());
+            }
+            URI targetUri = current.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+            if (targetUri != null) {
+                accessRecord.setTargetUri(targetUri.toString());
             }
+            writer.offer(accessRecord);
+        });
+    }
 
+    private boolean sampled() {
+        double rate = properties.getSampleRate();
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
 
-            if (voidMono != null) {
-                return voidMono.then(Mono.fromRunnable(() -> {
-                    writeAccessRecord(accessRecord);
-                }));
+    private int captureLimit(HttpHeaders headers) {
+        MediaType contentType = headers.getContentType();
+        if (contentType == null || properties.getMaxBodyBytes() <= 0) {
+            return 0;
+        }
+        for (MediaType type : properties.getBodyContentTypes()) {
+            if (type.includes(contentType)) {
+                long length = headers.getContentLength();
+                return length > 0 ? (int) Math.min(length, properties.getMaxBodyBytes()) : properties.getMaxBodyBytes();
             }
-
         }
-
-        return chain.filter(exchange).then(Mono.fromRunnable(() -> {
-            writeAccessRecord(accessRecord);
-        }));
+        return 0;
     }
 
-    private Mono<Void> readBody(ServerWebExchange exchange, GatewayFilterChain chain, AccessRecord accessRecord) {
-
-        return DataBufferUtils.join(exchange.getRequest().getBody()).flatMap(dataBuffer -> {
-
-            byte[] bytes = new byte[dataBuffer.readableByteCount()];
-            dataBuffer.read(bytes);
-            DataBufferUtils.release(dataBuffer);
-
-            Flux<DataBuffer> cachedFlux = Flux.defer(() -> {
-                DataBuffer buffer = exchange.getResponse().bufferFactory().wrap(bytes);
-                DataBufferUtils.retain(buffer);
-                return Mono.just(buffer);
-            });
+    /**
+     * 统计经过的请求体字节数, 复制前 limit 个字节, 不改变 DataBuffer 的读位置
+     */
+    static class BodyTee {
+        private final AccessRecord accessRecord;
+        private final int limit;
 
+        BodyTee(AccessRecord accessRecord, int limit) {
+            this.accessRecord = accessRecord;
+            this.limit = limit;
+        }
 
-            // 重写请求体,因为请求体数据只能被消费一次
-            ServerHttpRequest mutatedRequest = new ServerHttpRequestDecorator(exchange.getRequest()) {
-                @Override
-                public Flux<DataBuffer> getBody() {
-                    return cachedFlux;
+        void accept(DataBuffer buffer) {
+            int readable = buffer.readableByteCount();
+            accessRecord.requestBytes += readable;
+            int length = accessRecord.bodyLength;
+            int remaining = limit - length;
+            if (remaining <= 0) {
+                accessRecord.bodyTruncated |= limit > 0 && readable > 0;
+                return;
+            }
+            if (accessRecord.bodyBytes == null) {
+                accessRecord.bodyBytes = new byte[limit];
+            }
+            int count = Math.min(readable, remaining);
+            try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                while (count > 0 && iterator.hasNext()) {
+                    ByteBuffer byteBuffer = iterator.next();
+                    int n = Math.min(count, byteBuffer.remaining());
+                    byteBuffer.get(accessRecord.bodyBytes, length, n);
+                    length += n;
+                    count -= n;
                 }
-            };
-
-            ServerWebExchange mutatedExchange = exchange.mutate().request(mutatedRequest).build();
-
-            return ServerRequest.create(mutatedExchange, messageReaders)
-                    .bodyToMono(String.class)
-                    .doOnNext(objectValue -> {
-                        accessRecord.setBody(objectValue);
-                        writeAccessRecord(accessRecord);
-                    }).then(chain.filter(mutatedExchange));
-        });
+            }
+            accessRecord.bodyLength = length;
+            accessRecord.bodyTruncated |= readable > remaining;
+        }
     }
 
     @Override
     public int getOrder() {
-        return Ordered.LOWEST_PRECEDENCE;
-    }
-
-    private void writeAccessRecord(AccessRecord accessRecord) {
-
-        log.info("\n\n start------------------------------------------------- \n " +
-                        "请求路径:{}\n " +
-                        "scheme:{}\n " +
-                        "请求方法:{}\n " +
-                        "目标服务:{}\n " +
-                        "请求头:{}\n " +
-                        "远程IP地址:{}\n " +
-                        "表单参数:{}\n " +
-                        "请求体:{}\n " +
-                        "end------------------------------------------------- \n ",
-                accessRecord.getPath(), accessRecord.getSchema(), accessRecord.getMethod(), accessRecord.getTargetUri(), accessRecord.getHeaders(), accessRecord.getRemoteAddress(), accessRecord.getFormData(), accessRecord.getBody());
+        // 在其他过滤器之前, 记录被拒绝的请求和整个过滤链的耗时
+        return Ordered.HIGHEST_PRECEDENCE + 1;
     }
 }
@@ -5,7 +5,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
@@ -33,7 +35,9 @@ public class LoggingFilter implements GlobalFilter, Ordered {
             param = serverHttpRequest.getQueryParams().toString();
 
         } else {
-            param = RequestUtil.resolveBodyFromRequest(serverHttpRequest);
+            // 只读取 CacheBodyGlobalFilter 缓存的请求体, 没有缓存的请求体不能在这里消费
+            DataBuffer body = exchange.getAttribute(ServerWebExchangeUtils.CACHED_REQUEST_BODY_ATTR);
+            param = body == null ? "" : RequestUtil.resolveBody(body);
 
         }
 
@@ -14,4 +14,14 @@ public class JwtProperties {
     private int access_token_expiration_minute = 120;
 
     private int refresh_token_expiration_minute = 1440;
+
+    /**
+     * 缓存的验证过的 token 数, 0 不缓存
+     */
+    private int verified_token_cache_size = 100000;
+
+    /**
+     * 没有过期时间的 token 在缓存中的最长时间
+     */
+    private int verified_token_cache_expiration_minute = 120;
 }
@@ -11,25 +11,59 @@ import cn.zhumingwu.cloud.jwt.model.User;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.util.StringUtils;
 
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
 import java.util.Date;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 
 public class JwtTokenImpl implements IJwtToken, InitializingBean {
-    private final String PRIVATE_KEY;
+    private final PrivateKey PRIVATE_KEY;
 
-    private final String PUBLIC_KEY;
+    private final PublicKey PUBLIC_KEY;
 
     private final int EXPIRED_MINUTE;
 
     private final int REFRESH_MINUTE;
 
+    // 密钥只解析一次, 配置好的解析器在线程间共用
+    private final JwtParser PARSER;
+
+    private final VerifiedTokenCache CACHE;
+
     public JwtTokenImpl(JwtProperties properties) {
-        this.PRIVATE_KEY = properties.getPrivateKey();
-        this.PUBLIC_KEY = properties.getPublicKey();
+        this.PRIVATE_KEY = StringUtils.hasText(properties.getPrivateKey()) ? privateKey(properties.getPrivateKey()) : null;
+        this.PUBLIC_KEY = publicKey(properties.getPublicKey());
         this.EXPIRED_MINUTE = properties.getAccess_token_expiration_minute();
         this.REFRESH_MINUTE = properties.getRefresh_token_expiration_minute();
+        this.PARSER = Jwts.parser().setSigningKey(this.PUBLIC_KEY);
+        this.CACHE = properties.getVerified_token_cache_size() > 0
+                ? new VerifiedTokenCache(properties.getVerified_token_cache_size(),
+                TimeUnit.MINUTES.toMillis(properties.getVerified_token_cache_expiration_minute()))
+                : null;
+    }
+
+    static PublicKey publicKey(String key) {
+        try {
+            return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(key)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("invalid RSA public key", e);
+        }
+    }
+
+    static PrivateKey privateKey(String key) {
+        try {
+            return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(key)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("invalid RSA private key", e);
+        }
     }
 
     @Override
@@ -44,7 +78,7 @@ public class JwtTokenImpl implements IJwtToken, InitializingBean {
     @Override
     public JwtResult refreshGenerate(String oldRefreshToken) {
 
-        User user = User.generateUser(Jwts.parser().setSigningKey(PUBLIC_KEY).parseClaimsJws(oldRefreshToken).getBody());
+        User user = User.generateUser(PARSER.parseClaimsJws(oldRefreshToken).getBody());
         if (user == null) {
             return null;
         }
@@ -59,7 +93,29 @@ public class JwtTokenImpl implements IJwtToken, InitializingBean {
                 validationResult.setResultType(JwtValidationResultType.TOKEN_INVALID_SIGNATURE);
                 return validationResult;
             }
-            validationResult.setUser(User.generateUser(Jwts.parser().setSigningKey(PUBLIC_KEY).parseClaimsJws(token).getBody()));
+            VerifiedTokenCache.Digest digest = null;
+            if (CACHE != null) {
+                // 验证过的 token 不再验证签名
+                digest = VerifiedTokenCache.digest(token);
+                VerifiedTokenCache.Entry entry = CACHE.get(digest);
+                if (entry != null) {
+                    if (System.currentTimeMillis() < entry.getExpiresAt()) {
+                        validationResult.setUser(entry.getUser());
+                        validationResult.setResultType(JwtValidationResultType.TOKEN_VALID);
+                    } else {
+                        CACHE.invalidate(digest);
+                        validationResult.setResultType(JwtValidationResultType.TOKEN_EXPIRED);
+                    }
+                    return validationResult;
+                }
+            }
+            Claims claims = PARSER.parseClaimsJws(token).getBody();
+            User user = User.generateUser(claims);
+            if (digest != null) {
+                Date expiration = claims.getExpiration();
+                CACHE.put(digest, user, expiration == null ? Long.MAX_VALUE : expiration.getTime());
+            }
+            validationResult.setUser(user);
             validationResult.setResultType(JwtValidationResultType.TOKEN_VALID);
         } catch (ExpiredJwtException e) {
             validationResult.setResultType(JwtValidationResultType.TOKEN_EXPIRED);
@@ -98,6 +154,10 @@ public class JwtTokenImpl implements IJwtToken, InitializingBean {
         return builder.compact();
     }
 
+    VerifiedTokenCache getCache() {
+        return CACHE;
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception {
 
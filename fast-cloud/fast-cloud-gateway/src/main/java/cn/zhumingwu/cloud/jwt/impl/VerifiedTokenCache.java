@@ -0,0 +1,115 @@
+package cn.zhumingwu.cloud.jwt.impl;
+
+import cn.zhumingwu.cloud.jwt.model.User;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 验证过签名的 token 的用户, 以 token 的 SHA-256 摘要为键, 不保存 token 本身
+ * <p>
+ * 命中时不再验证签名, 到 token 的 exp 为止有效; 没有 exp 的 token 最多缓存 maxTtlMillis 后重新验证
+ */
+public class VerifiedTokenCache {
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Cache<Digest, Entry> cache;
+
+    public VerifiedTokenCache(long maximumSize, long maxTtlMillis) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxTtlMillis, TimeUnit.MILLISECONDS)
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                .build();
+    }
+
+    public static Digest digest(String token) {
+        MessageDigest sha256 = SHA256.get();
+        ByteBuffer digest = ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        return new Digest(digest.getLong(), digest.getLong(), digest.getLong(), digest.getLong());
+    }
+
+    public Entry get(Digest digest) {
+        return this.cache.getIfPresent(digest);
+    }
+
+    public void put(Digest digest, User user, long expiresAt) {
+        this.cache.put(digest, new Entry(user, expiresAt));
+    }
+
+    public void invalidate(Digest digest) {
+        this.cache.invalidate(digest);
+    }
+
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    public long size() {
+        return this.cache.size();
+    }
+
+    public static final class Entry {
+        private final User user;
+        private final long expiresAt;
+
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+
+        public User getUser() {
+            return this.user;
+        }
+
+        public long getExpiresAt() {
+            return this.expiresAt;
+        }
+    }
+
+    /**
+     * 256 位的摘要, 比较四个 long 而不是数组
+     */
+    public static final class Digest {
+        private final long a;
+        private final long b;
+        private final long c;
+        private final long d;
+
+        Digest(long a, long b, long c, long d) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Digest)) {
+                return false;
+            }
+            Digest other = (Digest) o;
+            return this.a == other.a && this.b == other.b && this.c == other.c && this.d == other.d;
+        }
+
+        @Override
+        public int hashCode() {
+            // 摘要已经均匀分布
+            return (int) this.a;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package cn.zhumingwu.cloud.property;
+
+import lombok.Data;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = AccessLogProperties.PREFIX)
+@ToString
+public class AccessLogProperties {
+    public static final String PREFIX = "project.access-log";
+    /**
+     * 是否记录访问日志
+     */
+    private boolean enabled = true;
+    /**
+     * 采样比例, 0 到 1
+     */
+    private double sampleRate = 1.0;
+    /**
+     * 每个请求最多记录的请求体字节数, 0 不记录请求体
+     */
+    private int maxBodyBytes = 4096;
+    /**
+     * 记录请求体的内容类型, 其他类型只记录长度
+     */
+    private List<MediaType> bodyContentTypes = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_FORM_URLENCODED,
+            MediaType.APPLICATION_XML, MediaType.parseMediaType("text/*"));
+    /**
+     * 待写入的记录数, 满了丢弃新的记录
+     */
+    private int queueCapacity = 8192;
+    /**
+     * 每批写入的最大记录数
+     */
+    private int batchSize = 512;
+    /**
+     * 没有记录时的等待时间
+     */
+    private Duration flushInterval = Duration.ofMillis(100);
+    /**
+     * 日志文件, 每行一个 json
+     */
+    private String file = "logs/access.log";
+    /**
+     * 超过后滚动为 access.log.1, access.log.2 ...
+     */
+    private DataSize maxFileSize = DataSize.ofMegabytes(100);
+    /**
+     * 保留的滚动文件数
+     */
+    private int maxHistory = 10;
+}
@@ -9,10 +9,7 @@ import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.client.discovery.event.InstanceRegisteredEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Service;
-import org.springframework.util.AntPathMatcher;
 
-import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -20,37 +17,47 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public class AuthorizeServiceImpl implements ApplicationListener<InstanceRegisteredEvent<ServiceInfo>>, AuthorizeService {
 
-    private static ConcurrentHashMap<String, String> authList = new ConcurrentHashMap<String, String>();
+    /**
+     * 路由规则, 如 "GET /order/api/**" -> "admin,user"
+     */
+    private final ConcurrentHashMap<String, String> authList = new ConcurrentHashMap<String, String>();
+
+    /**
+     * authList 编译成的查找树, 规则变化时重建后整体替换
+     */
+    private volatile RoutePermissionTrie routes = RoutePermissionTrie.EMPTY;
+
     @Autowired
     private DiscoveryClient discoveryClient;
 
     @Override
     public boolean checkAuthorize(String path, String[] userRoles) {
-        AntPathMatcher matcher = new AntPathMatcher();
-
-        String[] accessRoles = null;
-        for (Map.Entry<String, String> entry : authList.entrySet()) {
-            if (matcher.match(entry.getKey(), path)) {
-                accessRoles = entry.getValue().split(",");
-                break;
-            }
-        }
-        if (accessRoles != null) {
-            List<String> accessRoleList = Arrays.asList(accessRoles);
-            if (accessRoleList.contains("*")) {
-                return true;
-            }
-            if (userRoles == null || userRoles.length == 0) {
-                return false;
-            }
-            for (String userRole : userRoles) {
-                if (accessRoleList.contains(userRole)) {
-                    return true;
-                }
-            }
-            return false;
+        return routes.check(path, userRoles);
+    }
+
+    /**
+     * 替换全部路由规则
+     */
+    public synchronized void updateRules(Map<String, String> rules) {
+        authList.clear();
+        authList.putAll(rules);
+        rebuild();
+    }
+
+    public synchronized void putRule(String pattern, String roles) {
+        authList.put(pattern, roles);
+        rebuild();
+    }
+
+    public synchronized void removeRule(String pattern) {
+        if (authList.remove(pattern) != null) {
+            rebuild();
         }
-        return true;
+    }
+
+    private void rebuild() {
+        routes = RoutePermissionTrie.compile(authList);
+        log.info("route permissions rebuilt, {} rules", authList.size());
     }
 
     @Override
@@ -0,0 +1,311 @@
+package cn.zhumingwu.cloud.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译好的路由权限, 不可变, 规则变化时整体重建再替换
+ * <p>
+ * 规则形如 "GET /order/api/**" -> "admin,user", 不写方法或方法为 * 时对所有方法生效, 角色为 * 时不需要登录;
+ * 路径段可以是字面量, *, {变量}, ** 或含 * ? 的通配段, 空段(包括结尾的 /)忽略.
+ * 多条规则都匹配时按段优先字面量, 其次通配段, *, 最后 **; 同一路径指定方法的规则优先于不指定方法的规则.
+ * <p>
+ * 查找按 "方法 路径" 逐段走树, 字面量子节点用开放寻址表按原字符串区间查找, 不分配对象
+ */
+public final class RoutePermissionTrie {
+    public static final RoutePermissionTrie EMPTY = compile(Map.of());
+
+    private static final String ANY_METHOD = "*";
+
+    private final String[] methodNames;
+    private final Node[] methodRoots;
+    // 没有对应方法分支时使用, 只有不指定方法的规则
+    private final Node anyRoot;
+    private final Map<String, Integer> roleIndexes;
+
+    private RoutePermissionTrie(String[] methodNames, Node[] methodRoots, Node anyRoot, Map<String, Integer> roleIndexes) {
+        this.methodNames = methodNames;
+        this.methodRoots = methodRoots;
+        this.anyRoot = anyRoot;
+        this.roleIndexes = roleIndexes;
+    }
+
+    /**
+     * @param rules 路由规则到逗号分隔的角色
+     */
+    public static RoutePermissionTrie compile(Map<String, String> rules) {
+        Map<String, Integer> roleIndexes = new HashMap<>();
+        Map<String, Node> methods = new LinkedHashMap<>();
+        Node anyRoot = new Node();
+        List<String[]> anyRules = new ArrayList<>();
+        for (Map.Entry<String, String> entry : rules.entrySet()) {
+            String rule = entry.getKey().trim();
+            int space = rule.indexOf(' ');
+            String method = space < 0 ? ANY_METHOD : rule.substring(0, space).toUpperCase();
+            String pattern = space < 0 ? rule : rule.substring(space + 1).trim();
+            if (ANY_METHOD.equals(method)) {
+                anyRules.add(new String[]{pattern, entry.getValue()});
+            } else {
+                methods.computeIfAbsent(method, m -> new Node()).insert(pattern, entry.getValue(), roleIndexes, true);
+            }
+        }
+        // 不指定方法的规则放进每个方法分支, 不覆盖方法自己的同名规则
+        for (String[] rule : anyRules) {
+            anyRoot.insert(rule[0], rule[1], roleIndexes, true);
+            for (Node root : methods.values()) {
+                root.insert(rule[0], rule[1], roleIndexes, false);
+            }
+        }
+        int roleWords = (roleIndexes.size() + 63) >>> 6;
+        anyRoot.seal(roleWords);
+        for (Node root : methods.values()) {
+            root.seal(roleWords);
+        }
+        return new RoutePermissionTrie(methods.keySet().toArray(new String[0]), methods.values().toArray(new Node[0]),
+                anyRoot, roleIndexes);
+    }
+
+    /**
+     * @param path      "方法 路径", 没有方法时只匹配不指定方法的规则
+     * @param userRoles 用户的角色
+     * @return 没有匹配的规则时允许访问
+     */
+    public boolean check(String path, String[] userRoles) {
+        Node node = this.find(path);
+        if (node == null || node.everyone) {
+            return true;
+        }
+        if (userRoles == null) {
+            return false;
+        }
+        for (String role : userRoles) {
+            Integer index = this.roleIndexes.get(role);
+            if (index != null && (node.roles[index >>> 6] & (1L << index)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Node find(String path) {
+        Node root = this.anyRoot;
+        int start = 0;
+        int space = path.indexOf(' ');
+        if (space > 0 && path.charAt(0) != '/') {
+            start = space + 1;
+            for (int i = 0; i < this.methodNames.length; i++) {
+                String method = this.methodNames[i];
+                if (method.length() == space && path.regionMatches(0, method, 0, space)) {
+                    root = this.methodRoots[i];
+                    break;
+                }
+            }
+        }
+        return match(root, path, start);
+    }
+
+    private static Node match(Node node, String path, int from) {
+        int length = path.length();
+        int start = skipSeparators(path, from);
+        if (start == length) {
+            if (node.terminal) {
+                return node;
+            }
+            // ** 匹配零个段
+            return node.doubleStar == null ? null : match(node.doubleStar, path, length);
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+        Node child = node.literal(path, start, end);
+        if (child != null) {
+            Node result = match(child, path, end);
+            if (result != null) {
+                return result;
+            }
+        }
+        for (int i = 0; i < node.globs.length; i++) {
+            if (glob(node.globs[i], path, start, end)) {
+                Node result = match(node.globNodes[i], path, end);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        if (node.star != null) {
+            Node result = match(node.star, path, end);
+            if (result != null) {
+                return result;
+            }
+        }
+        if (node.doubleStar != null) {
+            // ** 依次吞掉零个, 一个...段, 剩下的交给 ** 之后的规则
+            int position = start;
+            while (true) {
+                Node result = match(node.doubleStar, path, position);
+                if (result != null) {
+                    return result;
+                }
+                position = skipSeparators(path, position);
+                if (position == length) {
+                    return null;
+                }
+                position = path.indexOf('/', position);
+                if (position < 0) {
+                    position = length;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int skipSeparators(String path, int from) {
+        int length = path.length();
+        while (from < length && path.charAt(from) == '/') {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * 段内的 * 匹配任意个字符, ? 匹配一个字符
+     */
+    static boolean glob(String pattern, String path, int start, int end) {
+        int p = 0;
+        int s = start;
+        int starP = -1;
+        int starS = -1;
+        while (s < end) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == path.charAt(s))) {
+                p++;
+                s++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                starP = p++;
+                starS = s;
+            } else if (starP >= 0) {
+                p = starP + 1;
+                s = ++starS;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    static final class Node {
+        // 构建时使用, seal 后清空
+        private Map<String, Node> literalMap = new HashMap<>();
+        private Map<String, Node> globMap = new LinkedHashMap<>();
+
+        private String[] keys;
+        private Node[] values;
+        private int mask;
+        private String[] globs;
+        private Node[] globNodes;
+        private Node star;
+        private Node doubleStar;
+
+        private boolean terminal;
+        private boolean everyone;
+        private long[] roles;
+
+        void insert(String pattern, String roles, Map<String, Integer> roleIndexes, boolean override) {
+            Node node = this;
+            for (String segment : pattern.split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                if ("**".equals(segment)) {
+                    node = node.doubleStar == null ? (node.doubleStar = new Node()) : node.doubleStar;
+                } else if ("*".equals(segment) || (segment.startsWith("{") && segment.endsWith("}"))) {
+                    node = node.star == null ? (node.star = new Node()) : node.star;
+                } else if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                    node = node.globMap.computeIfAbsent(segment, s -> new Node());
+                } else {
+                    node = node.literalMap.computeIfAbsent(segment, s -> new Node());
+                }
+            }
+            if (node.terminal && !override) {
+                return;
+            }
+            node.terminal = true;
+            node.everyone = false;
+            List<Integer> indexes = new ArrayList<>();
+            for (String role : roles.split(",")) {
+                role = role.trim();
+                if (ANY_METHOD.equals(role)) {
+                    node.everyone = true;
+                } else if (!role.isEmpty()) {
+                    indexes.add(roleIndexes.computeIfAbsent(role, r -> roleIndexes.size()));
+                }
+            }
+            node.roles = new long[0];
+            for (int index : indexes) {
+                if (node.roles.length <= index >>> 6) {
+                    node.roles = Arrays.copyOf(node.roles, (index >>> 6) + 1);
+                }
+                node.roles[index >>> 6] |= 1L << index;
+            }
+        }
+
+        void seal(int roleWords) {
+            int capacity = Integer.highestOneBit(Math.max(1, this.literalMap.size() * 2 - 1)) << 1;
+            this.keys = new String[capacity];
+            this.values = new Node[capacity];
+            this.mask = capacity - 1;
+            for (Map.Entry<String, Node> entry : this.literalMap.entrySet()) {
+                int slot = spread(entry.getKey().hashCode()) & this.mask;
+                while (this.keys[slot] != null) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = entry.getKey();
+                this.values[slot] = entry.getValue();
+                entry.getValue().seal(roleWords);
+            }
+            this.globs = this.globMap.keySet().toArray(new String[0]);
+            this.globNodes = this.globMap.values().toArray(new Node[0]);
+            for (Node node : this.globNodes) {
+                node.seal(roleWords);
+            }
+            if (this.star != null) {
+                this.star.seal(roleWords);
+            }
+            if (this.doubleStar != null) {
+                this.doubleStar.seal(roleWords);
+            }
+            // 查找时直接按角色序号取位, 补齐到所有角色的长度
+            this.roles = this.roles == null ? new long[roleWords] : Arrays.copyOf(this.roles, roleWords);
+            this.literalMap = null;
+            this.globMap = null;
+        }
+
+        Node literal(String path, int start, int end) {
+            int length = end - start;
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            int slot = spread(hash) & this.mask;
+            String key;
+            while ((key = this.keys[slot]) != null) {
+                if (key.length() == length && key.hashCode() == hash && path.regionMatches(start, key, 0, length)) {
+                    return this.values[slot];
+                }
+                slot = (slot + 1) & this.mask;
+            }
+            return null;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package cn.zhumingwu.cloud.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 有界无锁队列, 多生产者多消费者, 满了 offer 直接返回 false 不阻塞
+ * <p>
+ * 环形数组, 每个槽位有一个序号, 生产者和消费者各自 CAS 推进位置 (Vyukov bounded MPMC queue)
+ */
+public class BoundedLockFreeQueue<E> {
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity 容量, 向上取 2 的幂
+     */
+    public BoundedLockFreeQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = capacity == 1 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(E e) {
+        long position = this.tail.get();
+        while (true) {
+            int index = (int) (position & this.mask);
+            long diff = this.sequences.get(index) - position;
+            if (diff == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.buffer.lazySet(index, e);
+                    // 序号的写入发布元素
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+                position = this.tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = this.tail.get();
+            }
+        }
+    }
+
+    public E poll() {
+        long position = this.head.get();
+        while (true) {
+            int index = (int) (position & this.mask);
+            long diff = this.sequences.get(index) - (position + 1);
+            if (diff == 0) {
+                if (this.head.compareAndSet(position, position + 1)) {
+                    E e = this.buffer.get(index);
+                    this.buffer.lazySet(index, null);
+                    this.sequences.set(index, position + this.mask + 1);
+                    return e;
+                }
+                position = this.head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                position = this.head.get();
+            }
+        }
+    }
+
+    /**
+     * 取出最多 limit 个元素
+     *
+     * @return 取出的个数
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        int count = 0;
+        E e;
+        while (count < limit && (e = this.poll()) != null) {
+            consumer.accept(e);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 并发时是近似值
+     */
+    public int size() {
+        long size = this.tail.get() - this.head.get();
+        return (int) Math.max(0, Math.min(size, this.capacity()));
+    }
+
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    public int capacity() {
+        return this.mask + 1;
+    }
+}
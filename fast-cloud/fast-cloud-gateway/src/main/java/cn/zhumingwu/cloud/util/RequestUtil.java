@@ -26,6 +26,13 @@ public class RequestUtil {
         return formatStr(sb.toString());
     }
 
+    /**
+     * 读取缓存的请求体, 不改变读位置
+     */
+    public static String resolveBody(DataBuffer buffer) {
+        return formatStr(buffer.toString(buffer.readPosition(), buffer.readableByteCount(), StandardCharsets.UTF_8));
+    }
+
     private static String formatStr(String str) {
         if (str != null && str.length() > 0) {
             Pattern p = Pattern.compile("\\s*|\t|\r|\n");
@@ -0,0 +1,93 @@
+package cn.zhumingwu.cloud.filter;
+
+import cn.zhumingwu.cloud.property.AccessLogProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccessLogWriterTest {
+
+    static AccessLogProperties properties(Path dir) {
+        AccessLogProperties properties = new AccessLogProperties();
+        properties.setFile(dir.resolve("access.log").toString());
+        properties.setFlushInterval(Duration.ofMillis(5));
+        return properties;
+    }
+
+    static AccessRecord record(int i) {
+        AccessRecord accessRecord = new AccessRecord();
+        accessRecord.setMethod("POST");
+        accessRecord.setPath("/order/api/" + i);
+        accessRecord.setStatus(200);
+        accessRecord.setBodyBytes("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+        accessRecord.setBodyLength(8);
+        return accessRecord;
+    }
+
+    @Test
+    public void testWrite(@TempDir Path dir) throws Exception {
+        try (AccessLogWriter writer = new AccessLogWriter(properties(dir))) {
+            for (int i = 0; i < 100; i++) {
+                assertThat(writer.offer(record(i))).isTrue();
+            }
+        }
+        List<String> lines = Files.readAllLines(dir.resolve("access.log"));
+        assertThat(lines).hasSize(100);
+        Map<?, ?> first = new ObjectMapper().readValue(lines.get(0), Map.class);
+        assertThat(first.get("path")).isEqualTo("/order/api/0");
+        assertThat(first.get("body")).isEqualTo("{\"id\":1}");
+        assertThat(first.get("status")).isEqualTo(200);
+        assertThat(first.containsKey("bodyBytes")).isFalse();
+        assertThat(first.containsKey("targetUri")).isFalse();
+    }
+
+    @Test
+    public void testRoll(@TempDir Path dir) throws Exception {
+        AccessLogProperties properties = properties(dir);
+        properties.setMaxFileSize(DataSize.ofBytes(1000));
+        properties.setMaxHistory(2);
+        try (AccessLogWriter writer = new AccessLogWriter(properties)) {
+            for (int i = 0; i < 100; i++) {
+                writer.offer(record(i));
+            }
+        }
+        assertThat(Files.size(dir.resolve("access.log"))).isLessThanOrEqualTo(1000);
+        assertThat(Files.size(dir.resolve("access.log.1"))).isLessThanOrEqualTo(1000);
+        assertThat(dir.resolve("access.log.2")).exists();
+        assertThat(dir.resolve("access.log.3")).doesNotExist();
+        // 最新的记录在当前文件的最后
+        List<String> lines = Files.readAllLines(dir.resolve("access.log"));
+        assertThat(lines.get(lines.size() - 1)).contains("/order/api/99");
+    }
+
+    @Test
+    public void testDrop(@TempDir Path dir) throws Exception {
+        AccessLogProperties properties = properties(dir);
+        properties.setQueueCapacity(16);
+        properties.setFlushInterval(Duration.ofSeconds(10));
+        AccessLogWriter writer = new AccessLogWriter(properties);
+        // 写入线程在等待, 队列满后丢弃
+        Thread.sleep(100);
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (writer.offer(record(i))) {
+                accepted++;
+            }
+        }
+        assertThat(accepted).isEqualTo(16);
+        assertThat(writer.getDropped()).isEqualTo(84);
+        writer.close();
+        assertThat(writer.getWritten()).isEqualTo(16);
+        assertThat(writer.getFailed()).isZero();
+    }
+}
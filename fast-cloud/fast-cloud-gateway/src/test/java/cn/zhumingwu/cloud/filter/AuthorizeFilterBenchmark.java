@@ -0,0 +1,76 @@
+package cn.zhumingwu.cloud.filter;
+
+import cn.zhumingwu.cloud.jwt.JwtProperties;
+import cn.zhumingwu.cloud.jwt.constant.JwtConstant;
+import cn.zhumingwu.cloud.jwt.impl.JwtTokenImpl;
+import cn.zhumingwu.cloud.jwt.model.User;
+import cn.zhumingwu.cloud.service.AuthorizeService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 鉴权过滤器和 token 验证的耗时, warm 时 token 都在验证缓存中, cold 时缓存很小, 几乎每次都验证签名
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizeFilterBenchmark {
+
+    @Param({"warm", "cold"})
+    String cache;
+
+    AuthorizeFilter filter;
+    JwtTokenImpl jwt;
+    String[] tokens;
+    int next;
+
+    final GatewayFilterChain chain = exchange -> Mono.empty();
+
+    @Setup
+    public void setUp() {
+        boolean warm = "warm".equals(this.cache);
+        JwtProperties properties = new JwtProperties();
+        properties.setVerified_token_cache_size(warm ? 10000 : 16);
+        JwtTokenImpl jwt = new JwtTokenImpl(properties);
+        this.jwt = jwt;
+        this.tokens = new String[warm ? 64 : 1024];
+        for (int i = 0; i < this.tokens.length; i++) {
+            User user = new User();
+            user.setId(String.valueOf(i));
+            user.setRoles("admin,user");
+            this.tokens[i] = JwtConstant.TOKEN_PREFIX + " " + jwt.generate(user).getAccessToken();
+        }
+        this.filter = new AuthorizeFilter();
+        ReflectionTestUtils.setField(this.filter, "jwt", jwt);
+        ReflectionTestUtils.setField(this.filter, "consulService", (AuthorizeService) (path, roles) -> roles != null);
+    }
+
+    @Benchmark
+    public Object filter() {
+        String token = this.tokens[this.next++ & (this.tokens.length - 1)];
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/order/api/list")
+                .header(JwtConstant.HEADER_STRING, token));
+        return this.filter.filter(exchange, this.chain).block();
+    }
+
+    @Benchmark
+    public Object validate() {
+        String token = this.tokens[this.next++ & (this.tokens.length - 1)];
+        return this.jwt.validate(token.substring(JwtConstant.TOKEN_PREFIX.length() + 1));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(AuthorizeFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,109 @@
+package cn.zhumingwu.cloud.filter;
+
+import cn.zhumingwu.cloud.property.AccessLogProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GlobalLogFilterTest {
+
+    static class CollectingWriter extends AccessLogWriter {
+        final List<AccessRecord> records = new CopyOnWriteArrayList<>();
+
+        CollectingWriter(AccessLogProperties properties) {
+            super(properties);
+        }
+
+        @Override
+        public boolean offer(AccessRecord record) {
+            return records.add(record);
+        }
+    }
+
+    static Flux<DataBuffer> chunks(String... chunks) {
+        return Flux.fromArray(chunks).map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 像转发一样读完请求体
+     */
+    static String forward(GlobalLogFilter filter, MockServerWebExchange exchange) {
+        StringBuilder forwarded = new StringBuilder();
+        GatewayFilterChain chain = e -> e.getRequest().getBody()
+                .doOnNext(buffer -> {
+                    forwarded.append(buffer.toString(StandardCharsets.UTF_8));
+                    DataBufferUtils.release(buffer);
+                })
+                .then(Mono.fromRunnable(() -> e.getResponse().setStatusCode(HttpStatus.CREATED)));
+        filter.filter(exchange, chain).block();
+        return forwarded.toString();
+    }
+
+    @Test
+    public void testCapture(@TempDir Path dir) {
+        AccessLogProperties properties = AccessLogWriterTest.properties(dir);
+        properties.setMaxBodyBytes(8);
+        try (CollectingWriter writer = new CollectingWriter(properties)) {
+            GlobalLogFilter filter = new GlobalLogFilter(properties, writer);
+
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/order/api/create?a=1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header("Transfer-Encoding", "chunked")
+                    .body(chunks("{\"name\":", "\"abcdefgh\"}")));
+            // 请求体原样转发, 只记录前 8 个字节
+            assertThat(forward(filter, exchange)).isEqualTo("{\"name\":\"abcdefgh\"}");
+            AccessRecord accessRecord = writer.records.get(0);
+            assertThat(accessRecord.getMethod()).isEqualTo("POST");
+            assertThat(accessRecord.getPath()).isEqualTo("/order/api/create");
+            assertThat(accessRecord.getQuery()).isEqualTo("a=1");
+            assertThat(accessRecord.getStatus()).isEqualTo(201);
+            assertThat(accessRecord.getBody()).isEqualTo("{\"name\":");
+            assertThat(accessRecord.getRequestBytes()).isEqualTo(19);
+            assertThat(accessRecord.isBodyTruncated()).isTrue();
+
+            // 上传的文件只记录长度
+            exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/file/upload")
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(12)
+                    .body(chunks("0123456789", "ab")));
+            assertThat(forward(filter, exchange)).isEqualTo("0123456789ab");
+            accessRecord = writer.records.get(1);
+            assertThat(accessRecord.getBody()).isNull();
+            assertThat(accessRecord.getRequestBytes()).isEqualTo(12);
+        }
+    }
+
+    @Test
+    public void testSampling(@TempDir Path dir) {
+        AccessLogProperties properties = AccessLogWriterTest.properties(dir);
+        properties.setSampleRate(0);
+        try (CollectingWriter writer = new CollectingWriter(properties)) {
+            GlobalLogFilter filter = new GlobalLogFilter(properties, writer);
+            for (int i = 0; i < 10; i++) {
+                forward(filter, MockServerWebExchange.from(MockServerHttpRequest.get("/order/api/list")));
+            }
+            assertThat(writer.records).isEmpty();
+            properties.setSampleRate(0.5);
+            for (int i = 0; i < 1000; i++) {
+                forward(filter, MockServerWebExchange.from(MockServerHttpRequest.get("/order/api/list")));
+            }
+            assertThat(writer.records.size()).isBetween(350, 650);
+        }
+    }
+}
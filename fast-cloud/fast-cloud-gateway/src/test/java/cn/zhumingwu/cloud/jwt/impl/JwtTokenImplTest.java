@@ -0,0 +1,79 @@
+package cn.zhumingwu.cloud.jwt.impl;
+
+import cn.zhumingwu.cloud.jwt.JwtProperties;
+import cn.zhumingwu.cloud.jwt.model.JwtValidationResultType;
+import cn.zhumingwu.cloud.jwt.model.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JwtTokenImplTest {
+
+    static User user(String id, String roles) {
+        User user = new User();
+        user.setId(id);
+        user.setRoles(roles);
+        return user;
+    }
+
+    @Test
+    public void testValidate() {
+        JwtTokenImpl jwt = new JwtTokenImpl(new JwtProperties());
+        String token = jwt.generate(user("7", "admin,user")).getAccessToken();
+
+        var first = jwt.validate(token);
+        assertThat(first.getResultType()).isEqualTo(JwtValidationResultType.TOKEN_VALID);
+        assertThat(first.getUser().getId()).isEqualTo("7");
+        assertThat(first.getUser().getRoles()).isEqualTo("admin,user");
+        assertThat(jwt.getCache().size()).isEqualTo(1);
+
+        // 命中缓存
+        var second = jwt.validate(token);
+        assertThat(second.getResultType()).isEqualTo(JwtValidationResultType.TOKEN_VALID);
+        assertThat(second.getUser()).isSameAs(first.getUser());
+
+        // 篡改的 token 不命中缓存, 签名验证失败
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertThat(jwt.validate(tampered).getResultType()).isNotEqualTo(JwtValidationResultType.TOKEN_VALID);
+        assertThat(jwt.validate("").getResultType()).isEqualTo(JwtValidationResultType.TOKEN_INVALID_SIGNATURE);
+        assertThat(jwt.getCache().size()).isEqualTo(1);
+
+        assertThat(jwt.refreshGenerate(jwt.generate(user("7", "user")).getRefreshToken()).getAccessToken()).isNotEmpty();
+    }
+
+    @Test
+    public void testExpired() throws Exception {
+        JwtProperties properties = new JwtProperties();
+        JwtTokenImpl jwt = new JwtTokenImpl(properties);
+        // 先预热, 第一次签名和解析较慢
+        jwt.validate(jwt.generate(user("0", "user")).getAccessToken());
+        // 缓存的 token 到 exp 后失效, exp 精确到秒
+        long expiration = (System.currentTimeMillis() / 1000 + 3) * 1000;
+        String token = Jwts.builder()
+                .setClaims(user("8", "user").generateClaims())
+                .setExpiration(new Date(expiration))
+                .signWith(SignatureAlgorithm.RS256, JwtTokenImpl.privateKey(properties.getPrivateKey()))
+                .compact();
+        assertThat(jwt.validate(token).getResultType()).isEqualTo(JwtValidationResultType.TOKEN_VALID);
+        assertThat(jwt.validate(token).getResultType()).isEqualTo(JwtValidationResultType.TOKEN_VALID);
+        Thread.sleep(expiration - System.currentTimeMillis() + 100);
+        assertThat(jwt.validate(token).getResultType()).isEqualTo(JwtValidationResultType.TOKEN_EXPIRED);
+        assertThat(jwt.getCache().size()).isEqualTo(1);
+        assertThat(jwt.validate(token).getResultType()).isEqualTo(JwtValidationResultType.TOKEN_EXPIRED);
+    }
+
+    @Test
+    public void testWithoutCache() {
+        JwtProperties properties = new JwtProperties();
+        properties.setVerified_token_cache_size(0);
+        JwtTokenImpl jwt = new JwtTokenImpl(properties);
+        assertThat(jwt.getCache()).isNull();
+        String token = jwt.generate(user("9", "user")).getAccessToken();
+        assertThat(jwt.validate(token).getResultType()).isEqualTo(JwtValidationResultType.TOKEN_VALID);
+        assertThat(jwt.validate(token).getUser().getId()).isEqualTo("9");
+    }
+}
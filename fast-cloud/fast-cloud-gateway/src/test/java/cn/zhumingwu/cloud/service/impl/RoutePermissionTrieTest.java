@@ -0,0 +1,100 @@
+package cn.zhumingwu.cloud.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoutePermissionTrieTest {
+    static final String[] ADMIN = {"admin"};
+    static final String[] USER = {"user"};
+    static final String[] GUEST = {"guest", "other"};
+
+    static RoutePermissionTrie trie() {
+        Map<String, String> rules = new LinkedHashMap<>();
+        rules.put("GET /order/api/**", "user, admin");
+        rules.put("POST /order/api/**", "admin");
+        rules.put("GET /order/api/public/*", "*");
+        rules.put("GET /order/{id}/detail", "user");
+        rules.put("DELETE /order/api/item/*.json", "admin");
+        rules.put("/report/**/export", "report");
+        rules.put("/report/api", "admin");
+        rules.put("GET /report/api", "user");
+        return RoutePermissionTrie.compile(rules);
+    }
+
+    @Test
+    public void testCheck() {
+        var trie = trie();
+        // 没有匹配的规则时允许
+        assertThat(trie.check("GET /other/api/", null)).isTrue();
+        assertThat(trie.check("", null)).isTrue();
+
+        assertThat(trie.check("GET /order/api/list/", USER)).isTrue();
+        assertThat(trie.check("GET /order/api/list/", ADMIN)).isTrue();
+        assertThat(trie.check("GET /order/api/list/", GUEST)).isFalse();
+        assertThat(trie.check("GET /order/api/list/", null)).isFalse();
+        assertThat(trie.check("GET /order/api/", null)).isFalse();
+        assertThat(trie.check("POST /order/api/list/", USER)).isFalse();
+        assertThat(trie.check("POST /order/api/list/", ADMIN)).isTrue();
+
+        // 字面量比 ** 优先
+        assertThat(trie.check("GET /order/api/public/info/", null)).isTrue();
+        assertThat(trie.check("GET /order/api/public/info/more/", null)).isFalse();
+        assertThat(trie.check("GET /order/12/detail/", USER)).isTrue();
+        assertThat(trie.check("GET /order/12/detail/", ADMIN)).isFalse();
+
+        assertThat(trie.check("DELETE /order/api/item/a.json/", ADMIN)).isTrue();
+        assertThat(trie.check("DELETE /order/api/item/a.json/", USER)).isFalse();
+        assertThat(trie.check("DELETE /order/api/item/a.xml/", USER)).isTrue();
+
+        // 不指定方法的规则对所有方法生效, 指定方法的规则优先
+        assertThat(trie.check("PUT /report/a/b/export/", new String[]{"report"})).isTrue();
+        assertThat(trie.check("GET /report/export/", new String[]{"report"})).isTrue();
+        assertThat(trie.check("GET /report/a/export/", USER)).isFalse();
+        assertThat(trie.check("PUT /report/api/", ADMIN)).isTrue();
+        assertThat(trie.check("GET /report/api/", ADMIN)).isFalse();
+        assertThat(trie.check("GET /report/api/", USER)).isTrue();
+    }
+
+    @Test
+    public void testGlob() {
+        assertThat(RoutePermissionTrie.glob("*.json", "/a.json", 1, 7)).isTrue();
+        assertThat(RoutePermissionTrie.glob("a?c*", "abcdef", 0, 6)).isTrue();
+        assertThat(RoutePermissionTrie.glob("a?c*", "abdef", 0, 5)).isFalse();
+        assertThat(RoutePermissionTrie.glob("*b*d", "xxbyyd", 0, 6)).isTrue();
+    }
+
+    @Test
+    public void testManyRoutes() {
+        Map<String, String> rules = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            rules.put("GET /service" + i + "/api/**", "role" + (i % 100));
+        }
+        var trie = RoutePermissionTrie.compile(rules);
+        assertThat(trie.check("GET /service1234/api/list/", new String[]{"role34"})).isTrue();
+        assertThat(trie.check("GET /service1234/api/list/", new String[]{"role35"})).isFalse();
+        assertThat(trie.check("GET /service1999/api/", new String[]{"x", "role99"})).isTrue();
+    }
+
+    @Test
+    public void testNoAllocation() {
+        var trie = trie();
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String path = "GET /order/api/public/info/";
+        String[] roles = {"guest", "admin"};
+        for (int i = 0; i < 10000; i++) {
+            trie.check(path, roles);
+        }
+        long before = bean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 10000; i++) {
+            trie.check("DELETE /order/api/item/a.json/", roles);
+            trie.check(path, roles);
+        }
+        assertThat(bean.getCurrentThreadAllocatedBytes() - before).isLessThan(10000);
+    }
+}
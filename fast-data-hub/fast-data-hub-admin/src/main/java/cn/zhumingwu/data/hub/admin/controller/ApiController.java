@@ -7,9 +7,17 @@ import cn.zhumingwu.data.hub.core.store.EventMessage;
 
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * job code controller
@@ -17,13 +25,22 @@ import java.nio.charset.StandardCharsets;
 @Controller
 @RequestMapping("/api")
 public class ApiController extends BaseController {
+    // 长轮询的最长等待时间，毫秒
+    private static final long MAX_WAIT = 30000;
+    // 读取文件的线程，等待新消息时不占用线程
+    private static final ExecutorService READERS = Executors.newFixedThreadPool(4, runnable -> {
+        var thread = new Thread(runnable, "api-poll-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     EventMemoryTable eventMemoryTable = new EventMemoryTable();
 
     @RequestMapping("/push")
     @ResponseBody
     public Result<Long> save(String topic, String body) {
         var eventMessage = new EventMessage(topic, body.getBytes(StandardCharsets.UTF_8),0);
-        return Result.success(eventMemoryTable.put(eventMessage));
+        return Result.success(eventMemoryTable.put(eventMessage).join());
     }
 
     @RequestMapping("/pull")
@@ -33,4 +50,29 @@ public class ApiController extends BaseController {
         return Result.success(eventMessage);
     }
 
+    /**
+     * long poll a batch of messages, waits at most wait milliseconds (capped at MAX_WAIT) for offset to be produced
+     * <p>等待期间不占用 servlet 线程，在环形缓冲区上登记等待，消息发布后由写入线程唤醒，读取在 READERS 线程上执行
+     */
+    @RequestMapping("/poll")
+    @ResponseBody
+    public DeferredResult<Result<List<EventMessage>>> poll(@RequestParam String topic, @RequestParam long offset,
+                                                           @RequestParam(required = false, defaultValue = "1000") int max,
+                                                           @RequestParam(required = false, defaultValue = "1048576") long maxBytes,
+                                                           @RequestParam(required = false, defaultValue = "30000") long wait) {
+        var timeout = Math.max(0, Math.min(wait, MAX_WAIT));
+        // 正常由 pollAsync 在超时后完成，容器超时只是兜底
+        var result = new DeferredResult<Result<List<EventMessage>>>(timeout + 1000,
+                () -> Result.success(Collections.emptyList()));
+        eventMemoryTable.pollAsync(topic, offset, max, maxBytes, Duration.ofMillis(timeout), READERS)
+                .whenComplete((messages, e) -> {
+                    if (e != null) {
+                        result.setErrorResult(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    } else {
+                        result.setResult(Result.success(messages));
+                    }
+                });
+        return result;
+    }
+
 }
@@ -36,6 +36,11 @@ import java.util.Map;
  *   <dd><code>cache.initial.capacity</code> - cache initial capacity (int) [default: 1000]</dd>
  *   <dd><code>cache.load.factor</code> - cache load factor (double) [default: 0.75]</dd>
  *   <dd><code>compression.enabled</code> - enable compression (boolean) [default: false]</dd>
+ *   <dd><code>compression.codec</code> - value codec, none, lz4, zstd or deflate (string) [default: none]</dd>
+ *   <dd><code>compression.dictionary.size</code> - size of the dictionary trained for the deflate codec, 0 to disable (bytes) [default: 0]</dd>
+ *   <dd><code>bloom.filter.enabled</code> - write a bloom filter for each key length (boolean) [default: false]</dd>
+ *   <dd><code>bloom.filter.fpp</code> - bloom filter false positive probability (double) [default: 0.01]</dd>
+ *   <dd><code>sharded.merge.deltas</code> - deltas of a sharded store shard merged in the background, 0 to disable (int) [default: 4]</dd>
  * </dl>
  * <p>
  * Default values can be set by setting properties to the JVM (ex:
@@ -60,6 +65,16 @@ public class Configuration implements Serializable {
   public final static String CACHE_LOAD_FACTOR = "cache.load.factor";
   // Enable compression
   public final static String COMPRESSION_ENABLED = "compression.enabled";
+  // Value codec
+  public final static String COMPRESSION_CODEC = "compression.codec";
+  // Value codec dictionary size (in bytes)
+  public final static String COMPRESSION_DICTIONARY_SIZE = "compression.dictionary.size";
+  // Enable bloom filters
+  public final static String BLOOM_FILTER_ENABLED = "bloom.filter.enabled";
+  // Bloom filter false positive probability
+  public final static String BLOOM_FILTER_FPP = "bloom.filter.fpp";
+  // Delta count of a sharded store shard that triggers a merge
+  public final static String SHARDED_MERGE_DELTAS = "sharded.merge.deltas";
 
   // Property map
   protected final Map<String, String> properties = new HashMap<String, String>();
@@ -82,6 +97,11 @@ public class Configuration implements Serializable {
     putWithSystemPropertyDefault(CACHE_INITIAL_CAPACITY, "1000");
     putWithSystemPropertyDefault(CACHE_LOAD_FACTOR, "0.75");
     putWithSystemPropertyDefault(COMPRESSION_ENABLED, "false");
+    putWithSystemPropertyDefault(COMPRESSION_CODEC, "none");
+    putWithSystemPropertyDefault(COMPRESSION_DICTIONARY_SIZE, "0");
+    putWithSystemPropertyDefault(BLOOM_FILTER_ENABLED, "false");
+    putWithSystemPropertyDefault(BLOOM_FILTER_FPP, "0.01");
+    putWithSystemPropertyDefault(SHARDED_MERGE_DELTAS, "4");
 
     //Default cache size: (Xmx - 100mo);
     long cacheMemory = Math.max(0, Runtime.getRuntime().maxMemory() - (100 * 1024 * 1024));
@@ -17,12 +17,16 @@ package cn.zhumingwu.data.hub.core.rdb.api;
 import cn.zhumingwu.data.hub.core.exception.NotFoundException;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.Map;
 
 
 /**
  * Main interface to read data from a PalDB store.
  * <p>
+ * A reader can be shared by concurrent threads.
+ * <p>
  * <code>PalDB.createReader()</code> method and then call the
  * <code>get()</code> method to fetch. Call the
  * <code>close()</code> to liberate resources when done.
@@ -76,6 +80,31 @@ public interface StoreReader {
      */
     public <K> K get(Object key, K defaultValue);
 
+    /**
+     * Gets the values for <code>keys</code>, missing keys aren't in the result.
+     * <p>
+     * The keys that aren't cached are serialized in bulk, duplicates are looked up once and the index is probed
+     * in slot order, which is faster than a loop of <code>get</code> for large batches.
+     *
+     * @param keys keys to fetch
+     * @param <K>  key type
+     * @param <V>  value type
+     * @return map of the found keys and values
+     */
+    public <K, V> Map<K, V> getAll(Collection<? extends K> keys);
+
+    /**
+     * Puts the values for <code>keys</code> into <code>result</code>, missing keys aren't put.
+     *
+     * @param keys   keys to fetch
+     * @param result map the found keys and values are put into
+     * @param <K>    key type
+     * @param <V>    value type
+     * @return <code>result</code>
+     * @see #getAll(Collection)
+     */
+    public <K, V> Map<K, V> getAll(Collection<? extends K> keys, Map<K, V> result);
+
     /**
      * Gets the int value for <code>key</code>.
      *
@@ -113,6 +142,32 @@ public interface StoreReader {
      */
     public long getLong(Object key, long defaultValue);
 
+    /**
+     * Gets the long values for the long <code>keys</code>.
+     * <p>
+     * The keys are serialized in bulk, duplicates are looked up once and the index is probed in slot order,
+     * which is faster than a loop of <code>getLong</code> for large batches. The cache isn't used.
+     *
+     * @param keys keys to fetch
+     * @return long values, in the order of the keys
+     * @throws NotFoundException if a key isn't found
+     */
+    public long[] getLongs(long[] keys)
+            throws NotFoundException;
+
+    /**
+     * Gets the long values for the long <code>keys</code> into <code>values</code>, <code>defaultValue</code> where
+     * the key isn't found.
+     * <p>
+     * Same lookup as {@link #getLongs(long[])} without allocating the result.
+     *
+     * @param keys         keys to fetch
+     * @param values       values, at least as long as the keys
+     * @param defaultValue default value
+     * @return number of keys found
+     */
+    public int getLongs(long[] keys, long[] values, long defaultValue);
+
     /**
      * Gets the boolean value for <code>key</code>.
      *
@@ -396,6 +451,18 @@ public interface StoreReader {
      */
     public byte[] getByteArray(Object key, byte[] defaultValue);
 
+    /**
+     * Gets a read-only view of the byte array value for <code>key</code> or null if not found.
+     * <p>
+     * With memory mapped data the buffer is a slice of the store file and the bytes aren't copied,
+     * it must not be used once the reader is closed. The cache isn't used.
+     *
+     * @param key key to fetch
+     * @return byte array value as a read-only buffer or null if not found
+     * @throws ClassCastException if the value isn't a byte array
+     */
+    public ByteBuffer getByteBuffer(Object key);
+
     /**
      * Gets the char array value for <code>key</code>.
      *
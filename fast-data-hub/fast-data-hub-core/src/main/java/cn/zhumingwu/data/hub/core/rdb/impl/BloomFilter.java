@@ -0,0 +1,222 @@
+/*
+* Copyright 2015 LinkedIn Corp. All rights reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*/
+
+package cn.zhumingwu.data.hub.core.rdb.impl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * Bloom filter over the key hashes of one key length.
+ * <p>
+ * The bit positions are derived by double hashing from the two halves of the 128 bits Murmur3 hash
+ * of the key. The hash is independent of the 31 bits hash the index is probed with, so keys that
+ * collide in the index don't also share their bits in the filter.
+ */
+final class BloomFilter {
+
+  private final long[] bits;
+  private final long numBits;
+  private final int numHashes;
+
+  private BloomFilter(long[] bits, int numHashes) {
+    this.bits = bits;
+    this.numBits = (long) bits.length * Long.SIZE;
+    this.numHashes = numHashes;
+  }
+
+  /**
+   * Creates an empty filter sized for <code>count</code> keys at the false positive probability <code>fpp</code>.
+   *
+   * @param count expected number of keys
+   * @param fpp false positive probability
+   * @return filter
+   */
+  static BloomFilter create(long count, double fpp) {
+    if (fpp <= 0.0 || fpp >= 1.0) {
+      throw new IllegalArgumentException("Illegal false positive probability = " + fpp + ", should be between 0.0 and 1.0.");
+    }
+    long n = Math.max(1, count);
+    long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+    int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + Long.SIZE - 1) / Long.SIZE));
+    int k = (int) Math.round((double) words * Long.SIZE / n * Math.log(2));
+    return new BloomFilter(new long[words], Math.max(1, Math.min(16, k)));
+  }
+
+  /**
+   * Adds the key.
+   *
+   * @param key key bytes
+   */
+  void add(byte[] key) {
+    probe(key, true);
+  }
+
+  /**
+   * Returns false if the key certainly isn't in the filter.
+   *
+   * @param key key bytes
+   * @return true if the key may be in the filter
+   */
+  boolean mightContain(byte[] key) {
+    return probe(key, false);
+  }
+
+  //Set or test the bits of the key, the Murmur3 x64 128 hash is computed in place so nothing is allocated
+  private boolean probe(byte[] key, boolean add) {
+    final long c1 = 0x87c37b91114253d5L;
+    final long c2 = 0x4cf5ad432745937fL;
+    int length = key.length;
+    long h1 = 0;
+    long h2 = 0;
+    int blocks = length >>> 4;
+    for (int i = 0; i < blocks; i++) {
+      long k1 = getLong(key, i << 4);
+      long k2 = getLong(key, (i << 4) + 8);
+      h1 ^= Long.rotateLeft(k1 * c1, 31) * c2;
+      h1 = (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52dce729;
+      h2 ^= Long.rotateLeft(k2 * c2, 33) * c1;
+      h2 = (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495ab5;
+    }
+    int tail = blocks << 4;
+    long k1 = 0;
+    long k2 = 0;
+    switch (length & 15) {
+      case 15:
+        k2 ^= (long) (key[tail + 14] & 0xff) << 48;
+      case 14:
+        k2 ^= (long) (key[tail + 13] & 0xff) << 40;
+      case 13:
+        k2 ^= (long) (key[tail + 12] & 0xff) << 32;
+      case 12:
+        k2 ^= (long) (key[tail + 11] & 0xff) << 24;
+      case 11:
+        k2 ^= (long) (key[tail + 10] & 0xff) << 16;
+      case 10:
+        k2 ^= (long) (key[tail + 9] & 0xff) << 8;
+      case 9:
+        k2 ^= key[tail + 8] & 0xff;
+        h2 ^= Long.rotateLeft(k2 * c2, 33) * c1;
+      case 8:
+        k1 ^= (long) (key[tail + 7] & 0xff) << 56;
+      case 7:
+        k1 ^= (long) (key[tail + 6] & 0xff) << 48;
+      case 6:
+        k1 ^= (long) (key[tail + 5] & 0xff) << 40;
+      case 5:
+        k1 ^= (long) (key[tail + 4] & 0xff) << 32;
+      case 4:
+        k1 ^= (long) (key[tail + 3] & 0xff) << 24;
+      case 3:
+        k1 ^= (long) (key[tail + 2] & 0xff) << 16;
+      case 2:
+        k1 ^= (long) (key[tail + 1] & 0xff) << 8;
+      case 1:
+        k1 ^= key[tail] & 0xff;
+        h1 ^= Long.rotateLeft(k1 * c1, 31) * c2;
+      default:
+        break;
+    }
+    h1 ^= length;
+    h2 ^= length;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+    h1 += h2;
+    h2 += h1;
+
+    long combined = h1;
+    for (int i = 0; i < numHashes; i++) {
+      long bit = (combined & Long.MAX_VALUE) % numBits;
+      long mask = 1L << bit;
+      int word = (int) (bit >>> 6);
+      if (add) {
+        bits[word] |= mask;
+      } else if ((bits[word] & mask) == 0) {
+        return false;
+      }
+      combined += h2;
+    }
+    return true;
+  }
+
+  //Little endian long at the offset
+  private static long getLong(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xffL) | (bytes[offset + 1] & 0xffL) << 8 | (bytes[offset + 2] & 0xffL) << 16
+        | (bytes[offset + 3] & 0xffL) << 24 | (bytes[offset + 4] & 0xffL) << 32 | (bytes[offset + 5] & 0xffL) << 40
+        | (bytes[offset + 6] & 0xffL) << 48 | (bytes[offset + 7] & 0xffL) << 56;
+  }
+
+  private static long fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  /**
+   * Gets the size of the filter.
+   *
+   * @return size in bytes
+   */
+  long getSize() {
+    return (long) bits.length * (Long.SIZE / Byte.SIZE);
+  }
+
+  /**
+   * Writes the filter, <code>null</code> writes an empty filter.
+   *
+   * @param filter filter or null
+   * @param out data output
+   * @throws IOException if an io error occurs
+   */
+  static void write(BloomFilter filter, DataOutput out)
+      throws IOException {
+    if (filter == null) {
+      out.writeInt(0);
+      return;
+    }
+    out.writeInt(filter.bits.length);
+    out.writeInt(filter.numHashes);
+    for (long word : filter.bits) {
+      out.writeLong(word);
+    }
+  }
+
+  /**
+   * Reads a filter written by <code>write</code>.
+   *
+   * @param in data input
+   * @return filter or null if empty
+   * @throws IOException if an io error occurs
+   */
+  static BloomFilter read(DataInput in)
+      throws IOException {
+    int words = in.readInt();
+    if (words == 0) {
+      return null;
+    }
+    int numHashes = in.readInt();
+    long[] bits = new long[words];
+    for (int i = 0; i < words; i++) {
+      bits[i] = in.readLong();
+    }
+    return new BloomFilter(bits, numHashes);
+  }
+}
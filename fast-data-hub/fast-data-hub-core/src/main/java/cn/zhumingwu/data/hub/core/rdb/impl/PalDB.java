@@ -114,6 +114,21 @@ public final class PalDB {
         return StoreImpl.createWriter(stream, config);
     }
 
+    /**
+     * Opens the sharded store in <code>directory</code>, an empty store is created if the directory is empty or
+     * missing.
+     * <p>
+     * The shard count can't change once the store is created.
+     *
+     * @param directory store directory
+     * @param shards    number of shards
+     * @param config    configuration
+     * @return a sharded store
+     */
+    public static ShardedStore createShardedStore(File directory, int shards, Configuration config) {
+        return StoreImpl.createShardedStore(directory, shards, config);
+    }
+
     /**
      * Creates new configuration with default values.
      *
@@ -21,13 +21,20 @@ import cn.zhumingwu.data.hub.core.util.DataInputOutput;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
 /**
  * Store reader implementation.
+ * <p>
+ * Lookups share no mutable state besides the concurrent cache, one reader serves every thread.
  */
 public final class ReaderImpl implements StoreReader {
 
@@ -35,8 +42,6 @@ public final class ReaderImpl implements StoreReader {
   private final static Logger LOGGER = Logger.getLogger(ReaderImpl.class.getName());
   // Configuration
   private final Configuration config;
-  // Buffer
-  private final DataInputOutput dataInputOutput = new DataInputOutput();
   // Storage
   private final StorageReader storage;
   // Serialization
@@ -46,7 +51,7 @@ public final class ReaderImpl implements StoreReader {
   // File
   private final File file;
   // Opened?
-  private boolean opened;
+  private volatile boolean opened;
 
   /**
    * Private constructor.
@@ -76,7 +81,8 @@ public final class ReaderImpl implements StoreReader {
   public void close() {
     checkOpen();
     try {
-      LOGGER.log(Level.INFO, "Closing reader storage");
+      String compression = storage.getCompressionStats();
+      LOGGER.log(Level.INFO, "Closing reader storage, {0}", compression == null ? cache : cache + ", " + compression);
       storage.close();
       opened = false;
     } catch (IOException ex) {
@@ -117,7 +123,7 @@ public final class ReaderImpl implements StoreReader {
         byte[] valueBytes = storage.get(serialization.serializeKey(key));
         if (valueBytes != null) {
 
-          Object v = serialization.deserialize(dataInputOutput.reset(valueBytes));
+          Object v = serialization.deserialize(new DataInputOutput(valueBytes));
           cache.put(key, v);
           return (K) v;
         } else {
@@ -132,6 +138,48 @@ public final class ReaderImpl implements StoreReader {
     return value;
   }
 
+  @Override
+  public <K, V> Map<K, V> getAll(Collection<? extends K> keys) {
+    return getAll(keys, new HashMap<>(keys.size() * 2));
+  }
+
+  @Override
+  public <K, V> Map<K, V> getAll(Collection<? extends K> keys, Map<K, V> result) {
+    checkOpen();
+    //Distinct keys that aren't cached
+    Set<K> pending = new LinkedHashSet<>();
+    for (K key : keys) {
+      if (key == null) {
+        throw new NullPointerException("The key can't be null");
+      }
+      Object value = cache.get(key);
+      if (value == null) {
+        pending.add(key);
+      } else if (value != StorageCache.NULL_VALUE) {
+        result.put(key, (V) value);
+      }
+    }
+    if (pending.isEmpty()) {
+      return result;
+    }
+    try {
+      Object[] missing = pending.toArray();
+      byte[][] valueBytes = new byte[missing.length][];
+      storage.getAll(serialization.serializeKeys(missing), valueBytes);
+      DataInputOutput dataInputOutput = new DataInputOutput();
+      for (int i = 0; i < missing.length; i++) {
+        if (valueBytes[i] != null) {
+          Object v = serialization.deserialize(dataInputOutput.reset(valueBytes[i]));
+          cache.put(missing[i], v);
+          result.put((K) missing[i], (V) v);
+        }
+      }
+    } catch (Exception ex) {
+      throw new RuntimeException(ex);
+    }
+    return result;
+  }
+
   @Override
   public int getInt(Object key, int defaultValue) {
     return get(key, defaultValue);
@@ -162,6 +210,46 @@ public final class ReaderImpl implements StoreReader {
     return ((Long) val).longValue();
   }
 
+  @Override
+  public long[] getLongs(long[] keys)
+      throws NotFoundException {
+    long[] values = new long[keys.length];
+    if (getLongs(keys, values, 0L) < keys.length) {
+      //Find the first missing key, a found key whose value is 0 can't be told apart from the default
+      for (long key : keys) {
+        if (get(key) == null) {
+          throw new NotFoundException(key);
+        }
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public int getLongs(long[] keys, long[] values, long defaultValue) {
+    checkOpen();
+    if (values.length < keys.length) {
+      throw new IllegalArgumentException("The values array is shorter than the keys");
+    }
+    try {
+      byte[][] valueBytes = new byte[keys.length][];
+      storage.getAll(serialization.serializeKeys(keys), valueBytes);
+      DataInputOutput dataInputOutput = new DataInputOutput();
+      int found = 0;
+      for (int i = 0; i < keys.length; i++) {
+        if (valueBytes[i] == null) {
+          values[i] = defaultValue;
+        } else {
+          values[i] = ((Long) serialization.deserialize(dataInputOutput.reset(valueBytes[i]))).longValue();
+          found++;
+        }
+      }
+      return found;
+    } catch (IOException | ClassNotFoundException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
   @Override
   public boolean getBoolean(Object key, boolean defaultValue) {
     return get(key, defaultValue);
@@ -377,6 +465,20 @@ public final class ReaderImpl implements StoreReader {
     return (byte[]) val;
   }
 
+  @Override
+  public ByteBuffer getByteBuffer(Object key) {
+    checkOpen();
+    if (key == null) {
+      throw new NullPointerException("The key can't be null");
+    }
+    try {
+      ByteBuffer buffer = storage.getBuffer(serialization.serializeKey(key));
+      return buffer == null ? null : serialization.deserializeByteBuffer(buffer);
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
   @Override
   public String[] getStringArray(Object key, String[] defaultValue) {
     return get(key, defaultValue);
@@ -0,0 +1,748 @@
+/*
+* Copyright 2015 LinkedIn Corp. All rights reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*/
+
+package cn.zhumingwu.data.hub.core.rdb.impl;
+
+import cn.zhumingwu.data.hub.core.rdb.api.Configuration;
+import cn.zhumingwu.data.hub.core.rdb.api.StoreWriter;
+import cn.zhumingwu.data.hub.core.util.DataInputOutput;
+import cn.zhumingwu.data.hub.core.util.ShardingUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Store split in shards of immutable store files that can be refreshed without rebuilding everything.
+ * <p>
+ * Keys are partitioned with <code>ShardingUtil.shard</code> over a fixed number of shards. Each shard is a
+ * directory holding a base store and the delta stores written on top of it. A lookup reads the deltas newest
+ * first and then the base, a removed key is a delta entry with an empty value. Once a shard has
+ * <code>sharded.merge.deltas</code> deltas they are merged into a new base in the background.
+ * <p>
+ * Files are named after a sequence number, <code>base-&lt;seq&gt;.paldb</code> holds everything up to
+ * <code>seq</code> and <code>delta-&lt;seq&gt;.paldb</code> the changes of one refresh. On open the newest base of
+ * each shard is used with the deltas after it, files left by an interrupted build or merge are deleted.
+ * <p>
+ * A commit renames the files of every shard and then replaces the <code>MANIFEST</code> holding the last
+ * committed sequence, so it is atomic across shards: on open the files newer than the manifest are the
+ * leftovers of an interrupted commit and are deleted, the shards stay at the previous commit.
+ * <p>
+ * The store is thread-safe. Replaced files are closed once the lookups started before the swap are done. With
+ * <code>bloom.filter.enabled</code> the lookups of keys missing from the deltas rarely probe their index.
+ */
+public final class ShardedStore implements Closeable {
+
+  // Logger
+  private final static Logger LOGGER = Logger.getLogger(ShardedStore.class.getName());
+  // File names
+  private final static String SHARD = "shard-";
+  private final static String BASE = "base-";
+  private final static String DELTA = "delta-";
+  private final static String EXTENSION = ".paldb";
+  private final static String TEMP_EXTENSION = ".tmp";
+  private final static String MANIFEST = "MANIFEST";
+  // Last committed sequence, replaced once the files of a commit are in place
+  private final File manifest;
+  // Configuration
+  private final Configuration config;
+  // Serialization
+  private final StorageSerialization serialization;
+  // Shards
+  private final Shard[] shards;
+  // Delta count that triggers a merge
+  private final int mergeDeltas;
+  // Background merges
+  private final ExecutorService merger;
+  // Last sequence number, guarded by this
+  private long sequence;
+  // Opened?
+  private volatile boolean opened;
+
+  /**
+   * Opens the store in <code>directory</code> or creates it when empty.
+   *
+   * @param directory store directory
+   * @param shardCount number of shards, must be the one the store was created with
+   * @param config configuration
+   * @throws IOException if an io error occurs
+   */
+  ShardedStore(File directory, int shardCount, Configuration config)
+      throws IOException {
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException("The shard count must be positive");
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException(String.format("Couldn't create directory %s", directory));
+    }
+    File[] existing = directory.listFiles((dir, name) -> name.startsWith(SHARD));
+    if (existing != null && existing.length > 0 && existing.length != shardCount) {
+      throw new IllegalArgumentException(
+          "The store " + directory + " has " + existing.length + " shards, not " + shardCount);
+    }
+    this.manifest = new File(directory, MANIFEST);
+    this.config = config;
+    this.serialization = new StorageSerialization(config);
+    this.mergeDeltas = config.getInt(Configuration.SHARDED_MERGE_DELTAS);
+    //Stores written before the manifest existed keep all their files
+    long committed = readManifest();
+    if (committed >= 0) {
+      sequence = committed;
+    } else {
+      committed = Long.MAX_VALUE;
+    }
+    this.shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = openShard(i, new File(directory, SHARD + i), committed);
+    }
+    writeManifest(sequence);
+    this.merger = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "paldb-merge-" + directory.getName());
+      thread.setDaemon(true);
+      return thread;
+    });
+    opened = true;
+    LOGGER.log(Level.INFO, "Opened sharded store {0} with {1} shards at sequence {2}",
+        new Object[]{directory, shardCount, sequence});
+  }
+
+  //Open the newest committed base of the shard and the committed deltas after it, delete the other files
+  private Shard openShard(int index, File directory, long committed)
+      throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException(String.format("Couldn't create directory %s", directory));
+    }
+    File[] files = directory.listFiles();
+    long base = -1;
+    for (File file : files) {
+      long seq = parseSequence(file.getName(), BASE);
+      if (seq <= committed) {
+        base = Math.max(base, seq);
+      }
+    }
+    List<Layer> layers = new ArrayList<Layer>();
+    for (File file : files) {
+      long baseSeq = parseSequence(file.getName(), BASE);
+      long deltaSeq = parseSequence(file.getName(), DELTA);
+      if (baseSeq >= 0 && baseSeq == base) {
+        layers.add(new Layer(baseSeq, true, file, new StorageReader(config, file)));
+      } else if (deltaSeq > base && deltaSeq <= committed) {
+        layers.add(new Layer(deltaSeq, false, file, new StorageReader(config, file)));
+      } else {
+        LOGGER.log(Level.INFO, "Deleting obsolete file {0}", file);
+        Files.delete(file.toPath());
+        continue;
+      }
+      sequence = Math.max(sequence, Math.max(baseSeq, deltaSeq));
+    }
+    //Newest first, the base is the oldest layer
+    layers.sort((a, b) -> Long.compare(b.sequence, a.sequence));
+    return new Shard(index, directory, layers.toArray(new Layer[0]));
+  }
+
+  //Last committed sequence or -1 if the store has no manifest yet
+  private long readManifest()
+      throws IOException {
+    Files.deleteIfExists(new File(manifest.getParentFile(), MANIFEST + TEMP_EXTENSION).toPath());
+    if (!manifest.exists()) {
+      return -1;
+    }
+    byte[] bytes = Files.readAllBytes(manifest.toPath());
+    if (bytes.length != 8) {
+      throw new IOException(String.format("The manifest %s is corrupted", manifest));
+    }
+    return ByteBuffer.wrap(bytes).getLong();
+  }
+
+  //Replace the manifest, the new one is durable before it's renamed over the previous one
+  private void writeManifest(long seq)
+      throws IOException {
+    File tempFile = new File(manifest.getParentFile(), MANIFEST + TEMP_EXTENSION);
+    try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(8).putLong(0, seq);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(tempFile.toPath(), manifest.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    sync(manifest.getParentFile());
+  }
+
+  //Flush a store file, or the entries of a directory, to disk
+  private static void sync(File file)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      channel.force(true);
+    }
+  }
+
+  //Sequence number of a store file name with the given prefix or -1
+  private static long parseSequence(String name, String prefix) {
+    if (!name.startsWith(prefix) || !name.endsWith(EXTENSION)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(name.substring(prefix.length(), name.length() - EXTENSION.length()));
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
+  /**
+   * Gets the value for <code>key</code> or null if not found.
+   *
+   * @param key key to fetch
+   * @param <V> return type
+   * @return value or null if not found
+   */
+  public <V> V get(Object key) {
+    return get(key, null);
+  }
+
+  /**
+   * Gets the value for <code>key</code> or <code>defaultValue</code> if not found or removed.
+   *
+   * @param key key to fetch
+   * @param defaultValue default value
+   * @param <V> return type
+   * @return value or <code>defaultValue</code> if not found
+   */
+  public <V> V get(Object key, V defaultValue) {
+    checkOpen();
+    if (key == null) {
+      throw new NullPointerException("The key can't be null");
+    }
+    try {
+      byte[] keyBytes = serialization.serializeKey(key);
+      Shard shard = shards[ShardingUtil.shard(keyBytes, shards.length)];
+      byte[] valueBytes = null;
+      Snapshot snapshot = shard.acquire();
+      try {
+        for (int i = 0; i < snapshot.layers.length && valueBytes == null; i++) {
+          valueBytes = snapshot.layers[i].reader.get(keyBytes);
+        }
+      } finally {
+        snapshot.release();
+      }
+      if (valueBytes == null || valueBytes.length == 0) {
+        return defaultValue;
+      }
+      return (V) serialization.deserialize(new DataInputOutput(valueBytes));
+    } catch (Exception ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  /**
+   * Returns a builder of a new base, the store content is replaced by the keys put once it is closed.
+   *
+   * @return a builder
+   */
+  public Builder newBase() {
+    checkOpen();
+    return new Builder(true);
+  }
+
+  /**
+   * Returns a builder of a delta, the keys put and removed are visible once it is closed.
+   *
+   * @return a builder
+   */
+  public Builder newDelta() {
+    checkOpen();
+    return new Builder(false);
+  }
+
+  /**
+   * Merges the deltas of every shard into their base now, after the background merge of the shard if one runs.
+   *
+   * @throws IOException if an io error occurs
+   */
+  public void merge()
+      throws IOException {
+    checkOpen();
+    for (Shard shard : shards) {
+      merge(shard);
+    }
+  }
+
+  /**
+   * Returns the number of shards.
+   *
+   * @return shard count
+   */
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  //Number of stores of the shard, deltas and base
+  int getLayerCount(int shard) {
+    return shards[shard].snapshot.layers.length;
+  }
+
+  @Override
+  public void close() {
+    checkOpen();
+    opened = false;
+    merger.shutdown();
+    try {
+      if (!merger.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOGGER.warning("Closing the sharded store with a merge still running");
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        shard.swap(new Layer[0], false);
+      }
+    }
+  }
+
+  //Commit the files written by a builder, one per shard or null
+  private void commit(boolean base, File[] files)
+      throws IOException {
+    List<Shard> merges = new ArrayList<Shard>();
+    synchronized (this) {
+      long seq = ++sequence;
+      //The renamed files only count once the manifest is replaced
+      File[] committed = new File[shards.length];
+      try {
+        for (int i = 0; i < shards.length; i++) {
+          if (files[i] != null) {
+            committed[i] = new File(shards[i].directory, (base ? BASE : DELTA) + seq + EXTENSION);
+            Files.move(files[i].toPath(), committed[i].toPath(), StandardCopyOption.ATOMIC_MOVE);
+            sync(committed[i]);
+            sync(shards[i].directory);
+          }
+        }
+        writeManifest(seq);
+      } catch (IOException ex) {
+        for (File file : committed) {
+          if (file != null) {
+            Files.deleteIfExists(file.toPath());
+          }
+        }
+        throw ex;
+      }
+      for (int i = 0; i < shards.length; i++) {
+        if (committed[i] == null) {
+          continue;
+        }
+        Shard shard = shards[i];
+        File file = committed[i];
+        Layer layer = new Layer(seq, base, file, new StorageReader(config, file));
+        synchronized (shard) {
+          if (base) {
+            //The new base holds everything, the previous base and deltas are deleted
+            shard.swap(new Layer[]{layer}, true);
+          } else {
+            Layer[] current = shard.snapshot.layers;
+            Layer[] layers = new Layer[current.length + 1];
+            layers[0] = layer;
+            System.arraycopy(current, 0, layers, 1, current.length);
+            shard.swap(layers, true);
+            if (mergeDeltas > 0 && shard.deltaCount() >= mergeDeltas && !shard.merging) {
+              shard.merging = true;
+              merges.add(shard);
+            }
+          }
+        }
+      }
+    }
+    for (Shard shard : merges) {
+      merger.execute(() -> {
+        try {
+          merge(shard);
+        } catch (Exception ex) {
+          LOGGER.log(Level.SEVERE, "Merge of shard " + shard.index + " failed", ex);
+        } finally {
+          synchronized (shard) {
+            shard.merging = false;
+          }
+        }
+      });
+    }
+  }
+
+  //Write the base and deltas of the shard into a new base, the deltas committed meanwhile stay on top.
+  //Merges of a shard run one at a time, the background ones and the ones asked by merge()
+  private void merge(Shard shard)
+      throws IOException {
+    synchronized (shard.mergeLock) {
+      Snapshot snapshot = shard.acquire();
+      try {
+        Layer[] layers = snapshot.layers;
+        if (layers.length == 0 || layers[0].base) {
+          return;
+        }
+        long startTime = System.nanoTime();
+
+        //Newest value of each key in the deltas
+        Map<ByteBuffer, byte[]> changes = new HashMap<ByteBuffer, byte[]>();
+        Layer base = null;
+        for (Layer layer : layers) {
+          if (layer.base) {
+            base = layer;
+            break;
+          }
+          for (Map.Entry<byte[], byte[]> entry : layer.reader) {
+            changes.putIfAbsent(ByteBuffer.wrap(entry.getKey()), entry.getValue());
+          }
+        }
+
+        File tempFile = File.createTempFile(BASE, TEMP_EXTENSION, shard.directory);
+        try {
+          StoreWriter writer = StoreImpl.createWriter(tempFile, config);
+          if (base != null) {
+            for (Map.Entry<byte[], byte[]> entry : base.reader) {
+              if (!changes.containsKey(ByteBuffer.wrap(entry.getKey()))) {
+                writer.put(entry.getKey(), entry.getValue());
+              }
+            }
+          }
+          for (Map.Entry<ByteBuffer, byte[]> entry : changes.entrySet()) {
+            if (entry.getValue().length > 0) {
+              writer.put(entry.getKey().array(), entry.getValue());
+            }
+          }
+          writer.close();
+          sync(tempFile);
+        } catch (IOException | RuntimeException ex) {
+          Files.deleteIfExists(tempFile.toPath());
+          throw ex;
+        }
+
+        //The merged base is durable before the deltas it replaces are deleted
+        long seq = layers[0].sequence;
+        File file = new File(shard.directory, BASE + seq + EXTENSION);
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        sync(shard.directory);
+        Layer merged = new Layer(seq, true, file, new StorageReader(config, file));
+        synchronized (shard) {
+          Layer[] current = shard.snapshot.layers;
+          int newer = Arrays.asList(current).indexOf(layers[0]);
+          if (newer < 0) {
+            //A new base was committed during the merge, its file is never one of the current layers
+            merged.delete(!Arrays.stream(current).anyMatch(layer -> layer.file.equals(file)));
+            return;
+          }
+          Layer[] next = Arrays.copyOf(current, newer + 1);
+          next[newer] = merged;
+          shard.swap(next, true);
+        }
+        LOGGER.log(Level.INFO, "Merged {0} deltas into the base of shard {1} in {2} ms",
+            new Object[]{layers.length - (base != null ? 1 : 0), shard.index, (System.nanoTime() - startTime) / 1000000});
+      } finally {
+        snapshot.release();
+      }
+    }
+  }
+
+  // UTILITIES
+
+  /**
+   * Checks if the store is open and throws an exception otherwise.
+   */
+  private void checkOpen() {
+    if (!opened) {
+      throw new IllegalStateException("The store is closed");
+    }
+  }
+
+  /**
+   * Writer of a base or a delta, keys are routed to a writer per shard.
+   * <p>
+   * <code>put</code> and <code>remove</code> can be called from several threads, <code>close</code> builds the
+   * shard files in parallel and makes them visible at once. Like for <code>StoreWriter</code> a key can be
+   * written only once.
+   */
+  public final class Builder implements Closeable {
+
+    private final boolean base;
+    private final StoreWriter[] writers;
+    private final File[] files;
+    private boolean closed;
+
+    private Builder(boolean base) {
+      this.base = base;
+      this.writers = new StoreWriter[shards.length];
+      this.files = new File[shards.length];
+      //Every shard of a base is written so the keys of the previous one are dropped
+      if (base) {
+        for (int i = 0; i < shards.length; i++) {
+          writer(i);
+        }
+      }
+    }
+
+    /**
+     * Puts key-value to the store.
+     *
+     * @param key a key
+     * @param value a value
+     * @throws NullPointerException if <code>key</code> or <code>value</code> is null
+     */
+    public void put(Object key, Object value) {
+      if (key == null || value == null) {
+        throw new NullPointerException();
+      }
+      try {
+        write(serialization.serializeKey(key), serialization.serializeValue(value));
+      } catch (IOException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+
+    /**
+     * Removes the key from the store, only valid in a delta.
+     *
+     * @param key a key
+     * @throws NullPointerException if <code>key</code> is null
+     */
+    public void remove(Object key) {
+      if (key == null) {
+        throw new NullPointerException();
+      }
+      if (base) {
+        throw new IllegalStateException("Keys can't be removed from a base");
+      }
+      try {
+        write(serialization.serializeKey(key), new byte[0]);
+      } catch (IOException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+
+    private void write(byte[] key, byte[] value) {
+      int shard = ShardingUtil.shard(key, shards.length);
+      synchronized (this) {
+        if (closed) {
+          throw new IllegalStateException("The builder is closed");
+        }
+      }
+      StoreWriter writer = writer(shard);
+      synchronized (writer) {
+        writer.put(key, value);
+      }
+    }
+
+    private synchronized StoreWriter writer(int shard) {
+      if (writers[shard] == null) {
+        try {
+          files[shard] = File.createTempFile(base ? BASE : DELTA, TEMP_EXTENSION, shards[shard].directory);
+        } catch (IOException ex) {
+          throw new RuntimeException(ex);
+        }
+        writers[shard] = StoreImpl.createWriter(files[shard], config);
+      }
+      return writers[shard];
+    }
+
+    /**
+     * Builds the shard files in parallel and adds them to the store.
+     */
+    @Override
+    public void close() {
+      synchronized (this) {
+        if (closed) {
+          throw new IllegalStateException("The builder is closed");
+        }
+        closed = true;
+      }
+      checkOpen();
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      int count = (int) Arrays.stream(writers).filter(writer -> writer != null).count();
+      ExecutorService executor = Executors.newFixedThreadPool(
+          Math.max(1, Math.min(count, Runtime.getRuntime().availableProcessors())));
+      try {
+        for (StoreWriter writer : writers) {
+          if (writer != null) {
+            futures.add(executor.submit(() -> {
+              synchronized (writer) {
+                writer.close();
+              }
+            }));
+          }
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+        commit(base, files);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        deleteFiles();
+        throw new RuntimeException(ex);
+      } catch (ExecutionException ex) {
+        deleteFiles();
+        throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause()
+            : new RuntimeException(ex.getCause());
+      } catch (IOException ex) {
+        deleteFiles();
+        throw new RuntimeException(ex);
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    //Delete the files that weren't committed
+    private void deleteFiles() {
+      for (File file : files) {
+        if (file != null && file.exists() && !file.delete()) {
+          LOGGER.log(Level.WARNING, "Couldn't delete {0}", file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Shard of the store, the snapshot of its stores is replaced under the shard lock.
+   */
+  private static final class Shard {
+
+    private final int index;
+    private final File directory;
+    private volatile Snapshot snapshot;
+    // Merge queued or running, guarded by this
+    private boolean merging;
+    // Held while a merge runs
+    private final Object mergeLock = new Object();
+
+    private Shard(int index, File directory, Layer[] layers) {
+      this.index = index;
+      this.directory = directory;
+      this.snapshot = new Snapshot(layers);
+    }
+
+    //Get the current snapshot, it stays open until released
+    private Snapshot acquire() {
+      while (true) {
+        Snapshot current = snapshot;
+        if (current.acquire()) {
+          return current;
+        }
+      }
+    }
+
+    //Replace the stores, the ones left out are closed once the lookups on the previous snapshot are done
+    private void swap(Layer[] layers, boolean delete) {
+      Snapshot previous = snapshot;
+      List<Layer> retired = new ArrayList<Layer>(Arrays.asList(previous.layers));
+      retired.removeAll(Arrays.asList(layers));
+      previous.retire(retired, delete);
+      snapshot = new Snapshot(layers);
+      previous.release();
+    }
+
+    private int deltaCount() {
+      int count = 0;
+      for (Layer layer : snapshot.layers) {
+        if (!layer.base) {
+          count++;
+        }
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Stores of a shard at one point, newest first, with a count of the lookups using them.
+   */
+  private static final class Snapshot {
+
+    private final Layer[] layers;
+    // One reference is held by the shard until the snapshot is replaced
+    private final AtomicInteger references = new AtomicInteger(1);
+    private volatile List<Layer> retired = Collections.emptyList();
+    private volatile boolean delete;
+
+    private Snapshot(Layer[] layers) {
+      this.layers = layers;
+    }
+
+    private boolean acquire() {
+      for (int count = references.get(); count > 0; count = references.get()) {
+        if (references.compareAndSet(count, count + 1)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void retire(List<Layer> layers, boolean delete) {
+      this.retired = layers;
+      this.delete = delete;
+    }
+
+    private void release() {
+      if (references.decrementAndGet() == 0) {
+        for (Layer layer : retired) {
+          layer.delete(delete);
+        }
+      }
+    }
+  }
+
+  /**
+   * A base or delta store of a shard.
+   */
+  private static final class Layer {
+
+    private final long sequence;
+    private final boolean base;
+    private final File file;
+    private final StorageReader reader;
+
+    private Layer(long sequence, boolean base, File file, StorageReader reader) {
+      this.sequence = sequence;
+      this.base = base;
+      this.file = file;
+      this.reader = reader;
+    }
+
+    //Close the reader and delete the file if asked
+    private void delete(boolean delete) {
+      try {
+        reader.close();
+        if (delete) {
+          Files.deleteIfExists(file.toPath());
+        }
+      } catch (IOException ex) {
+        LOGGER.log(Level.WARNING, "Couldn't close " + file, ex);
+      }
+    }
+  }
+}
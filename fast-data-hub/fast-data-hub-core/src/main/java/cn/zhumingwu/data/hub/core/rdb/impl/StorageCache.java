@@ -18,14 +18,15 @@ import cn.zhumingwu.data.hub.core.rdb.api.Configuration;
 import cn.zhumingwu.data.hub.core.serializer.Serializer;
 
 import java.text.DecimalFormat;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
 /**
- * LRU cache configured on the desired size in memory.
+ * Concurrent segmented LRU cache configured on the desired size in memory.
  * <dl>
  *   <dt>This cache can be configured with the following properties:</dt>
  *   <dd><code>cache.enabled</code> - LRU cache enabled</dd>
@@ -36,6 +37,13 @@ import java.util.logging.Logger;
  * <p>
  * The cache estimates the size of the objects it contains so it consumes no more than the configured
  * memory limit.
+ * <p>
+ * Keys are spread by hash over lock-striped segments, each one owning an equal share of the limit,
+ * so readers sharing a store only contend when they hit the same stripe. A stripe keeps two LRU lists:
+ * new entries go to the probation list and are promoted to the protected list on their next hit, the
+ * protected list is capped to 80% of the stripe weight and entries falling out of it go back to probation.
+ * Eviction takes the least recently used probation entry first, so a scan of keys read once does not
+ * flush the entries that are read repeatedly. Small caches use a single stripe.
  */
 public class StorageCache {
     // Static null object to recognizes null from missing values
@@ -60,14 +68,23 @@ public class StorageCache {
 
     /*
      * Memory usage
-     *  632 bytes for the LinkedHashMap
-     *  24 bytes theoretical overhead per entry but more like 45 in practice
+     *  24 bytes theoretical overhead per map entry but more like 45 in practice
+     *  40 bytes for the list node
      */
     final static int OVERHEAD = 50;
-    private final LinkedHashMap cache;
+    // Minimal weight of a stripe, smaller caches use fewer stripes
+    final static long MIN_STRIPE_WEIGHT = 1024 * 1024;
+    // Maximum number of stripes
+    final static int MAX_STRIPES = Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4));
+    // Share of a stripe weight kept by the protected list
+    final static double PROTECTED_RATIO = 0.8;
     private final Configuration configuration;
-    private long maxWeight;
-    private long currentWeight;
+    private volatile Stripe[] stripes;
+    private volatile long maxWeight;
+    // Statistics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
 
     /**
      * Cache constructor.
@@ -75,31 +92,51 @@ public class StorageCache {
      * @param config configuration
      */
     private StorageCache(Configuration config) {
-        cache = new LinkedHashMap(config.getInt(Configuration.CACHE_INITIAL_CAPACITY),
-                config.getFloat(Configuration.CACHE_LOAD_FACTOR), true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry eldest) {
-                boolean res = currentWeight > maxWeight;
-                if (res) {
-                    Object key = eldest.getKey();
-                    Object value = eldest.getValue();
-                    currentWeight -= getWeight(key) + getWeight(value) + OVERHEAD;
-                }
-                return res;
-            }
-        };
-        maxWeight = config.getLong(Configuration.CACHE_BYTES);
-        LOGGER.log(Level.INFO, "Cache initialized with maximum {0} Mb usage",
-                new DecimalFormat("#,##0.00").format(maxWeight / (1024.0 * 1024.0)));
         configuration = config;
+        maxWeight = config.getLong(Configuration.CACHE_BYTES);
+        stripes = createStripes(maxWeight);
+        LOGGER.log(Level.INFO, "Cache initialized with maximum {0} Mb usage in {1} stripes",
+                new Object[]{new DecimalFormat("#,##0.00").format(maxWeight / (1024.0 * 1024.0)), stripes.length});
     }
 
     /**
      * Private constructor used by the <code>DisabledCache</code> inner class.
      */
     private StorageCache() {
-        cache = null;
         configuration = null;
+        stripes = new Stripe[0];
+    }
+
+    /**
+     * Creates the stripes sharing <code>weight</code>, the stripe count is a power of two.
+     *
+     * @param weight max weight of the cache
+     * @return stripes
+     */
+    private Stripe[] createStripes(long weight) {
+        int count = 1;
+        while (count < MAX_STRIPES && weight / (count * 2L) >= MIN_STRIPE_WEIGHT) {
+            count *= 2;
+        }
+        int capacity = Math.max(16, configuration.getInt(Configuration.CACHE_INITIAL_CAPACITY) / count);
+        float loadFactor = configuration.getFloat(Configuration.CACHE_LOAD_FACTOR);
+        Stripe[] res = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            res[i] = new Stripe(capacity, loadFactor, weight / count);
+        }
+        return res;
+    }
+
+    /**
+     * Gets the stripe owning <code>key</code>.
+     *
+     * @param stripes current stripes
+     * @param key key
+     * @return stripe
+     */
+    private static Stripe stripe(Stripe[] stripes, Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
     }
 
     /**
@@ -113,17 +150,25 @@ public class StorageCache {
      * @return value, null or <code>StorageCache.NULL_VALUE</code>
      */
     public <K> K get(Object key) {
-        return (K) cache.get(key);
+        Object value = stripe(stripes, key).get(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return (K) value;
     }
 
     /**
      * Returns true if the cache contains <code>key</code>.
+     * <p>
+     * The lookup doesn't count as an access, neither for the statistics nor for the eviction order.
      *
      * @param key key to test presence for
      * @return true if found, false otherwise
      */
     public boolean contains(Object key) {
-        return cache.containsKey(key);
+        return stripe(stripes, key).contains(key);
     }
 
     /**
@@ -134,10 +179,7 @@ public class StorageCache {
      */
     public void put(Object key, Object value) {
         int weight = getWeight(key) + getWeight(value) + OVERHEAD;
-        currentWeight += weight;
-        if (cache.put(key, value == null ? NULL_VALUE : value) != null) {
-            currentWeight -= weight;
-        }
+        stripe(stripes, key).put(key, value == null ? NULL_VALUE : value, weight);
     }
 
     /**
@@ -212,11 +254,25 @@ public class StorageCache {
 
     /**
      * Sets the max weight in the cache.
+     * <p>
+     * The entries are moved to stripes sized for the new weight, least recently used first.
+     * Entries put concurrently with the resize may be lost, which only costs a later miss.
      *
      * @param maxWeight max weight
      */
-    public void setMaxWeight(long maxWeight) {
+    public synchronized void setMaxWeight(long maxWeight) {
+        Stripe[] previous = stripes;
+        Stripe[] next = createStripes(maxWeight);
+        for (Stripe stripe : previous) {
+            stripe.lock.lock();
+            try {
+                stripe.drainTo(next);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
         this.maxWeight = maxWeight;
+        stripes = next;
     }
 
     /**
@@ -225,7 +281,11 @@ public class StorageCache {
      * @return cache size
      */
     public int size() {
-        return cache.size();
+        int res = 0;
+        for (Stripe stripe : stripes) {
+            res += stripe.size();
+        }
+        return res;
     }
 
     /**
@@ -234,7 +294,239 @@ public class StorageCache {
      * @return weight
      */
     public long getWeight() {
-        return currentWeight;
+        long res = 0;
+        for (Stripe stripe : stripes) {
+            res += stripe.weight;
+        }
+        return res;
+    }
+
+    /**
+     * Gets the cache max weight.
+     *
+     * @return max weight
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Gets the number of <code>get</code> calls that found a value.
+     *
+     * @return hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of <code>get</code> calls that found no value.
+     *
+     * @return miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of entries evicted to keep the cache under its max weight.
+     *
+     * @return eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets the ratio of <code>get</code> calls that found a value.
+     *
+     * @return hit rate, 0 when the cache wasn't read
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "StorageCache{size=" + size() + ", weight=" + getWeight() + ", maxWeight=" + maxWeight
+                + ", stripes=" + stripes.length + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + "}";
+    }
+
+    /**
+     * Cache entry, linked in the list of its segment.
+     */
+    private static final class Node {
+        private final Object key;
+        private Object value;
+        private int weight;
+        private boolean protect;
+        private Node prev;
+        private Node next;
+
+        Node(Object key, Object value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Doubly linked list ordered from the least to the most recently used node.
+     */
+    private static final class NodeList {
+        private Node head;
+        private Node tail;
+        private long weight;
+
+        void addLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+    }
+
+    /**
+     * A lock-guarded segmented LRU owning a share of the cache weight.
+     */
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final HashMap<Object, Node> map;
+        private final NodeList probation = new NodeList();
+        private final NodeList protect = new NodeList();
+        private final long maxWeight;
+        private final long maxProtectedWeight;
+        // Written under the lock, read without it for the statistics
+        private volatile long weight;
+
+        Stripe(int initialCapacity, float loadFactor, long maxWeight) {
+            this.map = new HashMap<Object, Node>(initialCapacity, loadFactor);
+            this.maxWeight = maxWeight;
+            this.maxProtectedWeight = (long) (maxWeight * PROTECTED_RATIO);
+        }
+
+        Object get(Object key) {
+            lock.lock();
+            try {
+                Node node = map.get(key);
+                if (node == null) {
+                    return null;
+                }
+                touch(node);
+                return node.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean contains(Object key) {
+            lock.lock();
+            try {
+                return map.containsKey(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return map.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(Object key, Object value, int nodeWeight) {
+            lock.lock();
+            try {
+                Node node = map.get(key);
+                if (node == null) {
+                    node = new Node(key, value, nodeWeight);
+                    map.put(key, node);
+                    probation.addLast(node);
+                    weight += nodeWeight;
+                } else {
+                    // replacing the value counts as an access
+                    NodeList list = node.protect ? protect : probation;
+                    list.remove(node);
+                    weight += nodeWeight - node.weight;
+                    node.value = value;
+                    node.weight = nodeWeight;
+                    list.addLast(node);
+                    touch(node);
+                }
+                evict();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Moves <code>node</code> to the most recently used end of the protected list.
+         */
+        private void touch(Node node) {
+            if (node.protect) {
+                protect.remove(node);
+                protect.addLast(node);
+                return;
+            }
+            probation.remove(node);
+            node.protect = true;
+            protect.addLast(node);
+            // entries falling out of the protected list get a second chance in probation
+            while (protect.weight > maxProtectedWeight && protect.head != node) {
+                Node demoted = protect.head;
+                protect.remove(demoted);
+                demoted.protect = false;
+                probation.addLast(demoted);
+            }
+        }
+
+        private void evict() {
+            while (weight > maxWeight) {
+                Node victim = probation.head != null ? probation.head : protect.head;
+                (victim.protect ? protect : probation).remove(victim);
+                map.remove(victim.key);
+                weight -= victim.weight;
+                evictions.increment();
+            }
+        }
+
+        /**
+         * Puts every entry into <code>target</code> stripes, probation then protected, least recently used first.
+         */
+        void drainTo(Stripe[] target) {
+            for (NodeList list : new NodeList[]{probation, protect}) {
+                for (Node node = list.head; node != null; node = node.next) {
+                    stripe(target, node.key).put(node.key, node.value, node.weight);
+                }
+            }
+        }
     }
 
     /**
@@ -260,6 +552,10 @@ public class StorageCache {
         public void put(Object key, Object value) {
         }
 
+        @Override
+        public synchronized void setMaxWeight(long maxWeight) {
+        }
+
         @Override
         public int size() {
             return 0;
@@ -18,7 +18,6 @@ package cn.zhumingwu.data.hub.core.rdb.impl;
 import cn.zhumingwu.data.hub.core.rdb.api.Configuration;
 import cn.zhumingwu.data.hub.core.rdb.utils.FormatVersion;
 import cn.zhumingwu.data.hub.core.serializer.Serializers;
-import cn.zhumingwu.data.hub.core.util.DataInputOutput;
 import cn.zhumingwu.data.hub.core.util.HashUtils;
 import cn.zhumingwu.data.hub.core.util.LongPacker;
 
@@ -39,12 +38,16 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
 /**
  * Internal read implementation.
+ * <p>
+ * Lookups only use absolute reads on the mapped buffers and positional reads on the channel,
+ * so one reader can be shared by concurrent threads.
  */
 public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
 
@@ -78,6 +81,16 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
   private final long[] dataOffsets;
   // Data size
   private final long dataSize;
+  // Bloom filter for each key length, null when the key length has none
+  private final BloomFilter[] bloomFilters;
+  // Value codec or null
+  private final ValueCodec codec;
+  // Value bytes before and after compression
+  private final long rawDataLength;
+  private final long blockDataLength;
+  // Decompressed values and time spent
+  private final LongAdder decodeCount = new LongAdder();
+  private final LongAdder decodeNanos = new LongAdder();
   // Index and data buffers
   private MappedByteBuffer indexBuffer;
   private MappedByteBuffer[] dataBuffers;
@@ -86,11 +99,6 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
   private FileChannel channel;
   // Use MMap for data?
   private final boolean mMapData;
-  // Buffers
-  private final DataInputOutput sizeBuffer = new DataInputOutput(new byte[5]);
-  private final byte[] slotBuffer;
-
-  private final HashUtils hashUtils;
 
   StorageReader(Configuration configuration, File file)
       throws IOException {
@@ -104,8 +112,6 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
     //Config
     segmentSize = config.getLong(Configuration.MMAP_SEGMENT_SIZE);
 
-    hashUtils = new HashUtils();
-
     // Check valid segmentSize
     if (segmentSize > Integer.MAX_VALUE) {
       throw new IllegalArgumentException(
@@ -138,10 +144,10 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
       dataInputStream.readFully(versionFound, mark.length, versionFound.length - mark.length);
 
       formatVersion = FormatVersion.fromBytes(versionFound);
-      if (formatVersion == null || !formatVersion.is(FormatVersion.getLatestVersion())) {
+      if (formatVersion == null) {
         throw new RuntimeException(
-                "Version mismatch, expected was '" + FormatVersion.getLatestVersion() + "' and found '" + formatVersion
-                        + "'");
+                "Version mismatch, expected was up to '" + FormatVersion.getLatestVersion() + "' and found '"
+                        + new String(versionFound) + "'");
       }
 
       //Time
@@ -158,8 +164,8 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
       keyCounts = new int[maxKeyLength + 1];
       slots = new int[maxKeyLength + 1];
       slotSizes = new int[maxKeyLength + 1];
+      bloomFilters = new BloomFilter[maxKeyLength + 1];
 
-      int maxSlotSize = 0;
       for (int i = 0; i < keyLengthCount; i++) {
         int keyLength = dataInputStream.readInt();
 
@@ -168,11 +174,24 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
         slotSizes[keyLength] = dataInputStream.readInt();
         indexOffsets[keyLength] = dataInputStream.readInt();
         dataOffsets[keyLength] = dataInputStream.readLong();
-
-        maxSlotSize = Math.max(maxSlotSize, slotSizes[keyLength]);
+        if (!formatVersion.is(FormatVersion.PALDB_V1)) {
+          bloomFilters[keyLength] = BloomFilter.read(dataInputStream);
+        }
       }
 
-      slotBuffer = new byte[maxSlotSize];
+      //Read the value codec
+      if (formatVersion.compareTo(FormatVersion.PALDB_V3) >= 0) {
+        byte codecId = dataInputStream.readByte();
+        rawDataLength = dataInputStream.readLong();
+        blockDataLength = dataInputStream.readLong();
+        byte[] dictionary = new byte[dataInputStream.readInt()];
+        dataInputStream.readFully(dictionary);
+        codec = ValueCodec.create(codecId, dictionary);
+      } else {
+        rawDataLength = 0;
+        blockDataLength = 0;
+        codec = null;
+      }
 
       //Read serializers
       try {
@@ -231,9 +250,17 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
       if (keyCounts[i] > 0) {
         statMsg.append("  Key count for key length " + i + ": " + keyCounts[i] + "\n");
       }
+      if (bloomFilters[i] != null) {
+        statMsg.append("  Bloom filter size for key length " + i + ": " + bloomFilters[i].getSize() + " bytes\n");
+      }
     }
     statMsg.append("  Index size: " + integerFormat.format((dataOffset - indexOffset) / (1024.0 * 1024.0)) + " Mb\n");
     statMsg.append("  Data size: " + integerFormat.format((fileSize - dataOffset) / (1024.0 * 1024.0)) + " Mb\n");
+    if (codec != null) {
+      statMsg.append("  Value codec: " + codec.getName() + ", compression ratio "
+          + integerFormat.format(rawDataLength / (double) Math.max(1, blockDataLength))
+          + (codec.getDictionary() != null ? ", dictionary size " + codec.getDictionary().length + " bytes" : "") + "\n");
+    }
     if (mMapData) {
       statMsg.append("  Number of memory mapped data buffers: " + dataBuffers.length);
     } else {
@@ -245,36 +272,156 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
   //Get the value for the given key or null
   public byte[] get(byte[] key)
       throws IOException {
+    long offset = find(key);
+    if (offset < 0) {
+      return null;
+    }
+    return getValue(offset);
+  }
+
+  //Get a read-only view of the value for the given key or null, a slice of the mapped data when possible
+  public ByteBuffer getBuffer(byte[] key)
+      throws IOException {
+    long offset = find(key);
+    if (offset < 0) {
+      return null;
+    }
+    if (mMapData && codec == null) {
+      return getMMapBlock(offset).asReadOnlyBuffer();
+    }
+    return ByteBuffer.wrap(getValue(offset)).asReadOnlyBuffer();
+  }
+
+  //Read the value at the given offset, a compressed block is decompressed straight from the mapped data
+  private byte[] getValue(long offset)
+      throws IOException {
+    if (codec == null) {
+      return mMapData ? getMMapBytes(offset) : getDiskBytes(offset);
+    }
+    long startTime = System.nanoTime();
+    byte[] value = codec.decode(mMapData ? getMMapBlock(offset) : ByteBuffer.wrap(getDiskBytes(offset)));
+    decodeNanos.add(System.nanoTime() - startTime);
+    decodeCount.increment();
+    return value;
+  }
+
+  //Get the stored bytes at the given offset, a slice of the data buffer unless they are spread over two buffers
+  private ByteBuffer getMMapBlock(long offset)
+      throws IOException {
+    long sizeAndLength = getMMapSize(offset);
+    int size = (int) sizeAndLength;
+    long start = offset + (sizeAndLength >>> 32);
+    ByteBuffer buf = dataBuffers[(int) (start / segmentSize)];
+    int position = (int) (start % segmentSize);
+    if (buf.limit() - position >= size) {
+      return buf.slice(position, size);
+    }
+    return ByteBuffer.wrap(getMMapBytes(offset));
+  }
+
+  //Compression ratio and average time to decompress a value, null without codec
+  public String getCompressionStats() {
+    if (codec == null) {
+      return null;
+    }
+    long count = decodeCount.sum();
+    return String.format("codec=%s, ratio=%.2f, decompressed=%d, avgDecompressMicros=%.2f", codec.getName(),
+        rawDataLength / (double) Math.max(1, blockDataLength), count,
+        count == 0 ? 0.0 : decodeNanos.sum() / 1000.0 / count);
+  }
+
+  //Find the data offset of the given key or -1
+  private long find(byte[] key) {
     int keyLength = key.length;
     if (keyLength >= slots.length || keyCounts[keyLength] == 0) {
-      return null;
+      return -1;
     }
-    long hash = (long) hashUtils.hash(key);
+    int keyHash = HashUtils.hash(key);
+    BloomFilter bloomFilter = bloomFilters[keyLength];
+    if (bloomFilter != null && !bloomFilter.mightContain(key)) {
+      return -1;
+    }
+    return probe(key, keyHash);
+  }
+
+  //Get the values for the given keys, null where the key isn't found. The probes are sorted by slot offset
+  //so the index is read in sequence, duplicate keys are probed once and share the same value bytes
+  public void getAll(byte[][] keys, byte[][] values)
+      throws IOException {
+    long[] probes = new long[keys.length];
+    int[] hashes = new int[keys.length];
+    int count = 0;
+    for (int i = 0; i < keys.length; i++) {
+      values[i] = null;
+      byte[] key = keys[i];
+      int keyLength = key.length;
+      if (keyLength >= slots.length || keyCounts[keyLength] == 0) {
+        continue;
+      }
+      int keyHash = HashUtils.hash(key);
+      BloomFilter bloomFilter = bloomFilters[keyLength];
+      if (bloomFilter != null && !bloomFilter.mightContain(key)) {
+        continue;
+      }
+      hashes[i] = keyHash;
+      int slotOffset = indexOffsets[keyLength] + (keyHash % slots[keyLength]) * slotSizes[keyLength];
+      probes[count++] = (long) slotOffset << 32 | i;
+    }
+    Arrays.sort(probes, 0, count);
+
+    int run = 0;
+    for (int p = 0; p < count; p++) {
+      int slotOffset = (int) (probes[p] >>> 32);
+      int i = (int) probes[p];
+      if (p > 0 && slotOffset != (int) (probes[p - 1] >>> 32)) {
+        run = p;
+      }
+      //Equal keys start at the same slot, look for one already read in the current run
+      int same = -1;
+      for (int q = run; q < p && same < 0; q++) {
+        if (Arrays.equals(keys[(int) probes[q]], keys[i])) {
+          same = (int) probes[q];
+        }
+      }
+      if (same >= 0) {
+        values[i] = values[same];
+        continue;
+      }
+      long offset = probe(keys[i], hashes[i]);
+      if (offset >= 0) {
+        values[i] = getValue(offset);
+      }
+    }
+  }
+
+  //Probe the slots of the key length from the slot of the hash, returns the data offset or -1
+  private long probe(byte[] key, int keyHash) {
+    int keyLength = key.length;
+    long hash = (long) keyHash;
     int numSlots = slots[keyLength];
     int slotSize = slotSizes[keyLength];
     int indexOffset = indexOffsets[keyLength];
     long dataOffset = dataOffsets[keyLength];
+    ByteBuffer index = indexBuffer;
 
     for (int probe = 0; probe < numSlots; probe++) {
       int slot = (int) ((hash + probe) % numSlots);
-      indexBuffer.position(indexOffset + slot * slotSize);
-      indexBuffer.get(slotBuffer, 0, slotSize);
+      int slotOffset = indexOffset + slot * slotSize;
 
-      long offset = LongPacker.unpackLong(slotBuffer, keyLength);
+      long offset = LongPacker.unpackLong(index, slotOffset + keyLength);
       if (offset == 0) {
-        return null;
+        return -1;
       }
-      if (isKey(slotBuffer, key)) {
-        byte[] value = mMapData ? getMMapBytes(dataOffset + offset) : getDiskBytes(dataOffset + offset);
-        return value;
+      if (isKey(index, slotOffset, key)) {
+        return dataOffset + offset;
       }
     }
-    return null;
+    return -1;
   }
 
-  private boolean isKey(byte[] slotBuffer, byte[] key) {
+  private boolean isKey(ByteBuffer index, int slotOffset, byte[] key) {
     for (int i = 0; i < key.length; i++) {
-      if (slotBuffer[i] != key[i]) {
+      if (index.get(slotOffset + i) != key[i]) {
         return false;
       }
     }
@@ -286,6 +433,9 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
       throws IOException {
     channel.close();
     mappedFile.close();
+    if (codec != null) {
+      codec.close();
+    }
     indexBuffer = null;
     dataBuffers = null;
     mappedFile = null;
@@ -300,84 +450,79 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
   //Read the data at the given offset, the data can be spread over multiple data buffers
   private byte[] getMMapBytes(long offset)
       throws IOException {
-    //Read the first 4 bytes to get the size of the data
-    ByteBuffer buf = getDataBuffer(offset);
-    int maxLen = (int) Math.min(5, dataSize - offset);
-
-    int size;
-    if (buf.remaining() >= maxLen) {
-      //Continuous read
-      int pos = buf.position();
-      size = LongPacker.unpackInt(buf);
-
-      // Used in case of data is spread over multiple buffers
-      offset += buf.position() - pos;
-    } else {
-      //The size of the data is spread over multiple buffers
-      int len = maxLen;
-      int off = 0;
-      sizeBuffer.reset();
-      while (len > 0) {
-        buf = getDataBuffer(offset + off);
-        int count = Math.min(len, buf.remaining());
-        buf.get(sizeBuffer.getBuf(), off, count);
-        off += count;
-        len -= count;
-      }
-      size = LongPacker.unpackInt(sizeBuffer);
-      offset += sizeBuffer.getPos();
-      buf = getDataBuffer(offset);
-    }
+    //Read the packed size of the data
+    long sizeAndLength = getMMapSize(offset);
+    int size = (int) sizeAndLength;
+    offset += sizeAndLength >>> 32;
 
     //Create output bytes
     byte[] res = new byte[size];
 
-    //Check if the data is one buffer
-    if (buf.remaining() >= size) {
-      //Continuous read
-      buf.get(res, 0, size);
-    } else {
-      int len = size;
-      int off = 0;
-      while (len > 0) {
-        buf = getDataBuffer(offset);
-        int count = Math.min(len, buf.remaining());
-        buf.get(res, off, count);
-        offset += count;
-        off += count;
-        len -= count;
-      }
+    int off = 0;
+    while (off < size) {
+      ByteBuffer buf = dataBuffers[(int) (offset / segmentSize)];
+      int position = (int) (offset % segmentSize);
+      int count = Math.min(size - off, buf.limit() - position);
+      buf.get(position, res, off, count);
+      offset += count;
+      off += count;
     }
-
     return res;
   }
 
+  //Read the packed size at the given offset, returns the length of the packed size in the high bits
+  private long getMMapSize(long offset)
+      throws IOException {
+    int size = 0;
+    for (int length = 1, shift = 0; shift < 32; length++, shift += 7) {
+      if (offset >= dataSize) {
+        throw new EOFException();
+      }
+      int b = dataBuffers[(int) (offset / segmentSize)].get((int) (offset % segmentSize));
+      size |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (long) length << 32 | size;
+      }
+      offset++;
+    }
+    throw new IOException("Malformed integer.");
+  }
+
   //Get data from disk
   private byte[] getDiskBytes(long offset)
       throws IOException {
-    mappedFile.seek(dataOffset + offset);
+    long position = dataOffset + offset;
 
     //Get size of data
-    int size = LongPacker.unpackInt(mappedFile);
+    ByteBuffer sizeBuffer = ByteBuffer.allocate(5);
+    channel.read(sizeBuffer, position);
+    int size = 0;
+    int length = 0;
+    for (int shift = 0; ; shift += 7) {
+      if (length == sizeBuffer.position()) {
+        throw new EOFException();
+      }
+      int b = sizeBuffer.get(length++);
+      size |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        break;
+      }
+    }
+    position += length;
 
     //Create output bytes
     byte[] res = new byte[size];
 
     //Read data
-    if (mappedFile.read(res) == -1) {
-      throw new EOFException();
+    ByteBuffer buf = ByteBuffer.wrap(res);
+    while (buf.hasRemaining()) {
+      if (channel.read(buf, position + buf.position()) == -1) {
+        throw new EOFException();
+      }
     }
-
     return res;
   }
 
-  //Return the data buffer for the given position
-  private ByteBuffer getDataBuffer(long index) {
-    ByteBuffer buf = dataBuffers[(int) (index / segmentSize)];
-    buf.position((int) (index % segmentSize));
-    return buf;
-  }
-
   private String formatCreatedAt(long createdAt) {
     SimpleDateFormat sdf = new SimpleDateFormat("yyyy.MM.dd G 'at' HH:mm:ss z");
     Calendar cl = Calendar.getInstance();
@@ -433,11 +578,9 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
     @Override
     public FastEntry next() {
       try {
-        indexBuffer.position(currentIndexOffset);
-
         long offset = 0;
         while (offset == 0) {
-          indexBuffer.get(currentSlotBuffer);
+          indexBuffer.get(currentIndexOffset, currentSlotBuffer);
           offset = LongPacker.unpackLong(currentSlotBuffer, currentKeyLength);
           currentIndexOffset += currentSlotBuffer.length;
         }
@@ -447,7 +590,7 @@ public class StorageReader implements Iterable<Map.Entry<byte[], byte[]>> {
 
         if (withValue) {
           long valueOffset = currentDataOffset + offset;
-          value = mMapData ? getMMapBytes(valueOffset) : getDiskBytes(valueOffset);
+          value = getValue(valueOffset);
         }
 
         entry.set(key, value);
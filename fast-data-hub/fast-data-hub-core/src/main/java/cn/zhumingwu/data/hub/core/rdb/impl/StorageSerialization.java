@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 import cn.zhumingwu.data.hub.core.exception.UnsupportedTypeException;
 import cn.zhumingwu.data.hub.core.rdb.api.Configuration;
@@ -32,11 +33,13 @@ import org.xerial.snappy.Snappy;
 
 /**
  * Internal serialization implementation.
+ * <p>
+ * The serialization buffers are per thread so an instance can be shared by concurrent readers.
  */
 public final class StorageSerialization {
 
-  //Buffer
-  private final DataInputOutput dataInputOutput = new DataInputOutput();
+  //Buffer, per thread
+  private static final ThreadLocal<DataInputOutput> BUFFERS = ThreadLocal.withInitial(DataInputOutput::new);
   //Compression
   private final boolean compression;
   //Serializers
@@ -67,10 +70,50 @@ public final class StorageSerialization {
     if (key == null) {
       throw new NullPointerException();
     }
-    serializeObject(key, dataInputOutput.reset(), false);
+    DataInputOutput dataInputOutput = BUFFERS.get().reset();
+    serializeObject(key, dataInputOutput, false);
     return dataInputOutput.toByteArray();
   }
 
+  /**
+   * Serializes the key objects with a single buffer and returns them as byte arrays.
+   *
+   * @param keys keys to serialize
+   * @return keys as byte arrays, in the same order
+   * @throws IOException if an io error occurs
+   */
+  public byte[][] serializeKeys(Object[] keys)
+      throws IOException {
+    DataInputOutput dataInputOutput = BUFFERS.get();
+    byte[][] result = new byte[keys.length][];
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] == null) {
+        throw new NullPointerException();
+      }
+      serializeObject(keys[i], dataInputOutput.reset(), false);
+      result[i] = dataInputOutput.toByteArray();
+    }
+    return result;
+  }
+
+  /**
+   * Serializes the long keys with a single buffer and returns them as byte arrays, without boxing the keys.
+   *
+   * @param keys keys to serialize
+   * @return keys as byte arrays, in the same order
+   * @throws IOException if an io error occurs
+   */
+  public byte[][] serializeKeys(long[] keys)
+      throws IOException {
+    DataInputOutput dataInputOutput = BUFFERS.get();
+    byte[][] result = new byte[keys.length][];
+    for (int i = 0; i < keys.length; i++) {
+      serializeLong(dataInputOutput.reset(), keys[i]);
+      result[i] = dataInputOutput.toByteArray();
+    }
+    return result;
+  }
+
   /**
    * Serializes the key and writes it into <code>dataOutput</code>.
    *
@@ -93,7 +136,8 @@ public final class StorageSerialization {
   public byte[] serializeValue(Object value)
       throws IOException {
 
-    serializeObject(value, dataInputOutput.reset(), compression);
+    DataInputOutput dataInputOutput = BUFFERS.get().reset();
+    serializeObject(value, dataInputOutput, compression);
     return dataInputOutput.toByteArray();
   }
 
@@ -829,6 +873,42 @@ public final class StorageSerialization {
     return ret;
   }
 
+  /**
+   * Returns the content of a serialized byte array as a read-only buffer.
+   * <p>
+   * Uncompressed arrays are a slice of <code>buf</code>, compressed arrays are uncompressed into a new buffer.
+   *
+   * @param buf serialized value
+   * @return content or null if the value is null
+   * @throws IOException if an io error occurs
+   * @throws ClassCastException if the value isn't a byte array
+   */
+  public ByteBuffer deserializeByteBuffer(ByteBuffer buf)
+      throws IOException {
+    int head = buf.get(0) & 0xff;
+    if (head == NULL) {
+      return null;
+    } else if (head == BYTE_ARRAY) {
+      int index = 1;
+      int size = 0;
+      for (int shift = 0; ; shift += 7) {
+        int b = buf.get(index++);
+        size |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          break;
+        }
+      }
+      return buf.slice(index, size).asReadOnlyBuffer();
+    } else if (head == BYTE_ARRAY_C) {
+      byte[] b = new byte[buf.limit()];
+      buf.get(0, b);
+      DataInputOutput is = new DataInputOutput(b);
+      is.skipBytes(1);
+      return ByteBuffer.wrap(deserializeByteCompressedArray(is)).asReadOnlyBuffer();
+    }
+    throw new ClassCastException("The value isn't a byte array, header " + head);
+  }
+
   public Object deserialize(DataInput is)
       throws IOException, ClassNotFoundException {
     Object ret = null;
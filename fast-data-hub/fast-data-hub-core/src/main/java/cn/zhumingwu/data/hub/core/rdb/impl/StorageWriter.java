@@ -32,25 +32,53 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Internal write implementation.
+ * <p>
+ * Keys and values are streamed to temporary files per key length, on close the index of
+ * each key length is built in parallel and every file is appended to the output channel.
+ * With a value codec each value is compressed into its own block, the dictionary of the
+ * codec is trained on the first values which are kept until there are enough samples.
  */
 public class StorageWriter {
 
   private final static Logger LOGGER = Logger.getLogger(StorageWriter.class.getName());
+  // Sample bytes kept per dictionary byte
+  private final static int DICTIONARY_SAMPLE_RATIO = 100;
   // Configuration
   private final Configuration config;
   private final double loadFactor;
+  // Bloom filters
+  private final boolean bloomFilterEnabled;
+  private final double bloomFilterFpp;
+  private BloomFilter[] bloomFilters;
+  // Value codec, null without compression or until the dictionary is trained
+  private final String codecName;
+  private final int dictionarySize;
+  private ValueCodec codec;
+  // Entries kept to train the dictionary, null once trained
+  private List<byte[]> pendingKeys;
+  private List<byte[]> pendingValues;
+  private long pendingLength;
+  // Value bytes before and after compression
+  private long rawDataLength;
+  private long blockDataLength;
   // Output
   private final File tempFolder;
+  private final OutputStream stream;
   private final OutputStream outputStream;
   // Index stream
   private File[] indexFiles;
@@ -73,9 +101,7 @@ public class StorageWriter {
   // Number of values
   private int valueCount;
   // Number of collisions
-  private int collisions;
-
-  private HashUtils hashUtils;
+  private long collisions;
 
   StorageWriter(Configuration configuration, OutputStream stream) {
     config = configuration;
@@ -83,11 +109,34 @@ public class StorageWriter {
     if (loadFactor <= 0.0 || loadFactor >= 1.0) {
       throw new IllegalArgumentException("Illegal load factor = " + loadFactor + ", should be between 0.0 and 1.0.");
     }
-
+    bloomFilterEnabled = config.getBoolean(Configuration.BLOOM_FILTER_ENABLED);
+    bloomFilterFpp = config.getDouble(Configuration.BLOOM_FILTER_FPP);
+    if (bloomFilterEnabled && (bloomFilterFpp <= 0.0 || bloomFilterFpp >= 1.0)) {
+      throw new IllegalArgumentException(
+          "Illegal bloom filter fpp = " + bloomFilterFpp + ", should be between 0.0 and 1.0.");
+    }
+    codecName = config.get(Configuration.COMPRESSION_CODEC, "none");
+    dictionarySize = config.getInt(Configuration.COMPRESSION_DICTIONARY_SIZE, 0);
+    if (dictionarySize < 0 || dictionarySize > ValueCodec.MAX_DICTIONARY_SIZE) {
+      throw new IllegalArgumentException(
+          "Illegal dictionary size = " + dictionarySize + ", should be between 0 and " + ValueCodec.MAX_DICTIONARY_SIZE);
+    }
+    codec = ValueCodec.create(codecName, null);
+    if (dictionarySize > 0) {
+      if (codec == null || codec.getId() != ValueCodec.DEFLATE) {
+        throw new IllegalArgumentException("A dictionary is only supported by the deflate codec");
+      }
+      // The first values are kept until there are enough samples
+      codec.close();
+      codec = null;
+      pendingKeys = new ArrayList<byte[]>();
+      pendingValues = new ArrayList<byte[]>();
+    }
     // Create temp path folder
     tempFolder = TempUtils.createTempDir("paldbtempwriter");
     tempFolder.deleteOnExit();
     LOGGER.log(Level.INFO, "Creating temporary folder at {0}", tempFolder.toString());
+    this.stream = stream;
     outputStream = stream instanceof BufferedOutputStream ? stream : new BufferedOutputStream(stream);
     indexStreams = new DataOutputStream[0];
     dataStreams = new DataOutputStream[0];
@@ -98,11 +147,41 @@ public class StorageWriter {
     dataLengths = new long[0];
     maxOffsetLengths = new int[0];
     keyCounts = new int[0];
-    hashUtils = new HashUtils();
   }
 
   public void put(byte[] key, byte[] value)
       throws IOException {
+    if (pendingKeys != null) {
+      pendingKeys.add(key);
+      pendingValues.add(value);
+      pendingLength += value.length;
+      if (pendingLength >= (long) dictionarySize * DICTIONARY_SAMPLE_RATIO) {
+        trainDictionary();
+      }
+      return;
+    }
+    write(key, value);
+  }
+
+  //Train the dictionary on the values kept so far and write them
+  private void trainDictionary()
+      throws IOException {
+    long startTime = System.nanoTime();
+    byte[] dictionary = ValueCodec.trainDictionary(pendingValues, dictionarySize);
+    codec = ValueCodec.create(codecName, dictionary);
+    LOGGER.log(Level.INFO, "Trained a dictionary of {0} bytes from {1} values in {2} ms",
+        new Object[]{dictionary.length, pendingValues.size(), (System.nanoTime() - startTime) / 1000000});
+    List<byte[]> keys = pendingKeys;
+    List<byte[]> values = pendingValues;
+    pendingKeys = null;
+    pendingValues = null;
+    for (int i = 0; i < keys.size(); i++) {
+      write(keys.get(i), values.get(i));
+    }
+  }
+
+  private void write(byte[] key, byte[] value)
+      throws IOException {
     int keyLength = key.length;
 
     //Get the Output stream for that keyLength, each key length has its own file
@@ -130,16 +209,21 @@ public class StorageWriter {
       // Get stream
       DataOutputStream dataStream = getDataStream(keyLength);
 
+      // Compress the value into its own block
+      byte[] block = codec == null ? value : codec.encode(value);
+      rawDataLength += value.length;
+      blockDataLength += block.length;
+
       // Write size and value
-      int valueSize = LongPacker.packInt(dataStream, value.length);
-      dataStream.write(value);
+      int valueSize = LongPacker.packInt(dataStream, block.length);
+      dataStream.write(block);
 
       // Update data length
-      dataLengths[keyLength] += valueSize + value.length;
+      dataLengths[keyLength] += valueSize + block.length;
 
       // Update last value
       lastValues[keyLength] = value;
-      lastValuesLength[keyLength] = valueSize + value.length;
+      lastValuesLength[keyLength] = valueSize + block.length;
 
       valueCount++;
     }
@@ -150,6 +234,11 @@ public class StorageWriter {
 
   public void close()
       throws IOException {
+    // Write the values kept for a dictionary that never got enough samples
+    if (pendingKeys != null) {
+      trainDictionary();
+    }
+
     // Close the data and index streams
     for (DataOutputStream dos : dataStreams) {
       if (dos != null) {
@@ -165,28 +254,31 @@ public class StorageWriter {
     // Stats
     LOGGER.log(Level.INFO, "Number of keys: {0}", keyCount);
     LOGGER.log(Level.INFO, "Number of values: {0}", valueCount);
+    if (codec != null) {
+      LOGGER.log(Level.INFO, "Compression ratio of the {0} codec: {1}",
+          new Object[]{codec.getName(), new DecimalFormat("#,##0.00").format(rawDataLength / (double) Math.max(1, blockDataLength))});
+    }
 
     // Prepare files to merge
     List<File> filesToMerge = new ArrayList<File>();
 
     try {
 
+      // Build index files, one task per key length, the bloom filters are filled at the same time
+      bloomFilters = new BloomFilter[indexFiles.length];
+      List<File> indexFilesToMerge = buildIndexes();
+
       //Write metadata file
       File metadataFile = new File(tempFolder, "metadata.dat");
       metadataFile.deleteOnExit();
+      filesToMerge.add(metadataFile);
       FileOutputStream metadataOututStream = new FileOutputStream(metadataFile);
-      DataOutputStream metadataDataOutputStream = new DataOutputStream(metadataOututStream);
+      DataOutputStream metadataDataOutputStream = new DataOutputStream(new BufferedOutputStream(metadataOututStream));
       writeMetadata(metadataDataOutputStream);
       metadataDataOutputStream.close();
       metadataOututStream.close();
-      filesToMerge.add(metadataFile);
 
-      // Build index file
-      for (int i = 0; i < indexFiles.length; i++) {
-        if (indexFiles[i] != null) {
-          filesToMerge.add(buildIndex(i));
-        }
-      }
+      filesToMerge.addAll(indexFilesToMerge);
 
       // Stats collisions
       LOGGER.log(Level.INFO, "Number of collisions: {0}", collisions);
@@ -204,6 +296,9 @@ public class StorageWriter {
     } finally {
       outputStream.close();
       cleanup(filesToMerge);
+      if (codec != null) {
+        codec.close();
+      }
     }
   }
 
@@ -257,9 +352,22 @@ public class StorageWriter {
 
         // Increment data length
         datasLength += dataLengths[i];
+
+        // Write bloom filter, empty when disabled
+        BloomFilter.write(bloomFilters[i], dataOutputStream);
       }
     }
 
+    //Write the value codec, the value bytes before and after compression and the dictionary
+    dataOutputStream.writeByte(codec == null ? ValueCodec.NONE : codec.getId());
+    dataOutputStream.writeLong(rawDataLength);
+    dataOutputStream.writeLong(blockDataLength);
+    byte[] dictionary = codec == null ? null : codec.getDictionary();
+    dataOutputStream.writeInt(dictionary == null ? 0 : dictionary.length);
+    if (dictionary != null) {
+      dataOutputStream.write(dictionary);
+    }
+
     //Write serializers
     try {
       Serializers.serialize(dataOutputStream, config.getSerializers());
@@ -273,27 +381,84 @@ public class StorageWriter {
     dataOutputStream.writeLong(indexOffset + indexesLength);
   }
 
+  //Build the index of every key length on a fork-join pool, returns the index files in key length order
+  private List<File> buildIndexes()
+      throws IOException {
+    List<ForkJoinTask<File>> tasks = new ArrayList<ForkJoinTask<File>>();
+    for (int i = 0; i < indexFiles.length; i++) {
+      if (indexFiles[i] != null) {
+        final int keyLength = i;
+        tasks.add(ForkJoinTask.adapt(() -> buildIndex(keyLength)));
+      }
+    }
+    long startTime = System.nanoTime();
+    List<File> res = new ArrayList<File>();
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(tasks.size(), Runtime.getRuntime().availableProcessors())));
+    try {
+      for (ForkJoinTask<File> task : tasks) {
+        pool.execute(task);
+      }
+      for (ForkJoinTask<File> task : tasks) {
+        try {
+          res.add(task.get());
+        } catch (ExecutionException ex) {
+          // a task failing in a worker is rethrown as a copy wrapping the original exception
+          Throwable cause = ex.getCause();
+          if (cause.getCause() != null && cause.getClass() == cause.getCause().getClass()) {
+            cause = cause.getCause();
+          }
+          // adapted callables wrap the checked exceptions
+          if (cause instanceof RuntimeException && cause.getCause() instanceof IOException) {
+            cause = cause.getCause();
+          }
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          throw new RuntimeException(cause);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new IOException(ex);
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+      // Make sure the mapped index buffers are liberated
+      System.gc();
+    }
+    LOGGER.log(Level.INFO, "Time to build {0} indexes {1} s",
+        new Object[]{tasks.size(), (System.nanoTime() - startTime) / 1000000000.0});
+    return res;
+  }
+
   private File buildIndex(int keyLength)
       throws IOException {
     long count = keyCounts[keyLength];
     int slots = (int) Math.round(count / loadFactor);
     int offsetLength = maxOffsetLengths[keyLength];
     int slotSize = keyLength + offsetLength;
+    long indexSize = (long) slots * slotSize;
+    if (indexSize > Integer.MAX_VALUE) {
+      throw new IllegalStateException("The index of key length " + keyLength + " can't be larger than 2GB");
+    }
 
     // Init index
     File indexFile = new File(tempFolder, "index" + keyLength + ".dat");
     RandomAccessFile indexAccessFile = new RandomAccessFile(indexFile, "rw");
+    BloomFilter bloomFilter = bloomFilterEnabled ? BloomFilter.create(count, bloomFilterFpp) : null;
+    long indexCollisions = 0;
     try {
-      indexAccessFile.setLength(slots * slotSize);
+      indexAccessFile.setLength(indexSize);
       FileChannel indexChannel = indexAccessFile.getChannel();
-      MappedByteBuffer byteBuffer = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexAccessFile.length());
+      MappedByteBuffer byteBuffer = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexSize);
 
       // Init reading stream
       File tempIndexFile = indexFiles[keyLength];
-      DataInputStream tempIndexStream = new DataInputStream(new BufferedInputStream(new FileInputStream(tempIndexFile)));
+      DataInputStream tempIndexStream =
+          new DataInputStream(new BufferedInputStream(new FileInputStream(tempIndexFile), 1 << 16));
       try {
         byte[] keyBuffer = new byte[keyLength];
-        byte[] slotBuffer = new byte[slotSize];
         byte[] offsetBuffer = new byte[offsetLength];
 
         // Read all keys
@@ -305,26 +470,29 @@ public class StorageWriter {
           long offset = LongPacker.unpackLong(tempIndexStream);
 
           // Hash
-          long hash = (long) hashUtils.hash(keyBuffer);
+          int keyHash = HashUtils.hash(keyBuffer);
+          long hash = (long) keyHash;
+          if (bloomFilter != null) {
+            bloomFilter.add(keyBuffer);
+          }
 
+          // Probe with absolute reads, nothing is allocated per key
           boolean collision = false;
           for (int probe = 0; probe < count; probe++) {
             int slot = (int) ((hash + probe) % slots);
-            byteBuffer.position(slot * slotSize);
-            byteBuffer.get(slotBuffer);
+            int slotOffset = slot * slotSize;
 
-            long found = LongPacker.unpackLong(slotBuffer, keyLength);
+            long found = LongPacker.unpackLong(byteBuffer, slotOffset + keyLength);
             if (found == 0) {
               // The spot is empty use it
-              byteBuffer.position(slot * slotSize);
-              byteBuffer.put(keyBuffer);
+              byteBuffer.put(slotOffset, keyBuffer);
               int pos = LongPacker.packLong(offsetBuffer, offset);
-              byteBuffer.put(offsetBuffer, 0, pos);
+              byteBuffer.put(slotOffset + keyLength, offsetBuffer, 0, pos);
               break;
             } else {
               collision = true;
               // Check for duplicates
-              if (Arrays.equals(keyBuffer, Arrays.copyOf(slotBuffer, keyLength))) {
+              if (isKey(byteBuffer, slotOffset, keyBuffer)) {
                 throw new RuntimeException(
                         String.format("A duplicate key has been found for for key bytes %s", Arrays.toString(keyBuffer)));
               }
@@ -332,19 +500,20 @@ public class StorageWriter {
           }
 
           if (collision) {
-            collisions++;
+            indexCollisions++;
           }
         }
 
         String msg = "  Max offset length: " + offsetLength + " bytes" +
-                "\n  Slot size: " + slotSize + " bytes";
+                "\n  Slot size: " + slotSize + " bytes" +
+                (bloomFilter == null ? "" : "\n  Bloom filter size: " + bloomFilter.getSize() + " bytes");
 
         LOGGER.log(Level.INFO, "Built index file {0}\n" + msg, indexFile.getName());
       } finally {
         // Close input
         tempIndexStream.close();
 
-        // Close index and make sure resources are liberated
+        // Close index, the buffer is liberated once every index is built
         indexChannel.close();
         indexChannel = null;
         byteBuffer = null;
@@ -354,15 +523,27 @@ public class StorageWriter {
           LOGGER.log(Level.INFO, "Temporary index file {0} has been deleted", tempIndexFile.getName());
         }
       }
-    } finally{
+    } finally {
       indexAccessFile.close();
       indexAccessFile = null;
-      System.gc();
     }
 
+    synchronized (this) {
+      collisions += indexCollisions;
+      bloomFilters[keyLength] = bloomFilter;
+    }
     return indexFile;
   }
 
+  private boolean isKey(MappedByteBuffer byteBuffer, int slotOffset, byte[] key) {
+    for (int i = 0; i < key.length; i++) {
+      if (byteBuffer.get(slotOffset + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   //Fail if the size of the expected store file exceed 2/3rd of the free disk space
   private void checkFreeDiskSpace(List<File> inputFiles) {
     //Check for free space
@@ -383,32 +564,37 @@ public class StorageWriter {
     }
   }
 
-  //Merge files to the provided fileChannel
+  //Merge files to the provided output, file outputs are written by the channels without copying through the heap
   private void mergeFiles(List<File> inputFiles, OutputStream outputStream)
       throws IOException {
     long startTime = System.nanoTime();
 
+    outputStream.flush();
+    WritableByteChannel target = stream instanceof FileOutputStream
+        ? ((FileOutputStream) stream).getChannel() : Channels.newChannel(outputStream);
+
     //Merge files
     for (File f : inputFiles) {
       if (f.exists()) {
         FileInputStream fileInputStream = new FileInputStream(f);
-        BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream);
+        FileChannel channel = fileInputStream.getChannel();
         try {
           LOGGER.log(Level.INFO, "Merging {0} size={1}", new Object[]{f.getName(), f.length()});
 
-          byte[] buffer = new byte[8192];
-          int length;
-          while ((length = bufferedInputStream.read(buffer)) > 0) {
-            outputStream.write(buffer, 0, length);
+          long size = channel.size();
+          long position = 0;
+          while (position < size) {
+            position += channel.transferTo(position, size - position, target);
           }
         } finally {
-          bufferedInputStream.close();
+          channel.close();
           fileInputStream.close();
         }
       } else {
         LOGGER.log(Level.INFO, "Skip merging file {0} because it doesn't exist", f.getName());
       }
     }
+    outputStream.flush();
 
     LOGGER.log(Level.INFO, "Time to merge {0} s", ((System.nanoTime() - startTime) / 1000000000.0));
   }
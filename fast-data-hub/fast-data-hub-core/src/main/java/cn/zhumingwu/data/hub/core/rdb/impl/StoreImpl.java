@@ -79,6 +79,18 @@ public final class StoreImpl {
     }
   }
 
+  public static ShardedStore createShardedStore(File directory, int shards, Configuration config) {
+    if (directory == null || config == null) {
+      throw new NullPointerException();
+    }
+    try {
+      LOGGER.log(Level.INFO, "Initialize sharded store from directory {0}", directory.getName());
+      return new ShardedStore(directory, shards, config);
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
   public static StoreWriter createWriter(OutputStream stream, Configuration config) {
     if (stream == null || config == null) {
       throw new NullPointerException();
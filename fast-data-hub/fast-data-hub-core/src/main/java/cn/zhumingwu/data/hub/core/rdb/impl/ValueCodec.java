@@ -0,0 +1,424 @@
+/*
+* Copyright 2015 LinkedIn Corp. All rights reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*/
+
+package cn.zhumingwu.data.hub.core.rdb.impl;
+
+import cn.zhumingwu.data.hub.core.util.LongPacker;
+import io.airlift.compress.Compressor;
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.compress.zstd.ZstdCompressor;
+import io.airlift.compress.zstd.ZstdDecompressor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * Compression of the values of a store.
+ * <p>
+ * Each value is compressed on its own into a block so a lookup decompresses its value only. A block starts with
+ * the packed value length plus one, or with 0 when the value is kept as is because it doesn't get smaller.
+ * <p>
+ * The codecs are pure Java. LZ4 and Zstd come from aircompressor, which has no dictionary support, so the
+ * dictionary trained by the writer is used with the deflate codec of the JDK.
+ * <p>
+ * Encoding is meant for the single writer thread, decoding is thread-safe. The deflate codec holds native zlib
+ * streams, the owner of a codec closes it once done.
+ */
+abstract class ValueCodec {
+
+  // Codec ids written in the metadata
+  final static byte NONE = 0;
+  final static byte LZ4 = 1;
+  final static byte ZSTD = 2;
+  final static byte DEFLATE = 3;
+  // Largest useful deflate dictionary, the window size
+  final static int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+  private final byte id;
+  private final String name;
+  private final byte[] header = new byte[5];
+  private byte[] buffer = new byte[0];
+
+  private ValueCodec(byte id, String name) {
+    this.id = id;
+    this.name = name;
+  }
+
+  /**
+   * Returns the codec with the given configuration name, null for <code>none</code>.
+   *
+   * @param name codec name
+   * @param dictionary trained dictionary or null
+   * @return codec or null
+   */
+  static ValueCodec create(String name, byte[] dictionary) {
+    switch (name.toLowerCase()) {
+      case "none":
+        return null;
+      case "lz4":
+        return create(LZ4, dictionary);
+      case "zstd":
+        return create(ZSTD, dictionary);
+      case "deflate":
+        return create(DEFLATE, dictionary);
+      default:
+        throw new IllegalArgumentException("Unknown compression codec " + name + ", should be none, lz4, zstd or deflate");
+    }
+  }
+
+  /**
+   * Returns the codec with the given metadata id, null for <code>NONE</code>.
+   *
+   * @param id codec id
+   * @param dictionary dictionary or null
+   * @return codec or null
+   */
+  static ValueCodec create(byte id, byte[] dictionary) {
+    if (dictionary != null && dictionary.length > 0 && id != DEFLATE) {
+      throw new IllegalArgumentException("A dictionary is only supported by the deflate codec");
+    }
+    switch (id) {
+      case NONE:
+        return null;
+      case LZ4:
+        return new AircompressorCodec(id, "lz4", new Lz4Compressor(), Lz4Decompressor::new);
+      case ZSTD:
+        return new AircompressorCodec(id, "zstd", new ZstdCompressor(), ZstdDecompressor::new);
+      case DEFLATE:
+        return new DeflateCodec(dictionary);
+      default:
+        throw new IllegalArgumentException("Unknown compression codec id " + id);
+    }
+  }
+
+  byte getId() {
+    return id;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  byte[] getDictionary() {
+    return null;
+  }
+
+  /**
+   * Releases the native resources of the codec, it can't be used afterwards.
+   */
+  void close() {
+  }
+
+  /**
+   * Compresses <code>value</code> into <code>out</code> from <code>outOffset</code>.
+   *
+   * @return compressed length or -1 if it doesn't fit
+   */
+  abstract int compress(byte[] value, byte[] out, int outOffset);
+
+  abstract int maxCompressedLength(int length);
+
+  /**
+   * Decompresses the remaining bytes of <code>block</code> into the whole <code>value</code>.
+   */
+  abstract void decompress(ByteBuffer block, byte[] value)
+      throws IOException;
+
+  /**
+   * Encodes <code>value</code> into a block.
+   *
+   * @param value value bytes
+   * @return block bytes
+   * @throws IOException if an io error occurs
+   */
+  byte[] encode(byte[] value)
+      throws IOException {
+    int headerLength = LongPacker.packLong(header, value.length + 1L);
+    int max = headerLength + maxCompressedLength(value.length);
+    if (buffer.length < max) {
+      buffer = new byte[max];
+    }
+    int length = value.length > 0 ? compress(value, buffer, headerLength) : -1;
+    if (length < 0 || headerLength + length >= value.length + 1) {
+      byte[] block = new byte[value.length + 1];
+      System.arraycopy(value, 0, block, 1, value.length);
+      return block;
+    }
+    System.arraycopy(header, 0, buffer, 0, headerLength);
+    return Arrays.copyOf(buffer, headerLength + length);
+  }
+
+  /**
+   * Decodes the remaining bytes of <code>block</code>.
+   *
+   * @param block block, a slice of the mapped data or wrapped bytes
+   * @return value bytes
+   * @throws IOException if an io error occurs
+   */
+  byte[] decode(ByteBuffer block)
+      throws IOException {
+    int length = LongPacker.unpackInt(block) - 1;
+    if (length < 0) {
+      byte[] value = new byte[block.remaining()];
+      block.get(value);
+      return value;
+    }
+    byte[] value = new byte[length];
+    decompress(block, value);
+    return value;
+  }
+
+  /**
+   * Trains a dictionary of <code>size</code> bytes from sample values.
+   * <p>
+   * Simplified cover algorithm: grams of 8 bytes are counted once per sample they appear in, the samples are
+   * cut into one epoch per segment of the dictionary and the segment of 64 bytes with the most grams shared by
+   * several samples is taken from each epoch. Taken grams aren't counted again. The best segments are put last,
+   * the closest to the values.
+   *
+   * @param samples sample values
+   * @param size dictionary size
+   * @return dictionary, at most <code>size</code> bytes
+   */
+  static byte[] trainDictionary(List<byte[]> samples, int size) {
+    final int gram = 8;
+    final int segment = 64;
+    final int mask = (1 << 20) - 1;
+
+    int total = 0;
+    for (byte[] sample : samples) {
+      total += sample.length;
+    }
+    byte[] data = new byte[total];
+    int position = 0;
+    for (byte[] sample : samples) {
+      System.arraycopy(sample, 0, data, position, sample.length);
+      position += sample.length;
+    }
+    if (total <= size) {
+      return data;
+    }
+
+    //Number of samples each gram appears in
+    int[] counts = new int[mask + 1];
+    int[] seen = new int[mask + 1];
+    Arrays.fill(seen, -1);
+    position = 0;
+    for (int s = 0; s < samples.size(); s++) {
+      int end = position + samples.get(s).length;
+      for (int i = position; i + gram <= end; i++) {
+        int h = gramHash(data, i) & mask;
+        if (seen[h] != s) {
+          seen[h] = s;
+          counts[h]++;
+        }
+      }
+      position = end;
+    }
+
+    //Best segment of each epoch, score << 32 | position
+    int segments = Math.max(1, size / segment);
+    int epoch = Math.max(segment, total / segments);
+    List<Long> picked = new ArrayList<Long>();
+    for (int start = 0; start + segment <= total && picked.size() < segments; start += epoch) {
+      int last = Math.min(total, start + epoch) - segment;
+      long score = 0;
+      for (int i = start; i <= start + segment - gram; i++) {
+        score += score(counts, data, i, mask);
+      }
+      long bestScore = score;
+      int best = start;
+      for (int i = start + 1; i <= last; i++) {
+        score += score(counts, data, i + segment - gram, mask) - score(counts, data, i - 1, mask);
+        if (score > bestScore) {
+          bestScore = score;
+          best = i;
+        }
+      }
+      if (bestScore > 0) {
+        picked.add(bestScore << 32 | best);
+        for (int i = best; i <= best + segment - gram; i++) {
+          counts[gramHash(data, i) & mask] = 0;
+        }
+      }
+    }
+    picked.sort(null);
+
+    byte[] dictionary = new byte[Math.min(size, picked.size() * segment)];
+    position = dictionary.length;
+    for (int i = picked.size() - 1; i >= 0 && position > 0; i--) {
+      int length = Math.min(segment, position);
+      position -= length;
+      System.arraycopy(data, (int) picked.get(i).longValue() + segment - length, dictionary, position, length);
+    }
+    return dictionary;
+  }
+
+  private static int score(int[] counts, byte[] data, int position, int mask) {
+    int count = counts[gramHash(data, position) & mask];
+    return count > 1 ? count : 0;
+  }
+
+  private static int gramHash(byte[] data, int position) {
+    long value = 0;
+    for (int i = 0; i < 8; i++) {
+      value = value << 8 | (data[position + i] & 0xff);
+    }
+    return (int) ((value * 0x9E3779B97F4A7C15L) >>> 40);
+  }
+
+  /**
+   * LZ4 and Zstd codecs, the decompressors keep state so there is one per thread.
+   */
+  private static final class AircompressorCodec extends ValueCodec {
+
+    private final Compressor compressor;
+    private final ThreadLocal<Decompressor> decompressors;
+
+    private AircompressorCodec(byte id, String name, Compressor compressor, Supplier<Decompressor> decompressor) {
+      super(id, name);
+      this.compressor = compressor;
+      this.decompressors = ThreadLocal.withInitial(decompressor);
+    }
+
+    @Override
+    int compress(byte[] value, byte[] out, int outOffset) {
+      return compressor.compress(value, 0, value.length, out, outOffset, out.length - outOffset);
+    }
+
+    @Override
+    int maxCompressedLength(int length) {
+      return compressor.maxCompressedLength(length);
+    }
+
+    @Override
+    void decompress(ByteBuffer block, byte[] value)
+        throws IOException {
+      ByteBuffer output = ByteBuffer.wrap(value);
+      try {
+        decompressors.get().decompress(block, output);
+      } catch (RuntimeException ex) {
+        throw new IOException("Malformed " + getName() + " block", ex);
+      }
+      if (output.hasRemaining()) {
+        throw new IOException("Malformed " + getName() + " block, " + output.remaining() + " bytes missing");
+      }
+    }
+  }
+
+  /**
+   * Raw deflate of the JDK with an optional preset dictionary.
+   * <p>
+   * The inflaters are pooled and reset per value, one is taken by each concurrent lookup. Closing the codec ends
+   * the deflater and the pooled inflaters, an inflater still in use is ended when it's returned.
+   */
+  private static final class DeflateCodec extends ValueCodec {
+
+    private final byte[] dictionary;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<Inflater>();
+    private volatile boolean closed;
+
+    private DeflateCodec(byte[] dictionary) {
+      super(DEFLATE, "deflate");
+      if (dictionary != null && dictionary.length > MAX_DICTIONARY_SIZE) {
+        throw new IllegalArgumentException("The deflate dictionary can't be larger than " + MAX_DICTIONARY_SIZE);
+      }
+      this.dictionary = dictionary != null && dictionary.length > 0 ? dictionary : null;
+    }
+
+    @Override
+    byte[] getDictionary() {
+      return dictionary;
+    }
+
+    @Override
+    int compress(byte[] value, byte[] out, int outOffset) {
+      deflater.reset();
+      if (dictionary != null) {
+        deflater.setDictionary(dictionary);
+      }
+      deflater.setInput(value);
+      deflater.finish();
+      int length = deflater.deflate(out, outOffset, out.length - outOffset);
+      return deflater.finished() ? length : -1;
+    }
+
+    @Override
+    int maxCompressedLength(int length) {
+      //Stored blocks cost 5 bytes per 16KB
+      return length + (length >>> 12) + 64;
+    }
+
+    @Override
+    void decompress(ByteBuffer block, byte[] value)
+        throws IOException {
+      Inflater inflater = inflaters.poll();
+      if (inflater == null) {
+        inflater = new Inflater(true);
+      }
+      try {
+        inflater.reset();
+        if (dictionary != null) {
+          inflater.setDictionary(dictionary);
+        }
+        inflater.setInput(block);
+        int off = 0;
+        while (off < value.length) {
+          int count = inflater.inflate(value, off, value.length - off);
+          if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+            throw new IOException("Malformed deflate block, " + (value.length - off) + " bytes missing");
+          }
+          off += count;
+        }
+      } catch (DataFormatException ex) {
+        throw new IOException("Malformed deflate block", ex);
+      } finally {
+        release(inflater);
+      }
+    }
+
+    //Return the inflater to the pool, or end it when the codec was closed meanwhile
+    private void release(Inflater inflater) {
+      if (!closed) {
+        inflaters.offer(inflater);
+        if (!closed || !inflaters.remove(inflater)) {
+          return;
+        }
+      }
+      inflater.end();
+    }
+
+    @Override
+    void close() {
+      closed = true;
+      deflater.end();
+      for (Inflater inflater = inflaters.poll(); inflater != null; inflater = inflaters.poll()) {
+        inflater.end();
+      }
+    }
+  }
+}
@@ -23,10 +23,15 @@ import java.util.Arrays;
 /**
  * Enum that represents the version of the data format.
  * <p>
- * The format version ensures compatibility between the writer and the reader (i.e. should be equal).
+ * The format version ensures compatibility between the writer and the reader, the reader accepts
+ * every version up to the latest one.
  */
 public enum FormatVersion {
-  PALDB_V1;
+  PALDB_V1,
+  // Adds an optional bloom filter for each key length to the metadata
+  PALDB_V2,
+  // Adds the value codec, the uncompressed data size and the codec dictionary to the metadata
+  PALDB_V3;
 
   /**
    * Returns true if <code>fv</code> is equals to <code>this</code>.
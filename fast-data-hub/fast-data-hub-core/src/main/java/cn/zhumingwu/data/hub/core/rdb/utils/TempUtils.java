@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ThreadLocalRandom;
 
 
 /**
@@ -89,7 +90,19 @@ public final class TempUtils {
         return destFile;
     }
 
+    /**
+     * Creates a random string of <code>letters</code> ASCII letters.
+     *
+     * @param letters string length
+     * @return random string
+     */
     public static String randomAlphabetic(int letters) {
-        return "";
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[letters];
+        for (int i = 0; i < letters; i++) {
+            int c = random.nextInt(52);
+            chars[i] = (char) (c < 26 ? 'a' + c : 'A' + c - 26);
+        }
+        return new String(chars);
     }
 }
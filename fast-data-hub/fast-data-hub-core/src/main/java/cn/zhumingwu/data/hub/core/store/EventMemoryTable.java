@@ -2,49 +2,76 @@ package cn.zhumingwu.data.hub.core.store;
 
 
 
-import java.util.HashMap;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Memory Table to cache data
  * <p>fast to get recent data from memory.
+ * <p>每个 topic 第一次使用时原子地创建环形缓冲区，topic 按 hash 分配到写入分片，
+ * 由分片线程单线程写入 wal 和 lsm 段。启动时先把 wal 中还没有写入 lsm 段的记录重放。
  *
  * @author zhumingwu
  * @since 2022/1/27 17:37
  */
-public class EventMemoryTable {
+public class EventMemoryTable implements Closeable {
     // memory buffer cache
-    private final Map<String, EventRingBuffer> ringBufferMap;
+    private final Map<String, EventRingBuffer> ringBufferMap = new ConcurrentHashMap<>();
+    private final StoreConfiguration configuration;
     private final WriteAppendLog wal;
+    private final SegmentManager segments;
+    private final WriterShard[] shards;
+    private final Path directory;
 
     public EventMemoryTable() {
-        // init ring buffer
-        this.ringBufferMap = new HashMap<>();
-        this.wal = WriteAppendLog.loadWriteAppendLog();
+        this(new StoreConfiguration());
     }
 
-    public long put(EventMessage message) {
-        var offset = -1L;
-        var key = message.getTopic();
-        var buffer = this.ringBufferMap.get(key);
-        if (buffer == null) {
-            var topicIndex = TopicIndex.loadTopicIndex(key);
-            if (topicIndex != null) {
-                var offsetElement = topicIndex.getLast();
-                if (offsetElement != null) {
-                    offset = offsetElement.offset + offsetElement.size + 1;
-                }
-            }
-            this.ringBufferMap.put(key, new EventRingBuffer(offset, 10));
+    public EventMemoryTable(StoreConfiguration configuration) {
+        this.configuration = configuration;
+        this.wal = WriteAppendLog.loadWriteAppendLog(configuration);
+        this.directory = configuration.getDataDirectory();
+        this.segments = new SegmentManager(configuration);
+        var threads = Math.max(1, configuration.getInt(StoreConfiguration.WRITER_SHARDS, 1));
+        try {
+            new WalRecovery(this.wal, this.segments, threads).run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        buffer = this.ringBufferMap.get(key);
-        offset = buffer.push(message);
-        if (offset < 0) {
-            return offset;
+        this.segments.start();
+        this.wal.setCheckpoint(this.segments::force);
+        var capacity = configuration.getInt(StoreConfiguration.WRITER_QUEUE_CAPACITY, 65536);
+        this.shards = new WriterShard[threads];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new WriterShard(i, this.wal, this.segments, capacity);
         }
-        message.setOffset(offset);
-        this.wal.append(message);
-        return offset;
+    }
+
+    private EventRingBuffer createRingBuffer(String topic) {
+        var power = (int) this.configuration.getTopicLong(topic, StoreConfiguration.RING_POWER, 10);
+        return new EventRingBuffer(this.segments.lastOffset(topic), power);
+    }
+
+    /**
+     * put the message into memory and wal
+     *
+     * @param message message
+     * @return future of the message offset, completed when the wal batch holding the message is durable
+     */
+    public CompletableFuture<Long> put(EventMessage message) {
+        var key = message.getTopic();
+        var buffer = this.ringBufferMap.computeIfAbsent(key, this::createRingBuffer);
+        return this.shards[Math.floorMod(key.hashCode(), this.shards.length)].put(buffer, message);
     }
 
     public EventMessage get(String key, long offset) {
@@ -61,21 +88,136 @@ public class EventMemoryTable {
         return result;
     }
 
+    /**
+     * poll a contiguous batch of messages starting at fromOffset
+     * <p>最近的数据从环形缓冲区批量读取，历史数据对 lsm 文件做一次顺序扫描；
+     * 如果消息还没有产生，最多等待 maxWait。
+     *
+     * @param topic       topic
+     * @param fromOffset  first offset to return
+     * @param maxMessages max messages in the batch
+     * @param maxBytes    max payload bytes in the batch, the first message is always returned
+     * @param maxWait     max time to wait for fromOffset to be produced
+     * @return messages ordered by offset, empty if nothing arrived in time
+     */
+    public List<EventMessage> poll(String topic, long fromOffset, int maxMessages, long maxBytes, Duration maxWait) {
+        List<EventMessage> result = new ArrayList<>();
+        if (maxMessages <= 0) {
+            return result;
+        }
+        var buffer = this.ringBufferMap.get(topic);
+        if (buffer != null && fromOffset > buffer.getInitialValue()) {
+            var target = new EventMessage[Math.min(maxMessages, buffer.getSize())];
+            var count = buffer.read(fromOffset, target);
+            if (count == 0 && buffer.waitFor(fromOffset, maxWait.toNanos())) {
+                count = buffer.read(fromOffset, target);
+            }
+            if (count > 0) {
+                var bytes = 0L;
+                for (int i = 0; i < count; i++) {
+                    bytes += target[i].getPayload().length;
+                    if (i > 0 && bytes > maxBytes) {
+                        break;
+                    }
+                    result.add(target[i]);
+                }
+                return result;
+            }
+            if (count == 0) {
+                return result;
+            }
+        }
+        // 读取文件
+        var topicIndex = TopicIndex.loadTopicIndex(this.directory, topic);
+        if (topicIndex == null) {
+            return result;
+        }
+        var entries = topicIndex.entries();
+        if (entries.size() == 0) {
+            return result;
+        }
+        var index = entries.search(fromOffset);
+        if (index < 0) {
+            // fromOffset 已经被保留策略删除，从保留的第一条消息开始
+            index = 0;
+            fromOffset = entries.offset(0);
+        }
+        // 一个段读完后继续读下一个段，直到凑满一批
+        var bytes = 0L;
+        for (; index < entries.size() && result.size() < maxMessages; index++) {
+            var file = LogStructMerge.getInstance(this.directory, topic, entries.fileId(index));
+            if (file == null) {
+                continue;
+            }
+            var first = result.size();
+            var remaining = maxBytes - bytes;
+            if (first > 0 && remaining <= 0) {
+                break;
+            }
+            file.scan(entries.position(index), fromOffset, maxMessages - first, remaining, result);
+            for (int i = first; i < result.size(); i++) {
+                bytes += result.get(i).getPayload().length;
+            }
+            if (first > 0 && result.size() > first && result.get(first).getPayload().length > remaining) {
+                // scan 总是返回第一条消息，超出整批的字节数时不要
+                result.remove(first);
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * poll without blocking the caller, see {@link #poll(String, long, int, long, Duration)}
+     * <p>文件在 executor 上读取；没有新消息时在环形缓冲区上登记等待，消息发布或 maxWait 超时后再读一次。
+     *
+     * @param executor executor of the reads
+     * @return future of the messages, empty if nothing arrived in time
+     */
+    public CompletableFuture<List<EventMessage>> pollAsync(String topic, long fromOffset, int maxMessages, long maxBytes,
+                                                           Duration maxWait, Executor executor) {
+        var deadline = System.nanoTime() + maxWait.toNanos();
+        return CompletableFuture.supplyAsync(() -> this.poll(topic, fromOffset, maxMessages, maxBytes, Duration.ZERO), executor)
+                .thenCompose(messages -> {
+                    var remaining = deadline - System.nanoTime();
+                    if (!messages.isEmpty() || maxMessages <= 0 || remaining <= 0) {
+                        return CompletableFuture.completedFuture(messages);
+                    }
+                    // 订阅时创建 topic 的环形缓冲区，生产者发布后唤醒
+                    var buffer = this.ringBufferMap.computeIfAbsent(topic, this::createRingBuffer);
+                    return buffer.whenPublished(fromOffset)
+                            .completeOnTimeout(null, remaining, TimeUnit.NANOSECONDS)
+                            .thenApplyAsync(published -> this.poll(topic, fromOffset, maxMessages, maxBytes, Duration.ZERO), executor);
+                });
+    }
+
     private EventMessage getFromFile(String key, long offset) {
         // 读取topic文件
-        var topicIndex = TopicIndex.loadTopicIndex(key);
+        var topicIndex = TopicIndex.loadTopicIndex(this.directory, key);
         if (topicIndex == null) {
             return null;
         }
-        var offsetElement = topicIndex.search(offset);
-        if (offsetElement == null) {
+        var entries = topicIndex.entries();
+        var index = entries.search(offset);
+        if (index < 0) {
             return null;
         }
         // 历史数据中取
-        var file = LogStructMerge.getInstance(key, offsetElement.fileId);
+        var file = LogStructMerge.getInstance(this.directory, key, entries.fileId(index));
         if (file == null) {
             return null;
         }
-        return file.read(offsetElement.position, offset);
+        return file.read(entries.position(index), offset);
+    }
+
+    /**
+     * write the queued messages and close the segments
+     */
+    @Override
+    public void close() {
+        for (var shard : this.shards) {
+            shard.close();
+        }
+        this.segments.close();
     }
 }
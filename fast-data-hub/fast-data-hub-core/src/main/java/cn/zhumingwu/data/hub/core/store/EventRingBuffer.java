@@ -2,97 +2,323 @@ package cn.zhumingwu.data.hub.core.store;
 
 
 
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.atomic.AtomicLong;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.LockSupport;
 
 /**
  * 利用无锁环提高消息的延迟
+ * <p>
+ * 生产者通过 CAS 认领序号（可以一次认领一批），写入槽位后在 published 数组中发布该序号；
+ * 每个消费组持有一个门控序号，生产者不会覆盖任何消费组还未读取的槽位。
+ * 没有注册消费组时旧消息直接被覆盖，按 offset 读取时发现被覆盖则返回 null 由调用方读文件。
  *
  * @author zhumingwu
  * @since 2022/1/30 13:23
  */
 public class EventRingBuffer {
+    private static final VarHandle BUFFER = MethodHandles.arrayElementVarHandle(EventMessage[].class);
+    private static final Sequence[] NO_GATING = new Sequence[0];
     private final EventMessage[] buffer;
+    private final AtomicLongArray published;
     private final int size;
-    private final AtomicLong counter;
-    private final ConcurrentSkipListSet<Long> cursor;
+    private final int mask;
+    private final long initialValue;
+    // 生产者认领的最大序号
+    private final Sequence claim;
+    // 门控序号最小值的缓存
+    private final Sequence gatingCache;
+    private final Map<String, Sequence> consumers = new ConcurrentHashMap<>();
+    private volatile Sequence[] gating = NO_GATING;
+    // 长轮询的等待者
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
 
     public EventRingBuffer(long initialValue, int power) {
-        if (power <= 0 || power > 32) {
+        if (power <= 0 || power > 30) {
             power = 10;
         }
         this.size = 1 << power;
-        this.counter = new AtomicLong(initialValue);
-        this.buffer = new EventMessage[size];
-        this.cursor = new ConcurrentSkipListSet<>();
+        this.mask = this.size - 1;
+        this.buffer = new EventMessage[this.size];
+        this.published = new AtomicLongArray(this.size);
+        for (int i = 0; i < this.size; i++) {
+            this.published.lazySet(i, Long.MIN_VALUE);
+        }
+        this.initialValue = initialValue;
+        this.claim = new Sequence(initialValue);
+        this.gatingCache = new Sequence(initialValue);
     }
 
-    public long getOffset(boolean increment) {
-        if (increment) {
-            return this.counter.incrementAndGet();
-        }
-        return this.counter.get();
+    /**
+     * @return the highest offset claimed by the producers, it may not be published yet
+     */
+    public long getClaimed() {
+        return this.claim.get();
+    }
+
+    /**
+     * @return the offset before the first message of this buffer, older offsets are only in the files
+     */
+    public long getInitialValue() {
+        return this.initialValue;
     }
 
     public int getSize() {
         return this.size;
     }
 
-    public EventMessage pull(long offset) {
-        //如果事件不在缓存中
-        if (offset < this.counter.get() - size) {
-            return null;
+    private int index(long offset) {
+        return (int) offset & this.mask;
+    }
+
+    private static void backoff(int retries) {
+        if (retries < 100) {
+            //1、自旋N次
+            Thread.onSpinWait();
+        } else if (retries < 200) {
+            //2、屈服N次
+            Thread.yield();
+        } else {
+            //3、休眠N次
+            LockSupport.parkNanos(100);
+        }
+    }
+
+    private long minimumGating(long minimum) {
+        for (var sequence : this.gating) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * claim the next n offsets, waits while a consumer group still needs the slots
+     *
+     * @param n number of slots
+     * @return the highest claimed offset, the batch is [result - n + 1, result]
+     */
+    public long next(int n) {
+        if (n < 1 || n > this.size) {
+            throw new IllegalArgumentException("n must be > 0 and <= " + this.size);
+        }
+        int retries = 0;
+        while (true) {
+            var current = this.claim.get();
+            var next = current + n;
+            var wrapPoint = next - this.size;
+            var cachedGating = this.gatingCache.get();
+            if (wrapPoint > cachedGating || cachedGating > current) {
+                //如果有消费者还没读取
+                var gating = this.minimumGating(current);
+                if (wrapPoint > gating) {
+                    backoff(retries++);
+                    continue;
+                }
+                this.gatingCache.set(gating);
+            } else if (this.claim.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * publish a claimed offset, the message offset is set before it becomes visible
+     */
+    public void publish(long offset, EventMessage data) {
+        var index = this.index(offset);
+        data.setOffset(offset);
+        BUFFER.setRelease(this.buffer, index, data);
+        this.published.lazySet(index, offset);
+    }
+
+    public long push(EventMessage data) {
+        var offset = this.next(1);
+        this.publish(offset, data);
+        return offset;
+    }
+
+    /**
+     * claim and publish the messages in batches of at most the buffer size
+     *
+     * @return the offset of the last message
+     */
+    public long push(List<EventMessage> data) {
+        var offset = this.claim.get();
+        var from = 0;
+        while (from < data.size()) {
+            var n = Math.min(this.size, data.size() - from);
+            offset = this.next(n);
+            var first = offset - n + 1;
+            for (int i = 0; i < n; i++) {
+                this.publish(first + i, data.get(from + i));
+            }
+            from += n;
         }
+        return offset;
+    }
 
-        EventMessage result = null;
+    public boolean isPublished(long offset) {
+        return this.published.get(this.index(offset)) == offset;
+    }
 
-        //如果事件还没发生
+    /**
+     * wait until the offset is published
+     *
+     * @param offset       offset to wait for
+     * @param timeoutNanos max time to wait
+     * @return true if the offset has been published, it may already be overwritten
+     */
+    public boolean waitFor(long offset, long timeoutNanos) {
+        var index = this.index(offset);
+        var deadline = System.nanoTime() + timeoutNanos;
         int retries = 0;
-        while (offset > this.counter.get()) {
-            if (retries < 100) {
-                //1、自旋N次
-            } else if (retries < 200) {
-                //2、屈服N次
-                Thread.yield();
+        while (this.published.get(index) < offset) {
+            var remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            if (retries < 200) {
+                backoff(retries++);
             } else {
-                //3、休眠N次
-                LockSupport.parkNanos(100);
+                //长轮询时最多休眠1毫秒
+                LockSupport.parkNanos(Math.min(remaining, 1_000_000));
             }
-            retries++;
         }
-        //锁定指针
-        var needLock = offset < this.cursor.first();
-        if (needLock) {
-            this.cursor.add(offset);
+        return true;
+    }
+
+    /**
+     * wait for the offset without blocking, the future is completed by {@link #signal()}
+     *
+     * @param offset offset to wait for
+     * @return future completed when the offset has been published, complete or cancel it to stop waiting
+     */
+    public CompletableFuture<Void> whenPublished(long offset) {
+        var waiter = new Waiter(offset);
+        this.waiters.add(waiter);
+        waiter.whenComplete((v, e) -> this.waiters.remove(waiter));
+        if (this.published.get(this.index(offset)) >= offset) {
+            waiter.complete(null);
+        }
+        return waiter;
+    }
+
+    /**
+     * wake the waiters of the published offsets, the producer calls it after publishing a batch
+     */
+    public void signal() {
+        //发布是 lazySet，读取等待者之前需要屏障，否则可能错过刚登记的等待者
+        VarHandle.fullFence();
+        if (this.waiters.isEmpty()) {
+            return;
         }
-        if (offset > this.counter.get() - size && offset < this.counter.get()) {
-            result = this.buffer[(int) offset & this.size];
+        for (var waiter : this.waiters) {
+            if (this.published.get(this.index(waiter.offset)) >= waiter.offset) {
+                waiter.complete(null);
+            }
+        }
+    }
+
+    /**
+     * @return the message or null if it is not published yet or has been overwritten
+     */
+    public EventMessage pull(long offset) {
+        var index = this.index(offset);
+        if (this.published.get(index) != offset) {
+            return null;
         }
-        if (needLock) {
-            this.cursor.remove(offset);
+        var result = (EventMessage) BUFFER.getAcquire(this.buffer, index);
+        if (result == null || result.getOffset() != offset) {
+            return null;
         }
         return result;
     }
 
-    public long push(EventMessage data) {
-        //如果有消息费者使用
-        int retries = 0;
-        while (this.counter.get() + 1 >= this.cursor.first() + this.size) {
-            if (retries < 100) {
-                //1、自旋N次
-            } else if (retries < 200) {
-                //2、屈服N次
-                Thread.yield();
-            } else {
-                //3、休眠N次
-                LockSupport.parkNanos(100);
+    /**
+     * copy the contiguous published messages starting at fromOffset into target without allocation
+     *
+     * @param fromOffset first offset to read
+     * @param target     destination, at most target.length messages are read
+     * @return number of messages read, or -1 if fromOffset has already been overwritten
+     */
+    public int read(long fromOffset, EventMessage[] target) {
+        int count = 0;
+        while (count < target.length) {
+            var offset = fromOffset + count;
+            var index = this.index(offset);
+            var publishedOffset = this.published.get(index);
+            if (publishedOffset != offset) {
+                if (count == 0 && publishedOffset > offset) {
+                    return -1;
+                }
+                break;
             }
-            retries++;
+            var message = (EventMessage) BUFFER.getAcquire(this.buffer, index);
+            if (message == null || message.getOffset() != offset) {
+                if (count == 0) {
+                    return -1;
+                }
+                break;
+            }
+            target[count++] = message;
         }
-        var offset = this.counter.incrementAndGet();
-        this.buffer[(int) offset & this.size] = data;
-        return offset;
+        return count;
+    }
+
+    /**
+     * register a consumer group, the producers will not overwrite messages the group has not consumed
+     *
+     * @return the gating sequence, the last offset consumed by the group
+     */
+    public synchronized Sequence addConsumer(String group) {
+        var sequence = this.consumers.get(group);
+        if (sequence == null) {
+            sequence = new Sequence(this.claim.get());
+            this.consumers.put(group, sequence);
+            var current = Arrays.copyOf(this.gating, this.gating.length + 1);
+            current[current.length - 1] = sequence;
+            this.gating = current;
+        }
+        return sequence;
     }
-}
 
+    public synchronized void removeConsumer(String group) {
+        var sequence = this.consumers.remove(group);
+        if (sequence != null) {
+            this.gating = Arrays.stream(this.gating).filter(s -> s != sequence).toArray(Sequence[]::new);
+        }
+    }
+
+    /**
+     * read the next published messages of the consumer group and advance its gating sequence,
+     * a group is read by a single thread
+     *
+     * @return number of messages read
+     */
+    public int consume(String group, EventMessage[] target) {
+        var sequence = this.consumers.get(group);
+        if (sequence == null) {
+            throw new IllegalArgumentException("Unknown consumer group " + group + ".");
+        }
+        var count = this.read(sequence.get() + 1, target);
+        if (count > 0) {
+            sequence.set(sequence.get() + count);
+        }
+        return Math.max(count, 0);
+    }
+
+    private static final class Waiter extends CompletableFuture<Void> {
+        private final long offset;
+
+        private Waiter(long offset) {
+            this.offset = offset;
+        }
+    }
+}
@@ -11,11 +11,15 @@ import cn.zhumingwu.data.hub.core.util.FileChannelUtil;
 import cn.zhumingwu.data.hub.core.util.VIntUtil;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.List;
 
 
 /**
@@ -42,7 +46,11 @@ public class LogStructMerge {
             })
             .build();
 
+    final static int HEADER_SIZE = 18;
+    private final static int INDEX_INTERVAL = 4096;
     private final FileChannel lsmFile;
+    private final SparseOffsetIndex index = new SparseOffsetIndex(INDEX_INTERVAL, HEADER_SIZE);
+    private volatile SegmentView view;
     private final String topic;
     private final byte version;
     private final byte status;
@@ -64,20 +72,100 @@ public class LogStructMerge {
         this.end = FileChannelUtil.readInt(this.lsmFile);
     }
 
+    /**
+     * create an empty segment whose records start at offset and timestamp start
+     */
+    static LogStructMerge create(Path path, String topic, long offset, long start) throws IOException {
+        Files.createDirectories(path.getParent());
+        var fileChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        //version and status
+        FileChannelUtil.writeByte(fileChannel, new byte[]{1, 1});
+        FileChannelUtil.writeLong(fileChannel, offset);
+        FileChannelUtil.writeLong(fileChannel, start);
+        //size and end
+        FileChannelUtil.writeInt(fileChannel, 0);
+        FileChannelUtil.writeInt(fileChannel, 0);
+        FileChannelUtil.newPosition(fileChannel, 0);
+        return new LogStructMerge(fileChannel, topic);
+    }
+
+    /**
+     * open a segment for writing, the handle is not shared with the readers;
+     * a record torn by a crash during an append is dropped first
+     */
+    static LogStructMerge open(Path path, String topic) throws IOException {
+        var lsm = new LogStructMerge(FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE), topic);
+        try {
+            lsm.recover();
+        } catch (IOException e) {
+            lsm.close();
+            throw e;
+        }
+        return lsm;
+    }
+
+    /**
+     * check the crc of every record and truncate the file after the last valid one,
+     * the size and end trailer is rewritten from the records when it does not match them
+     *
+     * @return true if the segment was repaired
+     */
+    boolean recover() throws IOException {
+        var length = this.lsmFile.size();
+        var valid = (long) HEADER_SIZE;
+        var count = 0;
+        var last = 0;
+        if (length > HEADER_SIZE) {
+            //追加时崩溃, 尾部可能是不完整的记录而不是 size 和 end
+            var cursor = new SegmentCursor(new SegmentView(this.lsmFile, length), this.offset, this.start, length)
+                    .seek(HEADER_SIZE);
+            while (cursor.next() && cursor.verify()) {
+                valid = cursor.getNext();
+                count++;
+                last = (int) (cursor.getTimestamp() - this.start);
+            }
+        }
+        if (valid + 8 == length && count == this.size && last == this.end) {
+            return false;
+        }
+        log.warn("segment {} of topic {} has a torn tail, truncated from {} to {} bytes with {} records",
+                this.offset, this.topic, length, valid + 8, count);
+        this.lsmFile.truncate(valid);
+        FileChannelUtil.newPosition(this.lsmFile, valid);
+        FileChannelUtil.writeInt(this.lsmFile, count);
+        FileChannelUtil.writeInt(this.lsmFile, last);
+        this.lsmFile.force(true);
+        this.size = count;
+        this.end = last;
+        return true;
+    }
+
     public static LogStructMerge getInstance(String topic, long fileId) {
-        var key = topic + "_" + fileId;
+        return getInstance(Paths.get("./data"), topic, fileId);
+    }
+
+    public static Path path(Path directory, String topic, long fileId) {
+        return directory.resolve("lsm").resolve(topic).resolve(fileId + ".lsm");
+    }
+
+    public static LogStructMerge getInstance(Path directory, String topic, long fileId) {
+        var path = path(directory, topic, fileId);
+        var key = path.toString();
         var result = FILE_HANDLER.getIfPresent(key);
         if (result != null) {
             return result;
         }
-        var path = Paths.get("./data", "lsm", topic, fileId + ".lsm");
         if (!Files.exists(path)) {
             return null;
         }
         try {
-            var fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+            var fileChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
             result = new LogStructMerge(fileChannel, topic);
-            FILE_HANDLER.put(key, result);
+            var previous = FILE_HANDLER.asMap().putIfAbsent(key, result);
+            if (previous != null) {
+                result.close();
+                return previous;
+            }
         } catch (IOException e) {
             log.error("error", e);
             return null;
@@ -86,25 +174,138 @@ public class LogStructMerge {
         return result;
     }
 
-    public EventMessage read(long position, Long offsetExcept) {
+    /**
+     * drop the cached handle after the file has been replaced or deleted,
+     * readers holding the old handle keep reading the old mapping
+     */
+    static void invalidate(Path directory, String topic, long fileId) {
+        FILE_HANDLER.invalidate(path(directory, topic, fileId).toString());
+    }
+
+    public long getOffset() {
+        return this.offset;
+    }
+
+    public long getStart() {
+        return this.start;
+    }
+
+    /**
+     * @return number of records written
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * @return timestamp of the last record written
+     */
+    public long getEnd() {
+        return this.start + this.end;
+    }
+
+    public long length() throws IOException {
+        return this.lsmFile.size();
+    }
+
+    /**
+     * @return offset of the last record, offset - 1 if the segment is empty
+     */
+    public long lastOffset() throws IOException {
+        var cursor = this.seek(HEADER_SIZE, Long.MAX_VALUE);
+        var result = this.offset - 1;
+        while (cursor.next()) {
+            result = cursor.getOffset();
+        }
+        return result;
+    }
+
+    /**
+     * mark the record as deleted, it is dropped at the next compaction
+     *
+     * @return false if the offset is not in the segment
+     */
+    public boolean delete(long offset) {
+        try {
+            var cursor = this.seek(HEADER_SIZE, offset);
+            while (cursor.next()) {
+                if (cursor.getOffset() == offset) {
+                    this.lsmFile.write(ByteBuffer.wrap(new byte[]{-1}), cursor.getPosition());
+                    return true;
+                }
+                if (cursor.getOffset() > offset) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            log.error("error", e);
+        }
+        return false;
+    }
+
+    public void force() throws IOException {
+        this.lsmFile.force(true);
+    }
+
+    /**
+     * @return a cursor over the records written so far, positioned on the first record
+     */
+    public SegmentCursor cursor() throws IOException {
+        var current = this.view;
+        long size;
         try {
-            FileChannelUtil.newPosition(this.lsmFile, position);
-            var status = FileChannelUtil.read(this.lsmFile, 1)[0];
-            var size = FileChannelUtil.readVLen(this.lsmFile);
-            if (status == -1) {
-                return read(this.lsmFile.position() + size, offsetExcept);
+            size = this.lsmFile.size();
+        } catch (ClosedChannelException e) {
+            //文件已被压缩或删除，继续读取旧的映射
+            if (current == null) {
+                throw e;
             }
-            var offset = FileChannelUtil.readVLen(this.lsmFile) + this.offset;
-            if (offset <= offsetExcept) {
-                return read(this.lsmFile.position() + size, offsetExcept);
+            size = current.size();
+        }
+        if (current == null || current.size() != size) {
+            synchronized (this) {
+                current = this.view == null ? new SegmentView(this.lsmFile, size) : this.view.extend(this.lsmFile, size);
+                this.view = current;
             }
-            var timestamp = FileChannelUtil.readVLen(this.lsmFile) + this.start;
-            var schema = (int) FileChannelUtil.readVLen(this.lsmFile);
-            var payload = FileChannelUtil.readVarByte(this.lsmFile);
-            var crc = FileChannelUtil.readInt(this.lsmFile);
+        }
+        return new SegmentCursor(current, this.offset, this.start, Math.max(HEADER_SIZE, current.size() - 8)).seek(HEADER_SIZE);
+    }
+
+    /**
+     * seek the cursor close to offset using the sparse index
+     *
+     * @param position position of a record at or before offset, from the topic index
+     */
+    private SegmentCursor seek(long position, long offset) throws IOException {
+        var cursor = this.cursor();
+        if (this.index.getIndexed() < cursor.getLimit()) {
+            this.index.extend(cursor);
+        }
+        return cursor.seek(Math.max(Math.max(position, HEADER_SIZE), this.index.floor(offset)));
+    }
 
-            if (CRCUtil.crc32().update(offset).update( timestamp).update(payload).check(crc)) {
-                return new EventMessage(this.topic, payload, schema, timestamp);
+    /**
+     * read the record with the given offset
+     *
+     * @param position position of a record at or before offset
+     * @param offset   offset to read
+     * @return the message, or null if the offset is not in the segment, deleted or corrupted
+     */
+    public EventMessage read(long position, long offset) {
+        try {
+            var cursor = this.seek(position, offset);
+            while (cursor.next()) {
+                if (cursor.getOffset() < offset) {
+                    continue;
+                }
+                if (cursor.getOffset() > offset || cursor.isDeleted()) {
+                    return null;
+                }
+                if (cursor.verify()) {
+                    return cursor.toMessage(this.topic);
+                }
+                log.warn("crc error of topic {} at {}", this.topic, cursor.getPosition());
+                return null;
             }
         } catch (IOException e) {
             log.error("error", e);
@@ -112,7 +313,43 @@ public class LogStructMerge {
         return null;
     }
 
-    public boolean write(EventMessage message, long offset) {
+    /**
+     * sequential scan from a record position, skipping deleted records and offsets before fromOffset
+     *
+     * @param position    position of a record at or before fromOffset
+     * @param fromOffset  first offset to return
+     * @param maxMessages max messages to add
+     * @param maxBytes    max payload bytes to add, the first message is always added
+     * @param target      messages are appended in offset order
+     * @return number of messages added
+     */
+    public int scan(long position, long fromOffset, int maxMessages, long maxBytes, List<EventMessage> target) {
+        var count = 0;
+        var bytes = 0L;
+        try {
+            var cursor = this.seek(position, fromOffset);
+            while (count < maxMessages && cursor.next()) {
+                if (cursor.isDeleted() || cursor.getOffset() < fromOffset) {
+                    continue;
+                }
+                if (!cursor.verify()) {
+                    log.warn("crc error of topic {} at {}", this.topic, cursor.getPosition());
+                    break;
+                }
+                bytes += cursor.getPayloadLength();
+                if (count > 0 && bytes > maxBytes) {
+                    break;
+                }
+                target.add(cursor.toMessage(this.topic));
+                count++;
+            }
+        } catch (IOException e) {
+            log.error("error", e);
+        }
+        return count;
+    }
+
+    public synchronized boolean write(EventMessage message, long offset) {
         var offsetDelta = VIntUtil.vintEncode(offset - this.offset);
         var timestampDelta = VIntUtil.vintEncode(message.getTimestamp() - this.start);
         var schema = VIntUtil.vintEncode(message.getSchema());
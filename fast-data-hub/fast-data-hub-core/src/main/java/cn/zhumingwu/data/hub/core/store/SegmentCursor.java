@@ -0,0 +1,173 @@
+package cn.zhumingwu.data.hub.core.store;
+
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Reusable cursor over the records of a lsm segment
+ * <p>
+ * the record header is decoded in place from the mapped view, nothing is allocated per record
+ * until the payload is copied out. A cursor is used by a single thread.
+ * <p>
+ * status = byte; -1 删除
+ * size = vlen; 总长度
+ * offset = vlen;
+ * timestamp = vlen;
+ * schema = vlen;
+ * length = vlen; payload 长度
+ * payload = vbyte;
+ * crc = byte[4]
+ *
+ * @author zhumingwu
+ * @since 1.1.0
+ */
+public class SegmentCursor {
+    private final SegmentView view;
+    private final ByteBuffer[] duplicates;
+    private final long baseOffset;
+    private final long baseTimestamp;
+    private final long limit;
+    private final CRC32 crc32 = new CRC32();
+    private final Consumer<ByteBuffer> crcUpdate = this.crc32::update;
+    private final byte[] scratch = new byte[Long.BYTES];
+    private long pointer;
+    private long next;
+    // current record
+    private long position;
+    private byte status;
+    private long offset;
+    private long timestamp;
+    private int schema;
+    private long payloadPosition;
+    private int payloadLength;
+
+    SegmentCursor(SegmentView view, long baseOffset, long baseTimestamp, long limit) {
+        this.view = view;
+        this.duplicates = view.duplicates();
+        this.baseOffset = baseOffset;
+        this.baseTimestamp = baseTimestamp;
+        this.limit = limit;
+    }
+
+    /**
+     * move to a record position, the next call to {@link #next()} decodes it
+     */
+    public SegmentCursor seek(long position) {
+        this.next = position;
+        return this;
+    }
+
+    private long readVLen() {
+        long value = 0;
+        for (int shift = 0; shift < 64 && this.pointer < this.limit; shift += 7) {
+            byte b = this.view.get(this.pointer++);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * decode the next record header
+     *
+     * @return false at the end of the segment or when the record is truncated
+     */
+    public boolean next() {
+        if (this.next >= this.limit) {
+            return false;
+        }
+        this.position = this.next;
+        this.pointer = this.position;
+        this.status = this.view.get(this.pointer++);
+        var size = this.readVLen();
+        if (size < 0 || this.pointer + size > this.limit) {
+            return false;
+        }
+        this.next = this.pointer + size;
+        this.offset = this.readVLen() + this.baseOffset;
+        this.timestamp = this.readVLen() + this.baseTimestamp;
+        this.schema = (int) this.readVLen();
+        var length = this.readVLen();
+        this.payloadPosition = this.pointer;
+        if (length < 0 || this.payloadPosition + length + 4 != this.next) {
+            return false;
+        }
+        this.payloadLength = (int) length;
+        return true;
+    }
+
+    /**
+     * check the crc of the current record over the mapped payload
+     */
+    public boolean verify() {
+        this.crc32.reset();
+        this.update(this.offset);
+        this.update(this.timestamp);
+        SegmentView.forEachRange(this.duplicates, this.payloadPosition, this.payloadLength, this.crcUpdate);
+        var crcPosition = this.payloadPosition + this.payloadLength;
+        long crc = (this.view.get(crcPosition) & 0xFF)
+                | (this.view.get(crcPosition + 1) & 0xFF) << 8
+                | (this.view.get(crcPosition + 2) & 0xFF) << 16
+                | (long) (this.view.get(crcPosition + 3) & 0xFF) << 24;
+        return this.crc32.getValue() == crc;
+    }
+
+    private void update(long value) {
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            this.scratch[i] = (byte) value;
+            value >>>= 8;
+        }
+        this.crc32.update(this.scratch);
+    }
+
+    public boolean isDeleted() {
+        return this.status == -1;
+    }
+
+    public long getPosition() {
+        return this.position;
+    }
+
+    public long getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * @return position of the record after the current one
+     */
+    public long getNext() {
+        return this.next;
+    }
+
+    public long getOffset() {
+        return this.offset;
+    }
+
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    public int getSchema() {
+        return this.schema;
+    }
+
+    public int getPayloadLength() {
+        return this.payloadLength;
+    }
+
+    public void readPayload(byte[] target, int targetOffset) {
+        this.view.get(this.payloadPosition, target, targetOffset, this.payloadLength);
+    }
+
+    public EventMessage toMessage(String topic) {
+        var payload = new byte[this.payloadLength];
+        this.readPayload(payload, 0);
+        var message = new EventMessage(topic, payload, this.schema, this.timestamp);
+        message.setOffset(this.offset);
+        return message;
+    }
+}
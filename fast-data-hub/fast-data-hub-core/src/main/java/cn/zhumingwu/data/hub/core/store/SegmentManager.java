@@ -0,0 +1,400 @@
+package cn.zhumingwu.data.hub.core.store;
+
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Background manager of the lsm segments of every topic
+ * <p>
+ * 滚动：活动段超过 segment.bytes 或 segment.ms 后关闭，下一条消息写入以其 offset 命名的新段；
+ * 压缩：已关闭段中删除（status -1）的字节比例超过 compaction.ratio 时，存活记录复制到新文件后原子替换；
+ * 保留：按 retention.ms 和 retention.bytes 删除最旧的已关闭段。
+ * <p>
+ * 索引总是写到临时文件后原子替换，读取方持有旧的文件映射继续读取，不会被阻塞。
+ * 每个 topic 的最后一个段是活动段，不参与压缩和删除。
+ *
+ * @author zhumingwu
+ * @since 1.1.0
+ */
+@Slf4j
+public class SegmentManager implements Closeable {
+    private final Path directory;
+    private final StoreConfiguration configuration;
+    private final Map<String, TopicSegments> topics = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public SegmentManager(StoreConfiguration configuration) {
+        this.configuration = configuration;
+        this.directory = configuration.getDataDirectory();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "segment-manager");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * schedule the roll, compaction and retention jobs
+     */
+    public void start() {
+        var interval = this.configuration.getLong(StoreConfiguration.SEGMENT_CHECK_INTERVAL_MS, 60000);
+        this.scheduler.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private TopicSegments segments(String topic) {
+        return this.topics.computeIfAbsent(topic, key -> {
+            try {
+                return new TopicSegments(key);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * @return offset of the last message written to the segments of the topic, -1 if there is none
+     */
+    public long lastOffset(String topic) {
+        var segments = this.segments(topic);
+        synchronized (segments) {
+            return segments.lastOffset;
+        }
+    }
+
+    /**
+     * force the active segment of the topic, closed segments are forced when they are rolled
+     *
+     * @return false if the messages up to offset have not been appended yet
+     */
+    public boolean force(String topic, long offset) throws IOException {
+        var segments = this.segments(topic);
+        synchronized (segments) {
+            if (segments.lastOffset < offset) {
+                return false;
+            }
+            if (segments.active != null) {
+                segments.active.force();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * append a message to the active segment of its topic, the offset of the message must be set
+     * and greater than the last offset written
+     */
+    public void append(EventMessage message) throws IOException {
+        var segments = this.segments(message.getTopic());
+        synchronized (segments) {
+            if (segments.active != null && this.shouldRoll(message.getTopic(), segments.active, System.currentTimeMillis())) {
+                segments.closeActive();
+            }
+            if (segments.active == null) {
+                segments.openActive(message.getOffset(), message.getTimestamp());
+            }
+            segments.active.write(message, message.getOffset());
+            segments.lastOffset = message.getOffset();
+        }
+    }
+
+    /**
+     * mark a message as deleted, it is dropped when its segment is compacted
+     *
+     * @return false if the offset is not in the segments
+     */
+    public boolean delete(String topic, long offset) {
+        var segments = this.segments(topic);
+        segments.maintenance.lock();
+        try {
+            synchronized (segments) {
+                if (segments.active != null && offset >= segments.active.getOffset()) {
+                    return segments.active.delete(offset);
+                }
+            }
+            var entries = segments.index().entries();
+            var index = entries.search(offset);
+            if (index < 0) {
+                return false;
+            }
+            var lsm = LogStructMerge.getInstance(this.directory, topic, entries.fileId(index));
+            if (lsm != null && lsm.delete(offset)) {
+                segments.dirty.add(entries.fileId(index));
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            log.error("error", e);
+            return false;
+        } finally {
+            segments.maintenance.unlock();
+        }
+    }
+
+    private boolean shouldRoll(String topic, LogStructMerge active, long now) throws IOException {
+        var segmentBytes = this.configuration.getTopicLong(topic, StoreConfiguration.SEGMENT_BYTES, Integer.MAX_VALUE);
+        var segmentMs = this.configuration.getTopicLong(topic, StoreConfiguration.SEGMENT_MS, Long.MAX_VALUE);
+        if (active.getSize() == 0) {
+            return false;
+        }
+        return active.length() >= segmentBytes || now - active.getStart() >= segmentMs;
+    }
+
+    /**
+     * run the roll, compaction and retention jobs on every topic found on disk
+     */
+    public void check() {
+        try (var stream = Files.list(this.directory.resolve("lsm"))) {
+            stream.filter(Files::isDirectory).forEach(path -> this.segments(path.getFileName().toString()));
+        } catch (IOException e) {
+            //还没有任何段
+        }
+        for (var topic : this.topics.keySet()) {
+            try {
+                this.roll(topic);
+                this.compact(topic);
+                this.retain(topic);
+            } catch (Exception e) {
+                log.error("error", e);
+            }
+        }
+    }
+
+    /**
+     * close the active segment of an idle topic once it is older than segment.ms
+     */
+    void roll(String topic) throws IOException {
+        var segments = this.segments(topic);
+        synchronized (segments) {
+            if (segments.active != null && this.shouldRoll(topic, segments.active, System.currentTimeMillis())) {
+                segments.closeActive();
+            }
+        }
+    }
+
+    /**
+     * copy the live records of the closed segments with too many deleted bytes into new files
+     */
+    void compact(String topic) throws IOException {
+        var ratio = this.configuration.getDouble(StoreConfiguration.COMPACTION_RATIO, 0.5);
+        var segments = this.segments(topic);
+        segments.maintenance.lock();
+        try {
+            var entries = segments.index().entries();
+            for (int i = 0; i < entries.size() - 1; i++) {
+                var fileId = entries.fileId(i);
+                if (!segments.dirty.remove(fileId)) {
+                    continue;
+                }
+                var lsm = LogStructMerge.getInstance(this.directory, topic, fileId);
+                if (lsm == null) {
+                    continue;
+                }
+                var deleted = 0L;
+                var total = 0L;
+                var cursor = lsm.cursor();
+                while (cursor.next()) {
+                    var length = cursor.getNext() - cursor.getPosition();
+                    total += length;
+                    if (cursor.isDeleted()) {
+                        deleted += length;
+                    }
+                }
+                if (deleted == 0 || deleted < total * ratio) {
+                    continue;
+                }
+                var path = LogStructMerge.path(this.directory, topic, fileId);
+                var temp = path.resolveSibling(fileId + ".lsm.compact");
+                Files.deleteIfExists(temp);
+                var target = LogStructMerge.create(temp, topic, lsm.getOffset(), lsm.getStart());
+                try {
+                    cursor = lsm.cursor();
+                    while (cursor.next()) {
+                        if (!cursor.isDeleted() && cursor.verify()) {
+                            target.write(cursor.toMessage(topic), cursor.getOffset());
+                        }
+                    }
+                    target.force();
+                } finally {
+                    target.close();
+                }
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                LogStructMerge.invalidate(this.directory, topic, fileId);
+                log.info("compacted segment {} of topic {}, {} of {} bytes deleted", fileId, topic, deleted, total);
+            }
+        } finally {
+            segments.maintenance.unlock();
+        }
+    }
+
+    /**
+     * delete the oldest closed segments older than retention.ms or beyond retention.bytes
+     */
+    void retain(String topic) throws IOException {
+        var retentionMs = this.configuration.getTopicLong(topic, StoreConfiguration.RETENTION_MS, -1);
+        var retentionBytes = this.configuration.getTopicLong(topic, StoreConfiguration.RETENTION_BYTES, -1);
+        if (retentionMs < 0 && retentionBytes < 0) {
+            return;
+        }
+        var segments = this.segments(topic);
+        segments.maintenance.lock();
+        try {
+            var entries = segments.index().entries();
+            var lengths = new long[entries.size()];
+            var total = 0L;
+            for (int i = 0; i < entries.size(); i++) {
+                var path = LogStructMerge.path(this.directory, topic, entries.fileId(i));
+                lengths[i] = Files.exists(path) ? Files.size(path) : 0;
+                total += lengths[i];
+            }
+            var now = System.currentTimeMillis();
+            var removed = 0;
+            while (removed < entries.size() - 1) {
+                var lsm = LogStructMerge.getInstance(this.directory, topic, entries.fileId(removed));
+                var expired = retentionMs >= 0 && (lsm == null || lsm.getEnd() < now - retentionMs);
+                var oversize = retentionBytes >= 0 && total > retentionBytes;
+                if (!expired && !oversize) {
+                    break;
+                }
+                total -= lengths[removed];
+                removed++;
+            }
+            if (removed == 0) {
+                return;
+            }
+            synchronized (segments) {
+                segments.index().removeFirst(removed);
+            }
+            for (int i = 0; i < removed; i++) {
+                LogStructMerge.invalidate(this.directory, topic, entries.fileId(i));
+                Files.deleteIfExists(LogStructMerge.path(this.directory, topic, entries.fileId(i)));
+            }
+            log.info("deleted {} segments of topic {}", removed, topic);
+        } finally {
+            segments.maintenance.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.scheduler.shutdownNow();
+        for (var segments : this.topics.values()) {
+            synchronized (segments) {
+                if (segments.active != null) {
+                    try {
+                        segments.active.force();
+                    } catch (IOException e) {
+                        log.error("error", e);
+                    }
+                    segments.active.close();
+                    segments.active = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * segments of one topic, appends and index rewrites hold the monitor,
+     * compaction, retention and deletes hold the maintenance lock
+     */
+    private class TopicSegments {
+        private final String topic;
+        private final ReentrantLock maintenance = new ReentrantLock();
+        // 有删除记录待检查的已关闭段，启动时检查全部
+        private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+        private LogStructMerge active;
+        private long lastOffset = -1;
+
+        TopicSegments(String topic) throws IOException {
+            this.topic = topic;
+            var entries = this.index().entries();
+            if (entries.size() == 0) {
+                entries = this.rebuild();
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                this.dirty.add(entries.fileId(i));
+            }
+            if (entries.size() > 0) {
+                var last = entries.size() - 1;
+                var path = LogStructMerge.path(directory, topic, entries.fileId(last));
+                if (Files.exists(path)) {
+                    this.active = LogStructMerge.open(path, topic);
+                    // 修复过的段不再使用之前缓存的读句柄
+                    LogStructMerge.invalidate(directory, topic, entries.fileId(last));
+                    this.lastOffset = this.active.lastOffset();
+                } else {
+                    log.warn("the last segment {} of topic {} is missing", entries.fileId(last), topic);
+                    this.lastOffset = entries.offset(last) - 1;
+                }
+            }
+        }
+
+        /**
+         * index the segment files of a topic that has no index, segments are named after their first offset
+         */
+        TopicIndex.Entries rebuild() throws IOException {
+            var folder = LogStructMerge.path(directory, this.topic, 0).getParent();
+            if (!Files.isDirectory(folder)) {
+                return this.index().entries();
+            }
+            long[] fileIds;
+            try (var stream = Files.list(folder)) {
+                fileIds = stream.map(path -> path.getFileName().toString())
+                        .filter(name -> name.matches("\\d+\\.lsm"))
+                        .mapToLong(name -> Long.parseLong(name.substring(0, name.length() - 4)))
+                        .sorted()
+                        .toArray();
+            }
+            for (var fileId : fileIds) {
+                this.index().append(fileId, fileId, LogStructMerge.HEADER_SIZE);
+            }
+            if (fileIds.length > 0) {
+                log.info("rebuilt the index of topic {} from {} segments", this.topic, fileIds.length);
+            }
+            return this.index().entries();
+        }
+
+        TopicIndex index() throws IOException {
+            var index = TopicIndex.loadTopicIndex(directory, this.topic);
+            if (index == null) {
+                throw new IOException("Can not load the index of topic " + this.topic + ".");
+            }
+            return index;
+        }
+
+        /**
+         * create the segment of the next message and add it to the index
+         */
+        void openActive(long offset, long timestamp) throws IOException {
+            var path = LogStructMerge.path(directory, this.topic, offset);
+            Files.deleteIfExists(path);
+            this.active = LogStructMerge.create(path, this.topic, offset, timestamp);
+            this.index().append(offset, offset, LogStructMerge.HEADER_SIZE);
+        }
+
+        /**
+         * flush the active segment, the next message opens a new one
+         */
+        void closeActive() throws IOException {
+            var base = this.active.getOffset();
+            this.active.force();
+            this.active.close();
+            this.active = null;
+            this.dirty.add(base);
+            log.info("rolled segment {} of topic {}", base, this.topic);
+        }
+    }
+}
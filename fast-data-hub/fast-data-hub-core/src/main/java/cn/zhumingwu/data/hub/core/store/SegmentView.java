@@ -0,0 +1,103 @@
+package cn.zhumingwu.data.hub.core.store;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+
+/**
+ * Read only memory mapped view of a segment file
+ * <p>
+ * the file is mapped in buffers of 1GB so segments larger than 2GB can be read,
+ * all reads are absolute so one view is shared by every reader of the segment.
+ *
+ * @author zhumingwu
+ * @since 1.1.0
+ */
+public class SegmentView {
+    private final static int BUFFER_BITS = 30;
+    private final static long BUFFER_SIZE = 1L << BUFFER_BITS;
+    private final static long BUFFER_MASK = BUFFER_SIZE - 1;
+    private final MappedByteBuffer[] buffers;
+    private final long size;
+
+    public SegmentView(FileChannel channel, long size) throws IOException {
+        this(channel, size, null);
+    }
+
+    private SegmentView(FileChannel channel, long size, SegmentView previous) throws IOException {
+        this.size = size;
+        this.buffers = new MappedByteBuffer[(int) ((size + BUFFER_SIZE - 1) >>> BUFFER_BITS)];
+        for (int i = 0; i < this.buffers.length; i++) {
+            //已经完整映射的缓冲区直接复用
+            if (previous != null && i < previous.buffers.length && previous.buffers[i].capacity() == BUFFER_SIZE) {
+                this.buffers[i] = previous.buffers[i];
+                continue;
+            }
+            var position = (long) i << BUFFER_BITS;
+            this.buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(BUFFER_SIZE, size - position));
+        }
+    }
+
+    /**
+     * map a file that has grown, the full buffers of this view are reused
+     */
+    public SegmentView extend(FileChannel channel, long size) throws IOException {
+        if (size == this.size) {
+            return this;
+        }
+        return new SegmentView(channel, size, this);
+    }
+
+    public long size() {
+        return this.size;
+    }
+
+    public byte get(long position) {
+        return this.buffers[(int) (position >>> BUFFER_BITS)].get((int) (position & BUFFER_MASK));
+    }
+
+    /**
+     * copy length bytes at position into target
+     */
+    public void get(long position, byte[] target, int offset, int length) {
+        while (length > 0) {
+            var buffer = this.buffers[(int) (position >>> BUFFER_BITS)];
+            var index = (int) (position & BUFFER_MASK);
+            var count = Math.min(length, buffer.capacity() - index);
+            buffer.get(index, target, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * @return one duplicate per buffer, a reader owns its duplicates to slice ranges without allocation
+     */
+    ByteBuffer[] duplicates() {
+        var result = new ByteBuffer[this.buffers.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.buffers[i].duplicate();
+        }
+        return result;
+    }
+
+    /**
+     * position the duplicates on the ranges covering [position, position + length) and pass each one to consumer
+     */
+    static void forEachRange(ByteBuffer[] duplicates, long position, long length, Consumer<ByteBuffer> consumer) {
+        while (length > 0) {
+            var buffer = duplicates[(int) (position >>> BUFFER_BITS)];
+            var index = (int) (position & BUFFER_MASK);
+            var count = (int) Math.min(length, buffer.capacity() - index);
+            buffer.clear();
+            buffer.position(index).limit(index + count);
+            consumer.accept(buffer);
+            position += count;
+            length -= count;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package cn.zhumingwu.data.hub.core.store;
+
+
+import java.util.Arrays;
+
+/**
+ * Sparse offset index inside one lsm segment
+ * <p>
+ * one entry (offset, position) is kept every interval bytes, a lookup seeks to the closest
+ * entry before the target and scans forward at most interval bytes.
+ * The index is built lazily from the segment records and extended when the segment grows.
+ *
+ * @author zhumingwu
+ * @since 1.1.0
+ */
+public class SparseOffsetIndex {
+    private final int interval;
+    private long[] offsets = new long[64];
+    private long[] positions = new long[64];
+    private int size;
+    // position of the first record not indexed yet
+    private long indexed;
+
+    public SparseOffsetIndex(int interval, long firstPosition) {
+        this.interval = interval;
+        this.indexed = firstPosition;
+    }
+
+    /**
+     * index the records between the last indexed position and the end of the cursor
+     */
+    public synchronized void extend(SegmentCursor cursor) {
+        cursor.seek(this.indexed);
+        while (cursor.next()) {
+            var position = cursor.getPosition();
+            if (this.size == 0 || position - this.positions[this.size - 1] >= this.interval) {
+                if (this.size == this.offsets.length) {
+                    this.offsets = Arrays.copyOf(this.offsets, this.size << 1);
+                    this.positions = Arrays.copyOf(this.positions, this.size << 1);
+                }
+                this.offsets[this.size] = cursor.getOffset();
+                this.positions[this.size] = position;
+                this.size++;
+            }
+            this.indexed = cursor.getNext();
+        }
+    }
+
+    public synchronized long getIndexed() {
+        return this.indexed;
+    }
+
+    /**
+     * @return position of the last indexed record with an offset not greater than offset, -1 if none
+     */
+    public synchronized long floor(long offset) {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (this.offsets[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high < 0 ? -1 : this.positions[high];
+    }
+
+    public synchronized int size() {
+        return this.size;
+    }
+}
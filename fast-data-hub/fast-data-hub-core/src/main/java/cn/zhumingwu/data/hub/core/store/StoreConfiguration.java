@@ -0,0 +1,131 @@
+package cn.zhumingwu.data.hub.core.store;
+
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Store configuration.
+ * <dl>
+ *   <dt>This class recognizes the following property keys:</dt>
+ *   <dd><code>sync.mode</code> - wal sync mode, per-message | group | os [default: group]</dd>
+ *   <dd><code>sync.batch.size</code> - max messages fsynced together in group mode (int) [default: 1024]</dd>
+ *   <dd><code>sync.batch.delay.ms</code> - max time a group waits for more messages (long) [default: 0]</dd>
+ *   <dd><code>sync.queue.capacity</code> - pending messages before producers block (int) [default: 65536]</dd>
+ *   <dd><code>data.dir</code> - root directory of the wal, lsm and index files [default: ./data]</dd>
+ *   <dd><code>segment.bytes</code> - size at which the active lsm segment is rolled (long) [default: 1073741824]</dd>
+ *   <dd><code>segment.ms</code> - age at which the active lsm segment is rolled (long) [default: 604800000]</dd>
+ *   <dd><code>retention.bytes</code> - max size of the segments of a topic, -1 for no limit (long) [default: -1]</dd>
+ *   <dd><code>retention.ms</code> - max age of the segments of a topic, -1 for no limit (long) [default: -1]</dd>
+ *   <dd><code>compaction.ratio</code> - min ratio of deleted bytes before a segment is compacted (double) [default: 0.5]</dd>
+ *   <dd><code>segment.check.interval.ms</code> - interval of the segment manager jobs (long) [default: 60000]</dd>
+ *   <dd><code>ring.power</code> - the ring buffer of a topic holds 2^power messages (int) [default: 10]</dd>
+ *   <dd><code>writer.shards</code> - number of writer threads, topics are assigned by hash (int) [default: cpu count]</dd>
+ *   <dd><code>writer.queue.capacity</code> - pending messages of a writer before producers block (int) [default: 65536]</dd>
+ * </dl>
+ * <p>
+ * Default values can be set by setting properties to the JVM (ex:
+ * -Ddatahub.sync.mode=os). All property names should be prefixed
+ * with <em>datahub</em>.
+ * <p>
+ * The ring, segment and retention keys can be overridden per topic with the
+ * <em>topic.&lt;name&gt;.</em> prefix (ex: topic.orders.retention.ms).
+ *
+ * @author zhumingwu
+ * @since 1.1.0
+ */
+public class StoreConfiguration {
+    // Wal sync mode
+    public final static String SYNC_MODE = "sync.mode";
+    // Group commit batch size
+    public final static String SYNC_BATCH_SIZE = "sync.batch.size";
+    // Group commit linger time
+    public final static String SYNC_BATCH_DELAY_MS = "sync.batch.delay.ms";
+    // Group commit queue capacity
+    public final static String SYNC_QUEUE_CAPACITY = "sync.queue.capacity";
+    // Data directory
+    public final static String DATA_DIR = "data.dir";
+    // Segment roll size
+    public final static String SEGMENT_BYTES = "segment.bytes";
+    // Segment roll age
+    public final static String SEGMENT_MS = "segment.ms";
+    // Retention size per topic
+    public final static String RETENTION_BYTES = "retention.bytes";
+    // Retention age per topic
+    public final static String RETENTION_MS = "retention.ms";
+    // Deleted bytes ratio that triggers a compaction
+    public final static String COMPACTION_RATIO = "compaction.ratio";
+    // Segment manager interval
+    public final static String SEGMENT_CHECK_INTERVAL_MS = "segment.check.interval.ms";
+    // Ring buffer size of a topic
+    public final static String RING_POWER = "ring.power";
+    // Writer thread count
+    public final static String WRITER_SHARDS = "writer.shards";
+    // Writer queue capacity
+    public final static String WRITER_QUEUE_CAPACITY = "writer.queue.capacity";
+
+    private final Map<String, String> properties = new HashMap<>();
+
+    public StoreConfiguration() {
+        putWithSystemPropertyDefault(SYNC_MODE, SyncMode.GROUP.getName());
+        putWithSystemPropertyDefault(SYNC_BATCH_SIZE, "1024");
+        putWithSystemPropertyDefault(SYNC_BATCH_DELAY_MS, "0");
+        putWithSystemPropertyDefault(SYNC_QUEUE_CAPACITY, "65536");
+        putWithSystemPropertyDefault(DATA_DIR, "./data");
+        putWithSystemPropertyDefault(SEGMENT_BYTES, String.valueOf(1024 * 1024 * 1024));
+        putWithSystemPropertyDefault(SEGMENT_MS, String.valueOf(7 * 24 * 60 * 60 * 1000L));
+        putWithSystemPropertyDefault(RETENTION_BYTES, "-1");
+        putWithSystemPropertyDefault(RETENTION_MS, "-1");
+        putWithSystemPropertyDefault(COMPACTION_RATIO, "0.5");
+        putWithSystemPropertyDefault(SEGMENT_CHECK_INTERVAL_MS, "60000");
+        putWithSystemPropertyDefault(RING_POWER, "10");
+        putWithSystemPropertyDefault(WRITER_SHARDS, String.valueOf(Runtime.getRuntime().availableProcessors()));
+        putWithSystemPropertyDefault(WRITER_QUEUE_CAPACITY, "65536");
+    }
+
+    private void putWithSystemPropertyDefault(String key, String defaultValue) {
+        this.properties.put(key, System.getProperty("datahub." + key, defaultValue));
+    }
+
+    public StoreConfiguration set(String key, String value) {
+        this.properties.put(key, value);
+        return this;
+    }
+
+    public String get(String key, String defaultValue) {
+        return this.properties.getOrDefault(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        var value = this.properties.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        var value = this.properties.get(key);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        var value = this.properties.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * @return the value of topic.&lt;topic&gt;.key, or of key when the topic does not override it
+     */
+    public long getTopicLong(String topic, String key, long defaultValue) {
+        var value = this.properties.get("topic." + topic + "." + key);
+        return value == null ? this.getLong(key, defaultValue) : Long.parseLong(value);
+    }
+
+    public Path getDataDirectory() {
+        return Paths.get(this.properties.get(DATA_DIR));
+    }
+
+    public SyncMode getSyncMode() {
+        return SyncMode.of(this.properties.get(SYNC_MODE));
+    }
+}
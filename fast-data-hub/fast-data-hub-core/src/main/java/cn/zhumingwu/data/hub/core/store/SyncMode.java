@@ -0,0 +1,37 @@
+package cn.zhumingwu.data.hub.core.store;
+
+
+/**
+ * When the wal makes a message durable
+ * <p>
+ * per-message - msync after every message
+ * group - a flusher thread batches messages and msyncs once per batch
+ * os - never msync, the page cache is written back by the os
+ *
+ * @author zhumingwu
+ * @since 1.1.0
+ */
+public enum SyncMode {
+    PER_MESSAGE("per-message"),
+    GROUP("group"),
+    OS("os");
+
+    private final String name;
+
+    SyncMode(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public static SyncMode of(String name) {
+        for (var mode : values()) {
+            if (mode.name.equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sync mode " + name + ".");
+    }
+}
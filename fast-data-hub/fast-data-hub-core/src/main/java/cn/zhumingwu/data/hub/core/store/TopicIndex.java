@@ -4,12 +4,13 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import lombok.extern.slf4j.Slf4j;
 
-import cn.zhumingwu.data.hub.core.util.FileChannelUtil;
-
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.*;
@@ -17,10 +18,12 @@ import java.util.*;
 /**
  * The skip map of topic offset and file position
  * <p>
- * offset vint
- * size vint
- * fileId
- * position vint
+ * 定长条目的索引文件直接映射到内存，在映射上做插值查找，不为条目创建对象；
+ * 新的段只追加一个条目，保留策略删除旧段时只移动 first，前缀过长时重写文件后原子替换。
+ * <p>
+ * first - 8 byte, index of the first live entry
+ * count - 8 byte, number of entries written
+ * entries - count * (offset 8 byte, fileId 8 byte, position 8 byte)
  *
  * @author zhumingwu
  * @since 2022/1/27 17:41
@@ -31,69 +34,199 @@ public class TopicIndex {
             .expireAfterAccess(Duration.ofMinutes(10))
             .build();
     private static final Map<String, Object> topics = new HashMap<>();
-    private final SortedOffset offsets;
+    private final static int HEADER_SIZE = 16;
+    private final static int ENTRY_SIZE = 24;
+    private final static int INITIAL_CAPACITY = 1024;
+    private final Path path;
+    // 追加或重写后整体替换，读取方不需要加锁
+    private volatile Entries entries;
 
-    private TopicIndex(SortedOffset offsets) {
-        this.offsets = offsets;
+    private TopicIndex(Path path, Entries entries) {
+        this.path = path;
+        this.entries = entries;
     }
 
-    public SortedOffset.OffsetElement getLast() {
-        return this.offsets.get(offsets.size()-1);
+    /**
+     * @return the live entries, a snapshot that is not changed by later appends or removals
+     */
+    public Entries entries() {
+        return this.entries;
     }
 
-    public SortedOffset.OffsetElement getFirst() {
-        return this.offsets.get(0);
+    /**
+     * add the entry of a new segment, its offset must be greater than the last one
+     */
+    public synchronized void append(long offset, long fileId, long position) throws IOException {
+        var current = this.entries;
+        if (current.size > 0 && offset <= current.offset(current.size - 1)) {
+            throw new IllegalArgumentException("Offset " + offset + " is not after the last entry of " + this.path + ".");
+        }
+        var count = current.first + current.size;
+        var buffer = current.buffer;
+        if (HEADER_SIZE + (long) (count + 1) * ENTRY_SIZE > buffer.capacity()) {
+            buffer = map(this.path, Math.max(INITIAL_CAPACITY, count << 1));
+        }
+        var at = HEADER_SIZE + count * ENTRY_SIZE;
+        buffer.putLong(at, offset);
+        buffer.putLong(at + 8, fileId);
+        buffer.putLong(at + 16, position);
+        // 条目先落盘再更新计数，崩溃时计数不会包含未写入的条目
+        buffer.force(at, ENTRY_SIZE);
+        buffer.putLong(8, count + 1);
+        buffer.force(0, HEADER_SIZE);
+        this.entries = new Entries(buffer, current.first, current.size + 1);
     }
 
-    public SortedOffset.OffsetElement search(long offset) {
-        var index = this.offsets.search(offset);
-        if (index >= 0) {
-            return this.offsets.get(index);
+    /**
+     * drop the first n entries, the file is rewritten once the dropped prefix is larger than the live entries
+     */
+    public synchronized void removeFirst(int n) throws IOException {
+        var current = this.entries;
+        n = Math.min(n, current.size);
+        if (n <= 0) {
+            return;
+        }
+        var first = current.first + n;
+        if (first >= INITIAL_CAPACITY && first > current.size - n) {
+            this.rewrite(current, n);
+            return;
         }
-        return null;
+        current.buffer.putLong(0, first);
+        current.buffer.force(0, HEADER_SIZE);
+        this.entries = new Entries(current.buffer, first, current.size - n);
+    }
+
+    /**
+     * copy the live entries after skip to a new file moved over the old one,
+     * a crash leaves either the old or the new index
+     */
+    private void rewrite(Entries current, int skip) throws IOException {
+        var size = current.size - skip;
+        var temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        var buffer = map(temp, Math.max(INITIAL_CAPACITY, size << 1));
+        buffer.put(HEADER_SIZE, current.buffer, HEADER_SIZE + (current.first + skip) * ENTRY_SIZE, size * ENTRY_SIZE);
+        buffer.putLong(0, 0);
+        buffer.putLong(8, size);
+        buffer.force();
+        Files.move(temp, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        this.entries = new Entries(buffer, 0, size);
     }
 
     public Set<String> topics() {
         return topics.keySet();
     }
 
+    private static MappedByteBuffer map(Path path, int capacity) throws IOException {
+        try (var fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * ENTRY_SIZE);
+        }
+    }
+
     public static TopicIndex loadTopicIndex(String key) {
-        var result = FILE_HANDLER.getIfPresent(key);
+        return loadTopicIndex(Paths.get("./data"), key);
+    }
+
+    public static TopicIndex loadTopicIndex(Path directory, String key) {
+        var path = directory.resolve("index").resolve(key + ".idx");
+        var result = FILE_HANDLER.getIfPresent(path.toString());
         if (result != null) {
             return result;
         }
-        var path = Paths.get("./data", "index", key + ".index");
         try {
-            if (!Files.exists(path)) {
-                Files.createFile(path);
-                FILE_HANDLER.put(key, new TopicIndex(new SortedOffset()));
-            } else {
-
-                var fileChannel = FileChannel.open(path, StandardOpenOption.READ);
-                SortedOffset list = new SortedOffset();
-                while (true) {
-                    // offset and file id
-                    var offset = FileChannelUtil.readVLen(fileChannel);
-                    if (offset <= 0) {
-                        break;
-                    }
-                    var size = FileChannelUtil.readVLen(fileChannel);
-                    if (size <= 0) {
-                        break;
-                    }
-                    var fileId = FileChannelUtil.readVLen(fileChannel);
-                    var position = FileChannelUtil.readVLen(fileChannel);
-                    var element = new SortedOffset.OffsetElement(offset, (int) size, fileId, position);
-                    list.add(element);
-                }
-                fileChannel.close();
-                list.sort();
-                FILE_HANDLER.put(key, new TopicIndex(list));
+            Files.createDirectories(path.getParent());
+            var capacity = INITIAL_CAPACITY;
+            if (Files.exists(path)) {
+                capacity = (int) Math.max(capacity, (Files.size(path) - HEADER_SIZE) / ENTRY_SIZE);
+            }
+            var buffer = map(path, capacity);
+            var first = (int) buffer.getLong(0);
+            var count = (int) buffer.getLong(8);
+            if (first < 0 || count < first || HEADER_SIZE + (long) count * ENTRY_SIZE > buffer.capacity()) {
+                throw new IOException("Corrupted index " + path + ".");
             }
+            result = new TopicIndex(path, new Entries(buffer, first, count - first));
         } catch (IOException e) {
             log.error("error", e);
             return null;
         }
-        return FILE_HANDLER.getIfPresent(key);
+        var previous = FILE_HANDLER.asMap().putIfAbsent(path.toString(), result);
+        return previous == null ? result : previous;
+    }
+
+    /**
+     * Snapshot of the mapped entries, reads are absolute so it is shared by every reader
+     */
+    public static final class Entries {
+        private final MappedByteBuffer buffer;
+        private final int first;
+        private final int size;
+
+        private Entries(MappedByteBuffer buffer, int first, int size) {
+            this.buffer = buffer;
+            this.first = first;
+            this.size = size;
+        }
+
+        private int at(int index) {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+            }
+            return HEADER_SIZE + (this.first + index) * ENTRY_SIZE;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public long offset(int index) {
+            return this.buffer.getLong(this.at(index));
+        }
+
+        public long fileId(int index) {
+            return this.buffer.getLong(this.at(index) + 8);
+        }
+
+        public long position(int index) {
+            return this.buffer.getLong(this.at(index) + 16);
+        }
+
+        /**
+         * interpolation search alternating with bisection, offsets of a topic are close to uniform
+         * so most lookups take a few probes and the worst case stays logarithmic
+         *
+         * @return index of the segment holding offset, the last segment starting at or before offset,
+         * -1 if offset is before the first segment
+         */
+        public int search(long offset) {
+            var high = this.size - 1;
+            if (high < 0 || offset < this.offset(0)) {
+                return -1;
+            }
+            if (offset >= this.offset(high)) {
+                return high;
+            }
+            // offset(low) <= offset < offset(high)
+            var low = 0;
+            var interpolate = true;
+            while (high - low > 1) {
+                int mid;
+                if (interpolate) {
+                    var lowValue = this.offset(low);
+                    var highValue = this.offset(high);
+                    mid = low + (int) ((double) (offset - lowValue) / (highValue - lowValue) * (high - low));
+                    mid = Math.max(low + 1, Math.min(high - 1, mid));
+                } else {
+                    mid = (low + high) >>> 1;
+                }
+                interpolate = !interpolate;
+                if (this.offset(mid) <= offset) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
     }
 }
@@ -0,0 +1,160 @@
+package cn.zhumingwu.data.hub.core.store;
+
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Startup recovery of the wal into the lsm segments
+ * <p>
+ * 1、按代数顺序扫描 wal 文件并校验每条记录的 crc（打开 wal 时已截断不完整的尾部）；
+ * 2、按 topic 记录有效记录的位置，不复制消息内容；
+ * 3、各 topic 并行地把 offset 大于 lsm 段中最后 offset 的记录重放到 lsm 段。
+ *
+ * @author zhumingwu
+ * @since 1.1.0
+ */
+@Slf4j
+public class WalRecovery {
+    private final WriteAppendLog wal;
+    private final SegmentManager segments;
+    private final int threads;
+
+    public WalRecovery(WriteAppendLog wal, SegmentManager segments, int threads) {
+        this.wal = wal;
+        this.segments = segments;
+        this.threads = Math.max(1, threads);
+    }
+
+    public Result run() throws IOException {
+        var begin = System.nanoTime();
+        var result = new Result();
+        result.truncated = this.wal.getTruncated();
+        // record locations of each topic, file << 32 | position
+        Map<String, LongList> topics = new HashMap<>();
+        for (var file : this.wal.order()) {
+            var position = WriteAppendLog.FILE_HEADER_SIZE;
+            while (true) {
+                var next = this.wal.next(file, position);
+                if (next < 0) {
+                    break;
+                }
+                topics.computeIfAbsent(this.wal.readTopic(file, position), key -> new LongList())
+                        .add((long) file << 32 | position);
+                result.records++;
+                position = next;
+            }
+        }
+        result.topics = topics.size();
+        log.info("wal scanned, {} records of {} topics", result.records, result.topics);
+
+        var replayed = new AtomicLong();
+        var done = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(Math.min(this.threads, Math.max(1, topics.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (var entry : topics.entrySet()) {
+                futures.add(executor.submit(() -> {
+                    var count = this.replay(entry.getKey(), entry.getValue());
+                    replayed.addAndGet(count);
+                    log.info("recovered topic {}, {} records replayed ({}/{})", entry.getKey(), count, done.incrementAndGet(), topics.size());
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        result.replayed = replayed.get();
+        result.elapsed = (System.nanoTime() - begin) / 1_000_000;
+        log.info("wal recovery finished, {}", result);
+        return result;
+    }
+
+    private long replay(String topic, LongList locations) throws IOException {
+        var last = this.segments.lastOffset(topic);
+        var count = 0L;
+        for (int i = 0; i < locations.size; i++) {
+            var file = (int) (locations.values[i] >>> 32);
+            var position = (int) locations.values[i];
+            var offset = this.wal.readOffset(file, position);
+            if (offset <= last) {
+                continue;
+            }
+            if (offset != last + 1) {
+                log.warn("topic {} misses offsets {} to {}, they are no longer in the wal", topic, last + 1, offset - 1);
+            }
+            this.segments.append(this.wal.read(file, position));
+            last = offset;
+            count++;
+        }
+        return count;
+    }
+
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        private void add(long value) {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size << 1);
+            }
+            this.values[this.size++] = value;
+        }
+    }
+
+    /**
+     * progress of a recovery
+     */
+    public static final class Result {
+        private long records;
+        private long replayed;
+        private long truncated;
+        private int topics;
+        private long elapsed;
+
+        public long getRecords() {
+            return this.records;
+        }
+
+        public long getReplayed() {
+            return this.replayed;
+        }
+
+        public long getTruncated() {
+            return this.truncated;
+        }
+
+        public int getTopics() {
+            return this.topics;
+        }
+
+        public long getElapsed() {
+            return this.elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return "records=" + this.records + ", replayed=" + this.replayed + ", topics=" + this.topics
+                    + ", truncated bytes=" + this.truncated + ", elapsed=" + this.elapsed + "ms";
+        }
+    }
+}
@@ -2,25 +2,48 @@ package cn.zhumingwu.data.hub.core.store;
 
 
 import cn.zhumingwu.data.hub.core.util.CRCUtil;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
-import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Paths;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
 
 /**
  * Fast to write message data into wal file
  * <p>
  *     使用内存映射文件快速将消息写到日志文件中
  * <p>
+ *     group 模式下由刷盘线程批量写入，每批只 force 一次
+ * <p>
+ *     每个文件以 8 字节的代数开头，文件循环使用时代数加一；记录的 crc 包含代数，
+ *     所以上一轮残留的记录不会被当作有效记录，启动时据此找到写入位置并截断不完整的尾部
+ * <p>
+ *     文件被循环使用前先通过 checkpoint 确认其中的记录已经写入并 force 到 lsm 段，否则阻塞写入
+ * <p>
+ * generation - 8 byte, file header
+ * <p>
  * offset - 8 byte
  * timestamp - 8 byte
+ * schema - 4 byte
  * topic - var byte length + 4
  * payload - var byte length + 4
  * crc - 4 byte
@@ -28,69 +51,440 @@ import java.util.concurrent.locks.ReentrantLock;
  * @author zhumingwu
  * @since 2022/1/27 17:40
  */
+@Slf4j
 public class WriteAppendLog {
-    private static WriteAppendLog writeAppendLog;
+    private static final Map<Path, WriteAppendLog> WRITE_APPEND_LOGS = new ConcurrentHashMap<>();
     private final static int WAL_SIZE = 256 * 1024 * 1024;
     private final static short WRITE_APPEND_LOG_SIZE = 4;
-    private final static MappedByteBuffer[] WRITE_APPEND_LOGS = new MappedByteBuffer[WRITE_APPEND_LOG_SIZE];
-    private int counter = 0;
-    private final AtomicInteger size = new AtomicInteger(0);
+    final static int FILE_HEADER_SIZE = 8;
+    private final static int HEADER_SIZE = 28;
+    // 等待 lsm 段追上将被覆盖的文件的最长时间
+    private final static long CHECKPOINT_TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+    private final MappedByteBuffer[] writeAppendLogs = new MappedByteBuffer[WRITE_APPEND_LOG_SIZE];
+    private final SyncMode syncMode;
+    private final int batchSize;
+    private final long batchDelay;
+    private final BlockingQueue<PendingAppend> queue;
+    private final Thread flusher;
     private final Lock lock = new ReentrantLock();
+    // 每个文件中各 topic 的最大 offset，null 表示重启前写入的文件，需要扫描
+    private final List<Map<String, Long>> written = new ArrayList<>(Collections.nCopies(WRITE_APPEND_LOG_SIZE, null));
+    private volatile Checkpoint checkpoint;
+    private volatile boolean running = true;
+    private int counter = 0;
+    private int synced = 0;
+    private long generation = 0;
+    private long truncated = 0;
 
     public static WriteAppendLog loadWriteAppendLog() {
-        if (writeAppendLog == null) {
+        return loadWriteAppendLog(new StoreConfiguration());
+    }
+
+    public static WriteAppendLog loadWriteAppendLog(StoreConfiguration configuration) {
+        var directory = configuration.getDataDirectory().resolve("wal").toAbsolutePath().normalize();
+        return WRITE_APPEND_LOGS.computeIfAbsent(directory, path -> new WriteAppendLog(path, configuration));
+    }
+
+    WriteAppendLog(Path directory, StoreConfiguration configuration) {
+        try {
+            Files.createDirectories(directory);
             for (int i = 0; i < WRITE_APPEND_LOG_SIZE; i++) {
-                var path = Paths.get("./", "data", "wal", i + ".wal");
-                try {
-                    var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW);
-                    WRITE_APPEND_LOGS[i] = channel.map(FileChannel.MapMode.READ_WRITE, 0, WAL_SIZE);
-                } catch (IOException ignored) {
+                var path = directory.resolve(i + ".wal");
+                try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    this.writeAppendLogs[i] = channel.map(FileChannel.MapMode.READ_WRITE, 0, WAL_SIZE);
                 }
             }
-            writeAppendLog = new WriteAppendLog();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.open();
+        this.syncMode = configuration.getSyncMode();
+        this.batchSize = Math.max(1, configuration.getInt(StoreConfiguration.SYNC_BATCH_SIZE, 1024));
+        this.batchDelay = TimeUnit.MILLISECONDS.toNanos(configuration.getLong(StoreConfiguration.SYNC_BATCH_DELAY_MS, 0));
+        if (this.syncMode == SyncMode.GROUP) {
+            this.queue = new ArrayBlockingQueue<>(configuration.getInt(StoreConfiguration.SYNC_QUEUE_CAPACITY, 65536));
+            this.flusher = new Thread(this::flush, "wal-flusher");
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        } else {
+            this.queue = null;
+            this.flusher = null;
         }
-        return writeAppendLog;
     }
 
-    private WriteAppendLog() {
+    public SyncMode getSyncMode() {
+        return this.syncMode;
+    }
+
+    /**
+     * set the checkpoint called before a file is reused
+     */
+    public void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * find the file with the highest generation and its last valid record, the torn tail is cleared
+     */
+    private void open() {
+        var order = this.order();
+        if (order.length == 0) {
+            this.start(0, 1);
+            return;
+        }
+        this.counter = order[order.length - 1];
+        this.generation = this.generation(this.counter);
+        var buffer = this.writeAppendLogs[this.counter];
+        var position = FILE_HEADER_SIZE;
+        Map<String, Long> offsets = new HashMap<>();
+        while (true) {
+            var next = this.next(this.counter, position);
+            if (next < 0) {
+                break;
+            }
+            offsets.put(this.readTopic(this.counter, position), this.readOffset(this.counter, position));
+            position = next;
+        }
+        this.written.set(this.counter, offsets);
+        //清除不完整的记录
+        var end = Math.min(WAL_SIZE, position + this.length(this.counter, position));
+        for (int i = position; i < end; i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+                this.truncated++;
+            }
+        }
+        if (this.truncated > 0) {
+            buffer.force(position, end - position);
+            log.warn("truncated {} bytes of wal file {} at {}", this.truncated, this.counter, position);
+        }
+        buffer.position(position);
+        this.synced = position;
+    }
+
+    /**
+     * reuse a file with a new generation
+     */
+    private void start(int counter, long generation) {
+        this.written.set(counter, new HashMap<>());
+        this.counter = counter;
+        this.generation = generation;
+        var buffer = this.writeAppendLogs[counter];
+        buffer.putLong(0, generation);
+        buffer.force(0, FILE_HEADER_SIZE);
+        buffer.position(FILE_HEADER_SIZE);
+        this.synced = FILE_HEADER_SIZE;
     }
-    private MappedByteBuffer ensureCapacityInternal(int length) {
 
-        if (this.size.get() + length >= WAL_SIZE) {
-            lock.lock();
-            //如果当前文件空间不足
+    private long generation(int file) {
+        return this.writeAppendLogs[file].getLong(0);
+    }
+
+    /**
+     * @return the files holding records ordered from the oldest generation
+     */
+    int[] order() {
+        return IntStream.range(0, WRITE_APPEND_LOG_SIZE)
+                .filter(i -> this.generation(i) > 0)
+                .boxed()
+                .sorted(Comparator.comparingLong(this::generation))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * @return bytes of the record at position as given by its header, at least the header size
+     */
+    private int length(int file, int position) {
+        var buffer = this.writeAppendLogs[file];
+        if (position + HEADER_SIZE > WAL_SIZE) {
+            return HEADER_SIZE;
+        }
+        var topicLength = buffer.getInt(position + 20);
+        if (topicLength < 0 || position + HEADER_SIZE + topicLength > WAL_SIZE) {
+            return HEADER_SIZE;
+        }
+        var payloadLength = buffer.getInt(position + 24 + topicLength);
+        if (payloadLength < 0 || (long) position + HEADER_SIZE + topicLength + payloadLength + 4 > WAL_SIZE) {
+            return HEADER_SIZE;
+        }
+        return HEADER_SIZE + topicLength + payloadLength + 4;
+    }
+
+    /**
+     * check the record at position
+     *
+     * @return position of the next record, -1 if the record is torn, corrupted or from an older generation
+     */
+    int next(int file, int position) {
+        var length = this.length(file, position);
+        if (length == HEADER_SIZE) {
+            return -1;
+        }
+        var buffer = this.writeAppendLogs[file];
+        var crc = CRCUtil.crc32().update(this.generation(file)).update(buffer.slice(position, length - 4));
+        var stored = new byte[4];
+        buffer.get(position + length - 4, stored);
+        if (!crc.check(stored)) {
+            return -1;
+        }
+        return position + length;
+    }
+
+    /**
+     * make the lsm segments durable up to the records of the file, blocks while the segments are behind
+     *
+     * @throws IllegalStateException if the segments did not catch up in time, the file must not be reused
+     */
+    void checkpoint(int file) {
+        var checkpoint = this.checkpoint;
+        if (checkpoint == null || this.generation(file) == 0) {
+            return;
+        }
+        var offsets = this.written.get(file);
+        if (offsets == null) {
+            offsets = new HashMap<>();
+            for (int position = FILE_HEADER_SIZE, next; (next = this.next(file, position)) >= 0; position = next) {
+                offsets.put(this.readTopic(file, position), this.readOffset(file, position));
+            }
+        }
+        var deadline = System.nanoTime() + CHECKPOINT_TIMEOUT;
+        for (var entry : offsets.entrySet()) {
             try {
-                if (this.size.get() + length >= WAL_SIZE) {
-                    //重置当前文件路径
-                    WRITE_APPEND_LOGS[counter & WRITE_APPEND_LOG_SIZE].position(0);
-                    this.counter++;
-                    this.size.set(0);
+                while (!checkpoint.force(entry.getKey(), entry.getValue())) {
+                    if (System.nanoTime() - deadline > 0) {
+                        throw new IllegalStateException("Segments of topic " + entry.getKey()
+                                + " are behind offset " + entry.getValue() + " of wal file " + file + ".");
+                    }
+                    LockSupport.parkNanos(1_000_000);
                 }
-            } finally {
-                lock.unlock();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
-        this.size.addAndGet(length);
-        return WRITE_APPEND_LOGS[counter & WRITE_APPEND_LOG_SIZE];
     }
 
-    public boolean append(EventMessage message) {
-        var offset = message.getOffset();
-        var timestamp = message.getTimestamp();
+    String readTopic(int file, int position) {
+        var buffer = this.writeAppendLogs[file];
+        var topic = new byte[buffer.getInt(position + 20)];
+        buffer.get(position + 24, topic);
+        return new String(topic, StandardCharsets.UTF_8);
+    }
+
+    long readOffset(int file, int position) {
+        return this.writeAppendLogs[file].getLong(position);
+    }
+
+    EventMessage read(int file, int position) {
+        var buffer = this.writeAppendLogs[file];
+        var topicLength = buffer.getInt(position + 20);
+        var payload = new byte[buffer.getInt(position + 24 + topicLength)];
+        buffer.get(position + HEADER_SIZE + topicLength, payload);
+        var message = new EventMessage(this.readTopic(file, position), payload, buffer.getInt(position + 16), buffer.getLong(position + 8));
+        message.setOffset(buffer.getLong(position));
+        return message;
+    }
+
+    /**
+     * @return bytes cleared at the end of the wal when it was opened
+     */
+    public long getTruncated() {
+        return this.truncated;
+    }
+
+    private MappedByteBuffer ensureCapacityInternal(int length) {
+        if (length > WAL_SIZE - FILE_HEADER_SIZE) {
+            throw new IllegalArgumentException("Message too large for wal: " + length);
+        }
+        var buffer = this.writeAppendLogs[this.counter];
+        //如果当前文件空间不足
+        if (buffer.position() + length > WAL_SIZE) {
+            this.sync();
+            //切换到下一个文件，覆盖前确认其中的记录已经在 lsm 段中
+            var next = (this.counter + 1) % WRITE_APPEND_LOG_SIZE;
+            this.checkpoint(next);
+            this.start(next, this.generation + 1);
+            buffer = this.writeAppendLogs[this.counter];
+        }
+        return buffer;
+    }
+
+    private void write(EventMessage message) {
         var topic = message.getTopic().getBytes(StandardCharsets.UTF_8);
         var payload = message.getPayload();
-        var length = 34 + topic.length + payload.length;
-        var data = ByteBuffer.allocate(length);
-        data.putLong(offset);       //8
-        data.putLong(timestamp);    //8
-        data.putInt(topic.length);  //4
-        data.put(topic);            //topic.length
-        data.putInt(payload.length);//4
-        data.put(payload);          //payload.length;
+        var length = HEADER_SIZE + topic.length + payload.length;
         var buffer = this.ensureCapacityInternal(length + 4);
-        buffer.put(data.array());
-        buffer.put(CRCUtil.crc32().update(data.array()).getBytes());
-        buffer.force();
-        return true;
+        var start = buffer.position();
+        buffer.putLong(message.getOffset());    //8
+        buffer.putLong(message.getTimestamp()); //8
+        buffer.putInt(message.getSchema());     //4
+        buffer.putInt(topic.length);            //4
+        buffer.put(topic);                      //topic.length
+        buffer.putInt(payload.length);          //4
+        buffer.put(payload);                    //payload.length;
+        buffer.put(CRCUtil.crc32().update(this.generation).update(buffer.slice(start, length)).getBytes());
+        this.written.get(this.counter).put(message.getTopic(), message.getOffset());
+    }
+
+    /**
+     * msync the bytes written since the last sync of the current file
+     */
+    private void sync() {
+        var buffer = this.writeAppendLogs[this.counter];
+        var position = buffer.position();
+        if (position > this.synced) {
+            buffer.force(this.synced, position - this.synced);
+            this.synced = position;
+        }
+    }
+
+    /**
+     * append the message to the wal
+     *
+     * @param message message with its offset assigned
+     * @return future completed with the message offset once the message is durable for the sync mode
+     */
+    public CompletableFuture<Long> append(EventMessage message) {
+        if (this.syncMode == SyncMode.GROUP) {
+            var pending = new PendingAppend(message);
+            try {
+                //关闭或刷盘线程退出后不再等待队列空间
+                while (!this.queue.offer(pending, 100, TimeUnit.MILLISECONDS)) {
+                    if (!this.running) {
+                        return CompletableFuture.failedFuture(new IllegalStateException("Wal is closed."));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return CompletableFuture.failedFuture(e);
+            }
+            //刷盘线程已经退出时队列不会再被处理
+            if (!this.running && this.queue.remove(pending)) {
+                pending.future.completeExceptionally(new IllegalStateException("Wal is closed."));
+            }
+            return pending.future;
+        }
+        lock.lock();
+        try {
+            this.write(message);
+            if (this.syncMode == SyncMode.PER_MESSAGE) {
+                this.sync();
+            }
+        } catch (RuntimeException e) {
+            log.error("error", e);
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            lock.unlock();
+        }
+        return CompletableFuture.completedFuture(message.getOffset());
+    }
+
+    private void flush() {
+        try {
+            this.flushLoop();
+        } finally {
+            //线程异常退出时不再接受写入，失败掉队列中剩余的消息
+            this.running = false;
+            List<PendingAppend> remaining = new ArrayList<>();
+            this.queue.drainTo(remaining);
+            remaining.forEach(pending -> pending.future.completeExceptionally(new IllegalStateException("Wal is closed.")));
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingAppend> batch = new ArrayList<>(this.batchSize);
+        while (this.running || !this.queue.isEmpty()) {
+            try {
+                var first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                this.queue.drainTo(batch, this.batchSize - batch.size());
+                if (this.batchDelay > 0) {
+                    var deadline = System.nanoTime() + this.batchDelay;
+                    while (batch.size() < this.batchSize) {
+                        var next = this.queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        this.queue.drainTo(batch, this.batchSize - batch.size());
+                    }
+                }
+                this.commit(batch);
+            } catch (InterruptedException e) {
+                this.commit(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingAppend> batch) {
+        lock.lock();
+        try {
+            for (var pending : batch) {
+                try {
+                    this.write(pending.message);
+                } catch (RuntimeException e) {
+                    log.error("error", e);
+                    pending.future.completeExceptionally(e);
+                }
+            }
+            this.sync();
+        } catch (RuntimeException e) {
+            log.error("error", e);
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        } finally {
+            lock.unlock();
+        }
+        for (var pending : batch) {
+            pending.future.complete(pending.message.getOffset());
+        }
+    }
+
+    /**
+     * stop the flusher after the pending messages are written and sync the current file
+     */
+    public void close() {
+        this.running = false;
+        if (this.flusher != null) {
+            try {
+                this.flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lock.lock();
+        try {
+            this.sync();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * makes the lsm segments durable before a wal file is reused
+     */
+    @FunctionalInterface
+    public interface Checkpoint {
+        /**
+         * force the segments of the topic
+         *
+         * @return false if the segments do not have the messages up to offset yet
+         */
+        boolean force(String topic, long offset) throws IOException;
+    }
+
+    private static final class PendingAppend {
+        private final EventMessage message;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private PendingAppend(EventMessage message) {
+            this.message = message;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package cn.zhumingwu.data.hub.core.store;
+
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writer thread of a shard of the topics
+ * <p>
+ * topic 按 hash 固定分配到一个分片，同一个 topic 的消息只由分片线程分配 offset 并写入 wal 和 lsm 段，
+ * 写入顺序与 offset 一致且不需要加锁；分片之间互不影响，可以利用多个核。
+ *
+ * @author zhumingwu
+ * @since 1.1.0
+ */
+@Slf4j
+class WriterShard implements Closeable {
+    private final static int BATCH_SIZE = 1024;
+    private final BlockingQueue<PendingPut> queue;
+    private final Thread writer;
+    private final WriteAppendLog wal;
+    private final SegmentManager segments;
+    private volatile boolean running = true;
+
+    WriterShard(int id, WriteAppendLog wal, SegmentManager segments, int capacity) {
+        this.wal = wal;
+        this.segments = segments;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::write, "topic-writer-" + id);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * queue the message for the writer thread
+     *
+     * @return future of the message offset, completed when the message is in the wal and visible in the ring buffer
+     */
+    CompletableFuture<Long> put(EventRingBuffer buffer, EventMessage message) {
+        var pending = new PendingPut(buffer, message);
+        try {
+            this.queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        return pending.future;
+    }
+
+    private void write() {
+        List<PendingPut> batch = new ArrayList<>(BATCH_SIZE);
+        while (this.running || !this.queue.isEmpty()) {
+            try {
+                var first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                this.queue.drainTo(batch, BATCH_SIZE - 1);
+                batch.forEach(this::write);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(PendingPut pending) {
+        //先认领 offset，写入 lsm 段并且 wal 批次完成后才在环形缓冲区中发布，读取方看不到还没有落盘的消息
+        var offset = pending.buffer.next(1);
+        pending.message.setOffset(offset);
+        var durable = this.wal.append(pending.message);
+        try {
+            this.segments.append(pending.message);
+        } catch (IOException | RuntimeException e) {
+            log.error("error", e);
+            pending.future.completeExceptionally(e);
+        }
+        durable.whenComplete((result, e) -> {
+            //失败时也发布，以免读取方停在这个 offset 上
+            pending.buffer.publish(offset, pending.message);
+            pending.buffer.signal();
+            if (e != null) {
+                pending.future.completeExceptionally(e);
+            } else {
+                pending.future.complete(result);
+            }
+        });
+    }
+
+    /**
+     * stop the writer after the queued messages are written
+     */
+    @Override
+    public void close() {
+        this.running = false;
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class PendingPut {
+        private final EventRingBuffer buffer;
+        private final EventMessage message;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private PendingPut(EventRingBuffer buffer, EventMessage message) {
+            this.buffer = buffer;
+            this.message = message;
+        }
+    }
+}
@@ -22,6 +22,11 @@ public class CRCUtil {
         }
         return this;
     }
+    public CRCUtil update(ByteBuffer content) {
+        crc32.update(content);
+        return this;
+    }
+
     public CRCUtil update(long value) {
         ByteBuffer buffer = ByteBuffer.allocate(8);
         buffer.putLong(value);
@@ -54,7 +59,8 @@ public class CRCUtil {
                 | ((src[1] & 0xFF) << 8)
                 | ((src[2] & 0xFF) << 16)
                 | ((src[3] & 0xFF) << 24));
-        return value;
+        // crc32 is an unsigned 32 bit value
+        return value & 0xFFFFFFFFL;
 
     }
 
@@ -38,6 +38,7 @@ public class FileChannelUtil {
         }
         var byteBuffer = ByteBuffer.allocate(data.length);
         byteBuffer.put(data);
+        byteBuffer.flip();
         fileChannel.write(byteBuffer);
         return true;
     }
@@ -45,6 +46,7 @@ public class FileChannelUtil {
     public static boolean writeLong(FileChannel fileChannel, long data) throws IOException {
         var byteBuffer = ByteBuffer.allocate(Long.BYTES);
         byteBuffer.putLong(data);
+        byteBuffer.flip();
         fileChannel.write(byteBuffer);
         return true;
     }
@@ -52,6 +54,7 @@ public class FileChannelUtil {
     public static boolean writeInt(FileChannel fileChannel, int data) throws IOException {
         var byteBuffer = ByteBuffer.allocate(Integer.BYTES);
         byteBuffer.putInt(data);
+        byteBuffer.flip();
         fileChannel.write(byteBuffer);
         return true;
     }
@@ -68,15 +71,12 @@ public class FileChannelUtil {
 
     public static long readVLen(FileChannel fileChannel) throws IOException {
 
-        byte b = read(fileChannel, 1)[0];
-        if (b <= 0) {
-            return 0;
-        }
-        long i = b & 0x7F;
-        var c = 1;
+        long i = 0;
+        var c = 0;
         while (c < 10) {
-            b = read(fileChannel, 1)[0];
+            byte b = read(fileChannel, 1)[0];
             i |= (long) (b & 0x7F) << (7 * c);
+            //最高位为0表示最后一个字节
             if (b >= 0) {
                 return i;
             }
@@ -91,7 +91,7 @@ public class FileChannelUtil {
         if (read != 4) {
             throw new IOException();
         }
-        return byteBuffer.getInt();
+        return byteBuffer.flip().getInt();
     }
 
     public static long readLong(FileChannel fileChannel) throws IOException {
@@ -100,7 +100,7 @@ public class FileChannelUtil {
         if (read != 8) {
             throw new IOException();
         }
-        return byteBuffer.getLong();
+        return byteBuffer.flip().getLong();
 
     }
 
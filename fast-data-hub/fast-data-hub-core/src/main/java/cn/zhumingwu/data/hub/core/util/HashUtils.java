@@ -14,16 +14,16 @@
 
 package cn.zhumingwu.data.hub.core.util;
 
-import java.util.zip.Checksum;
-
-
 /**
  * Hashing utility.
+ * <p>
+ * The hash keeps no state between calls so it can be shared by concurrent readers.
  */
 public class HashUtils {
 
-    // Hash implementation
-    private final static Murmur3A hash = new Murmur3A(42);
+    private static final int SEED = 42;
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
 
     /**
      * Returns the positive hash for the given <code>bytes</code>.
@@ -32,128 +32,62 @@ public class HashUtils {
      * @return hash
      */
     public static int hash(byte[] bytes) {
-        hash.reset();
-        hash.update(bytes);
-        return hash.getIntValue() & 0x7fffffff;
+        return murmur3(bytes, 0, bytes.length, SEED) & 0x7fffffff;
+    }
+
+    /**
+     * Returns the positive hash for the given <code>bytes</code> with another <code>seed</code>, independent of
+     * {@link #hash(byte[])} when the seeds differ.
+     *
+     * @param bytes bytes to hash
+     * @param seed  hash seed
+     * @return hash
+     */
+    public static int hash(byte[] bytes, int seed) {
+        return murmur3(bytes, 0, bytes.length, seed) & 0x7fffffff;
     }
 
     /**
-     * Hash implementation, inspired from java-common.
+     * Murmur3 32 bits of <code>len</code> bytes from <code>off</code>, inspired from java-common.
      * <p>
      * Originally developed for greenrobot by Markus Junginger.
      */
-    private static class Murmur3A implements Checksum {
-
-        private static final int C1 = 0xcc9e2d51;
-        private static final int C2 = 0x1b873593;
-
-        private final int seed;
-
-        private int h1;
-        private int length;
-
-        private int partialK1;
-        private int partialK1Pos;
-
-        public Murmur3A(int seed) {
-            this.seed = seed;
-            h1 = seed;
-        }
-
-        @Override
-        public void update(int b) {
-            switch (partialK1Pos) {
-                case 0:
-                    partialK1 = 0xff & b;
-                    partialK1Pos = 1;
-                    break;
-                case 1:
-                    partialK1 |= (0xff & b) << 8;
-                    partialK1Pos = 2;
-                    break;
-                case 2:
-                    partialK1 |= (0xff & b) << 16;
-                    partialK1Pos = 3;
-                    break;
-                case 3:
-                    partialK1 |= (0xff & b) << 24;
-                    applyK1(partialK1);
-                    partialK1Pos = 0;
-                    break;
-            }
-            length++;
-        }
-
-        @Override
-        public void update(byte[] b, int off, int len) {
-            while (partialK1Pos != 0 && len > 0) {
-                update(b[off]);
-                off++;
-                len--;
-            }
-
-            int remainder = len & 3;
-            int stop = off + len - remainder;
-            for (int i = off; i < stop; i += 4) {
-                int k1 = getIntLE(b, i);
-                applyK1(k1);
-            }
-            length += stop - off;
-
-            for (int i = 0; i < remainder; i++) {
-                update(b[stop + i]);
-            }
-        }
-
-        public void update(byte[] b) {
-            update(b, 0, b.length);
-        }
-
-        private void applyK1(int k1) {
-            k1 *= C1;
-            k1 = (k1 << 15) | (k1 >>> 17);  // ROTL32(k1,15);
-            k1 *= C2;
-
-            h1 ^= k1;
+    private static int murmur3(byte[] b, int off, int len, int seed) {
+        int h1 = seed;
+        int stop = off + (len & ~3);
+        for (int i = off; i < stop; i += 4) {
+            h1 ^= mixK1(getIntLE(b, i));
             h1 = (h1 << 13) | (h1 >>> 19);  // ROTL32(h1,13);
             h1 = h1 * 5 + 0xe6546b64;
         }
 
-        @Override
-        public long getValue() {
-            return 0xFFFFFFFFL & getIntValue();
-        }
-
-        public int getIntValue() {
-            int finished = h1;
-            if (partialK1Pos > 0) {
-                int k1 = partialK1 * C1;
-                k1 = (k1 << 15) | (k1 >>> 17);  // ROTL32(k1,15);
-                k1 *= C2;
-                finished ^= k1;
+        int remainder = len & 3;
+        if (remainder > 0) {
+            int k1 = 0;
+            for (int i = remainder - 1; i >= 0; i--) {
+                k1 = (k1 << 8) | (b[stop + i] & 0xff);
             }
-            finished ^= length;
-
-            // fmix
-            finished ^= finished >>> 16;
-            finished *= 0x85ebca6b;
-            finished ^= finished >>> 13;
-            finished *= 0xc2b2ae35;
-            finished ^= finished >>> 16;
-
-            return finished;
+            h1 ^= mixK1(k1);
         }
+        h1 ^= len;
+
+        // fmix
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
 
-        @Override
-        public void reset() {
-            h1 = seed;
-            length = 0;
-            partialK1Pos = 0;
-        }
+    private static int mixK1(int k1) {
+        k1 *= C1;
+        k1 = (k1 << 15) | (k1 >>> 17);  // ROTL32(k1,15);
+        return k1 * C2;
+    }
 
-        private int getIntLE(byte[] bytes, int index) {
-            return (bytes[index] & 0xff) | ((bytes[index + 1] & 0xff) << 8) |
-                    ((bytes[index + 2] & 0xff) << 16) | (bytes[index + 3] << 24);
-        }
+    private static int getIntLE(byte[] bytes, int index) {
+        return (bytes[index] & 0xff) | ((bytes[index + 1] & 0xff) << 8) |
+                ((bytes[index + 2] & 0xff) << 16) | (bytes[index + 3] << 24);
     }
 }
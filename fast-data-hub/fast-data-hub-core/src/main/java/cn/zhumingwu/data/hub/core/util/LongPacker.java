@@ -137,6 +137,27 @@ public final class LongPacker {
     throw new Error("Malformed long.");
   }
 
+  /**
+   * Unpack positive long value from the byte buffer at an absolute index.
+   * <p>
+   * The buffer position isn't changed so the buffer can be shared by concurrent readers.
+   *
+   * @param bb byte buffer
+   * @param index index in bb
+   * @return the long value
+   */
+  static public long unpackLong(ByteBuffer bb, int index) {
+    long result = 0;
+    for (int offset = 0; offset < 64; offset += 7) {
+      long b = bb.get(index++);
+      result |= (b & 0x7F) << offset;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new Error("Malformed long.");
+  }
+
   /**
    * Pack non-negative int into output stream. It will occupy 1-5 bytes
    * depending on value (lower values occupy smaller space)
@@ -4,6 +4,7 @@ package cn.zhumingwu.data.hub.core.util;
  * sharding vo
  */
 public class ShardingUtil {
+    private static final int SHARD_SEED = 0x5bd1e995;
 
     private static InheritableThreadLocal<ShardingVO> contextHolder =
             new InheritableThreadLocal<ShardingVO>();
@@ -16,6 +17,18 @@ public class ShardingUtil {
         contextHolder.set(shardingVo);
     }
 
+    /**
+     * shard index of a serialized key, the hash is seeded apart from the store index hash
+     * so the keys of a shard still spread over all the slots of its index
+     *
+     * @param key   serialized key
+     * @param total sharding total
+     * @return sharding index from 0 to total - 1
+     */
+    public static int shard(byte[] key, int total) {
+        return HashUtils.hash(key, SHARD_SEED) % total;
+    }
+
     public static class ShardingVO {
 
         private int index; // sharding index
@@ -1,5 +1,6 @@
 package cn.zhumingwu.data.hub.core.util;
 
+import com.google.common.base.Strings;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
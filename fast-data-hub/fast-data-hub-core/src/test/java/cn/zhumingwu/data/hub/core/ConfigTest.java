@@ -3,6 +3,7 @@ package cn.zhumingwu.data.hub.core;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
 
 import cn.zhumingwu.base.config.DefaultConfiguration;
 import cn.zhumingwu.base.config.Configuration;
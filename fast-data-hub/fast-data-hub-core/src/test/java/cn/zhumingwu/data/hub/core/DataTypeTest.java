@@ -1,6 +1,7 @@
 package cn.zhumingwu.data.hub.core;
 
 import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
 
 
 
@@ -24,7 +24,7 @@ import java.io.ObjectOutputStream;
 import java.util.Arrays;
 
 import cn.zhumingwu.data.hub.core.serializer.Serializer;
-import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 
@@ -34,8 +34,8 @@ public class TestConfiguration {
     public void testConfiguration() {
         Configuration c = new Configuration();
         c.set("foo", "bar");
-        Assert.assertEquals(c.get("foo", null), "bar");
-        Assert.assertEquals(c.get("bar", "foo"), "foo");
+        Assertions.assertEquals(c.get("foo", null), "bar");
+        Assertions.assertEquals(c.get("bar", "foo"), "foo");
     }
 
     @Test
@@ -44,24 +44,26 @@ public class TestConfiguration {
         c.set("foo", "bar");
 
         Configuration r = new Configuration(c);
-        Assert.assertEquals(r.get("foo", null), "bar");
+        Assertions.assertEquals(r.get("foo", null), "bar");
 
         c.set("foo", "");
-        Assert.assertEquals(r.get("foo", null), "bar");
+        Assertions.assertEquals(r.get("foo", null), "bar");
     }
 
     @Test
     public void testConfigurationReadOnly() {
-        Configuration c = new Configuration();
-        c.set("foo", "bar");
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> {
+            Configuration c = new Configuration();
+            c.set("foo", "bar");
 
-        Configuration r = new Configuration(c);
-        r.set("foo", "bar");
+            Configuration r = new Configuration(c);
+            r.set("foo", "bar");
+        });
     }
 
     @Test
     public void testEqualsEmpty() {
-        Assert.assertEquals(new Configuration(), new Configuration());
+        Assertions.assertEquals(new Configuration(), new Configuration());
     }
 
     @Test
@@ -75,8 +77,8 @@ public class TestConfiguration {
         Configuration c3 = new Configuration();
         c3.set("foo", "notbar");
 
-        Assert.assertEquals(c1, c2);
-        Assert.assertNotEquals(c1, c3);
+        Assertions.assertEquals(c1, c2);
+        Assertions.assertNotEquals(c1, c3);
     }
 
     @Test
@@ -85,14 +87,16 @@ public class TestConfiguration {
         c.set("foo", "true");
         c.set("bar", "false");
 
-        Assert.assertTrue(c.getBoolean("foo"));
-        Assert.assertFalse(c.getBoolean("bar"));
+        Assertions.assertTrue(c.getBoolean("foo"));
+        Assertions.assertFalse(c.getBoolean("bar"));
     }
 
     @Test
 
     public void testGetBooleanMissing() {
-        new Configuration().getBoolean("foo");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new Configuration().getBoolean("foo");
+        });
     }
 
     @Test
@@ -100,8 +104,8 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "true");
 
-        Assert.assertTrue(c.getBoolean("foo", false));
-        Assert.assertTrue(c.getBoolean("bar", true));
+        Assertions.assertTrue(c.getBoolean("foo", false));
+        Assertions.assertTrue(c.getBoolean("bar", true));
     }
 
     @Test
@@ -109,13 +113,15 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "1.0");
 
-        Assert.assertEquals(c.getDouble("foo"), 1.0);
+        Assertions.assertEquals(c.getDouble("foo"), 1.0);
     }
 
     @Test
 
     public void testGetDoubleMissing() {
-        new Configuration().getDouble("foo");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new Configuration().getDouble("foo");
+        });
     }
 
     @Test
@@ -123,8 +129,8 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "1.0");
 
-        Assert.assertEquals(c.getDouble("foo", 2.0), 1.0);
-        Assert.assertEquals(c.getDouble("bar", 2.0), 2.0);
+        Assertions.assertEquals(c.getDouble("foo", 2.0), 1.0);
+        Assertions.assertEquals(c.getDouble("bar", 2.0), 2.0);
     }
 
     @Test
@@ -132,13 +138,15 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "1.0");
 
-        Assert.assertEquals(c.getFloat("foo"), 1f);
+        Assertions.assertEquals(c.getFloat("foo"), 1f);
     }
 
     @Test
 
     public void testGetFloatMissing() {
-        new Configuration().getFloat("foo");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new Configuration().getFloat("foo");
+        });
     }
 
     @Test
@@ -146,8 +154,8 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "1.0");
 
-        Assert.assertEquals(c.getFloat("foo", 2f), 1f);
-        Assert.assertEquals(c.getFloat("bar", 2f), 2f);
+        Assertions.assertEquals(c.getFloat("foo", 2f), 1f);
+        Assertions.assertEquals(c.getFloat("bar", 2f), 2f);
     }
 
     @Test
@@ -155,12 +163,14 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "1");
 
-        Assert.assertEquals(c.getInt("foo"), 1);
+        Assertions.assertEquals(c.getInt("foo"), 1);
     }
 
     @Test
     public void testGetIntMissing() {
-        new Configuration().getInt("foo");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new Configuration().getInt("foo");
+        });
     }
 
     @Test
@@ -168,8 +178,8 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "1");
 
-        Assert.assertEquals(c.getInt("foo", 2), 1);
-        Assert.assertEquals(c.getInt("bar", 2), 2);
+        Assertions.assertEquals(c.getInt("foo", 2), 1);
+        Assertions.assertEquals(c.getInt("bar", 2), 2);
     }
 
     @Test
@@ -177,12 +187,14 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "1");
 
-        Assert.assertEquals(c.getShort("foo"), (short) 1);
+        Assertions.assertEquals(c.getShort("foo"), (short) 1);
     }
 
     @Test
     public void testGetShortMissing() {
-        new Configuration().getShort("foo");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new Configuration().getShort("foo");
+        });
     }
 
     @Test
@@ -190,8 +202,8 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "1");
 
-        Assert.assertEquals(c.getShort("foo", (short) 2), (short) 1);
-        Assert.assertEquals(c.getShort("bar", (short) 2), (short) 2);
+        Assertions.assertEquals(c.getShort("foo", (short) 2), (short) 1);
+        Assertions.assertEquals(c.getShort("bar", (short) 2), (short) 2);
     }
 
     @Test
@@ -199,12 +211,14 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "1");
 
-        Assert.assertEquals(c.getLong("foo"), 1l);
+        Assertions.assertEquals(c.getLong("foo"), 1l);
     }
 
     @Test
     public void testGetLongMissing() {
-        new Configuration().getLong("foo");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new Configuration().getLong("foo");
+        });
     }
 
     @Test
@@ -212,8 +226,8 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "1");
 
-        Assert.assertEquals(c.getLong("foo", 2l), 1l);
-        Assert.assertEquals(c.getLong("bar", 2l), 2l);
+        Assertions.assertEquals(c.getLong("foo", 2l), 1l);
+        Assertions.assertEquals(c.getLong("bar", 2l), 2l);
     }
 
     @Test
@@ -222,13 +236,14 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", Integer.class.getName());
 
-        Assert.assertEquals(c.getClass("foo"), Integer.class);
+        Assertions.assertEquals(c.getClass("foo"), Integer.class);
     }
 
     @Test
-    public void testGetClassMissing()
-            throws ClassNotFoundException {
-        new Configuration().getClass("foo");
+    public void testGetClassMissing() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new Configuration().getClass("foo");
+        });
     }
 
     @Test
@@ -236,12 +251,14 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "foo,bar");
 
-        Assert.assertEquals(c.getList("foo"), Arrays.asList("foo", "bar"));
+        Assertions.assertEquals(c.getList("foo"), Arrays.asList("foo", "bar"));
     }
 
     @Test
     public void testGetListMissing() {
-        new Configuration().getList("foo");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new Configuration().getList("foo");
+        });
     }
 
     @Test
@@ -249,8 +266,8 @@ public class TestConfiguration {
         Configuration c = new Configuration();
         c.set("foo", "foo,bar");
 
-        Assert.assertEquals(c.getList("foo", Arrays.asList("that")), Arrays.asList("foo", "bar"));
-        Assert.assertEquals(c.getList("bar", Arrays.asList("that")), Arrays.asList("that"));
+        Assertions.assertEquals(c.getList("foo", Arrays.asList("that")), Arrays.asList("foo", "bar"));
+        Assertions.assertEquals(c.getList("bar", Arrays.asList("that")), Arrays.asList("that"));
     }
 
     @Test
@@ -273,7 +290,7 @@ public class TestConfiguration {
         in.close();
         bis.close();
 
-        Assert.assertEquals(sc, c);
+        Assertions.assertEquals(sc, c);
     }
 
     // UTILITY
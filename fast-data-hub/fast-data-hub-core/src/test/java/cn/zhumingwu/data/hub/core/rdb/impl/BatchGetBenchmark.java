@@ -0,0 +1,123 @@
+/*
+* Copyright 2015 LinkedIn Corp. All rights reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*/
+
+package cn.zhumingwu.data.hub.core.rdb.impl;
+
+import cn.zhumingwu.data.hub.core.rdb.api.Configuration;
+import cn.zhumingwu.data.hub.core.rdb.api.StoreReader;
+import cn.zhumingwu.data.hub.core.rdb.api.StoreWriter;
+import cn.zhumingwu.data.hub.core.rdb.utils.TempUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Batched lookups against a loop of single gets, the score is the time for a whole batch.
+ * <p>
+ * The store maps 10M long keys to long values without cache, a batch holds random keys with about
+ * one in ten missing and a few duplicates, like the ids of a record batch.
+ */
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@State(Scope.Benchmark)
+public class BatchGetBenchmark {
+
+  private final static int STORE_KEYS = 10000000;
+
+  @Param({"1000", "10000", "100000"})
+  int batch;
+
+  private File file;
+  private StoreReader reader;
+  private long[] keys;
+  private List<Long> boxedKeys;
+  private long[] values;
+
+  @Setup
+  public void setUp() {
+    file = new File(TempUtils.createTempDir("paldbbenchmark"), "store.paldb");
+    StoreWriter writer = PalDB.createWriter(file, PalDB.newConfiguration());
+    for (long i = 0; i < STORE_KEYS; i++) {
+      writer.put(i * 3, i);
+    }
+    writer.close();
+
+    Configuration configuration = PalDB.newConfiguration();
+    configuration.set(Configuration.CACHE_ENABLED, "false");
+    reader = PalDB.createReader(file, configuration);
+
+    Random random = new Random(42);
+    keys = new long[batch];
+    for (int i = 0; i < batch; i++) {
+      // keys not divisible by 3 are missing
+      keys[i] = random.nextInt(10) == 0 ? random.nextInt(STORE_KEYS) * 3L + 1 : random.nextInt(STORE_KEYS) * 3L;
+    }
+    boxedKeys = Arrays.asList(Arrays.stream(keys).boxed().toArray(Long[]::new));
+    values = new long[batch];
+  }
+
+  @TearDown
+  public void tearDown() {
+    reader.close();
+    file.delete();
+    file.getParentFile().delete();
+  }
+
+  @Benchmark
+  public long[] singleGets() {
+    for (int i = 0; i < keys.length; i++) {
+      values[i] = reader.getLong(keys[i], -1L);
+    }
+    return values;
+  }
+
+  @Benchmark
+  public long[] getLongs() {
+    reader.getLongs(keys, values, -1L);
+    return values;
+  }
+
+  @Benchmark
+  public Map<Long, Long> getAll() {
+    return reader.getAll(boxedKeys);
+  }
+
+  public static void main(String[] args)
+      throws RunnerException {
+    new Runner(new OptionsBuilder().include(BatchGetBenchmark.class.getSimpleName()).build()).run();
+  }
+}
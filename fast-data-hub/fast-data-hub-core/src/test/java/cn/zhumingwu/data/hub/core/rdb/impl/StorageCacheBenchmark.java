@@ -0,0 +1,143 @@
+/*
+* Copyright 2015 LinkedIn Corp. All rights reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*/
+
+package cn.zhumingwu.data.hub.core.rdb.impl;
+
+import cn.zhumingwu.data.hub.core.rdb.api.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Concurrent reads through the cache, a miss loads and puts the value like <code>ReaderImpl.get</code>.
+ * <p>
+ * The striped cache is compared to the previous single <code>LinkedHashMap</code> behind one lock,
+ * which is what sharing a reader across threads required. Keys follow a skewed distribution over
+ * <code>keys</code> with room in the cache for about a tenth of them.
+ */
+@Fork(1)
+@Threads(8)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class StorageCacheBenchmark {
+
+  private final static int ENTRY_SIZE = 16 * 2 + StorageCache.OVERHEAD;
+
+  @State(Scope.Benchmark)
+  public static class Striped {
+    @Param({"1000000"})
+    int keys;
+    StorageCache cache;
+
+    @Setup
+    public void setUp() {
+      Configuration configuration = PalDB.newConfiguration();
+      configuration.set(Configuration.CACHE_ENABLED, "true");
+      configuration.set(Configuration.CACHE_BYTES, String.valueOf((long) ENTRY_SIZE * keys / 10));
+      cache = StorageCache.initCache(configuration);
+    }
+
+    @TearDown
+    public void tearDown() {
+      System.out.println(cache);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Locked {
+    @Param({"1000000"})
+    int keys;
+    Map<Object, Object> cache;
+
+    @Setup
+    public void setUp() {
+      final int capacity = keys / 10;
+      cache = new LinkedHashMap<Object, Object>(1000, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+          return size() > capacity;
+        }
+      };
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Keys {
+    final Integer[] keys = new Integer[1 << 16];
+    int index;
+
+    @Setup
+    public void setUp(Striped striped) {
+      Random random = new Random(Thread.currentThread().getId());
+      for (int i = 0; i < keys.length; i++) {
+        // exponential skew, a small set of keys gets most of the reads
+        keys[i] = (int) Math.min(striped.keys - 1, -Math.log(1 - random.nextDouble()) * striped.keys / 20);
+      }
+    }
+
+    Integer next() {
+      return keys[index++ & (keys.length - 1)];
+    }
+  }
+
+  @Benchmark
+  public Object striped(Striped state, Keys keys) {
+    Integer key = keys.next();
+    Object value = state.cache.get(key);
+    if (value == null) {
+      state.cache.put(key, key);
+      return key;
+    }
+    return value;
+  }
+
+  @Benchmark
+  public Object locked(Locked state, Keys keys) {
+    Integer key = keys.next();
+    synchronized (state.cache) {
+      Object value = state.cache.get(key);
+      if (value == null) {
+        state.cache.put(key, key);
+        return key;
+      }
+      return value;
+    }
+  }
+
+  public static void main(String[] args)
+      throws RunnerException {
+    new Runner(new OptionsBuilder().include(StorageCacheBenchmark.class.getSimpleName()).build()).run();
+  }
+}
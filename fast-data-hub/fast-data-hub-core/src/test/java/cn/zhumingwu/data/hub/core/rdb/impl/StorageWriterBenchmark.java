@@ -0,0 +1,91 @@
+/*
+* Copyright 2015 LinkedIn Corp. All rights reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*/
+
+package cn.zhumingwu.data.hub.core.rdb.impl;
+
+import cn.zhumingwu.data.hub.core.rdb.api.Configuration;
+import cn.zhumingwu.data.hub.core.rdb.api.StoreWriter;
+import cn.zhumingwu.data.hub.core.rdb.utils.TempUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Time to write a whole store, the keys per second of each iteration are printed on tear down.
+ * <p>
+ * Keys are longs so they spread over several key lengths like real ids, values are small strings.
+ * 100M keys need about 4GB of free disk space for the temporary files and the store.
+ */
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@State(Scope.Benchmark)
+public class StorageWriterBenchmark {
+
+  @Param({"10000000", "100000000"})
+  long keys;
+
+  private File file;
+  private long startTime;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    file = new File(TempUtils.createTempDir("paldbbenchmark"), "store.paldb");
+    startTime = System.nanoTime();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    double seconds = (System.nanoTime() - startTime) / 1000000000.0;
+    System.out.printf("%n%,d keys written in %.1f s, %,.0f keys/sec, store size %,d Mb%n", keys, seconds,
+        keys / seconds, file.length() / (1024 * 1024));
+    file.delete();
+    file.getParentFile().delete();
+  }
+
+  @Benchmark
+  public File write() {
+    Configuration configuration = PalDB.newConfiguration();
+    StoreWriter writer = PalDB.createWriter(file, configuration);
+    for (long i = 0; i < keys; i++) {
+      writer.put(i * 31, "value" + (i & 1023));
+    }
+    writer.close();
+    return file;
+  }
+
+  public static void main(String[] args)
+      throws RunnerException {
+    new Runner(new OptionsBuilder().include(StorageWriterBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+* Copyright 2015 LinkedIn Corp. All rights reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*/
+
+package cn.zhumingwu.data.hub.core.rdb.impl;
+
+import cn.zhumingwu.data.hub.core.util.DataInputOutput;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+
+public class TestBloomFilter {
+
+  private static byte[] key(String key) {
+    return key.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testFalsePositiveRate() {
+    int count = 100000;
+    BloomFilter filter = BloomFilter.create(count, 0.01);
+    for (int i = 0; i < count; i++) {
+      filter.add(key("key" + i));
+    }
+    for (int i = 0; i < count; i++) {
+      Assertions.assertTrue(filter.mightContain(key("key" + i)));
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < count; i++) {
+      if (filter.mightContain(key("absent" + i))) {
+        falsePositives++;
+      }
+    }
+    Assertions.assertTrue(falsePositives < count * 0.015, "false positives " + falsePositives);
+  }
+
+  @Test
+  public void testWriteRead()
+      throws Exception {
+    BloomFilter filter = BloomFilter.create(1000, 0.05);
+    for (int i = 0; i < 1000; i++) {
+      filter.add(key("key" + i));
+    }
+    DataInputOutput dio = new DataInputOutput();
+    BloomFilter.write(filter, dio);
+    BloomFilter.write(null, dio);
+    byte[] bytes = dio.toByteArray();
+    Assertions.assertEquals(4 + 4 + filter.getSize() + 4, bytes.length);
+
+    DataInputOutput in = new DataInputOutput(bytes);
+    BloomFilter read = BloomFilter.read(in);
+    Assertions.assertNull(BloomFilter.read(in));
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertTrue(read.mightContain(key("key" + i)));
+      Assertions.assertEquals(filter.mightContain(key("absent" + i)), read.mightContain(key("absent" + i)));
+    }
+  }
+
+  @Test
+  public void testInvalidFpp() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(10, 0.0));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(10, 1.0));
+  }
+}
@@ -18,8 +18,9 @@ package cn.zhumingwu.data.hub.core.rdb.impl;
 import cn.zhumingwu.data.hub.core.serializer.Serializer;
 import cn.zhumingwu.data.hub.core.serializer.Serializers;
 import cn.zhumingwu.data.hub.core.util.DataInputOutput;
-import org.junit.Assert;
-import org.junit.Before;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
 
 
 import java.awt.*;
@@ -31,7 +32,7 @@ public class TestSerializers {
 
   private Serializers _serializers;
 
-  @Before 
+  @BeforeEach 
   public void setUp() {
     _serializers = new Serializers();
   }
@@ -40,8 +41,8 @@ public class TestSerializers {
   public void testRegister() {
     ColorSerializer i = new ColorSerializer();
     _serializers.registerSerializer(i);
-    Assert.assertSame(_serializers.getSerializer(Color.class), i);
-    Assert.assertEquals(_serializers.getIndex(Color.class), 0);
+    Assertions.assertSame(_serializers.getSerializer(Color.class), i);
+    Assertions.assertEquals(_serializers.getIndex(Color.class), 0);
   }
 
   @Test
@@ -50,7 +51,7 @@ public class TestSerializers {
     ColorSerializer i2 = new ColorSerializer();
     _serializers.registerSerializer(i1);
     _serializers.registerSerializer(i2);
-    Assert.assertSame(_serializers.getSerializer(Color.class), i1);
+    Assertions.assertSame(_serializers.getSerializer(Color.class), i1);
   }
 
   @Test
@@ -59,50 +60,56 @@ public class TestSerializers {
     PointSerializer f = new PointSerializer();
     _serializers.registerSerializer(i);
     _serializers.registerSerializer(f);
-    Assert.assertSame(_serializers.getSerializer(Color.class), i);
-    Assert.assertEquals(_serializers.getIndex(Color.class), 0);
-    Assert.assertSame(_serializers.getSerializer(Point.class), f);
-    Assert.assertEquals(_serializers.getIndex(Point.class), 1);
+    Assertions.assertSame(_serializers.getSerializer(Color.class), i);
+    Assertions.assertEquals(_serializers.getIndex(Color.class), 0);
+    Assertions.assertSame(_serializers.getSerializer(Point.class), f);
+    Assertions.assertEquals(_serializers.getIndex(Point.class), 1);
   }
 
   @Test
   public void testGetSerializer() {
     ColorSerializer i = new ColorSerializer();
     _serializers.registerSerializer(i);
-    Assert.assertNull(_serializers.getSerializer(Point.class));
-    Assert.assertNotNull(_serializers.getSerializer(Color.class));
+    Assertions.assertNull(_serializers.getSerializer(Point.class));
+    Assertions.assertNotNull(_serializers.getSerializer(Color.class));
   }
 
   @Test
   public void testGetIndex() {
     ColorSerializer i = new ColorSerializer();
     _serializers.registerSerializer(i);
-    Assert.assertEquals(_serializers.getIndex(Color.class), 0);
+    Assertions.assertEquals(_serializers.getIndex(Color.class), 0);
   }
 
   @Test
   public void testGetByIndex() {
     ColorSerializer i = new ColorSerializer();
     _serializers.registerSerializer(i);
-    Assert.assertSame(_serializers.getSerializer(0), i);
+    Assertions.assertSame(_serializers.getSerializer(0), i);
   }
 
   @Test 
   public void testGetByIndexMissing() {
-    _serializers.getSerializer(0);
-  }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+        _serializers.getSerializer(0);
+        });
+    }
 
   @Test 
   public void testMissingType() {
-    MissingTypeSerializer i = new MissingTypeSerializer();
-    _serializers.registerSerializer(i);
-  }
+        Assertions.assertThrows(RuntimeException.class, () -> {
+        MissingTypeSerializer i = new MissingTypeSerializer();
+        _serializers.registerSerializer(i);
+        });
+    }
 
   @Test 
   public void testObjectType() {
-    ObjectTypeSerializer i = new ObjectTypeSerializer();
-    _serializers.registerSerializer(i);
-  }
+        Assertions.assertThrows(RuntimeException.class, () -> {
+        ObjectTypeSerializer i = new ObjectTypeSerializer();
+        _serializers.registerSerializer(i);
+        });
+    }
 
   @Test
   public void testSerialize() throws Throwable {
@@ -113,16 +120,16 @@ public class TestSerializers {
     dio = new DataInputOutput(bytes);
     _serializers.clear();
     Serializers.deserialize(dio, _serializers);
-    Assert.assertNotNull(_serializers.getSerializer(Color.class));
-    Assert.assertEquals(_serializers.getIndex(Color.class), 0);
-    Assert.assertNotNull(_serializers.getSerializer(0));
+    Assertions.assertNotNull(_serializers.getSerializer(Color.class));
+    Assertions.assertEquals(_serializers.getIndex(Color.class), 0);
+    Assertions.assertNotNull(_serializers.getSerializer(0));
   }
 
   @Test
   public void testInterfaceType() throws Throwable {
     SerializerWithInterface i = new SerializerWithInterface();
     _serializers.registerSerializer(i);
-    Assert.assertSame(_serializers.getSerializer(AnInterface.class), i);
+    Assertions.assertSame(_serializers.getSerializer(AnInterface.class), i);
   }
 
   // HELPER
@@ -0,0 +1,236 @@
+/*
+* Copyright 2015 LinkedIn Corp. All rights reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*/
+
+package cn.zhumingwu.data.hub.core.rdb.impl;
+
+import cn.zhumingwu.data.hub.core.rdb.api.Configuration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+public class TestShardedStore {
+
+  @TempDir
+  File directory;
+
+  private ShardedStore open(int mergeDeltas) {
+    Configuration configuration = PalDB.newConfiguration();
+    configuration.set(Configuration.SHARDED_MERGE_DELTAS, String.valueOf(mergeDeltas));
+    configuration.set(Configuration.BLOOM_FILTER_ENABLED, "true");
+    return PalDB.createShardedStore(directory, 4, configuration);
+  }
+
+  private static void writeBase(ShardedStore store, int count) {
+    ShardedStore.Builder builder = store.newBase();
+    for (int i = 0; i < count; i++) {
+      builder.put(i, "value" + i);
+    }
+    builder.close();
+  }
+
+  //Delta updating keys from..to, removing the next ten and adding the ten after the base
+  private static void writeDelta(ShardedStore store, int count, int from, int to, String prefix) {
+    ShardedStore.Builder builder = store.newDelta();
+    for (int i = from; i < to; i++) {
+      builder.put(i, prefix + i);
+    }
+    for (int i = to; i < to + 10; i++) {
+      builder.remove(i);
+    }
+    for (int i = count + from; i < count + from + 10; i++) {
+      builder.put(i, prefix + i);
+    }
+    builder.close();
+  }
+
+  private int layers(ShardedStore store) {
+    int count = 0;
+    for (int i = 0; i < store.getShardCount(); i++) {
+      count += store.getLayerCount(i);
+    }
+    return count;
+  }
+
+  @Test
+  public void testBaseAndDeltas() {
+    ShardedStore store = open(0);
+    Assertions.assertNull(store.get(1));
+    writeBase(store, 10000);
+    Assertions.assertEquals(4, layers(store));
+    for (int i = 0; i < 10000; i++) {
+      Assertions.assertEquals("value" + i, store.get(i));
+    }
+
+    writeDelta(store, 10000, 0, 100, "first");
+    writeDelta(store, 10000, 50, 150, "second");
+    Assertions.assertEquals("first0", store.get(0));
+    Assertions.assertEquals("second50", store.get(50));
+    Assertions.assertEquals("second149", store.get(149));
+    // removed by the first delta, put back by the second
+    Assertions.assertEquals("second100", store.get(100));
+    Assertions.assertNull(store.get(150));
+    Assertions.assertEquals("none", store.get(159, "none"));
+    Assertions.assertEquals("value160", store.get(160));
+    Assertions.assertEquals("first10000", store.get(10000));
+    Assertions.assertEquals("second10050", store.get(10050));
+
+    // a new base drops the deltas and the keys it doesn't have
+    writeBase(store, 10);
+    Assertions.assertEquals(4, layers(store));
+    Assertions.assertEquals("value0", store.get(0));
+    Assertions.assertNull(store.get(50));
+    Assertions.assertNull(store.get(10000));
+    store.close();
+  }
+
+  @Test
+  public void testMergeAndReopen() throws Exception {
+    ShardedStore store = open(0);
+    writeBase(store, 10000);
+    writeDelta(store, 10000, 0, 100, "first");
+    writeDelta(store, 10000, 50, 150, "second");
+    store.merge();
+    Assertions.assertEquals(4, layers(store));
+    Assertions.assertEquals("first0", store.get(0));
+    Assertions.assertEquals("second100", store.get(100));
+    Assertions.assertNull(store.get(150));
+    Assertions.assertEquals("second10050", store.get(10050));
+    writeDelta(store, 10000, 200, 210, "third");
+    store.close();
+
+    // a leftover of an interrupted build is deleted on open
+    File leftover = new File(new File(directory, "shard-0"), "delta-12345.tmp");
+    Assertions.assertTrue(leftover.createNewFile());
+    store = open(0);
+    Assertions.assertFalse(leftover.exists());
+    Assertions.assertEquals("second100", store.get(100));
+    Assertions.assertEquals("third200", store.get(200));
+    Assertions.assertNull(store.get(210));
+    // the merged deltas were deleted
+    for (int i = 0; i < 4; i++) {
+      Assertions.assertTrue(new File(directory, "shard-" + i).list().length <= 2);
+    }
+    store.close();
+
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> PalDB.createShardedStore(directory, 8, PalDB.newConfiguration()));
+  }
+
+  @Test
+  public void testInterruptedCommit() throws Exception {
+    ShardedStore store = open(0);
+    writeBase(store, 1000);
+    writeDelta(store, 1000, 0, 100, "first");
+    store.close();
+
+    // a base renamed in one shard only, the manifest wasn't replaced
+    File shard = new File(directory, "shard-0");
+    File partial = new File(shard, "base-3.paldb");
+    Files.copy(new File(shard, "base-1.paldb").toPath(), partial.toPath());
+    store = open(0);
+    Assertions.assertFalse(partial.exists());
+    Assertions.assertEquals(8, layers(store));
+    for (int i = 0; i < 100; i++) {
+      Assertions.assertEquals("first" + i, store.get(i));
+    }
+    // the next commit reuses the sequence
+    writeDelta(store, 1000, 200, 210, "second");
+    Assertions.assertEquals("second200", store.get(200));
+    store.close();
+
+    // a store without a manifest keeps its files
+    Assertions.assertTrue(new File(directory, "MANIFEST").delete());
+    store = open(0);
+    Assertions.assertEquals("first0", store.get(0));
+    Assertions.assertEquals("second200", store.get(200));
+    store.close();
+    Assertions.assertTrue(new File(directory, "MANIFEST").exists());
+  }
+
+  @Test
+  public void testBackgroundMerge() throws Exception {
+    ShardedStore store = open(2);
+    writeBase(store, 1000);
+    writeDelta(store, 1000, 0, 100, "first");
+    writeDelta(store, 1000, 100, 200, "second");
+    long deadline = System.currentTimeMillis() + 30000;
+    while (layers(store) > 4 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assertions.assertEquals(4, layers(store));
+    Assertions.assertEquals("first0", store.get(0));
+    Assertions.assertEquals("second100", store.get(100));
+    Assertions.assertNull(store.get(200));
+    store.close();
+  }
+
+  @Test
+  public void testMergeDuringBackgroundMerge() throws Exception {
+    ShardedStore store = open(2);
+    writeBase(store, 1000);
+    for (int i = 0; i < 20; i += 2) {
+      // the second delta queues a background merge of the layers merged here too
+      writeDelta(store, 1000, i * 10, i * 10 + 5, "delta" + i);
+      writeDelta(store, 1000, i * 10 + 10, i * 10 + 15, "delta" + (i + 1));
+      store.merge();
+    }
+    for (int i = 0; i < 20; i++) {
+      Assertions.assertEquals("delta" + i + (i * 10), store.get(i * 10));
+    }
+    store.close();
+
+    store = open(2);
+    Assertions.assertEquals(4, layers(store));
+    for (int i = 0; i < 20; i++) {
+      Assertions.assertEquals("delta" + i + (i * 10), store.get(i * 10));
+    }
+    Assertions.assertEquals("value999", store.get(999));
+    store.close();
+  }
+
+  @Test
+  public void testReadDuringRefresh() throws Exception {
+    ShardedStore store = open(2);
+    writeBase(store, 1000);
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    Thread reader = new Thread(() -> {
+      try {
+        while (running.get()) {
+          for (int i = 500; i < 1000; i++) {
+            // keys from 500 are never changed by the deltas
+            Assertions.assertEquals("value" + i, store.get(i));
+          }
+        }
+      } catch (Throwable ex) {
+        error.set(ex);
+      }
+    });
+    reader.start();
+    for (int i = 0; i < 20; i++) {
+      writeDelta(store, 1000, i * 10, i * 10 + 10, "delta" + i);
+    }
+    running.set(false);
+    reader.join();
+    Assertions.assertNull(error.get());
+    Assertions.assertEquals("delta19190", store.get(190));
+    store.close();
+  }
+}
@@ -16,8 +16,15 @@ package cn.zhumingwu.data.hub.core.rdb.impl;
 
 
 import cn.zhumingwu.data.hub.core.rdb.api.Configuration;
-import org.junit.Assert;
-import org.junit.Before;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 public class TestStorageCache {
@@ -26,7 +33,7 @@ public class TestStorageCache {
 
   private Configuration _configuration;
 
-  @Before
+  @BeforeEach
   public void setUp() {
     _configuration = PalDB.newConfiguration();
     _configuration.set(Configuration.CACHE_ENABLED, "true");
@@ -36,28 +43,28 @@ public class TestStorageCache {
   public void testContainsValid() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, 0);
-    Assert.assertTrue(cache.contains(0));
+    Assertions.assertTrue(cache.contains(0));
   }
 
   @Test
   public void testContainsInValid() {
     StorageCache cache = StorageCache.initCache(_configuration);
-    Assert.assertFalse(cache.contains(0));
+    Assertions.assertFalse(cache.contains(0));
   }
 
   @Test
   public void testEmpty() {
     StorageCache cache = StorageCache.initCache(_configuration);
-    Assert.assertNull(cache.get(0));
-    Assert.assertEquals(cache.size(), 0);
+    Assertions.assertNull(cache.get(0));
+    Assertions.assertEquals(cache.size(), 0);
   }
 
   @Test
   public void testPutOneItem() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, 0);
-    Assert.assertNotNull(cache.get(0));
-    Assert.assertEquals(cache.size(), 1);
+    Assertions.assertNotNull(cache.get(0));
+    Assertions.assertEquals(cache.size(), 1);
   }
 
   @Test
@@ -66,7 +73,7 @@ public class TestStorageCache {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, 1);
     cache.put(0, second);
-    Assert.assertSame(cache.get(0), second);
+    Assertions.assertSame(cache.get(0), second);
   }
 
   @Test
@@ -74,7 +81,7 @@ public class TestStorageCache {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.setMaxWeight(0);
     cache.put(0, 1);
-    Assert.assertEquals(cache.size(), 0);
+    Assertions.assertEquals(cache.size(), 0);
   }
 
   @Test
@@ -83,9 +90,9 @@ public class TestStorageCache {
     cache.setMaxWeight(ENTRY_SIZE);
     cache.put(0, 0);
     cache.put(1, 1);
-    Assert.assertEquals(cache.size(), 1);
-    Assert.assertNull(cache.get(0));
-    Assert.assertNotNull(cache.get(1));
+    Assertions.assertEquals(cache.size(), 1);
+    Assertions.assertNull(cache.get(0));
+    Assertions.assertNotNull(cache.get(1));
   }
 
   @Test
@@ -94,7 +101,7 @@ public class TestStorageCache {
     cache.put(0, 0);
     long weight = cache.getWeight();
     cache.put(0, 0);
-    Assert.assertEquals(cache.getWeight(), weight);
+    Assertions.assertEquals(cache.getWeight(), weight);
   }
 
   @Test
@@ -105,9 +112,9 @@ public class TestStorageCache {
     for (int i = 0; i < objs; i++) {
       cache.put(i, i);
     }
-    Assert.assertEquals(cache.size(), 100);
+    Assertions.assertEquals(cache.size(), 100);
     for (int i = 0; i < objs; i++) {
-      Assert.assertNotNull(cache.get(i));
+      Assertions.assertNotNull(cache.get(i));
     }
   }
 
@@ -120,12 +127,12 @@ public class TestStorageCache {
     for (int i = 0; i < objs; i++) {
       cache.put(i, i);
     }
-    Assert.assertEquals(cache.size(), capacity);
+    Assertions.assertEquals(cache.size(), capacity);
     for (int i = 0; i < objs; i++) {
       if (i < capacity) {
-        Assert.assertNull(cache.get(i));
+        Assertions.assertNull(cache.get(i));
       } else {
-        Assert.assertNotNull(cache.get(i));
+        Assertions.assertNotNull(cache.get(i));
       }
     }
   }
@@ -138,10 +145,10 @@ public class TestStorageCache {
     cache.put(1, 1);
     cache.get(0);
     cache.put(2, 2);
-    Assert.assertEquals(cache.size(), 3);
+    Assertions.assertEquals(cache.size(), 3);
     cache.put(3, 2);
-    Assert.assertNull(cache.get(1));
-    Assert.assertNotNull(cache.get(0));
+    Assertions.assertNull(cache.get(1));
+    Assertions.assertNotNull(cache.get(0));
   }
 
   @Test
@@ -152,123 +159,123 @@ public class TestStorageCache {
     cache.put(1, 1);
     cache.put(0, 0);
     cache.put(2, 2);
-    Assert.assertEquals(cache.size(), 3);
+    Assertions.assertEquals(cache.size(), 3);
     cache.put(3, 2);
-    Assert.assertNull(cache.get(1));
-    Assert.assertNotNull(cache.get(0));
+    Assertions.assertNull(cache.get(1));
+    Assertions.assertNotNull(cache.get(0));
   }
 
   @Test
   public void testWeightKeyObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, 0);
-    Assert.assertEquals(cache.getWeight(), ENTRY_SIZE);
+    Assertions.assertEquals(cache.getWeight(), ENTRY_SIZE);
   }
 
   @Test
   public void testWeightKeyArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(new Object[]{0, 1}, 0);
-    Assert.assertEquals(cache.getWeight(), 16 + 32 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 32 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueIntArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new int[]{1, 2});
-    Assert.assertEquals(cache.getWeight(), 16 + 8 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 8 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueLongArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new long[]{1, 2});
-    Assert.assertEquals(cache.getWeight(), 16 + 16 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 16 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueDoubleArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new double[]{1.0, 2.0});
-    Assert.assertEquals(cache.getWeight(), 16 + 16 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 16 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueFloatArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new float[]{1.0F, 2.0F});
-    Assert.assertEquals(cache.getWeight(), 16 + 8 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 8 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueBooleanArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new boolean[]{true, false});
-    Assert.assertEquals(cache.getWeight(), 16 + 2 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 2 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueByteArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new byte[]{1, 2});
-    Assert.assertEquals(cache.getWeight(), 16 + 2 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 2 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueShortArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new short[]{1, 2});
-    Assert.assertEquals(cache.getWeight(), 16 + 4 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 4 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueCharArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new char[]{'a', 'b'});
-    Assert.assertEquals(cache.getWeight(), 16 + 4 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 4 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueStringArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new String[]{"one", "two"});
-    Assert.assertEquals(cache.getWeight(), 16 + 46 * 2 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 46 * 2 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueInt2DArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new int[][]{{1, 2}, {3, 4}});
-    Assert.assertEquals(cache.getWeight(), 16 + 8 * 2 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 8 * 2 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueLong2DArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new long[][]{{1, 2}, {3, 4}});
-    Assert.assertEquals(cache.getWeight(), 16 + 16 * 2 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 16 * 2 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueStringObject() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new String("one"));
-    Assert.assertEquals(cache.getWeight(), 16 + 46 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 46 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testWeightValueObjectArrayObjects() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, new Object[]{0, 1});
-    Assert.assertEquals(cache.getWeight(), 16 + 32 + StorageCache.OVERHEAD);
+    Assertions.assertEquals(cache.getWeight(), 16 + 32 + StorageCache.OVERHEAD);
   }
 
   @Test
   public void testNullValue() {
     StorageCache cache = StorageCache.initCache(_configuration);
     cache.put(0, null);
-    Assert.assertEquals(cache.size(), 1);
-    Assert.assertEquals(cache.get(0), StorageCache.NULL_VALUE);
+    Assertions.assertEquals(cache.size(), 1);
+    Assertions.assertEquals(cache.get(0), StorageCache.NULL_VALUE);
   }
 
   @Test
@@ -276,9 +283,9 @@ public class TestStorageCache {
     Configuration configuration = new Configuration();
     configuration.set(Configuration.CACHE_ENABLED, "false");
     StorageCache cache = StorageCache.initCache(configuration);
-    Assert.assertEquals(cache.size(), 0);
-    Assert.assertNull(cache.get("foo"));
-    Assert.assertFalse(cache.contains("foo"));
+    Assertions.assertEquals(cache.size(), 0);
+    Assertions.assertNull(cache.get("foo"));
+    Assertions.assertFalse(cache.contains("foo"));
   }
 
   @Test
@@ -287,8 +294,96 @@ public class TestStorageCache {
     configuration.set(Configuration.CACHE_ENABLED, "false");
     StorageCache cache = StorageCache.initCache(configuration);
     cache.put(0, "foo");
-    Assert.assertEquals(cache.size(), 0);
-    Assert.assertNull(cache.get("foo"));
-    Assert.assertFalse(cache.contains("foo"));
+    Assertions.assertEquals(cache.size(), 0);
+    Assertions.assertNull(cache.get("foo"));
+    Assertions.assertFalse(cache.contains("foo"));
+  }
+
+  @Test
+  public void testStatistics() {
+    StorageCache cache = StorageCache.initCache(_configuration);
+    cache.setMaxWeight(ENTRY_SIZE * 2);
+    cache.put(0, 0);
+    cache.put(1, 1);
+    cache.get(0);
+    cache.get(2);
+    cache.put(2, 2);
+    Assertions.assertEquals(cache.getHitCount(), 1);
+    Assertions.assertEquals(cache.getMissCount(), 1);
+    Assertions.assertEquals(cache.getEvictionCount(), 1);
+    Assertions.assertEquals(cache.getHitRate(), 0.5, 0.0);
+    Assertions.assertTrue(cache.contains(0));
+    Assertions.assertFalse(cache.contains(1));
+  }
+
+  @Test
+  public void testScanResistance() {
+    StorageCache cache = StorageCache.initCache(_configuration);
+    cache.setMaxWeight(ENTRY_SIZE * 10);
+    for (int i = 0; i < 5; i++) {
+      cache.put(i, i);
+      cache.get(i);
+    }
+    // keys read once don't evict the keys read twice
+    for (int i = 100; i < 200; i++) {
+      cache.put(i, i);
+    }
+    for (int i = 0; i < 5; i++) {
+      Assertions.assertNotNull(cache.get(i));
+    }
+    Assertions.assertEquals(cache.size(), 10);
+  }
+
+  @Test
+  public void testSetMaxWeightKeepsEntries() {
+    StorageCache cache = StorageCache.initCache(_configuration);
+    cache.setMaxWeight(ENTRY_SIZE * 100);
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, i);
+    }
+    cache.setMaxWeight(StorageCache.MIN_STRIPE_WEIGHT * StorageCache.MAX_STRIPES);
+    Assertions.assertEquals(cache.size(), 100);
+    Assertions.assertEquals(cache.getWeight(), ENTRY_SIZE * 100);
+    cache.setMaxWeight(ENTRY_SIZE * 10);
+    Assertions.assertEquals(cache.size(), 10);
+    Assertions.assertNotNull(cache.get(99));
+  }
+
+  @Test
+  public void testConcurrentPutGet()
+      throws Exception {
+    final StorageCache cache = StorageCache.initCache(_configuration);
+    final int threads = 4;
+    final long maxWeight = StorageCache.MIN_STRIPE_WEIGHT * 4;
+    cache.setMaxWeight(maxWeight);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (int t = 0; t < threads; t++) {
+        final int seed = t;
+        futures.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            for (int i = 0; i < 200000; i++) {
+              int key = (i * 31 + seed) % 100000;
+              Object value = cache.get(key);
+              if (value == null) {
+                cache.put(key, key);
+              } else {
+                Assertions.assertEquals(value, key);
+              }
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    Assertions.assertTrue(cache.getWeight() <= maxWeight);
+    Assertions.assertEquals(cache.getHitCount() + cache.getMissCount(), threads * 200000L);
+    Assertions.assertEquals(cache.getWeight(), (long) cache.size() * ENTRY_SIZE);
   }
 }
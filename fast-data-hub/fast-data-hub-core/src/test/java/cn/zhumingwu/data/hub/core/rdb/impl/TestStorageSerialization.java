@@ -15,10 +15,12 @@
 package cn.zhumingwu.data.hub.core.rdb.impl;
 
 
+import cn.zhumingwu.data.hub.core.exception.UnsupportedTypeException;
 import cn.zhumingwu.data.hub.core.rdb.api.Configuration;
 import cn.zhumingwu.data.hub.core.serializer.Serializer;
-import org.junit.Assert;
-import org.junit.Before;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
 
 
 import java.awt.*;
@@ -38,7 +40,7 @@ public class TestStorageSerialization {
     private Configuration configuration;
     private StorageSerialization serialization;
 
-    @Before
+    @BeforeEach
     public void setUp() {
         configuration = new Configuration();
         serialization = new StorageSerialization(configuration);
@@ -46,18 +48,18 @@ public class TestStorageSerialization {
 
     @Test
     public void testCompressionEnabled() {
-        Assert.assertFalse(serialization.isCompressionEnabled());
+        Assertions.assertFalse(serialization.isCompressionEnabled());
         Configuration config = new Configuration();
         config.set(Configuration.COMPRESSION_ENABLED, "true");
         StorageSerialization s = new StorageSerialization(config);
-        Assert.assertTrue(s.isCompressionEnabled());
+        Assertions.assertTrue(s.isCompressionEnabled());
     }
 
     @Test
     public void testSerializeKey() throws IOException, ClassNotFoundException {
         Integer l = 1;
         Object d = serialization.deserialize(serialization.serializeKey(l));
-        Assert.assertEquals(d, l);
+        Assertions.assertEquals(d, l);
     }
 
     @Test
@@ -71,7 +73,7 @@ public class TestStorageSerialization {
 
         ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
         DataInputStream dis = new DataInputStream(bis);
-        Assert.assertEquals(serialization.deserialize(dis), l);
+        Assertions.assertEquals(serialization.deserialize(dis), l);
     }
 
     @Test
@@ -85,12 +87,14 @@ public class TestStorageSerialization {
 
         ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
         DataInputStream dis = new DataInputStream(bis);
-        Assert.assertEquals(serialization.deserialize(dis), l);
+        Assertions.assertEquals(serialization.deserialize(dis), l);
     }
 
     @Test
-    public void testSerializeKeyNull() throws IOException, ClassNotFoundException {
-        serialization.serializeKey(null);
+    public void testSerializeKeyNull() {
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            serialization.serializeKey(null);
+        });
     }
 
     @Test
@@ -98,7 +102,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         Integer l = 1;
         Object deserialize = serialization.deserialize(serialization.serializeValue(l));
-        Assert.assertEquals(deserialize, l);
+        Assertions.assertEquals(deserialize, l);
     }
 
     @Test
@@ -106,8 +110,8 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         Integer[] l = new Integer[]{1, 2};
         Object deserialize = serialization.deserialize(serialization.serializeValue(l));
-        Assert.assertEquals(deserialize.getClass(), int[].class);
-        Assert.assertEquals(deserialize, new int[]{1, 2});
+        Assertions.assertEquals(deserialize.getClass(), int[].class);
+        Assertions.assertArrayEquals((int[]) deserialize, new int[]{1, 2});
     }
 
     @Test
@@ -115,8 +119,8 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         Integer[] l = new Integer[]{1, null, 2};
         Object deserialize = serialization.deserialize(serialization.serializeValue(l));
-        Assert.assertEquals(deserialize.getClass(), int[].class);
-        Assert.assertEquals(deserialize, new int[]{1, 0, 2});
+        Assertions.assertEquals(deserialize.getClass(), int[].class);
+        Assertions.assertArrayEquals((int[]) deserialize, new int[]{1, 0, 2});
     }
 
     @Test
@@ -124,8 +128,8 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         Integer[][] l = new Integer[][]{{1}, {2}};
         Object deserialize = serialization.deserialize(serialization.serializeValue(l));
-        Assert.assertEquals(deserialize.getClass(), int[][].class);
-        Assert.assertEquals(deserialize, new int[][]{{1}, {2}});
+        Assertions.assertEquals(deserialize.getClass(), int[][].class);
+        Assertions.assertArrayEquals((int[][]) deserialize, new int[][]{{1}, {2}});
     }
 
     @Test
@@ -162,7 +166,7 @@ public class TestStorageSerialization {
         });
         Point p = new Point(42, 9);
         byte[] buf = serialization.serialize(p);
-        Assert.assertEquals(serialization.deserialize(buf), p);
+        Assertions.assertEquals((Point) serialization.deserialize(buf), p);
     }
 
     @Test
@@ -199,7 +203,7 @@ public class TestStorageSerialization {
         });
         Point[] p = new Point[]{new Point(42, 9)};
         byte[] buf = serialization.serialize(p);
-        Assert.assertEquals(serialization.deserialize(buf), p);
+        Assertions.assertArrayEquals((Point[]) serialization.deserialize(buf), p);
     }
 
     @Test
@@ -233,7 +237,7 @@ public class TestStorageSerialization {
         });
         ImplementsA a = new ImplementsA(42);
         byte[] buf = serialization.serialize(a);
-        Assert.assertEquals(serialization.deserialize(buf), a);
+        Assertions.assertEquals(serialization.deserialize(buf), a);
     }
 
     @Test
@@ -267,14 +271,14 @@ public class TestStorageSerialization {
         });
         ImplementsA a = new ImplementsA(42);
         byte[] buf = serialization.serialize(a);
-        Assert.assertEquals(serialization.deserialize(buf), a);
+        Assertions.assertEquals(serialization.deserialize(buf), a);
     }
 
     @Test
     public void testNull()
             throws Throwable {
         byte[] buf = serialization.serialize(null);
-        Assert.assertNull(serialization.deserialize(buf));
+        Assertions.assertNull(serialization.deserialize(buf));
     }
 
     @Test
@@ -284,15 +288,16 @@ public class TestStorageSerialization {
         for (byte val : vals) {
             byte[] buf = serialization.serialize(val);
             Object l2 = serialization.deserialize(buf);
-            Assert.assertTrue(l2.getClass() == Byte.class);
-            Assert.assertEquals(l2, val);
+            Assertions.assertTrue(l2.getClass() == Byte.class);
+            Assertions.assertEquals(l2, val);
         }
     }
 
     @Test
-    public void testNotSupported()
-            throws Throwable {
-        serialization.serialize(new Color(0, 0, 0));
+    public void testNotSupported() {
+        Assertions.assertThrows(UnsupportedTypeException.class, () -> {
+            serialization.serialize(new Color(0, 0, 0));
+        });
     }
 
     @Test
@@ -305,8 +310,8 @@ public class TestStorageSerialization {
         for (int i : vals) {
             byte[] buf = serialization.serialize(i);
             Object l2 = serialization.deserialize(buf);
-            Assert.assertTrue(l2.getClass() == Integer.class);
-            Assert.assertEquals(l2, i);
+            Assertions.assertTrue(l2.getClass() == Integer.class);
+            Assertions.assertEquals(l2, i);
         }
     }
 
@@ -319,8 +324,8 @@ public class TestStorageSerialization {
         for (short i : vals) {
             byte[] buf = serialization.serialize(i);
             Object l2 = serialization.deserialize(buf);
-            Assert.assertTrue(l2.getClass() == Short.class);
-            Assert.assertEquals(l2, i);
+            Assertions.assertTrue(l2.getClass() == Short.class);
+            Assertions.assertEquals(l2, i);
         }
     }
 
@@ -331,8 +336,8 @@ public class TestStorageSerialization {
         for (double i : vals) {
             byte[] buf = serialization.serialize(i);
             Object l2 = serialization.deserialize(buf);
-            Assert.assertTrue(l2.getClass() == Double.class);
-            Assert.assertEquals(l2, i);
+            Assertions.assertTrue(l2.getClass() == Double.class);
+            Assertions.assertEquals(l2, i);
         }
     }
 
@@ -343,8 +348,8 @@ public class TestStorageSerialization {
         for (float i : vals) {
             byte[] buf = serialization.serialize(i);
             Object l2 = serialization.deserialize(buf);
-            Assert.assertTrue(l2.getClass() == Float.class);
-            Assert.assertEquals(l2, i);
+            Assertions.assertTrue(l2.getClass() == Float.class);
+            Assertions.assertEquals(l2, i);
         }
     }
 
@@ -355,8 +360,8 @@ public class TestStorageSerialization {
         for (char i : vals) {
             byte[] buf = serialization.serialize(i);
             Object l2 = serialization.deserialize(buf);
-            Assert.assertTrue(l2.getClass() == Character.class);
-            Assert.assertEquals(l2, i);
+            Assertions.assertTrue(l2.getClass() == Character.class);
+            Assertions.assertEquals(l2, i);
         }
     }
 
@@ -372,8 +377,8 @@ public class TestStorageSerialization {
         for (long i : vals) {
             byte[] buf = serialization.serialize(i);
             Object l2 = serialization.deserialize(buf);
-            Assert.assertTrue(l2.getClass() == Long.class);
-            Assert.assertEquals(l2, i);
+            Assertions.assertTrue(l2.getClass() == Long.class);
+            Assertions.assertEquals(l2, i);
         }
     }
 
@@ -382,13 +387,13 @@ public class TestStorageSerialization {
             throws IOException, ClassNotFoundException {
         byte[] buf = serialization.serialize(true);
         Object l2 = serialization.deserialize(buf);
-        Assert.assertTrue(l2.getClass() == Boolean.class);
-        Assert.assertEquals(l2, true);
+        Assertions.assertTrue(l2.getClass() == Boolean.class);
+        Assertions.assertEquals(l2, true);
 
         byte[] buf2 = serialization.serialize(false);
         Object l22 = serialization.deserialize(buf2);
-        Assert.assertTrue(l22.getClass() == Boolean.class);
-        Assert.assertEquals(l22, false);
+        Assertions.assertTrue(l22.getClass() == Boolean.class);
+        Assertions.assertEquals(l22, false);
     }
 
     @Test
@@ -396,7 +401,7 @@ public class TestStorageSerialization {
             throws IOException, ClassNotFoundException {
         byte[] buf = serialization.serialize("Abcd");
         String l2 = (String) serialization.deserialize(buf);
-        Assert.assertEquals(l2, "Abcd");
+        Assertions.assertEquals(l2, "Abcd");
     }
 
     @Test
@@ -404,7 +409,7 @@ public class TestStorageSerialization {
             throws IOException, ClassNotFoundException {
         byte[] buf = serialization.serialize("");
         String l2 = (String) serialization.deserialize(buf);
-        Assert.assertEquals(l2, "");
+        Assertions.assertEquals(l2, "");
     }
 
     @Test
@@ -416,7 +421,7 @@ public class TestStorageSerialization {
         }
         byte[] buf = serialization.serialize(bigString);
         String l2 = (String) serialization.deserialize(buf);
-        Assert.assertEquals(l2, bigString);
+        Assertions.assertEquals(l2, bigString);
     }
 
     @Test
@@ -424,7 +429,7 @@ public class TestStorageSerialization {
             throws IOException, ClassNotFoundException {
         byte[] buf = serialization.serialize(String.class);
         Class l2 = (Class) serialization.deserialize(buf);
-        Assert.assertEquals(l2, String.class);
+        Assertions.assertEquals(l2, String.class);
     }
 
     @Test
@@ -432,7 +437,7 @@ public class TestStorageSerialization {
             throws IOException, ClassNotFoundException {
         byte[] buf = serialization.serialize(long[].class);
         Class l2 = (Class) serialization.deserialize(buf);
-        Assert.assertEquals(l2, long[].class);
+        Assertions.assertEquals(l2, long[].class);
     }
 
     @Test
@@ -441,7 +446,7 @@ public class TestStorageSerialization {
         String s = "Ciudad Bolíva";
         byte[] buf = serialization.serialize(s);
         Object l2 = serialization.deserialize(buf);
-        Assert.assertEquals(l2, s);
+        Assertions.assertEquals(l2, s);
     }
 
     @Test
@@ -449,7 +454,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         String[] l = new String[]{"foo", "bar", ""};
         Object deserialize = serialization.deserialize(serialization.serialize(l));
-        Assert.assertTrue(Arrays.equals(l, (String[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (String[]) deserialize));
     }
 
     @Test
@@ -457,7 +462,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         Object[] l = new Object[]{"foo", 2, Boolean.TRUE};
         Object deserialize = serialization.deserialize(serialization.serialize(l));
-        Assert.assertTrue(Arrays.equals(l, (Object[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (Object[]) deserialize));
     }
 
     @Test
@@ -465,7 +470,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         boolean[] l = new boolean[]{true, false};
         Object deserialize = serialization.deserialize(serialization.serialize(l));
-        Assert.assertTrue(Arrays.equals(l, (boolean[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (boolean[]) deserialize));
     }
 
     @Test
@@ -473,7 +478,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         double[] l = new double[]{Math.PI, 1D};
         Object deserialize = serialization.deserialize(serialization.serialize(l));
-        Assert.assertTrue(Arrays.equals(l, (double[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (double[]) deserialize));
     }
 
     @Test
@@ -481,7 +486,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         float[] l = new float[]{1F, 1.234235F};
         Object deserialize = serialization.deserialize(serialization.serialize(l));
-        Assert.assertTrue(Arrays.equals(l, (float[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (float[]) deserialize));
     }
 
     @Test
@@ -489,7 +494,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         byte[] l = new byte[]{1, 34, -5};
         Object deserialize = serialization.deserialize(serialization.serialize(l));
-        Assert.assertTrue(Arrays.equals(l, (byte[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (byte[]) deserialize));
     }
 
     @Test
@@ -497,7 +502,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         short[] l = new short[]{1, 345, -5000};
         Object deserialize = serialization.deserialize(serialization.serialize(l));
-        Assert.assertTrue(Arrays.equals(l, (short[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (short[]) deserialize));
     }
 
     @Test
@@ -505,7 +510,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         char[] l = new char[]{'1', 'a', '&'};
         Object deserialize = serialization.deserialize(serialization.serialize(l));
-        Assert.assertTrue(Arrays.equals(l, (char[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (char[]) deserialize));
     }
 
     @Test
@@ -514,7 +519,7 @@ public class TestStorageSerialization {
         int[][] l = new int[][]{{3, 5}, {-1200, 29999}, {3, 100000}, {-43999, 100000}};
         for (int[] a : l) {
             Object deserialize = serialization.deserialize(serialization.serialize(a));
-            Assert.assertTrue(Arrays.equals(a, (int[]) deserialize));
+            Assertions.assertTrue(Arrays.equals(a, (int[]) deserialize));
         }
     }
 
@@ -524,7 +529,7 @@ public class TestStorageSerialization {
         long[][] l = new long[][]{{3l, 5l}, {-1200l, 29999l}, {3l, 100000l}, {-43999l, 100000l}, {-123l, 12345678901234l}};
         for (long[] a : l) {
             Object deserialize = serialization.deserialize(serialization.serialize(a));
-            Assert.assertTrue(Arrays.equals(a, (long[]) deserialize));
+            Assertions.assertTrue(Arrays.equals(a, (long[]) deserialize));
         }
     }
 
@@ -533,7 +538,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         double[] l = generateDoubleArray(500);
         Object deserialize = serialization.deserialize(serialization.serialize(l, true));
-        Assert.assertTrue(Arrays.equals(l, (double[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (double[]) deserialize));
     }
 
     @Test
@@ -541,7 +546,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         float[] l = generateFloatArray(500);
         Object deserialize = serialization.deserialize(serialization.serialize(l, true));
-        Assert.assertTrue(Arrays.equals(l, (float[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (float[]) deserialize));
     }
 
     @Test
@@ -549,7 +554,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         byte[] l = generateByteArray(500);
         Object deserialize = serialization.deserialize(serialization.serialize(l, true));
-        Assert.assertTrue(Arrays.equals(l, (byte[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (byte[]) deserialize));
     }
 
     @Test
@@ -557,7 +562,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         char[] l = generateCharArray(500);
         Object deserialize = serialization.deserialize(serialization.serialize(l, true));
-        Assert.assertTrue(Arrays.equals(l, (char[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (char[]) deserialize));
     }
 
     @Test
@@ -565,7 +570,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         short[] l = generateShortArray(500);
         Object deserialize = serialization.deserialize(serialization.serialize(l, true));
-        Assert.assertTrue(Arrays.equals(l, (short[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (short[]) deserialize));
     }
 
     @Test
@@ -573,7 +578,7 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         int[] l = generateIntArray(500);
         Object deserialize = serialization.deserialize(serialization.serialize(l, true));
-        Assert.assertTrue(Arrays.equals(l, (int[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (int[]) deserialize));
     }
 
     @Test
@@ -581,25 +586,25 @@ public class TestStorageSerialization {
             throws ClassNotFoundException, IOException {
         long[] l = generateLongArray(500);
         Object deserialize = serialization.deserialize(serialization.serialize(l, true));
-        Assert.assertTrue(Arrays.equals(l, (long[]) deserialize));
+        Assertions.assertTrue(Arrays.equals(l, (long[]) deserialize));
     }
 
     @Test
     public void testBigDecimal()
             throws IOException, ClassNotFoundException {
         BigDecimal d = new BigDecimal("445656.7889889895165654423236");
-        Assert.assertEquals(d, serialization.deserialize(serialization.serialize(d)));
+        Assertions.assertEquals(d, serialization.deserialize(serialization.serialize(d)));
         d = new BigDecimal("-53534534534534445656.7889889895165654423236");
-        Assert.assertEquals(d, serialization.deserialize(serialization.serialize(d)));
+        Assertions.assertEquals(d, serialization.deserialize(serialization.serialize(d)));
     }
 
     @Test
     public void testBigInteger()
             throws IOException, ClassNotFoundException {
         BigInteger d = new BigInteger("4456567889889895165654423236");
-        Assert.assertEquals(d, serialization.deserialize(serialization.serialize(d)));
+        Assertions.assertEquals(d, serialization.deserialize(serialization.serialize(d)));
         d = new BigInteger("-535345345345344456567889889895165654423236");
-        Assert.assertEquals(d, serialization.deserialize(serialization.serialize(d)));
+        Assertions.assertEquals(d, serialization.deserialize(serialization.serialize(d)));
     }
 
     @Test
@@ -609,8 +614,8 @@ public class TestStorageSerialization {
         d[0] = new int[]{1, 3};
         d[1] = new int[]{-3, 1};
         Object res = serialization.deserialize(serialization.serialize(d));
-        Assert.assertEquals(res.getClass(), int[][].class);
-        Assert.assertEquals(d, res);
+        Assertions.assertEquals(res.getClass(), int[][].class);
+        Assertions.assertArrayEquals(d, (int[][]) res);
     }
 
     @Test
@@ -620,8 +625,8 @@ public class TestStorageSerialization {
         d[0] = new long[]{1, 3};
         d[1] = new long[]{-3, 1};
         Object res = serialization.deserialize(serialization.serialize(d));
-        Assert.assertEquals(res.getClass(), long[][].class);
-        Assert.assertEquals(d, res);
+        Assertions.assertEquals(res.getClass(), long[][].class);
+        Assertions.assertArrayEquals(d, (long[][]) res);
     }
 
     // UTILITY
@@ -21,9 +21,10 @@ import cn.zhumingwu.data.hub.core.rdb.api.StoreWriter;
 import cn.zhumingwu.data.hub.core.exception.NotFoundException;
 import cn.zhumingwu.data.hub.core.util.DataInputOutput;
 import cn.zhumingwu.data.hub.core.util.LongPacker;
-import org.junit.AfterClass;
-import org.junit.Assert;
-import org.junit.BeforeClass;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
 
 
 import java.io.ByteArrayInputStream;
@@ -33,11 +34,17 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 public class TestStore {
@@ -45,14 +52,14 @@ public class TestStore {
     private final File STORE_FOLDER = new File("data");
     private final File STORE_FILE = new File(STORE_FOLDER, "paldb.dat");
 
-    @BeforeClass
+    @BeforeEach
     public void setUp() {
         STORE_FILE.delete();
         STORE_FOLDER.delete();
         STORE_FOLDER.mkdir();
     }
 
-    @AfterClass
+    @AfterEach
     public void cleanUp() {
         STORE_FILE.delete();
         STORE_FOLDER.delete();
@@ -63,12 +70,12 @@ public class TestStore {
         StoreWriter writer = PalDB.createWriter(STORE_FILE, new Configuration());
         writer.close();
 
-        Assert.assertTrue(STORE_FILE.exists());
+        Assertions.assertTrue(STORE_FILE.exists());
 
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
 
-        Assert.assertEquals(reader.size(), 0);
-        Assert.assertNull(reader.get(1, null));
+        Assertions.assertEquals(reader.size(), 0);
+        Assertions.assertNull(reader.get(1, null));
 
         reader.close();
     }
@@ -79,7 +86,7 @@ public class TestStore {
         StoreWriter writer = PalDB.createWriter(bos, new Configuration());
         writer.close();
 
-        Assert.assertTrue(bos.toByteArray().length > 0);
+        Assertions.assertTrue(bos.toByteArray().length > 0);
 
         ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
         StoreReader reader = PalDB.createReader(bis, new Configuration());
@@ -91,19 +98,19 @@ public class TestStore {
         StoreWriter writer = PalDB.createWriter(STORE_FILE);
         writer.close();
 
-        Assert.assertTrue(STORE_FILE.exists());
+        Assertions.assertTrue(STORE_FILE.exists());
 
         StoreReader reader = PalDB.createReader(STORE_FILE);
 
-        Assert.assertEquals(reader.size(), 0);
-        Assert.assertNull(reader.get(1, null));
+        Assertions.assertEquals(reader.size(), 0);
+        Assertions.assertNull(reader.get(1, null));
 
         reader.close();
     }
 
     @Test
     public void testNewConfiguration() {
-        Assert.assertNotNull(PalDB.newConfiguration());
+        Assertions.assertNotNull(PalDB.newConfiguration());
     }
 
     @Test
@@ -113,74 +120,94 @@ public class TestStore {
         StoreWriter writer = PalDB.createWriter(file, new Configuration());
         writer.close();
 
-        Assert.assertTrue(file.exists());
+        Assertions.assertTrue(file.exists());
     }
 
     @Test
     public void testReaderFileNotFound() {
-        PalDB.createReader(new File("notfound"), PalDB.newConfiguration());
+        Assertions.assertThrows(RuntimeException.class, () -> {
+            PalDB.createReader(new File("notfound"), PalDB.newConfiguration());
+        });
     }
 
     @Test
     public void testReaderNullFile() {
-        PalDB.createReader((File) null, PalDB.newConfiguration());
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            PalDB.createReader((File) null, PalDB.newConfiguration());
+        });
     }
 
     @Test
     public void testReaderNullConfig() {
-        PalDB.createReader(new File("notfound"), null);
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            PalDB.createReader(new File("notfound"), null);
+        });
     }
 
     @Test
     public void testReaderNullStream() {
-        PalDB.createReader((InputStream) null, PalDB.newConfiguration());
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            PalDB.createReader((InputStream) null, PalDB.newConfiguration());
+        });
     }
 
     @Test
     public void testReaderNullConfigForStream() {
-        PalDB.createReader(new InputStream() {
-            @Override
-            public int read()
-                    throws IOException {
-                return 0;
-            }
-        }, null);
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            PalDB.createReader(new InputStream() {
+                @Override
+                public int read()
+                        throws IOException {
+                    return 0;
+                }
+            }, null);
+        });
     }
 
     @Test
     public void testWriterNullFile() {
-        PalDB.createWriter((File) null, PalDB.newConfiguration());
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            PalDB.createWriter((File) null, PalDB.newConfiguration());
+        });
     }
 
     @Test
     public void testWriterNullConfig() {
-        PalDB.createWriter(new File("notfound"), null);
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            PalDB.createWriter(new File("notfound"), null);
+        });
     }
 
     @Test
     public void testWriterNullStream() {
-        PalDB.createWriter((OutputStream) null, PalDB.newConfiguration());
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            PalDB.createWriter((OutputStream) null, PalDB.newConfiguration());
+        });
     }
 
     @Test
     public void testWriterNullConfigForStream() {
-        PalDB.createWriter(new OutputStream() {
-            @Override
-            public void write(int i)
-                    throws IOException {
+        Assertions.assertThrows(NullPointerException.class, () -> {
+            PalDB.createWriter(new OutputStream() {
+                @Override
+                public void write(int i)
+                        throws IOException {
 
-            }
-        }, null);
+                }
+            }, null);
+        });
     }
 
     @Test
     public void testInvalidSegmentSize() {
-        StoreWriter writer = PalDB.createWriter(STORE_FILE);
-        writer.close();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            StoreWriter writer = PalDB.createWriter(STORE_FILE);
+            writer.close();
 
-        Configuration config = new Configuration();
-        config.set(Configuration.MMAP_SEGMENT_SIZE, String.valueOf(1 + (long) Integer.MAX_VALUE));
-        PalDB.createReader(STORE_FILE, config);
+            Configuration config = new Configuration();
+            config.set(Configuration.MMAP_SEGMENT_SIZE, String.valueOf(1 + (long) Integer.MAX_VALUE));
+            PalDB.createReader(STORE_FILE, config);
+        });
     }
 
     @Test
@@ -195,8 +222,8 @@ public class TestStore {
 
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
 
-        Assert.assertEquals(reader.size(), 0);
-        Assert.assertNull(reader.get(1, null));
+        Assertions.assertEquals(reader.size(), 0);
+        Assertions.assertNull(reader.get(1, null));
 
         reader.close();
     }
@@ -208,8 +235,8 @@ public class TestStore {
         writer.close();
 
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
-        Assert.assertEquals(reader.size(), 1);
-        Assert.assertEquals(reader.get(1), "foo");
+        Assertions.assertEquals(reader.size(), 1);
+        Assertions.assertEquals(reader.get(1), "foo");
         reader.close();
     }
 
@@ -225,8 +252,8 @@ public class TestStore {
         writer.close();
 
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
-        Assert.assertEquals(reader.size(), 1);
-        Assert.assertEquals(reader.get(1), "foo");
+        Assertions.assertEquals(reader.size(), 1);
+        Assertions.assertEquals(reader.get(1), "foo");
         reader.close();
     }
 
@@ -243,8 +270,8 @@ public class TestStore {
 
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
 
-        Assert.assertEquals(reader.size(), 1);
-        Assert.assertEquals(reader.get(1), "foo");
+        Assertions.assertEquals(reader.size(), 1);
+        Assertions.assertEquals(reader.get(1), "foo");
         reader.close();
     }
 
@@ -263,13 +290,13 @@ public class TestStore {
 
         //Read
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
-        Assert.assertEquals(reader.getInt(key1), 1);
-        Assert.assertEquals(reader.getInt(key2), 6);
-        Assert.assertNull(reader.get(0, null));
-        Assert.assertNull(reader.get(6, null));
-        Assert.assertNull(reader.get(244, null));
-        Assert.assertNull(reader.get(246, null));
-        Assert.assertNull(reader.get(1245, null));
+        Assertions.assertEquals(reader.getInt(key1), 1);
+        Assertions.assertEquals(reader.getInt(key2), 6);
+        Assertions.assertNull(reader.get(0, null));
+        Assertions.assertNull(reader.get(6, null));
+        Assertions.assertNull(reader.get(244, null));
+        Assertions.assertNull(reader.get(246, null));
+        Assertions.assertNull(reader.get(1245, null));
     }
 
     @Test
@@ -287,15 +314,15 @@ public class TestStore {
 
         //Read
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
-        Assert.assertEquals(reader.getInt(key1), 1);
-        Assert.assertEquals(reader.getInt(key2), 6);
-        Assert.assertNull(reader.get(0, null));
-        Assert.assertNull(reader.get(6, null));
-        Assert.assertNull(reader.get(244, null));
-        Assert.assertNull(reader.get(267, null));
-        Assert.assertNull(reader.get(2449, null));
-        Assert.assertNull(reader.get(2451, null));
-        Assert.assertNull(reader.get(2454441, null));
+        Assertions.assertEquals(reader.getInt(key1), 1);
+        Assertions.assertEquals(reader.getInt(key2), 6);
+        Assertions.assertNull(reader.get(0, null));
+        Assertions.assertNull(reader.get(6, null));
+        Assertions.assertNull(reader.get(244, null));
+        Assertions.assertNull(reader.get(267, null));
+        Assertions.assertNull(reader.get(2449, null));
+        Assertions.assertNull(reader.get(2451, null));
+        Assertions.assertNull(reader.get(2454441, null));
     }
 
     @Test
@@ -313,14 +340,14 @@ public class TestStore {
 
         //Read
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
-        Assert.assertEquals(reader.getInt(key1), 1);
-        Assert.assertEquals(reader.getInt(key2), 6);
-        Assert.assertNull(reader.get(6, null));
-        Assert.assertNull(reader.get(244, null));
-        Assert.assertNull(reader.get(267, null));
-        Assert.assertNull(reader.get(2449, null));
-        Assert.assertNull(reader.get(2451, null));
-        Assert.assertNull(reader.get(2454441, null));
+        Assertions.assertEquals(reader.getInt(key1), 1);
+        Assertions.assertEquals(reader.getInt(key2), 6);
+        Assertions.assertNull(reader.get(6, null));
+        Assertions.assertNull(reader.get(244, null));
+        Assertions.assertNull(reader.get(267, null));
+        Assertions.assertNull(reader.get(2449, null));
+        Assertions.assertNull(reader.get(2451, null));
+        Assertions.assertNull(reader.get(2454441, null));
     }
 
     @Test
@@ -328,7 +355,7 @@ public class TestStore {
         StoreWriter writer = PalDB.createWriter(STORE_FILE, new Configuration());
         writer.put(0, "ABC");
         writer.put(0, "DGE");
-        writer.close();
+        Assertions.assertThrows(RuntimeException.class, writer::close);
     }
 
     @Test
@@ -349,7 +376,7 @@ public class TestStore {
         configuration.set(Configuration.MMAP_SEGMENT_SIZE, String.valueOf(byteSize - 100));
         StoreReader reader = PalDB.createReader(STORE_FILE, configuration);
         for (int i = 0; i < keys.length; i++) {
-            Assert.assertEquals(reader.get(keys[i], null), values[i]);
+            Assertions.assertEquals(reader.get(keys[i], null), values[i]);
         }
     }
 
@@ -375,7 +402,7 @@ public class TestStore {
         configuration.set(Configuration.MMAP_SEGMENT_SIZE, String.valueOf(byteSize + sizeSize + 3));
         StoreReader reader = PalDB.createReader(STORE_FILE, configuration);
         for (int i = 0; i < keys.length; i++) {
-            Assert.assertEquals(reader.get(keys[i], null), values[i]);
+            Assertions.assertEquals(reader.get(keys[i], null), values[i]);
         }
     }
 
@@ -448,17 +475,268 @@ public class TestStore {
         //Read
         configuration.set(Configuration.MMAP_DATA_ENABLED, "false");
         StoreReader reader = PalDB.createReader(STORE_FILE, configuration);
-        Assert.assertEquals(reader.size(), keys.length);
+        Assertions.assertEquals(reader.size(), keys.length);
 
         for (int i = 0; i < keys.length; i++) {
             Object key = keys[i];
             Object val = reader.getString(key, null);
-            Assert.assertNotNull(val);
-            Assert.assertEquals(val, values[i]);
+            Assertions.assertNotNull(val);
+            Assertions.assertEquals(val, values[i]);
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testBloomFilter() {
+        Integer[] keys = GenerateTestData.generateIntKeys(10000);
+        Object[] values = GenerateTestData.generateStringData(keys.length, 10);
+        Configuration configuration = new Configuration();
+        configuration.set(Configuration.BLOOM_FILTER_ENABLED, "true");
+        configuration.set(Configuration.BLOOM_FILTER_FPP, "0.001");
+        StoreWriter writer = PalDB.createWriter(STORE_FILE, configuration);
+        writer.putAll(keys, values);
+        writer.put("foo", "bar");
+        writer.close();
+
+        StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
+        for (int i = 0; i < keys.length; i++) {
+            Assertions.assertEquals(reader.get(keys[i]), values[i]);
+        }
+        Assertions.assertEquals(reader.get("foo"), "bar");
+        for (int i = 0; i < 10000; i++) {
+            Assertions.assertNull(reader.get(-1 - i));
+            Assertions.assertNull(reader.get("bar" + i));
         }
         reader.close();
     }
 
+    @Test
+    public void testReadFormatV1()
+            throws IOException, NotFoundException {
+        // written before the bloom filters, 100 int keys mapped to "value" + key and "foo" mapped to {1, 2, 3}
+        InputStream inputStream = TestStore.class.getResourceAsStream("/paldb_v1.dat");
+        StoreReader reader = PalDB.createReader(inputStream, new Configuration());
+        Assertions.assertEquals(reader.size(), 101);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(reader.getString(i), "value" + i);
+        }
+        Assertions.assertArrayEquals(reader.getByteArray("foo"), new byte[]{1, 2, 3});
+        Assertions.assertNull(reader.get(100));
+        reader.close();
+    }
+
+    @Test
+    public void testManyKeyLengths() {
+        // int keys from 1 to 5 bytes and strings from 1 to 40 chars, each length gets its own index
+        int count = 20000;
+        Object[] keys = new Object[count * 2];
+        Object[] values = new Object[keys.length];
+        for (int i = 0; i < count; i++) {
+            keys[i] = i * 107;
+            values[i] = i;
+            keys[count + i] = "k" + i + "-" + "x".repeat(i % 37);
+            values[count + i] = "v" + i;
+        }
+        writeStore(STORE_FILE, keys, values);
+
+        StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
+        Assertions.assertEquals(reader.size(), keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            Assertions.assertEquals(reader.get(keys[i]), values[i]);
+        }
+        Assertions.assertNull(reader.get(-1));
+        reader.close();
+    }
+
+    @Test
+    public void testConcurrentRead()
+            throws Exception {
+        Integer[] keys = GenerateTestData.generateIntKeys(10000);
+        Object[] values = GenerateTestData.generateStringData(keys.length, 100);
+        writeStore(STORE_FILE, keys, values);
+
+        for (String mmap : new String[]{"true", "false"}) {
+            Configuration configuration = new Configuration();
+            configuration.set(Configuration.MMAP_DATA_ENABLED, mmap);
+            configuration.set(Configuration.MMAP_SEGMENT_SIZE, "4096");
+            final StoreReader reader = PalDB.createReader(STORE_FILE, configuration);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+                for (int t = 0; t < 4; t++) {
+                    final int seed = t;
+                    futures.add(executor.submit(() -> {
+                        int matches = 0;
+                        for (int i = 0; i < keys.length; i++) {
+                            int k = (i * 7 + seed * 2503) % keys.length;
+                            if (values[k].equals(reader.getString(keys[k], null))) {
+                                matches++;
+                            }
+                        }
+                        return matches;
+                    }));
+                }
+                for (Future<Integer> future : futures) {
+                    Assertions.assertEquals(future.get().intValue(), keys.length);
+                }
+            } finally {
+                executor.shutdown();
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void testReadByteBuffer()
+            throws IOException {
+        Object[] keys = new Object[]{1, 2, 3, 4};
+        Object[] values = new Object[]{new byte[]{1, 2, 3}, GenerateTestData.generateStringData(5000).getBytes(),
+                new byte[0], "foo"};
+        writeStore(STORE_FILE, keys, values);
+
+        for (String mmap : new String[]{"true", "false"}) {
+            Configuration configuration = new Configuration();
+            configuration.set(Configuration.MMAP_DATA_ENABLED, mmap);
+            configuration.set(Configuration.MMAP_SEGMENT_SIZE, "1024");
+            StoreReader reader = PalDB.createReader(STORE_FILE, configuration);
+            for (int i = 0; i < 3; i++) {
+                ByteBuffer buffer = reader.getByteBuffer(keys[i]);
+                Assertions.assertTrue(buffer.isReadOnly());
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                Assertions.assertArrayEquals(bytes, (byte[]) values[i]);
+            }
+            Assertions.assertNull(reader.getByteBuffer(5));
+            try {
+                reader.getByteBuffer(4);
+                Assertions.fail();
+            } catch (ClassCastException ex) {
+                // not a byte array
+            }
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testGetAll() {
+        Integer[] keys = GenerateTestData.generateIntKeys(5000);
+        Object[] values = GenerateTestData.generateStringData(keys.length, 10);
+        writeStore(STORE_FILE, keys, values);
+
+        for (String cache : new String[]{"true", "false"}) {
+            Configuration configuration = new Configuration();
+            configuration.set(Configuration.CACHE_ENABLED, cache);
+            StoreReader reader = PalDB.createReader(STORE_FILE, configuration);
+            // half of the keys are read first so the batch mixes cached and stored values
+            for (int i = 0; i < keys.length; i += 2) {
+                Assertions.assertEquals(values[i], reader.get(keys[i]));
+            }
+            List<Object> batch = new ArrayList<Object>(Arrays.asList(keys));
+            batch.addAll(Arrays.asList(keys).subList(0, 100));
+            batch.add("missing");
+            batch.add(-1);
+            Map<Object, Object> result = reader.getAll(batch);
+            Assertions.assertEquals(keys.length, result.size());
+            for (int i = 0; i < keys.length; i++) {
+                Assertions.assertEquals(values[i], result.get(keys[i]));
+            }
+            Assertions.assertFalse(result.containsKey("missing"));
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testGetLongs()
+            throws NotFoundException {
+        Long[] keys = new Long[10000];
+        Long[] values = new Long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i * 7919L - 5000;
+            values[i] = (long) i << 20;
+        }
+        writeStore(STORE_FILE, keys, values);
+
+        for (String mmap : new String[]{"true", "false"}) {
+            Configuration configuration = new Configuration();
+            configuration.set(Configuration.MMAP_DATA_ENABLED, mmap);
+            StoreReader reader = PalDB.createReader(STORE_FILE, configuration);
+            long[] batch = new long[keys.length + 3];
+            for (int i = 0; i < keys.length; i++) {
+                batch[keys.length - 1 - i] = keys[i];
+            }
+            batch[keys.length] = keys[0];
+            batch[keys.length + 1] = 1L;
+            batch[keys.length + 2] = keys[0];
+            long[] result = new long[batch.length];
+            Assertions.assertEquals(keys.length + 2, reader.getLongs(batch, result, -1L));
+            for (int i = 0; i < keys.length; i++) {
+                Assertions.assertEquals(values[i].longValue(), result[keys.length - 1 - i]);
+            }
+            Assertions.assertEquals(0L, result[keys.length]);
+            Assertions.assertEquals(-1L, result[keys.length + 1]);
+            Assertions.assertEquals(0L, result[keys.length + 2]);
+
+            Assertions.assertArrayEquals(new long[]{values[3], values[2]}, reader.getLongs(new long[]{keys[3], keys[2]}));
+            try {
+                reader.getLongs(new long[]{keys[3], 1L});
+                Assertions.fail();
+            } catch (NotFoundException ex) {
+                // 1 is not a key
+            }
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testCompressionCodecs() {
+        Integer[] keys = GenerateTestData.generateIntKeys(5000);
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = "{\"id\":" + keys[i] + ",\"name\":\"user" + (i % 97) + "\",\"status\":\"active\",\"tags\":[\"a\",\"b\"],\"note\":\""
+                + "repeated text ".repeat(1 + i % 8) + "\"}";
+        }
+        values[7] = "";
+        values[8] = values[9];
+        writeStore(STORE_FILE, keys, values);
+        long uncompressedLength = STORE_FILE.length();
+
+        String[][] codecs = {{"lz4", "0"}, {"zstd", "0"}, {"deflate", "0"}, {"deflate", "1024"}};
+        for (String[] codec : codecs) {
+            Configuration configuration = new Configuration();
+            configuration.set(Configuration.COMPRESSION_CODEC, codec[0]);
+            configuration.set(Configuration.COMPRESSION_DICTIONARY_SIZE, codec[1]);
+            StoreWriter writer = PalDB.createWriter(STORE_FILE, configuration);
+            writer.putAll(keys, values);
+            writer.close();
+            Assertions.assertTrue(STORE_FILE.length() < uncompressedLength, codec[0]);
+
+            for (String mmap : new String[]{"true", "false"}) {
+                configuration.set(Configuration.MMAP_DATA_ENABLED, mmap);
+                StoreReader reader = PalDB.createReader(STORE_FILE, configuration);
+                for (int i = 0; i < keys.length; i++) {
+                    Assertions.assertEquals(values[i], reader.get(keys[i]));
+                }
+                int count = 0;
+                for (Map.Entry<Integer, String> entry : reader.<Integer, String>iterable()) {
+                    Assertions.assertNotNull(entry.getValue());
+                    count++;
+                }
+                Assertions.assertEquals(keys.length, count);
+                reader.close();
+            }
+        }
+
+        Configuration configuration = new Configuration();
+        configuration.set(Configuration.COMPRESSION_CODEC, "lz4");
+        configuration.set(Configuration.COMPRESSION_DICTIONARY_SIZE, "1024");
+        try {
+            PalDB.createWriter(STORE_FILE, configuration);
+            Assertions.fail();
+        } catch (IllegalArgumentException ex) {
+            // only deflate takes a dictionary
+        }
+    }
+
     @Test
     public void testIterate() {
         Integer[] keys = GenerateTestData.generateIntKeys(100);
@@ -475,21 +753,21 @@ public class TestStore {
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
         Iterator<Map.Entry<Object, Object>> itr = reader.iterable().iterator();
         for (int i = 0; i < keys.length; i++) {
-            Assert.assertTrue(itr.hasNext());
+            Assertions.assertTrue(itr.hasNext());
             Map.Entry<Object, Object> entry = itr.next();
-            Assert.assertNotNull(entry);
-            Assert.assertTrue(keysSet.remove(entry.getKey()));
-            Assert.assertTrue(valuesSet.remove(entry.getValue()));
+            Assertions.assertNotNull(entry);
+            Assertions.assertTrue(keysSet.remove(entry.getKey()));
+            Assertions.assertTrue(valuesSet.remove(entry.getValue()));
 
             Object valSearch = reader.get(entry.getKey(), null);
-            Assert.assertNotNull(valSearch);
-            Assert.assertEquals(valSearch, entry.getValue());
+            Assertions.assertNotNull(valSearch);
+            Assertions.assertEquals(valSearch, entry.getValue());
         }
-        Assert.assertFalse(itr.hasNext());
+        Assertions.assertFalse(itr.hasNext());
         reader.close();
 
-        Assert.assertTrue(keysSet.isEmpty());
-        Assert.assertTrue(valuesSet.isEmpty());
+        Assertions.assertTrue(keysSet.isEmpty());
+        Assertions.assertTrue(valuesSet.isEmpty());
     }
 
     // UTILITY
@@ -503,13 +781,13 @@ public class TestStore {
 
         // Read
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
-        Assert.assertEquals(reader.size(), keys.length);
+        Assertions.assertEquals(reader.size(), keys.length);
 
         for (int i = 0; i < keys.length; i++) {
             Object key = keys[i];
             Object val = reader.getString(key, null);
-            Assert.assertNotNull(val);
-            Assert.assertEquals(val, values[i]);
+            Assertions.assertNotNull(val);
+            Assertions.assertEquals(val, values[i]);
         }
 
         reader.close();
@@ -524,13 +802,13 @@ public class TestStore {
 
         // Read
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
-        Assert.assertEquals(reader.size(), keys.length);
+        Assertions.assertEquals(reader.size(), keys.length);
 
         for (int i = 0; i < keys.length; i++) {
             Object key = keys[i];
             Object val = reader.getInt(key, 0);
-            Assert.assertNotNull(val);
-            Assert.assertEquals(val, values[i]);
+            Assertions.assertNotNull(val);
+            Assertions.assertEquals(val, values[i]);
         }
 
         reader.close();
@@ -545,17 +823,17 @@ public class TestStore {
 
         //Read
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
-        Assert.assertEquals(reader.size(), keys.length);
+        Assertions.assertEquals(reader.size(), keys.length);
 
         for (int i = 0; i < keys.length; i++) {
             Object key = keys[i];
             Object val = reader.get(key, 0);
-            Assert.assertNull(val);
+            Assertions.assertNull(val);
         }
         for (int i = 0; i < keys.length; i++) {
             Object key = keys[i];
             Object val = reader.get(key, 0);
-            Assert.assertNull(val);
+            Assertions.assertNull(val);
         }
 
         reader.close();
@@ -570,13 +848,13 @@ public class TestStore {
 
         //Read
         StoreReader reader = PalDB.createReader(STORE_FILE, new Configuration());
-        Assert.assertEquals(reader.size(), keys.length);
+        Assertions.assertEquals(reader.size(), keys.length);
 
         for (int i = 0; i < keys.length; i++) {
             Object key = keys[i];
             int[] val = reader.getIntArray(key, null);
-            Assert.assertNotNull(val);
-            Assert.assertEquals(val, values[i]);
+            Assertions.assertNotNull(val);
+            Assertions.assertArrayEquals(val, values[i]);
         }
 
         reader.close();
@@ -596,6 +874,6 @@ public class TestStore {
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        Assert.assertEquals(keyLength, expectedLength);
+        Assertions.assertEquals(keyLength, expectedLength);
     }
 }
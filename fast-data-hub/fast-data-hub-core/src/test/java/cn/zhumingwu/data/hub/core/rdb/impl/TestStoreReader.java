@@ -15,13 +15,14 @@
 package cn.zhumingwu.data.hub.core.rdb.impl;
 
 
+import cn.zhumingwu.data.hub.core.exception.NotFoundException;
 import cn.zhumingwu.data.hub.core.rdb.api.Configuration;
 import cn.zhumingwu.data.hub.core.rdb.api.StoreReader;
 import cn.zhumingwu.data.hub.core.rdb.api.StoreWriter;
 import cn.zhumingwu.data.hub.core.serializer.Serializer;
-import org.junit.After;
-import org.junit.Assert;
-import org.junit.Before;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.awt.*;
@@ -32,6 +33,7 @@ import java.io.IOException;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 public class TestStoreReader {
@@ -44,7 +46,7 @@ public class TestStoreReader {
             new Object[]{true, (byte) 1, 'a', 1.0, 1f, (short) 1, 1, 1l, "foo", new boolean[]{true}, new byte[]{1}, new char[]{'a'}, new double[]{1.0}, new float[]{1f}, new short[]{1}, new int[]{1}, new long[]{1l}, new String[]{"foo"}, new Object[]{"foo"}, new Point(
                     4, 56)};
 
-    @Before
+    @BeforeEach
     public void setUp() {
         STORE_FILE.delete();
         STORE_FOLDER.delete();
@@ -61,7 +63,7 @@ public class TestStoreReader {
         reader = PalDB.createReader(STORE_FILE, new Configuration());
     }
 
-    @After
+    @AfterEach
     public void cleanUp() {
         try {
             reader.close();
@@ -73,329 +75,347 @@ public class TestStoreReader {
 
     @Test
     public void testFile() {
-        Assert.assertEquals(reader.getFile(), STORE_FILE);
+        Assertions.assertEquals(reader.getFile(), STORE_FILE);
     }
 
     @Test
     public void testSize() {
-        Assert.assertEquals(reader.size(), testValues.length);
+        Assertions.assertEquals(reader.size(), testValues.length);
     }
 
     @Test
     public void testStoreClosed() {
-        reader.close();
-        reader.get(0);
+        Assertions.assertThrows(IllegalStateException.class, () -> {
+            reader.close();
+            reader.get(0);
+        });
     }
 
     @Test
     public void testGetBoolean()
             throws Throwable {
-        Assert.assertTrue(reader.getBoolean(0));
-        Assert.assertTrue(reader.getBoolean(0, false));
-        Assert.assertFalse(reader.getBoolean(-1, false));
+        Assertions.assertTrue(reader.getBoolean(0));
+        Assertions.assertTrue(reader.getBoolean(0, false));
+        Assertions.assertFalse(reader.getBoolean(-1, false));
     }
 
     @Test
-    public void testGetBooleanMissing()
-            throws Throwable {
-        reader.getBoolean(-1);
+    public void testGetBooleanMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getBoolean(-1);
+        });
     }
 
     @Test
     public void testGetByte()
             throws Throwable {
-        Assert.assertEquals(reader.getByte(1), (byte) 1);
-        Assert.assertEquals(reader.getByte(1, (byte) 5), (byte) 1);
-        Assert.assertEquals(reader.getByte(-1, (byte) 5), (byte) 5);
+        Assertions.assertEquals(reader.getByte(1), (byte) 1);
+        Assertions.assertEquals(reader.getByte(1, (byte) 5), (byte) 1);
+        Assertions.assertEquals(reader.getByte(-1, (byte) 5), (byte) 5);
     }
 
     @Test
-    public void testGetByteMissing()
-            throws Throwable {
-        reader.getByte(-1);
+    public void testGetByteMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getByte(-1);
+        });
     }
 
     @Test
     public void testGetChar()
             throws Throwable {
-        Assert.assertEquals(reader.getChar(2), (char) 'a');
-        Assert.assertEquals(reader.getChar(2, (char) 'b'), (char) 'a');
-        Assert.assertEquals(reader.getChar(-1, (char) 'b'), (char) 'b');
+        Assertions.assertEquals(reader.getChar(2), (char) 'a');
+        Assertions.assertEquals(reader.getChar(2, (char) 'b'), (char) 'a');
+        Assertions.assertEquals(reader.getChar(-1, (char) 'b'), (char) 'b');
     }
 
     @Test
-    public void testGetCharMissing()
-            throws Throwable {
-        reader.getChar(-1);
+    public void testGetCharMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getChar(-1);
+        });
     }
 
     @Test
     public void testGetDouble()
             throws Throwable {
-        Assert.assertEquals(reader.getDouble(3), 1.0);
-        Assert.assertEquals(reader.getDouble(3, 2.0), 1.0);
-        Assert.assertEquals(reader.getDouble(-1, 2.0), 2.0);
+        Assertions.assertEquals(reader.getDouble(3), 1.0);
+        Assertions.assertEquals(reader.getDouble(3, 2.0), 1.0);
+        Assertions.assertEquals(reader.getDouble(-1, 2.0), 2.0);
     }
 
     @Test
-    public void testGetDoubleMissing()
-            throws Throwable {
-        reader.getDouble(-1);
+    public void testGetDoubleMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getDouble(-1);
+        });
     }
 
     @Test
     public void testGetFloat()
             throws Throwable {
-        Assert.assertEquals(reader.getFloat(4), 1f);
-        Assert.assertEquals(reader.getFloat(4, 2f), 1f);
-        Assert.assertEquals(reader.getFloat(-1, 2f), 2f);
+        Assertions.assertEquals(reader.getFloat(4), 1f);
+        Assertions.assertEquals(reader.getFloat(4, 2f), 1f);
+        Assertions.assertEquals(reader.getFloat(-1, 2f), 2f);
     }
 
     @Test
-    public void testGetFloatMissing()
-            throws Throwable {
-        reader.getFloat(-1);
+    public void testGetFloatMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getFloat(-1);
+        });
     }
 
     @Test
     public void testGetShort()
             throws Throwable {
-        Assert.assertEquals(reader.getShort(5), (short) 1);
-        Assert.assertEquals(reader.getShort(5, (short) 2), (short) 1);
-        Assert.assertEquals(reader.getShort(-1, (short) 2), (short) 2);
+        Assertions.assertEquals(reader.getShort(5), (short) 1);
+        Assertions.assertEquals(reader.getShort(5, (short) 2), (short) 1);
+        Assertions.assertEquals(reader.getShort(-1, (short) 2), (short) 2);
     }
 
     @Test
-    public void testGetShortMissing()
-            throws Throwable {
-        reader.getShort(-1);
+    public void testGetShortMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getShort(-1);
+        });
     }
 
     @Test
     public void testGetInt()
             throws Throwable {
-        Assert.assertEquals(reader.getInt(6), 1);
-        Assert.assertEquals(reader.getInt(6, 2), 1);
-        Assert.assertEquals(reader.getInt(-1, 2), 2);
+        Assertions.assertEquals(reader.getInt(6), 1);
+        Assertions.assertEquals(reader.getInt(6, 2), 1);
+        Assertions.assertEquals(reader.getInt(-1, 2), 2);
     }
 
     @Test
-    public void testGetIntMissing()
-            throws Throwable {
-        reader.getInt(-1);
+    public void testGetIntMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getInt(-1);
+        });
     }
 
     @Test
     public void testGetLong()
             throws Throwable {
-        Assert.assertEquals(reader.getLong(7), 1l);
-        Assert.assertEquals(reader.getLong(7, 2l), 1l);
-        Assert.assertEquals(reader.getLong(-1, 2l), 2l);
+        Assertions.assertEquals(reader.getLong(7), 1l);
+        Assertions.assertEquals(reader.getLong(7, 2l), 1l);
+        Assertions.assertEquals(reader.getLong(-1, 2l), 2l);
     }
 
     @Test
-    public void testGetLongMissing()
-            throws Throwable {
-        reader.getLong(-1);
+    public void testGetLongMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getLong(-1);
+        });
     }
 
     @Test
     public void testGetString()
             throws Throwable {
-        Assert.assertEquals(reader.getString(8), "foo");
-        Assert.assertEquals(reader.getString(8, "bar"), "foo");
-        Assert.assertEquals(reader.getString(-1, "bar"), "bar");
+        Assertions.assertEquals(reader.getString(8), "foo");
+        Assertions.assertEquals(reader.getString(8, "bar"), "foo");
+        Assertions.assertEquals(reader.getString(-1, "bar"), "bar");
     }
 
     @Test
     public void testGetStringMissing()
             throws Throwable {
-        Assert.assertNull(reader.getString(-1));
+        Assertions.assertNull(reader.getString(-1));
     }
 
     @Test
     public void testGetBooleanArray()
             throws Throwable {
-        Assert.assertEquals(reader.getBooleanArray(9), new boolean[]{true});
-        Assert.assertEquals(reader.getBooleanArray(9, new boolean[]{false}), new boolean[]{true});
-        Assert.assertEquals(reader.getBooleanArray(-1, new boolean[]{false}), new boolean[]{false});
+        Assertions.assertArrayEquals(reader.getBooleanArray(9), new boolean[]{true});
+        Assertions.assertArrayEquals(reader.getBooleanArray(9, new boolean[]{false}), new boolean[]{true});
+        Assertions.assertArrayEquals(reader.getBooleanArray(-1, new boolean[]{false}), new boolean[]{false});
     }
 
     @Test
-    public void testGetBooleanArrayMissing()
-            throws Throwable {
-        reader.getBooleanArray(-1);
+    public void testGetBooleanArrayMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getBooleanArray(-1);
+        });
     }
 
     @Test
     public void testGetByteArray()
             throws Throwable {
-        Assert.assertEquals(reader.getByteArray(10), new byte[]{1});
-        Assert.assertEquals(reader.getByteArray(10, new byte[]{2}), new byte[]{1});
-        Assert.assertEquals(reader.getByteArray(-1, new byte[]{2}), new byte[]{2});
+        Assertions.assertArrayEquals(reader.getByteArray(10), new byte[]{1});
+        Assertions.assertArrayEquals(reader.getByteArray(10, new byte[]{2}), new byte[]{1});
+        Assertions.assertArrayEquals(reader.getByteArray(-1, new byte[]{2}), new byte[]{2});
     }
 
     @Test
-    public void testGetByteArrayMissing()
-            throws Throwable {
-        reader.getByteArray(-1);
+    public void testGetByteArrayMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getByteArray(-1);
+        });
     }
 
     @Test
     public void testGetCharArray()
             throws Throwable {
-        Assert.assertEquals(reader.getCharArray(11), new char[]{'a'});
-        Assert.assertEquals(reader.getCharArray(11, new char[]{'b'}), new char[]{'a'});
-        Assert.assertEquals(reader.getCharArray(-1, new char[]{'b'}), new char[]{'b'});
+        Assertions.assertArrayEquals(reader.getCharArray(11), new char[]{'a'});
+        Assertions.assertArrayEquals(reader.getCharArray(11, new char[]{'b'}), new char[]{'a'});
+        Assertions.assertArrayEquals(reader.getCharArray(-1, new char[]{'b'}), new char[]{'b'});
     }
 
     @Test
-    public void testGetCharArrayMissing()
-            throws Throwable {
-        reader.getCharArray(-1);
+    public void testGetCharArrayMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getCharArray(-1);
+        });
     }
 
     @Test
     public void testGetDoubleArray()
             throws Throwable {
-        Assert.assertEquals(reader.getDoubleArray(12), new double[]{1.0});
-        Assert.assertEquals(reader.getDoubleArray(12, new double[]{2.0}), new double[]{1.0});
-        Assert.assertEquals(reader.getDoubleArray(-1, new double[]{2.0}), new double[]{2.0});
+        Assertions.assertArrayEquals(reader.getDoubleArray(12), new double[]{1.0});
+        Assertions.assertArrayEquals(reader.getDoubleArray(12, new double[]{2.0}), new double[]{1.0});
+        Assertions.assertArrayEquals(reader.getDoubleArray(-1, new double[]{2.0}), new double[]{2.0});
     }
 
     @Test
-    public void testGetDoubleArrayMissing()
-            throws Throwable {
-        reader.getDoubleArray(-1);
+    public void testGetDoubleArrayMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getDoubleArray(-1);
+        });
     }
 
     @Test
     public void testGetFloatArray()
             throws Throwable {
-        Assert.assertEquals(reader.getFloatArray(13), new float[]{1f});
-        Assert.assertEquals(reader.getFloatArray(13, new float[]{2f}), new float[]{1f});
-        Assert.assertEquals(reader.getFloatArray(-1, new float[]{2f}), new float[]{2f});
+        Assertions.assertArrayEquals(reader.getFloatArray(13), new float[]{1f});
+        Assertions.assertArrayEquals(reader.getFloatArray(13, new float[]{2f}), new float[]{1f});
+        Assertions.assertArrayEquals(reader.getFloatArray(-1, new float[]{2f}), new float[]{2f});
     }
 
     @Test
-    public void testGetFloatArrayMissing()
-            throws Throwable {
-        reader.getFloatArray(-1);
+    public void testGetFloatArrayMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getFloatArray(-1);
+        });
     }
 
     @Test
     public void testGetShortArray()
             throws Throwable {
-        Assert.assertEquals(reader.getShortArray(14), new short[]{1});
-        Assert.assertEquals(reader.getShortArray(14, new short[]{2}), new short[]{1});
-        Assert.assertEquals(reader.getShortArray(-1, new short[]{2}), new short[]{2});
+        Assertions.assertArrayEquals(reader.getShortArray(14), new short[]{1});
+        Assertions.assertArrayEquals(reader.getShortArray(14, new short[]{2}), new short[]{1});
+        Assertions.assertArrayEquals(reader.getShortArray(-1, new short[]{2}), new short[]{2});
     }
 
     @Test
-    public void testGetShortArrayMissing()
-            throws Throwable {
-        reader.getShortArray(-1);
+    public void testGetShortArrayMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getShortArray(-1);
+        });
     }
 
     @Test
     public void testGetIntArray()
             throws Throwable {
-        Assert.assertEquals(reader.getIntArray(15), new int[]{1});
-        Assert.assertEquals(reader.getIntArray(15, new int[]{2}), new int[]{1});
-        Assert.assertEquals(reader.getIntArray(-1, new int[]{2}), new int[]{2});
+        Assertions.assertArrayEquals(reader.getIntArray(15), new int[]{1});
+        Assertions.assertArrayEquals(reader.getIntArray(15, new int[]{2}), new int[]{1});
+        Assertions.assertArrayEquals(reader.getIntArray(-1, new int[]{2}), new int[]{2});
     }
 
     @Test
-    public void testGetIntArrayMissing()
-            throws Throwable {
-        reader.getIntArray(-1);
+    public void testGetIntArrayMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getIntArray(-1);
+        });
     }
 
     @Test
     public void testGetLongArray()
             throws Throwable {
-        Assert.assertEquals(reader.getLongArray(16), new long[]{1l});
-        Assert.assertEquals(reader.getLongArray(16, new long[]{2l}), new long[]{1l});
-        Assert.assertEquals(reader.getLongArray(-1, new long[]{2l}), new long[]{2l});
+        Assertions.assertArrayEquals(reader.getLongArray(16), new long[]{1l});
+        Assertions.assertArrayEquals(reader.getLongArray(16, new long[]{2l}), new long[]{1l});
+        Assertions.assertArrayEquals(reader.getLongArray(-1, new long[]{2l}), new long[]{2l});
     }
 
     @Test
-    public void testGetLongArrayMissing()
-            throws Throwable {
-        reader.getLongArray(-1);
+    public void testGetLongArrayMissing() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            reader.getLongArray(-1);
+        });
     }
 
     @Test
     public void testGetStringArray()
             throws Throwable {
-        Assert.assertEquals(reader.getStringArray(17), new String[]{"foo"});
-        Assert.assertEquals(reader.getStringArray(17, new String[]{"bar"}), new String[]{"foo"});
-        Assert.assertEquals(reader.getStringArray(-1, new String[]{"bar"}), new String[]{"bar"});
+        Assertions.assertArrayEquals(reader.getStringArray(17), new String[]{"foo"});
+        Assertions.assertArrayEquals(reader.getStringArray(17, new String[]{"bar"}), new String[]{"foo"});
+        Assertions.assertArrayEquals(reader.getStringArray(-1, new String[]{"bar"}), new String[]{"bar"});
     }
 
     @Test
     public void testGetStringArrayMissing()
             throws Throwable {
-        Assert.assertNull(reader.getStringArray(-1));
+        Assertions.assertNull(reader.getStringArray(-1));
     }
 
     @Test
     public void testGetMissing()
             throws Throwable {
-        Assert.assertNull(reader.get(-1));
+        Assertions.assertNull(reader.get(-1));
     }
 
     @Test
     public void testGetArray()
             throws Throwable {
-        Assert.assertEquals(reader.getArray(18), new Object[]{"foo"});
-        Assert.assertEquals(reader.getArray(18, new Object[]{"bar"}), new Object[]{"foo"});
-        Assert.assertEquals(reader.getArray(-1, new Object[]{"bar"}), new Object[]{"bar"});
+        Assertions.assertArrayEquals(reader.getArray(18), new Object[]{"foo"});
+        Assertions.assertArrayEquals(reader.getArray(18, new Object[]{"bar"}), new Object[]{"foo"});
+        Assertions.assertArrayEquals(reader.getArray(-1, new Object[]{"bar"}), new Object[]{"bar"});
     }
 
     @Test
     public void testGetArrayMissing()
             throws Throwable {
-        Assert.assertNull(reader.getArray(-1));
+        Assertions.assertNull(reader.getArray(-1));
     }
 
     @Test
     public void testGetPoint()
             throws Throwable {
-        Assert.assertEquals(reader.get(19), new Point(4, 56));
+        Assertions.assertEquals(reader.get(19), new Point(4, 56));
     }
 
     @Test
     public void testIterator() {
         Iterable<Map.Entry<Integer, Object>> iter = reader.iterable();
-        Assert.assertNotNull(iter);
+        Assertions.assertNotNull(iter);
         Iterator<Map.Entry<Integer, Object>> itr = iter.iterator();
-        Assert.assertNotNull(itr);
+        Assertions.assertNotNull(itr);
 
         for (int i = 0; i < testValues.length; i++) {
-            Assert.assertTrue(itr.hasNext());
+            Assertions.assertTrue(itr.hasNext());
             Map.Entry<Integer, Object> v = itr.next();
             Object val = testValues[v.getKey()];
-            Assert.assertEquals(v.getValue(), val);
+            Assertions.assertTrue(Objects.deepEquals(v.getValue(), val));
         }
     }
 
     @Test
     public void testKeyIterator() {
         Iterable<Integer> iter = reader.keys();
-        Assert.assertNotNull(iter);
+        Assertions.assertNotNull(iter);
         Iterator<Integer> itr = iter.iterator();
-        Assert.assertNotNull(itr);
+        Assertions.assertNotNull(itr);
 
         Set<Integer> actual = new HashSet<Integer>();
         Set<Integer> expected = new HashSet<Integer>();
         for (int i = 0; i < testValues.length; i++) {
-            Assert.assertTrue(itr.hasNext());
+            Assertions.assertTrue(itr.hasNext());
             Integer k = itr.next();
             actual.add(k);
             expected.add(i);
         }
-        Assert.assertEquals(actual, expected);
+        Assertions.assertEquals(actual, expected);
     }
 
     // UTILITY
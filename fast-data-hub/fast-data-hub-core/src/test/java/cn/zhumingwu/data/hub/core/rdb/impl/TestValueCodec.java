@@ -0,0 +1,132 @@
+/*
+* Copyright 2015 LinkedIn Corp. All rights reserved.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+*/
+
+package cn.zhumingwu.data.hub.core.rdb.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+public class TestValueCodec {
+
+  private static byte[] record(int i) {
+    return ("{\"id\":" + i + ",\"email\":\"user" + i + "@example.com\",\"country\":\"" + (i % 3 == 0 ? "CN" : "US")
+        + "\",\"created\":\"2015-06-01T00:00:00Z\",\"plan\":\"premium\"}").getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testEncodeDecode()
+      throws IOException {
+    Random random = new Random(42);
+    byte[] noise = new byte[300];
+    random.nextBytes(noise);
+    byte[][] values = {new byte[0], new byte[]{1}, record(1), new byte[10000], noise};
+    for (String name : new String[]{"lz4", "zstd", "deflate"}) {
+      ValueCodec codec = ValueCodec.create(name, null);
+      for (byte[] value : values) {
+        byte[] block = codec.encode(value);
+        Assertions.assertTrue(block.length <= value.length + 1);
+        ValueCodec decoder = ValueCodec.create(codec.getId(), null);
+        Assertions.assertArrayEquals(value, decoder.decode(ByteBuffer.wrap(block)));
+      }
+      //Incompressible values are stored as is
+      Assertions.assertEquals(0, codec.encode(noise)[0]);
+      Assertions.assertTrue(codec.encode(new byte[10000]).length < 100);
+    }
+    Assertions.assertNull(ValueCodec.create("none", null));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> ValueCodec.create("snappy", null));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> ValueCodec.create("zstd", new byte[8]));
+  }
+
+  @Test
+  public void testDictionary()
+      throws IOException {
+    List<byte[]> samples = new ArrayList<byte[]>();
+    for (int i = 0; i < 1000; i++) {
+      samples.add(record(i));
+    }
+    byte[] dictionary = ValueCodec.trainDictionary(samples, 512);
+    Assertions.assertTrue(dictionary.length > 0 && dictionary.length <= 512);
+
+    ValueCodec plain = ValueCodec.create("deflate", null);
+    ValueCodec trained = ValueCodec.create("deflate", dictionary);
+    long plainLength = 0;
+    long trainedLength = 0;
+    for (int i = 1000; i < 2000; i++) {
+      byte[] value = record(i);
+      plainLength += plain.encode(value).length;
+      byte[] block = trained.encode(value);
+      trainedLength += block.length;
+      ValueCodec decoder = ValueCodec.create(ValueCodec.DEFLATE, dictionary);
+      Assertions.assertArrayEquals(value, decoder.decode(ByteBuffer.wrap(block)));
+      decoder.close();
+    }
+    //Small values only compress well with the shared context of the dictionary
+    Assertions.assertTrue(trainedLength * 2 < plainLength, trainedLength + " vs " + plainLength);
+
+    //A block doesn't decode without its dictionary
+    Assertions.assertThrows(IOException.class, () -> plain.decode(ByteBuffer.wrap(trained.encode(record(5000)))));
+
+    //Samples smaller than the dictionary are used whole
+    Assertions.assertArrayEquals(record(1), ValueCodec.trainDictionary(samples.subList(1, 2), 512));
+  }
+
+  @Test
+  public void testDeflateConcurrentDecodeAndClose()
+      throws Exception {
+    List<byte[]> samples = new ArrayList<byte[]>();
+    for (int i = 0; i < 100; i++) {
+      samples.add(record(i));
+    }
+    byte[] dictionary = ValueCodec.trainDictionary(samples, 512);
+    ValueCodec encoder = ValueCodec.create("deflate", dictionary);
+    byte[][] blocks = new byte[1000][];
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = encoder.encode(record(i));
+    }
+    encoder.close();
+
+    ValueCodec decoder = ValueCodec.create(ValueCodec.DEFLATE, dictionary);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < blocks.length; i++) {
+            Assertions.assertArrayEquals(record(i), decoder.decode(ByteBuffer.wrap(blocks[i])));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    decoder.close();
+    //A lookup racing with the close still decodes, its inflater is ended right away
+    Assertions.assertArrayEquals(record(7), decoder.decode(ByteBuffer.wrap(blocks[7])));
+  }
+}
@@ -15,28 +15,28 @@
 package cn.zhumingwu.data.hub.core.rdb.utils;
 
 
-import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 public class TestFormatVersion {
 
   @Test
   public void testIs() {
-    Assert.assertTrue(FormatVersion.PALDB_V1.is(FormatVersion.PALDB_V1));
+    Assertions.assertTrue(FormatVersion.PALDB_V1.is(FormatVersion.PALDB_V1));
   }
 
   @Test
   public void testBytes() {
-    Assert.assertEquals(FormatVersion.fromBytes(FormatVersion.PALDB_V1.getBytes()), FormatVersion.PALDB_V1);
+    Assertions.assertEquals(FormatVersion.fromBytes(FormatVersion.PALDB_V1.getBytes()), FormatVersion.PALDB_V1);
   }
 
   @Test
   public void testPrefixBytes() {
-    Assert.assertEquals(FormatVersion.getPrefixBytes(), "PALDB".getBytes());
+    Assertions.assertArrayEquals(FormatVersion.getPrefixBytes(), "PALDB".getBytes());
   }
 
   @Test
   public void testGetLastVersion() {
-    Assert.assertEquals(FormatVersion.getLatestVersion(), FormatVersion.values()[FormatVersion.values().length - 1]);
+    Assertions.assertEquals(FormatVersion.getLatestVersion(), FormatVersion.values()[FormatVersion.values().length - 1]);
   }
 }
@@ -15,7 +15,7 @@
 package cn.zhumingwu.data.hub.core.rdb.utils;
 
 import cn.zhumingwu.data.hub.core.util.HashUtils;
-import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 
@@ -24,11 +24,11 @@ public class TestHashUtils {
 
     @Test
     public void testHashEquals() {
-        Assert.assertEquals(hashUtils.hash("foo".getBytes()), hashUtils.hash("foo".getBytes()));
+        Assertions.assertEquals(hashUtils.hash("foo".getBytes()), hashUtils.hash("foo".getBytes()));
     }
 
     @Test
     public void testEmpty() {
-        Assert.assertTrue(hashUtils.hash(new byte[0]) > 0);
+        Assertions.assertTrue(hashUtils.hash(new byte[0]) > 0);
     }
 }
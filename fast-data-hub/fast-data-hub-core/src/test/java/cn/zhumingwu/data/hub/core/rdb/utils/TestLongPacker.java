@@ -19,7 +19,7 @@ import java.nio.ByteBuffer;
 
 import cn.zhumingwu.data.hub.core.util.DataInputOutput;
 import cn.zhumingwu.data.hub.core.util.LongPacker;
-import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 public class TestLongPacker {
@@ -29,7 +29,7 @@ public class TestLongPacker {
       throws IOException {
     DataInputOutput dio = new DataInputOutput();
     LongPacker.packInt(dio.reset(), 42);
-    Assert.assertEquals(LongPacker.unpackInt(dio.reset(dio.toByteArray())), 42);
+    Assertions.assertEquals(LongPacker.unpackInt(dio.reset(dio.toByteArray())), 42);
   }
 
   @Test
@@ -37,7 +37,7 @@ public class TestLongPacker {
       throws IOException {
     DataInputOutput dio = new DataInputOutput();
     LongPacker.packInt(dio.reset(), 0);
-    Assert.assertEquals(LongPacker.unpackInt(dio.reset(dio.toByteArray())), 0);
+    Assertions.assertEquals(LongPacker.unpackInt(dio.reset(dio.toByteArray())), 0);
   }
 
   @Test
@@ -45,22 +45,23 @@ public class TestLongPacker {
       throws IOException {
     DataInputOutput dio = new DataInputOutput();
     LongPacker.packInt(dio.reset(), Integer.MAX_VALUE);
-    Assert.assertEquals(LongPacker.unpackInt(dio.reset(dio.toByteArray())), Integer.MAX_VALUE);
+    Assertions.assertEquals(LongPacker.unpackInt(dio.reset(dio.toByteArray())), Integer.MAX_VALUE);
   }
 
   @Test
-  public void testPackIntNeg()
-      throws IOException {
-    DataInputOutput dio = new DataInputOutput();
-    LongPacker.packInt(dio.reset(), -42);
-  }
+  public void testPackIntNeg() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+        DataInputOutput dio = new DataInputOutput();
+        LongPacker.packInt(dio.reset(), -42);
+        });
+    }
 
   @Test
   public void testPackLong()
       throws IOException {
     DataInputOutput dio = new DataInputOutput();
     LongPacker.packLong(dio.reset(), 42l);
-    Assert.assertEquals(LongPacker.unpackLong(dio.reset(dio.toByteArray())), 42);
+    Assertions.assertEquals(LongPacker.unpackLong(dio.reset(dio.toByteArray())), 42);
   }
 
   @Test
@@ -68,7 +69,7 @@ public class TestLongPacker {
       throws IOException {
     DataInputOutput dio = new DataInputOutput();
     LongPacker.packLong(dio.reset(), 0l);
-    Assert.assertEquals(LongPacker.unpackLong(dio.reset(dio.toByteArray())), 0l);
+    Assertions.assertEquals(LongPacker.unpackLong(dio.reset(dio.toByteArray())), 0l);
   }
 
   @Test
@@ -76,7 +77,7 @@ public class TestLongPacker {
       throws IOException {
     byte[] buf = new byte[15];
     LongPacker.packLong(buf, 42l);
-    Assert.assertEquals(LongPacker.unpackLong(buf), 42l);
+    Assertions.assertEquals(LongPacker.unpackLong(buf), 42l);
   }
 
   @Test
@@ -84,7 +85,7 @@ public class TestLongPacker {
       throws IOException {
     DataInputOutput dio = new DataInputOutput();
     LongPacker.packLong(dio.reset(), Long.MAX_VALUE);
-    Assert.assertEquals(LongPacker.unpackLong(dio.reset(dio.toByteArray())), Long.MAX_VALUE);
+    Assertions.assertEquals(LongPacker.unpackLong(dio.reset(dio.toByteArray())), Long.MAX_VALUE);
   }
 
   @Test
@@ -92,21 +93,23 @@ public class TestLongPacker {
       throws IOException {
     byte[] buf = new byte[15];
     LongPacker.packLong(buf, Long.MAX_VALUE);
-    Assert.assertEquals(LongPacker.unpackLong(buf), Long.MAX_VALUE);
+    Assertions.assertEquals(LongPacker.unpackLong(buf), Long.MAX_VALUE);
   }
 
   @Test
-  public void testPackLongNeg()
-      throws IOException {
-    DataInputOutput dio = new DataInputOutput();
-    LongPacker.packLong(dio.reset(), -42l);
-  }
+  public void testPackLongNeg() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+        DataInputOutput dio = new DataInputOutput();
+        LongPacker.packLong(dio.reset(), -42l);
+        });
+    }
 
   @Test
-  public void testPackLongBytesNeg()
-      throws IOException {
-    LongPacker.packLong(new byte[15], -42l);
-  }
+  public void testPackLongBytesNeg() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+        LongPacker.packLong(new byte[15], -42l);
+        });
+    }
 
   @Test
   public void test()
@@ -114,6 +117,6 @@ public class TestLongPacker {
     DataInputOutput dio = new DataInputOutput();
     LongPacker.packInt(dio.reset(), 5);
     ByteBuffer bb = ByteBuffer.wrap(dio.getBuf());
-    Assert.assertEquals(LongPacker.unpackInt(bb), 5);
+    Assertions.assertEquals(LongPacker.unpackInt(bb), 5);
   }
 }
@@ -14,7 +14,7 @@
 
 package cn.zhumingwu.data.hub.core.rdb.utils;
 
-import org.junit.Assert;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
@@ -30,9 +30,9 @@ public class TestTempUtils {
   @Test
   public void testTempDir() {
     File file = TempUtils.createTempDir("foo");
-    Assert.assertTrue(file.exists());
-    Assert.assertTrue(file.isDirectory());
-    Assert.assertTrue(file.getName().contains("foo"));
+    Assertions.assertTrue(file.exists());
+    Assertions.assertTrue(file.isDirectory());
+    Assertions.assertTrue(file.getName().contains("foo"));
     file.delete();
   }
 
@@ -41,10 +41,10 @@ public class TestTempUtils {
       throws IOException {
     ByteArrayInputStream bis = new ByteArrayInputStream("foo".getBytes());
     File file = TempUtils.copyIntoTempFile("bar", bis);
-    Assert.assertTrue(file.exists());
-    Assert.assertTrue(file.isFile());
-    Assert.assertTrue(file.getName().contains("bar"));
-    Assert.assertEquals(bis.available(), 0);
+    Assertions.assertTrue(file.exists());
+    Assertions.assertTrue(file.isFile());
+    Assertions.assertTrue(file.getName().contains("bar"));
+    Assertions.assertEquals(bis.available(), 0);
 
     ByteArrayOutputStream bos = new ByteArrayOutputStream();
     FileInputStream fis = new FileInputStream(file);
@@ -55,7 +55,7 @@ public class TestTempUtils {
     }
     fis.close();
     bos.close();
-    Assert.assertEquals(bos.toByteArray(), "foo".getBytes());
+    Assertions.assertArrayEquals(bos.toByteArray(), "foo".getBytes());
   }
 }
 
@@ -0,0 +1,156 @@
+package cn.zhumingwu.data.hub.core.store;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class EventMemoryTableTest {
+
+    @TempDir
+    Path directory;
+
+    private StoreConfiguration configuration() {
+        return new StoreConfiguration()
+                .set(StoreConfiguration.DATA_DIR, this.directory.toString())
+                .set(StoreConfiguration.SYNC_MODE, SyncMode.OS.getName())
+                .set(StoreConfiguration.WRITER_SHARDS, "4")
+                .set("topic.small." + StoreConfiguration.RING_POWER, "2");
+    }
+
+    @Test
+    public void testConcurrentNewTopics() throws Exception {
+        final int producers = 8;
+        final int topics = 50;
+        final int messages = 20;
+        var table = new EventMemoryTable(this.configuration());
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        var start = new CountDownLatch(1);
+        List<Future<List<CompletableFuture<Long>>>> results = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            results.add(executor.submit(() -> {
+                List<CompletableFuture<Long>> futures = new ArrayList<>();
+                start.await();
+                for (int i = 0; i < messages; i++) {
+                    for (int t = 0; t < topics; t++) {
+                        futures.add(table.put(new EventMessage("topic-" + t, new byte[]{(byte) t}, 0)));
+                    }
+                }
+                return futures;
+            }));
+        }
+        start.countDown();
+        for (var result : results) {
+            for (var future : result.get(60, TimeUnit.SECONDS)) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        }
+        executor.shutdown();
+        // every topic got its own contiguous offsets from a single buffer
+        for (int t = 0; t < topics; t++) {
+            var polled = table.poll("topic-" + t, 0, producers * messages, Long.MAX_VALUE, Duration.ZERO);
+            Assertions.assertEquals(producers * messages, polled.size());
+            for (int i = 0; i < polled.size(); i++) {
+                Assertions.assertEquals(i, polled.get(i).getOffset());
+                Assertions.assertEquals((byte) t, polled.get(i).getPayload()[0]);
+            }
+        }
+        table.close();
+    }
+
+    @Test
+    public void testRingPowerPerTopic() throws Exception {
+        var table = new EventMemoryTable(this.configuration());
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(i, table.put(new EventMessage("small", new byte[]{(byte) i}, 0)).get());
+        }
+        // older messages are read from the lsm segment
+        var message = table.get("small", 1);
+        Assertions.assertNotNull(message);
+        Assertions.assertEquals(1, message.getPayload()[0]);
+        Assertions.assertEquals(9, table.get("small", 9).getOffset());
+        table.close();
+
+        // a new table continues after the last offset on disk
+        table = new EventMemoryTable(this.configuration());
+        Assertions.assertEquals(10, table.put(new EventMessage("small", new byte[0], 0)).get());
+        table.close();
+    }
+
+    @Test
+    public void testPollAcrossSegments() throws Exception {
+        var configuration = this.configuration()
+                .set("topic.small." + StoreConfiguration.SEGMENT_BYTES, "64")
+                .set("topic.small." + StoreConfiguration.RETENTION_BYTES, "200");
+        var table = new EventMemoryTable(configuration);
+        for (int i = 0; i < 20; i++) {
+            table.put(new EventMessage("small", new byte[]{(byte) i, 1, 2, 3, 4, 5, 6, 7}, 0)).get();
+        }
+        // the batch continues into the next segments
+        var polled = table.poll("small", 0, 20, Long.MAX_VALUE, Duration.ZERO);
+        Assertions.assertEquals(20, polled.size());
+        for (int i = 0; i < polled.size(); i++) {
+            Assertions.assertEquals(i, polled.get(i).getOffset());
+        }
+        Assertions.assertEquals(3, table.poll("small", 0, 20, 24, Duration.ZERO).size());
+        table.close();
+
+        // polling a deleted offset starts at the first retained message
+        var segments = new SegmentManager(configuration);
+        segments.retain("small");
+        segments.close();
+        table = new EventMemoryTable(configuration);
+        polled = table.poll("small", 0, 20, Long.MAX_VALUE, Duration.ZERO);
+        Assertions.assertFalse(polled.isEmpty());
+        Assertions.assertTrue(polled.get(0).getOffset() > 0);
+        Assertions.assertEquals(19, polled.get(polled.size() - 1).getOffset());
+        table.close();
+    }
+
+    @Test
+    public void testPollAsync() throws Exception {
+        var table = new EventMemoryTable(this.configuration());
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var waiting = table.pollAsync("async", 0, 10, Long.MAX_VALUE, Duration.ofSeconds(30), executor);
+            Thread.sleep(100);
+            Assertions.assertFalse(waiting.isDone());
+            table.put(new EventMessage("async", new byte[]{1}, 0)).get();
+            var polled = waiting.get(10, TimeUnit.SECONDS);
+            Assertions.assertEquals(1, polled.size());
+            Assertions.assertEquals(0, polled.get(0).getOffset());
+            // nothing arrives before the timeout
+            var timeout = table.pollAsync("async", 1, 10, Long.MAX_VALUE, Duration.ofMillis(100), executor);
+            Assertions.assertTrue(timeout.get(10, TimeUnit.SECONDS).isEmpty());
+        } finally {
+            executor.shutdown();
+            table.close();
+        }
+    }
+
+    @Test
+    public void testVisibleAfterWalCommit() throws Exception {
+        var table = new EventMemoryTable(this.configuration()
+                .set(StoreConfiguration.SYNC_MODE, SyncMode.GROUP.getName())
+                .set(StoreConfiguration.SYNC_BATCH_DELAY_MS, "500"));
+        try {
+            var future = table.put(new EventMessage("group", new byte[]{1}, 0));
+            // the wal batch is still waiting for more messages
+            Assertions.assertTrue(table.poll("group", 0, 10, Long.MAX_VALUE, Duration.ZERO).isEmpty());
+            Assertions.assertEquals(0, future.get(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, table.poll("group", 0, 10, Long.MAX_VALUE, Duration.ZERO).size());
+        } finally {
+            table.close();
+        }
+    }
+}
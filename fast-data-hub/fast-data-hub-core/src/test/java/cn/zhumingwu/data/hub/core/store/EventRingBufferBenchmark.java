@@ -0,0 +1,162 @@
+package cn.zhumingwu.data.hub.core.store;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 3 producers and 1 reader on the sequenced ring against the skip-list cursor ring it replaced
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class EventRingBufferBenchmark {
+    private static final byte[] PAYLOAD = new byte[64];
+
+    @State(Scope.Group)
+    public static class Legacy {
+        final LegacyEventRingBuffer ring = new LegacyEventRingBuffer(-1, 10);
+    }
+
+    @State(Scope.Group)
+    public static class Sequenced {
+        final EventRingBuffer ring = new EventRingBuffer(-1, 10);
+    }
+
+    @State(Scope.Thread)
+    public static class Batch {
+        final List<EventMessage> messages = new ArrayList<>();
+        final EventMessage[] target = new EventMessage[16];
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            this.messages.clear();
+            for (int i = 0; i < 16; i++) {
+                this.messages.add(new EventMessage("benchmark", PAYLOAD, 0));
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("legacy")
+    @GroupThreads(3)
+    public long legacyPush(Legacy state) {
+        return state.ring.push(new EventMessage("benchmark", PAYLOAD, 0));
+    }
+
+    @Benchmark
+    @Group("legacy")
+    @GroupThreads(1)
+    public EventMessage legacyPull(Legacy state) {
+        return state.ring.pull(state.ring.getOffset(false) - 1);
+    }
+
+    @Benchmark
+    @Group("sequenced")
+    @GroupThreads(3)
+    public long sequencedPush(Sequenced state) {
+        return state.ring.push(new EventMessage("benchmark", PAYLOAD, 0));
+    }
+
+    @Benchmark
+    @Group("sequenced")
+    @GroupThreads(1)
+    public EventMessage sequencedPull(Sequenced state) {
+        return state.ring.pull(state.ring.getClaimed() - 1);
+    }
+
+    @Benchmark
+    @Group("sequencedBatch")
+    @GroupThreads(3)
+    public long sequencedBatchPush(Sequenced state, Batch batch) {
+        return state.ring.push(batch.messages);
+    }
+
+    @Benchmark
+    @Group("sequencedBatch")
+    @GroupThreads(1)
+    public int sequencedBatchRead(Sequenced state, Batch batch) {
+        return state.ring.read(state.ring.getClaimed() - 32, batch.target);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder().include(EventRingBufferBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+
+    /**
+     * the ring buffer before the sequencer, with the empty cursor set and the index mask fixed so it can run
+     */
+    static class LegacyEventRingBuffer {
+        private final EventMessage[] buffer;
+        private final int size;
+        private final AtomicLong counter;
+        private final ConcurrentSkipListSet<Long> cursor;
+
+        LegacyEventRingBuffer(long initialValue, int power) {
+            this.size = 1 << power;
+            this.counter = new AtomicLong(initialValue);
+            this.buffer = new EventMessage[size];
+            this.cursor = new ConcurrentSkipListSet<>();
+        }
+
+        long getOffset(boolean increment) {
+            if (increment) {
+                return this.counter.incrementAndGet();
+            }
+            return this.counter.get();
+        }
+
+        EventMessage pull(long offset) {
+            if (offset < this.counter.get() - size) {
+                return null;
+            }
+            EventMessage result = null;
+            int retries = 0;
+            while (offset > this.counter.get()) {
+                if (retries >= 100 && retries < 200) {
+                    Thread.yield();
+                } else if (retries >= 200) {
+                    LockSupport.parkNanos(100);
+                }
+                retries++;
+            }
+            var needLock = this.cursor.isEmpty() || offset < this.cursor.first();
+            if (needLock) {
+                this.cursor.add(offset);
+            }
+            if (offset > this.counter.get() - size && offset < this.counter.get()) {
+                result = this.buffer[(int) offset & (this.size - 1)];
+            }
+            if (needLock) {
+                this.cursor.remove(offset);
+            }
+            return result;
+        }
+
+        long push(EventMessage data) {
+            int retries = 0;
+            while (!this.cursor.isEmpty() && this.counter.get() + 1 >= this.cursor.first() + this.size) {
+                if (retries >= 100 && retries < 200) {
+                    Thread.yield();
+                } else if (retries >= 200) {
+                    LockSupport.parkNanos(100);
+                }
+                retries++;
+            }
+            var offset = this.counter.incrementAndGet();
+            this.buffer[(int) offset & (this.size - 1)] = data;
+            return offset;
+        }
+    }
+}
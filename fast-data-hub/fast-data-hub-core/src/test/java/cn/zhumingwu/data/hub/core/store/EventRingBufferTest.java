@@ -0,0 +1,140 @@
+package cn.zhumingwu.data.hub.core.store;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class EventRingBufferTest {
+
+    @Test
+    public void testWrapAround() {
+        var ring = new EventRingBuffer(-1, 3);
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals(i, ring.push(new EventMessage("test", new byte[]{(byte) i}, 0)));
+        }
+        // only the last 8 messages are still in the buffer
+        Assertions.assertNull(ring.pull(11));
+        for (int i = 12; i < 20; i++) {
+            var message = ring.pull(i);
+            Assertions.assertNotNull(message);
+            Assertions.assertEquals(i, message.getOffset());
+            Assertions.assertEquals((byte) i, message.getPayload()[0]);
+        }
+        Assertions.assertNull(ring.pull(20));
+
+        var target = new EventMessage[16];
+        Assertions.assertEquals(-1, ring.read(3, target));
+        Assertions.assertEquals(8, ring.read(12, target));
+        Assertions.assertEquals(0, ring.read(20, target));
+    }
+
+    @Test
+    public void testBatchPush() {
+        var ring = new EventRingBuffer(-1, 2);
+        List<EventMessage> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(new EventMessage("test", new byte[0], 0));
+        }
+        Assertions.assertEquals(9, ring.push(batch));
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(i, batch.get(i).getOffset());
+        }
+    }
+
+    @Test
+    public void testWaitFor() throws Exception {
+        var ring = new EventRingBuffer(-1, 4);
+        Assertions.assertFalse(ring.waitFor(0, TimeUnit.MILLISECONDS.toNanos(5)));
+        var producer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ignored) {
+            }
+            ring.push(new EventMessage("test", new byte[0], 0));
+        });
+        producer.start();
+        Assertions.assertTrue(ring.waitFor(0, TimeUnit.SECONDS.toNanos(5)));
+        Assertions.assertEquals(1, ring.read(0, new EventMessage[4]));
+        producer.join();
+    }
+
+    @Test
+    public void testMultiProducerMultiConsumer() throws Exception {
+        final int producers = 4;
+        final int consumers = 3;
+        final int messages = 50_000;
+        final long total = (long) producers * messages;
+        var ring = new EventRingBuffer(-1, 8);
+        for (int c = 0; c < consumers; c++) {
+            ring.addConsumer("group-" + c);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        var start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int c = 0; c < consumers; c++) {
+            var group = "group-" + c;
+            results.add(executor.submit(() -> {
+                // [0] messages read, [1] sum of producer ids, [2] offset errors
+                var result = new long[3];
+                var target = new EventMessage[64];
+                var expected = 0L;
+                start.await();
+                while (result[0] < total) {
+                    var count = ring.consume(group, target);
+                    if (count == 0) {
+                        Thread.yield();
+                    }
+                    for (int i = 0; i < count; i++) {
+                        if (target[i].getOffset() != expected++) {
+                            result[2]++;
+                        }
+                        result[1] += target[i].getSchema();
+                    }
+                    result[0] += count;
+                }
+                return result;
+            }));
+        }
+        for (int p = 0; p < producers; p++) {
+            var producer = p;
+            executor.submit(() -> {
+                start.await();
+                List<EventMessage> batch = new ArrayList<>();
+                for (int i = 0; i < messages; i++) {
+                    var message = new EventMessage("test", new byte[0], producer);
+                    if (i % 3 == 0) {
+                        batch.add(message);
+                        if (batch.size() == 16) {
+                            ring.push(batch);
+                            batch.clear();
+                        }
+                    } else {
+                        ring.push(message);
+                    }
+                }
+                ring.push(batch);
+                return null;
+            });
+        }
+        start.countDown();
+        var sum = 0L;
+        for (int p = 0; p < producers; p++) {
+            sum += (long) p * messages;
+        }
+        for (var future : results) {
+            var result = future.get(60, TimeUnit.SECONDS);
+            Assertions.assertEquals(total, result[0]);
+            Assertions.assertEquals(sum, result[1]);
+            Assertions.assertEquals(0, result[2]);
+        }
+        Assertions.assertEquals(total - 1, ring.getClaimed());
+        executor.shutdownNow();
+    }
+}
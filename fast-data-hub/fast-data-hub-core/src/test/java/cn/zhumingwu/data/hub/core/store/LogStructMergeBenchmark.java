@@ -0,0 +1,120 @@
+package cn.zhumingwu.data.hub.core.store;
+
+import cn.zhumingwu.data.hub.core.util.CRCUtil;
+import cn.zhumingwu.data.hub.core.util.VIntUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * random reads, short scans and a full iteration over a multi-GB lsm segment
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class LogStructMergeBenchmark {
+    private static final long BASE_OFFSET = 0;
+    private static final long START = 1_700_000_000_000L;
+
+    @Param({"4294967296"})
+    private long segmentBytes;
+
+    @Param({"1024"})
+    private int payloadSize;
+
+    private Path directory;
+    private LogStructMerge lsm;
+    private long count;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("lsm-benchmark");
+        var path = this.directory.resolve("0.lsm");
+        var payload = new byte[this.payloadSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 20))) {
+            out.write(new byte[]{1, 1});
+            out.writeLong(BASE_OFFSET);
+            out.writeLong(START);
+            long written = 18;
+            while (written < this.segmentBytes) {
+                var offset = BASE_OFFSET + this.count;
+                var timestamp = START + this.count;
+                var offsetDelta = VIntUtil.vintEncode(this.count);
+                var timestampDelta = VIntUtil.vintEncode(this.count);
+                var schema = VIntUtil.vintEncode(0);
+                var payloadLength = VIntUtil.vintEncode(payload.length);
+                var size = VIntUtil.vintEncode(offsetDelta.length + timestampDelta.length + schema.length + payloadLength.length + payload.length + 4);
+                out.write(1);
+                out.write(size);
+                out.write(offsetDelta);
+                out.write(timestampDelta);
+                out.write(schema);
+                out.write(payloadLength);
+                out.write(payload);
+                out.write(CRCUtil.crc32().update(offset).update(timestamp).update(payload).getBytes());
+                written += 1 + size.length + offsetDelta.length + timestampDelta.length + schema.length + payloadLength.length + payload.length + 4;
+                this.count++;
+            }
+            out.writeInt((int) this.count);
+            out.writeInt((int) (this.count - 1));
+        }
+        this.lsm = new LogStructMerge(FileChannel.open(path, StandardOpenOption.READ), "benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.lsm.close();
+        try (var files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public EventMessage randomRead() {
+        return this.lsm.read(0, BASE_OFFSET + ThreadLocalRandom.current().nextLong(this.count));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<EventMessage> scan() {
+        List<EventMessage> target = new ArrayList<>(1000);
+        this.lsm.scan(0, BASE_OFFSET + ThreadLocalRandom.current().nextLong(this.count), 1000, Long.MAX_VALUE, target);
+        return target;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long iterate() throws IOException {
+        var cursor = this.lsm.cursor();
+        var result = 0L;
+        while (cursor.next() && cursor.verify()) {
+            result++;
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder().include(LogStructMergeBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
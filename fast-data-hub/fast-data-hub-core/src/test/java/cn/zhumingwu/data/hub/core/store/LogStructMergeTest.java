@@ -0,0 +1,121 @@
+package cn.zhumingwu.data.hub.core.store;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LogStructMergeTest {
+    private static final long BASE_OFFSET = 1000;
+    private static final long START = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private LogStructMerge create(int count) throws Exception {
+        var lsm = LogStructMerge.create(this.directory.resolve("0.lsm"), "test", BASE_OFFSET, START);
+        for (int i = 0; i < count; i++) {
+            // payloads of different sizes so the varints take one or more bytes
+            var payload = new byte[i % 300];
+            for (int j = 0; j < payload.length; j++) {
+                payload[j] = (byte) (i + j);
+            }
+            Assertions.assertTrue(lsm.write(new EventMessage("test", payload, i % 7, START + i), BASE_OFFSET + i));
+        }
+        return lsm;
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        var lsm = this.create(5000);
+        for (int i = 0; i < 5000; i += 37) {
+            var message = lsm.read(0, BASE_OFFSET + i);
+            Assertions.assertNotNull(message);
+            Assertions.assertEquals(BASE_OFFSET + i, message.getOffset());
+            Assertions.assertEquals(START + i, message.getTimestamp());
+            Assertions.assertEquals(i % 7, message.getSchema());
+            Assertions.assertEquals(i % 300, message.getPayload().length);
+            if (message.getPayload().length > 0) {
+                Assertions.assertEquals((byte) i, message.getPayload()[0]);
+            }
+        }
+        Assertions.assertNull(lsm.read(0, BASE_OFFSET - 1));
+        Assertions.assertNull(lsm.read(0, BASE_OFFSET + 5000));
+        lsm.close();
+    }
+
+    @Test
+    public void testScan() throws Exception {
+        var lsm = this.create(2000);
+        List<EventMessage> target = new ArrayList<>();
+        Assertions.assertEquals(100, lsm.scan(0, BASE_OFFSET + 1500, 100, Long.MAX_VALUE, target));
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(BASE_OFFSET + 1500 + i, target.get(i).getOffset());
+        }
+        target.clear();
+        Assertions.assertEquals(10, lsm.scan(0, BASE_OFFSET + 1990, 100, Long.MAX_VALUE, target));
+        target.clear();
+        // the first message is always returned
+        Assertions.assertEquals(1, lsm.scan(0, BASE_OFFSET + 299, 100, 1, target));
+        lsm.close();
+    }
+
+    @Test
+    public void testSegmentGrows() throws Exception {
+        var lsm = this.create(100);
+        Assertions.assertNotNull(lsm.read(0, BASE_OFFSET + 99));
+        Assertions.assertNull(lsm.read(0, BASE_OFFSET + 100));
+        lsm.write(new EventMessage("test", new byte[]{1, 2, 3}, 0, START + 100), BASE_OFFSET + 100);
+        var message = lsm.read(0, BASE_OFFSET + 100);
+        Assertions.assertNotNull(message);
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3}, message.getPayload());
+        lsm.close();
+    }
+
+    @Test
+    public void testRecoverTornRecord() throws Exception {
+        var lsm = this.create(100);
+        var length = lsm.length();
+        lsm.close();
+        // the crash cut the trailer and the end of the last record
+        try (var channel = FileChannel.open(this.directory.resolve("0.lsm"), StandardOpenOption.WRITE)) {
+            channel.truncate(length - 8 - 3);
+        }
+        lsm = LogStructMerge.open(this.directory.resolve("0.lsm"), "test");
+        Assertions.assertEquals(99, lsm.getSize());
+        Assertions.assertEquals(START + 98, lsm.getEnd());
+        Assertions.assertEquals(BASE_OFFSET + 98, lsm.lastOffset());
+        Assertions.assertNull(lsm.read(0, BASE_OFFSET + 99));
+
+        // the replayed record is appended where the torn one started
+        Assertions.assertTrue(lsm.write(new EventMessage("test", new byte[]{9}, 0, START + 99), BASE_OFFSET + 99));
+        lsm.close();
+        lsm = LogStructMerge.open(this.directory.resolve("0.lsm"), "test");
+        Assertions.assertFalse(lsm.recover());
+        Assertions.assertEquals(100, lsm.getSize());
+        Assertions.assertArrayEquals(new byte[]{9}, lsm.read(0, BASE_OFFSET + 99).getPayload());
+        for (int i = 0; i < 99; i++) {
+            Assertions.assertEquals(BASE_OFFSET + i, lsm.read(0, BASE_OFFSET + i).getOffset());
+        }
+        lsm.close();
+    }
+
+    @Test
+    public void testCursor() throws Exception {
+        var lsm = this.create(1000);
+        var cursor = lsm.cursor();
+        var count = 0;
+        while (cursor.next()) {
+            Assertions.assertEquals(BASE_OFFSET + count, cursor.getOffset());
+            Assertions.assertTrue(cursor.verify());
+            count++;
+        }
+        Assertions.assertEquals(1000, count);
+        lsm.close();
+    }
+}
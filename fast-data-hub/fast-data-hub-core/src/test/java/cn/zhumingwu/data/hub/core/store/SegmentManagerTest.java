@@ -0,0 +1,118 @@
+package cn.zhumingwu.data.hub.core.store;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class SegmentManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private StoreConfiguration configuration() {
+        return new StoreConfiguration()
+                .set(StoreConfiguration.DATA_DIR, this.directory.toString())
+                .set(StoreConfiguration.SEGMENT_BYTES, "4096");
+    }
+
+    private void append(SegmentManager manager, int from, int to) throws Exception {
+        for (int i = from; i < to; i++) {
+            var message = new EventMessage("test", new byte[100], 0, System.currentTimeMillis());
+            message.setOffset(i);
+            manager.append(message);
+        }
+    }
+
+    private EventMessage read(String topic, long offset) {
+        var entries = TopicIndex.loadTopicIndex(this.directory, topic).entries();
+        var index = entries.search(offset);
+        if (index < 0) {
+            return null;
+        }
+        var lsm = LogStructMerge.getInstance(this.directory, topic, entries.fileId(index));
+        return lsm == null ? null : lsm.read(entries.position(index), offset);
+    }
+
+    @Test
+    public void testRoll() throws Exception {
+        var manager = new SegmentManager(this.configuration());
+        this.append(manager, 0, 200);
+        var entries = TopicIndex.loadTopicIndex(this.directory, "test").entries();
+        Assertions.assertTrue(entries.size() > 1);
+        Assertions.assertEquals(0, entries.offset(0));
+        Assertions.assertEquals(entries.offset(1), entries.fileId(1));
+        Assertions.assertEquals(entries.offset(1) - 1, LogStructMerge.getInstance(this.directory, "test", entries.fileId(0)).lastOffset());
+        for (int i = 0; i < 200; i++) {
+            var message = this.read("test", i);
+            Assertions.assertNotNull(message);
+            Assertions.assertEquals(i, message.getOffset());
+        }
+        Assertions.assertEquals(199, manager.lastOffset("test"));
+        manager.close();
+
+        // the last segment is reopened as the active one
+        manager = new SegmentManager(this.configuration());
+        Assertions.assertEquals(199, manager.lastOffset("test"));
+        this.append(manager, 200, 210);
+        Assertions.assertNotNull(this.read("test", 209));
+        manager.close();
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        var manager = new SegmentManager(this.configuration());
+        this.append(manager, 0, 100);
+        var entries = TopicIndex.loadTopicIndex(this.directory, "test").entries();
+        var path = LogStructMerge.path(this.directory, "test", entries.fileId(0));
+        var length = Files.size(path);
+        for (long i = entries.offset(0); i < entries.offset(1); i++) {
+            if (i % 4 != 0) {
+                Assertions.assertTrue(manager.delete("test", i));
+            }
+        }
+        Assertions.assertNull(this.read("test", 1));
+        manager.check();
+        Assertions.assertTrue(Files.size(path) < length / 2);
+        Assertions.assertNotNull(this.read("test", 0));
+        Assertions.assertNull(this.read("test", 1));
+        Assertions.assertNotNull(this.read("test", 4));
+        Assertions.assertNotNull(this.read("test", 99));
+        manager.close();
+    }
+
+    @Test
+    public void testRetentionBytes() throws Exception {
+        var configuration = this.configuration().set(StoreConfiguration.RETENTION_BYTES, "8192");
+        var manager = new SegmentManager(configuration);
+        this.append(manager, 0, 500);
+        var before = TopicIndex.loadTopicIndex(this.directory, "test").entries();
+        manager.check();
+        var after = TopicIndex.loadTopicIndex(this.directory, "test").entries();
+        Assertions.assertTrue(after.size() < before.size());
+        Assertions.assertEquals(before.fileId(before.size() - 1), after.fileId(after.size() - 1));
+        Assertions.assertFalse(Files.exists(LogStructMerge.path(this.directory, "test", before.fileId(0))));
+        Assertions.assertNull(this.read("test", 0));
+        Assertions.assertNotNull(this.read("test", 499));
+        manager.close();
+    }
+
+    @Test
+    public void testRetentionMsPerTopic() throws Exception {
+        var configuration = this.configuration().set("topic.test." + StoreConfiguration.RETENTION_MS, "0");
+        var manager = new SegmentManager(configuration);
+        this.append(manager, 0, 200);
+        var other = new EventMessage("other", new byte[100], 0, System.currentTimeMillis());
+        for (int i = 0; i < 200; i++) {
+            other.setOffset(i);
+            manager.append(other);
+        }
+        Thread.sleep(5);
+        manager.check();
+        Assertions.assertEquals(1, TopicIndex.loadTopicIndex(this.directory, "test").entries().size());
+        Assertions.assertTrue(TopicIndex.loadTopicIndex(this.directory, "other").entries().size() > 1);
+        manager.close();
+    }
+}
@@ -0,0 +1,84 @@
+package cn.zhumingwu.data.hub.core.store;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class TopicIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testSearch() throws Exception {
+        var index = TopicIndex.loadTopicIndex(this.directory, "search");
+        Assertions.assertEquals(-1, index.entries().search(0));
+        var random = new Random(7);
+        var offsets = new long[5000];
+        var offset = 100L;
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = offset;
+            index.append(offset, offset, 18);
+            // mostly uniform segments with a few very large ones
+            offset += random.nextInt(100) == 0 ? 1_000_000 : 1000 + random.nextInt(50);
+        }
+        var entries = index.entries();
+        Assertions.assertEquals(offsets.length, entries.size());
+        Assertions.assertEquals(-1, entries.search(99));
+        for (int i = 0; i < 20000; i++) {
+            var target = 100 + (long) (random.nextDouble() * (offset - 100));
+            var expected = offsets.length - 1;
+            while (offsets[expected] > target) {
+                expected--;
+            }
+            Assertions.assertEquals(expected, entries.search(target));
+        }
+        Assertions.assertEquals(offsets.length - 1, entries.search(Long.MAX_VALUE));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> index.append(offsets[0], 0, 18));
+    }
+
+    @Test
+    public void testRemoveFirst() throws Exception {
+        var index = TopicIndex.loadTopicIndex(this.directory, "remove");
+        for (int i = 0; i < 3000; i++) {
+            index.append(i * 10L, i * 10L, 18);
+        }
+        var before = index.entries();
+        index.removeFirst(10);
+        Assertions.assertEquals(2990, index.entries().size());
+        Assertions.assertEquals(100, index.entries().offset(0));
+        // the snapshot taken before is not changed
+        Assertions.assertEquals(3000, before.size());
+        Assertions.assertEquals(0, before.offset(0));
+
+        // the prefix is dropped from the file once it is larger than the live entries
+        index.removeFirst(2000);
+        Assertions.assertEquals(990, index.entries().size());
+        Assertions.assertEquals(20100, index.entries().offset(0));
+        index.append(30000, 30000, 18);
+        Assertions.assertEquals(29990, before.offset(2999));
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        var path = this.directory.resolve("other");
+        var index = TopicIndex.loadTopicIndex(path, "reload");
+        for (int i = 0; i < 2000; i++) {
+            index.append(i * 10L, i, 18 + i);
+        }
+        index.removeFirst(5);
+        // a copy of the directory is loaded from disk, not from the cache
+        var copy = this.directory.resolve("copy");
+        copy.resolve("index").toFile().mkdirs();
+        Files.copy(path.resolve("index").resolve("reload.idx"), copy.resolve("index").resolve("reload.idx"));
+        var entries = TopicIndex.loadTopicIndex(copy, "reload").entries();
+        Assertions.assertEquals(1995, entries.size());
+        Assertions.assertEquals(50, entries.offset(0));
+        Assertions.assertEquals(1999, entries.fileId(1994));
+        Assertions.assertEquals(18 + 1999, entries.position(1994));
+    }
+}
@@ -0,0 +1,171 @@
+package cn.zhumingwu.data.hub.core.store;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class WalRecoveryTest {
+
+    @TempDir
+    Path directory;
+
+    private StoreConfiguration configuration() {
+        return new StoreConfiguration()
+                .set(StoreConfiguration.DATA_DIR, this.directory.toString())
+                .set(StoreConfiguration.SYNC_MODE, SyncMode.OS.getName());
+    }
+
+    private EventMessage message(String topic, long offset) {
+        var message = new EventMessage(topic, new byte[]{(byte) offset, 1, 2}, 3, 1000 + offset);
+        message.setOffset(offset);
+        return message;
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        var configuration = this.configuration();
+        var wal = new WriteAppendLog(this.directory.resolve("wal"), configuration);
+        var segments = new SegmentManager(configuration);
+        for (int i = 0; i < 100; i++) {
+            wal.append(this.message("a", i)).join();
+            wal.append(this.message("b", i)).join();
+            // only the first half of topic a reached the lsm segments
+            if (i < 50) {
+                segments.append(this.message("a", i));
+            }
+        }
+        wal.close();
+        segments.close();
+
+        wal = new WriteAppendLog(this.directory.resolve("wal"), configuration);
+        segments = new SegmentManager(configuration);
+        var result = new WalRecovery(wal, segments, 2).run();
+        Assertions.assertEquals(200, result.getRecords());
+        Assertions.assertEquals(150, result.getReplayed());
+        Assertions.assertEquals(2, result.getTopics());
+        Assertions.assertEquals(0, result.getTruncated());
+        Assertions.assertEquals(99, segments.lastOffset("a"));
+        Assertions.assertEquals(99, segments.lastOffset("b"));
+
+        var entries = TopicIndex.loadTopicIndex(this.directory, "b").entries();
+        var index = entries.search(42);
+        var message = LogStructMerge.getInstance(this.directory, "b", entries.fileId(index)).read(entries.position(index), 42);
+        Assertions.assertEquals(42, message.getPayload()[0]);
+        Assertions.assertEquals(3, message.getSchema());
+        Assertions.assertEquals(1042, message.getTimestamp());
+
+        // a second recovery has nothing left to replay
+        Assertions.assertEquals(0, new WalRecovery(wal, segments, 2).run().getReplayed());
+        segments.close();
+    }
+
+    @Test
+    public void testTornTail() throws Exception {
+        var configuration = this.configuration();
+        var wal = new WriteAppendLog(this.directory.resolve("wal"), configuration);
+        for (int i = 0; i < 10; i++) {
+            wal.append(this.message("a", i)).join();
+        }
+        wal.close();
+        // corrupt the crc of the last record, 8 bytes of file header and 36 bytes per record
+        try (var file = new RandomAccessFile(this.directory.resolve("wal").resolve("0.wal").toFile(), "rw")) {
+            file.seek(8 + 36 * 10 - 1);
+            file.write(0x55);
+        }
+
+        wal = new WriteAppendLog(this.directory.resolve("wal"), configuration);
+        Assertions.assertTrue(wal.getTruncated() > 0);
+        var segments = new SegmentManager(configuration);
+        Assertions.assertEquals(9, new WalRecovery(wal, segments, 1).run().getReplayed());
+        Assertions.assertEquals(8, segments.lastOffset("a"));
+
+        // writes continue where the torn record was
+        wal.append(this.message("a", 9)).join();
+        wal.close();
+        wal = new WriteAppendLog(this.directory.resolve("wal"), configuration);
+        Assertions.assertEquals(0, wal.getTruncated());
+        Assertions.assertEquals(1, new WalRecovery(wal, segments, 1).run().getReplayed());
+        Assertions.assertEquals(9, segments.lastOffset("a"));
+        segments.close();
+    }
+
+    @Test
+    public void testTornSegment() throws Exception {
+        var configuration = this.configuration();
+        var wal = new WriteAppendLog(this.directory.resolve("wal"), configuration);
+        var segments = new SegmentManager(configuration);
+        for (int i = 0; i < 10; i++) {
+            wal.append(this.message("a", i)).join();
+            segments.append(this.message("a", i));
+        }
+        wal.close();
+        segments.close();
+        // a crash in the middle of the last append, the old timestamps roll a segment per message
+        var segment = LogStructMerge.path(this.directory, "a", 9);
+        try (var file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 8 - 2);
+        }
+
+        wal = new WriteAppendLog(this.directory.resolve("wal"), configuration);
+        segments = new SegmentManager(configuration);
+        Assertions.assertEquals(1, new WalRecovery(wal, segments, 1).run().getReplayed());
+        Assertions.assertEquals(9, segments.lastOffset("a"));
+        segments.close();
+        wal.close();
+
+        var lsm = LogStructMerge.open(segment, "a");
+        Assertions.assertEquals(1, lsm.getSize());
+        Assertions.assertEquals(1009, lsm.getEnd());
+        Assertions.assertEquals(9, lsm.read(0, 9).getPayload()[0]);
+        lsm.close();
+        Assertions.assertEquals(8, LogStructMerge.getInstance(this.directory, "a", 8).read(0, 8).getPayload()[0]);
+    }
+
+    @Test
+    public void testCheckpoint() throws Exception {
+        var configuration = this.configuration();
+        var wal = new WriteAppendLog(this.directory.resolve("wal"), configuration);
+        var segments = new SegmentManager(configuration);
+        for (int i = 0; i < 10; i++) {
+            wal.append(this.message("a", i)).join();
+            segments.append(this.message("a", i));
+            if (i < 5) {
+                wal.append(this.message("b", i)).join();
+            }
+        }
+        Map<String, Long> forced = new HashMap<>();
+        wal.setCheckpoint((topic, offset) -> forced.put(topic, offset) == null);
+        wal.checkpoint(wal.order()[0]);
+        Assertions.assertEquals(Map.of("a", 9L, "b", 4L), forced);
+        // the wal file of topic b must not be reused before b reaches the segments
+        Assertions.assertTrue(segments.force("a", 9));
+        Assertions.assertFalse(segments.force("b", 4));
+        wal.close();
+        segments.close();
+
+        // the offsets of the file are recovered when the wal is opened again
+        forced.clear();
+        wal = new WriteAppendLog(this.directory.resolve("wal"), configuration);
+        wal.setCheckpoint((topic, offset) -> forced.put(topic, offset) == null);
+        wal.checkpoint(wal.order()[0]);
+        Assertions.assertEquals(Map.of("a", 9L, "b", 4L), forced);
+        wal.close();
+    }
+
+    @Test
+    public void testAppendAfterClose() {
+        var configuration = this.configuration().set(StoreConfiguration.SYNC_MODE, SyncMode.GROUP.getName());
+        var wal = new WriteAppendLog(this.directory.resolve("wal"), configuration);
+        Assertions.assertEquals(0, wal.append(this.message("a", 0)).join());
+        wal.close();
+        var future = wal.append(this.message("a", 1));
+        Assertions.assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,76 @@
+package cn.zhumingwu.data.hub.core.store;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * messages/sec and append latency of the wal for each sync mode
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class WriteAppendLogBenchmark {
+
+    @Param({"per-message", "group", "os"})
+    private String syncMode;
+
+    @Param({"256"})
+    private int payloadSize;
+
+    private final AtomicLong offset = new AtomicLong();
+    private Path directory;
+    private WriteAppendLog wal;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("wal-benchmark");
+        var configuration = new StoreConfiguration().set(StoreConfiguration.SYNC_MODE, this.syncMode);
+        this.wal = new WriteAppendLog(this.directory, configuration);
+        this.payload = new byte[this.payloadSize];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.wal.close();
+        try (var files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long throughput() {
+        return this.append();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long latency() {
+        return this.append();
+    }
+
+    private long append() {
+        var message = new EventMessage("benchmark", this.payload, 0);
+        message.setOffset(this.offset.incrementAndGet());
+        return this.wal.append(message).join();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder().include(WriteAppendLogBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
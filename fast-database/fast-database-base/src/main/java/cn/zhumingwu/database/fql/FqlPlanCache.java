@@ -0,0 +1,120 @@
+package cn.zhumingwu.database.fql;
+
+import cn.zhumingwu.database.model.FqlPlan;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按规范化的查询文本缓存执行计划, 命中时跳过解析和表字段的解析, 满了淘汰最久未用的计划
+ */
+public class FqlPlanCache {
+    private final Map<String, FqlPlan> plans;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public FqlPlanCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size should be positive: " + maximumSize);
+        }
+        this.plans = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FqlPlan> eldest) {
+                return size() > maximumSize;
+            }
+        });
+    }
+
+    /**
+     * 去掉字符串以外多余的空白, 逗号和注释, 只有这些不同的查询共用计划
+     */
+    static String normalize(String query) {
+        var builder = new StringBuilder(query.length());
+        var space = false;
+        var i = 0;
+        while (i < query.length()) {
+            var c = query.charAt(i);
+            if (c == '#') {
+                // 注释到行尾
+                while (i < query.length() && query.charAt(i) != '\n' && query.charAt(i) != '\r') {
+                    i++;
+                }
+                space = true;
+                continue;
+            }
+            if (Character.isWhitespace(c) || c == ',' || c == '\ufeff') {
+                space = true;
+                i++;
+                continue;
+            }
+            // 名字和值之间保留一个空格
+            if (space && builder.length() > 0 && isNamePart(c) && isNamePart(builder.charAt(builder.length() - 1))) {
+                builder.append(' ');
+            }
+            space = false;
+            if (query.startsWith("\"\"\"", i)) {
+                var end = query.indexOf("\"\"\"", i + 3);
+                while (end > 0 && query.charAt(end - 1) == '\\') {
+                    end = query.indexOf("\"\"\"", end + 3);
+                }
+                end = end < 0 ? query.length() : end + 3;
+                builder.append(query, i, end);
+                i = end;
+            } else if (c == '"') {
+                var end = i + 1;
+                while (end < query.length() && query.charAt(end) != '"') {
+                    end += query.charAt(end) == '\\' ? 2 : 1;
+                }
+                end = Math.min(query.length(), end + 1);
+                builder.append(query, i, end);
+                i = end;
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.' || c == '-' || c == '"';
+    }
+
+    public FqlPlan get(String query) {
+        var plan = this.plans.get(normalize(query));
+        if (plan == null) {
+            this.misses.increment();
+        } else {
+            this.hits.increment();
+        }
+        return plan;
+    }
+
+    public void put(String query, FqlPlan plan) {
+        this.plans.put(normalize(query), plan);
+    }
+
+    public int size() {
+        return this.plans.size();
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public double getHitRate() {
+        var hits = this.getHits();
+        var total = hits + this.getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public void clear() {
+        this.plans.clear();
+    }
+}
@@ -1,20 +1,32 @@
 package cn.zhumingwu.database.fql;
 
+import cn.zhumingwu.database.fql.antlr.FqlLexer;
 import cn.zhumingwu.database.fql.antlr.FqlParser;
 import cn.zhumingwu.database.model.*;
 import cn.zhumingwu.database.service.JdbcApiService;
 import cn.zhumingwu.database.sql.columns.Column;
 import cn.zhumingwu.database.sql.conditions.Condition;
+import cn.zhumingwu.database.sql.conditions.IsIn;
+import cn.zhumingwu.database.sql.conditions.IsNotIn;
 import cn.zhumingwu.database.sql.domain.LikeType;
 import cn.zhumingwu.database.sql.domain.OrderBy;
 import cn.zhumingwu.database.sql.domain.OrderDirection;
 import cn.zhumingwu.database.sql.queries.Queries;
+import cn.zhumingwu.database.sql.queries.Select;
 import cn.zhumingwu.database.sql.schema.Table;
 import com.google.common.base.Strings;
+import lombok.Value;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
 
 import cn.zhumingwu.database.model.*;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -29,9 +41,35 @@ public class JdbcFqlVisitor {
     }
 
     public Node visit(FqlParser.DocumentContext ctx) throws Exception {
-        var parent = new Node(new TreeMap<>(), "data");
+        return this.execute(this.compile(ctx));
+    }
+
+    /**
+     * 执行查询, 相同文本的查询使用缓存的执行计划, 不再解析
+     */
+    public Node query(String query) throws Exception {
+        var plans = this.service.getPlans();
+        var plan = plans.get(query);
+        if (plan == null) {
+            var parser = new FqlParser(new CommonTokenStream(new FqlLexer(CharStreams.fromString(query))));
+            plan = this.compile(parser.document());
+            plans.put(query, plan);
+        }
+        return this.execute(plan);
+    }
+
+    public FqlPlan compile(FqlParser.DocumentContext ctx) throws Exception {
+        var selections = new ArrayList<FqlPlan.Selection>();
         for (var selection : ctx.selectionSet().selection()) {
-            visitSelection(selection, parent);
+            selections.add(this.visitSelection(selection));
+        }
+        return new FqlPlan(selections);
+    }
+
+    public Node execute(FqlPlan plan) throws Exception {
+        var parent = new Node(new TreeMap<>(), "data");
+        for (var selection : plan.getSelections()) {
+            this.execute(selection, List.of(parent));
         }
         return parent;
     }
@@ -84,9 +122,9 @@ public class JdbcFqlVisitor {
         return columnSet;
     }
 
-    void visitSelection(FqlParser.SelectionContext ctx, Node node) throws Exception {
+    FqlPlan.Selection visitSelection(FqlParser.SelectionContext ctx) throws Exception {
         var builder = QueryInfo.builder();
-        var todoList = new ArrayList<FqlParser.SelectionContext>();
+        var todoList = new ArrayList<FqlPlan.Selection>();
         // 表名信息
         var tableInfo = this.getTableInfo(ctx);
         builder.alias(tableInfo.getAlias()).name(tableInfo.getName()).code(tableInfo.getCode());
@@ -96,7 +134,7 @@ public class JdbcFqlVisitor {
                 // 子选择
                 if (selection.arguments().size() > 0) {
                     // 延迟处理
-                    todoList.add(selection);
+                    todoList.add(this.visitSelection(selection));
                 } else {
                     // 字段选择
                     var columnInfo = this.getColumnInfo(selection, builder.getName());
@@ -117,199 +155,369 @@ public class JdbcFqlVisitor {
                 builder.column(column.getValue());
             }
         }
-        // 操作信息
-        visitArguments(ctx.arguments(), builder, node.getValue());
-        // 执行
-        var queryInfo = builder.build();
+        // 操作信息, 变量在执行时按父节点取值
+        visitArguments(ctx.arguments(), builder);
+        return new FqlPlan.Selection(builder.build(), todoList);
+    }
+
+    void execute(FqlPlan.Selection selection, List<Node> parents) throws Exception {
+        if (parents.isEmpty()) {
+            return;
+        }
+        var queryInfo = selection.getQueryInfo();
+        var children = new ArrayList<Node>();
+        if (parents.size() > 1 && this.service.getProperties().isBatchEnabled() && this.isBatchable(queryInfo)) {
+            this.fetchBatch(queryInfo, parents, children);
+        } else {
+            for (var parent : parents) {
+                var filters = this.resolve(queryInfo.getFilters(), parent.getValue());
+                this.attach(queryInfo, parent, this.query(queryInfo, filters, List.of()), children);
+            }
+        }
+        // 延迟处理, 同一层所有行的子选择合并查询
+        for (var child : selection.getSelections()) {
+            this.execute(child, children);
+        }
+    }
+
+    void attach(QueryInfo queryInfo, Node parent, List<Map<String, Object>> fetchData, List<Node> children) {
+        if (fetchData.size() == 1) {
+            Node child = new Node(fetchData.get(0), queryInfo.getAlias());
+            children.add(child);
+            process(parent, child);
+        } else {
+            final int size = fetchData.size();
+            for (var i = 0; i < size; i++) {
+                Node child = new Node(fetchData, queryInfo.getAlias(), i);
+                children.add(child);
+                process(parent, child);
+            }
+        }
+    }
+
+    /**
+     * 变量只出现在唯一一组等值条件中, 且没有分页和去重时, 同一层的查询可以合并
+     */
+    boolean isBatchable(QueryInfo queryInfo) {
+        if (queryInfo.getLimit() < Integer.MAX_VALUE || queryInfo.getOffset() > 0 || queryInfo.isDistinct()) {
+            return false;
+        }
+        var variables = 0;
+        for (var filterSet : queryInfo.getFilters()) {
+            for (var filter : filterSet.getFilters()) {
+                if (filter.getValue() instanceof Variable) {
+                    if (filter.getType() != FilterSet.Type.eq) {
+                        return false;
+                    }
+                    variables++;
+                }
+            }
+        }
+        return variables == 0 || queryInfo.getFilters().size() == 1;
+    }
+
+    /**
+     * 用父节点的值替换变量, 父节点没有的变量不作为条件
+     */
+    List<FilterSet> resolve(List<FilterSet> filters, Map<String, Object> data) {
+        var resolved = new ArrayList<FilterSet>(filters.size());
+        for (var filterSet : filters) {
+            var filterSetResolved = new FilterSet();
+            for (var filter : filterSet.getFilters()) {
+                if (!(filter.getValue() instanceof Variable)) {
+                    filterSetResolved.add(filter);
+                } else if (data.containsKey(((Variable) filter.getValue()).getName())) {
+                    filterSetResolved.add(filter.getName(), filter.getType(), data.get(((Variable) filter.getValue()).getName()));
+                }
+            }
+            resolved.add(filterSetResolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * 同一层的父节点合并查询: 变量条件改为 IN 父节点的值, 按方言的参数上限分批, 结果按变量列的值分回各父节点
+     */
+    void fetchBatch(QueryInfo queryInfo, List<Node> parents, List<Node> children) throws Exception {
+        var variables = new ArrayList<FilterInfo>();
+        var constants = new FilterSet();
+        var parameters = 0;
+        for (var filterSet : queryInfo.getFilters()) {
+            for (var filter : filterSet.getFilters()) {
+                if (filter.getValue() instanceof Variable) {
+                    variables.add(filter);
+                } else {
+                    constants.add(filter);
+                    parameters += filter.getValue() instanceof List ? ((List<?>) filter.getValue()).size() : 1;
+                }
+            }
+        }
+        // 父节点的变量值, 有父节点缺少变量时逐个查询
+        var parentKeys = new LinkedHashMap<List<Object>, List<Node>>();
+        for (var parent : parents) {
+            var key = new ArrayList<Object>(variables.size());
+            for (var variable : variables) {
+                var value = parent.getValue().get(((Variable) variable.getValue()).getName());
+                if (value == null) {
+                    for (var other : parents) {
+                        var filters = this.resolve(queryInfo.getFilters(), other.getValue());
+                        this.attach(queryInfo, other, this.query(queryInfo, filters, List.of()), children);
+                    }
+                    return;
+                }
+                key.add(value);
+            }
+            parentKeys.computeIfAbsent(normalize(key), k -> new ArrayList<>()).add(parent);
+        }
+        // 结果中用于分回父节点的列, 未选择的列额外查询
+        var labels = new ArrayList<String>(variables.size());
+        var hidden = new ArrayList<ColumnInfo>();
+        for (var variable : variables) {
+            var label = Arrays.stream(queryInfo.getColumns().values())
+                    .filter(column -> column.getCode().equals(variable.getName()))
+                    .map(ColumnInfo::getAlias)
+                    .findFirst()
+                    .orElse(null);
+            if (label == null) {
+                label = "_" + variable.getName();
+                hidden.add(new ColumnInfo(label, label, variable.getName(), false));
+            }
+            labels.add(label);
+        }
+        // 按参数上限分批查询
+        var keys = new ArrayList<>(parentKeys.keySet());
+        var chunkSize = variables.isEmpty() ? Math.max(1, keys.size())
+                : Math.max(1, (this.service.getDialect().getMaxParameters() - parameters) / variables.size());
+        var rowsByKey = new HashMap<List<Object>, List<Map<String, Object>>>();
+        for (var from = 0; from < keys.size(); from += chunkSize) {
+            var chunk = keys.subList(from, Math.min(keys.size(), from + chunkSize));
+            var filterSet = new FilterSet();
+            constants.getFilters().forEach(filterSet::add);
+            for (var i = 0; i < variables.size(); i++) {
+                var values = new LinkedHashSet<Object>();
+                for (var key : chunk) {
+                    values.add(parentKeys.get(key).get(0).getValue().get(((Variable) variables.get(i).getValue()).getName()));
+                }
+                // 列表长度补齐到2的幂, 重复最后一个值, 减少缓存的语句形状
+                var list = new ArrayList<>(values);
+                var size = list.size() <= 1 ? 1 : Math.min(chunkSize, Integer.highestOneBit(list.size() - 1) << 1);
+                while (list.size() < size) {
+                    list.add(list.get(list.size() - 1));
+                }
+                filterSet.add(variables.get(i).getName(), FilterSet.Type.in, list);
+            }
+            var filters = variables.isEmpty() && constants.size() == 0 ? List.<FilterSet>of() : List.of(filterSet);
+            for (var row : this.query(queryInfo, filters, hidden)) {
+                var key = new ArrayList<Object>(labels.size());
+                for (var label : labels) {
+                    key.add(row.get(label));
+                }
+                rowsByKey.computeIfAbsent(normalize(key), k -> new ArrayList<>()).add(row);
+            }
+        }
+        for (var entry : parentKeys.entrySet()) {
+            var rows = rowsByKey.getOrDefault(entry.getKey(), List.of());
+            for (var parent : entry.getValue()) {
+                // 每个父节点一份, 子选择的结果写入各自的行
+                var fetchData = new ArrayList<Map<String, Object>>(rows.size());
+                for (var row : rows) {
+                    var copy = new TreeMap<>(row);
+                    hidden.forEach(column -> copy.remove(column.getAlias()));
+                    fetchData.add(copy);
+                }
+                this.attach(queryInfo, parent, fetchData, children);
+            }
+        }
+    }
+
+    /**
+     * 数值统一比较, 父表和子表的列类型可能不同
+     */
+    static List<Object> normalize(List<Object> key) {
+        var normalized = new ArrayList<Object>(key.size());
+        for (var value : key) {
+            normalized.add(value instanceof Number ? new BigDecimal(value.toString()).stripTrailingZeros() : value);
+        }
+        return normalized;
+    }
+
+    /**
+     * 没有对应条件的值, 如非数值的大小比较
+     */
+    static final Object SKIP = new Object();
+
+    /**
+     * 条件中使用的值: 数值按有无小数转为 Double 或 Long, in/nin 的列表不变, 其他转为字符串
+     */
+    static Object valueOf(FilterInfo filter) {
+        var type = filter.getType();
+        var value = filter.getValue();
+        if (value == null) {
+            return type == FilterSet.Type.eq || type == FilterSet.Type.neq || type == FilterSet.Type.in
+                    || type == FilterSet.Type.nin ? null : SKIP;
+        }
+        if (value instanceof Number) {
+            if (type == FilterSet.Type.like || type == FilterSet.Type.start || type == FilterSet.Type.end) {
+                return SKIP;
+            }
+            if (value.toString().contains(".")) {
+                return Double.valueOf(value.toString());
+            }
+            return Long.valueOf(value.toString());
+        }
+        if (value instanceof List && (type == FilterSet.Type.in || type == FilterSet.Type.nin)) {
+            return value;
+        }
+        if (type == FilterSet.Type.lt || type == FilterSet.Type.lte || type == FilterSet.Type.gt
+                || type == FilterSet.Type.gte) {
+            return SKIP;
+        }
+        return value.toString();
+    }
+
+    Condition condition(Table table, FilterInfo filter, Object value) {
+        var name = filter.getName();
+        switch (filter.getType()) {
+            case eq:
+            case in:
+                if (value == null) {
+                    return table.column(name).build().isNull();
+                }
+                if (value instanceof Double) {
+                    return table.doubleColumn(name).build().eq((Double) value);
+                }
+                if (value instanceof Long) {
+                    return table.intColumn(name).build().eq((Long) value);
+                }
+                if (value instanceof List) {
+                    return new IsIn(table.column(name).build(), new ArrayList<>((List<?>) value));
+                }
+                return table.column(name).build().eq(value.toString());
+            case neq:
+            case nin:
+                if (value == null) {
+                    return table.column(name).build().isNotNull();
+                }
+                if (value instanceof Double) {
+                    return table.doubleColumn(name).build().nEq((Double) value);
+                }
+                if (value instanceof Long) {
+                    return table.intColumn(name).build().nEq((Long) value);
+                }
+                if (value instanceof List) {
+                    return new IsNotIn(table.column(name).build(), new ArrayList<>((List<?>) value));
+                }
+                return table.column(name).build().nEq(value.toString());
+            case lt:
+                if (value instanceof Double) {
+                    return table.doubleColumn(name).build().lt((Double) value);
+                }
+                return table.intColumn(name).build().lt((Long) value);
+            case lte:
+                if (value instanceof Double) {
+                    return table.doubleColumn(name).build().ltEq((Double) value);
+                }
+                return table.intColumn(name).build().ltEq((Long) value);
+            case gt:
+                if (value instanceof Double) {
+                    return table.doubleColumn(name).build().gt((Double) value);
+                }
+                return table.intColumn(name).build().gt((Long) value);
+            case gte:
+                if (value instanceof Double) {
+                    return table.doubleColumn(name).build().gtEq((Double) value);
+                }
+                return table.intColumn(name).build().gtEq((Long) value);
+            case like:
+                return table.column(name).build().isLike(value.toString(), LikeType.BOTH);
+            case start:
+                return table.column(name).build().isLike(value.toString(), LikeType.BEFORE);
+            case end:
+                return table.column(name).build().isLike(value.toString(), LikeType.AFTER);
+            default:
+                throw new IllegalArgumentException(filter.getType() + "不支持");
+        }
+    }
+
+    /**
+     * 语句的形状, 只有条件的值不同的查询形状相同, 共用缓存的sql
+     */
+    static Object shape(QueryInfo queryInfo, List<FilterSet> filters, List<ColumnInfo> extraColumns) {
+        var signatures = new ArrayList<Object>();
+        for (var filterSet : filters) {
+            var signature = new ArrayList<Object>(filterSet.size());
+            for (var filter : filterSet.getFilters()) {
+                var value = valueOf(filter);
+                signature.add(Arrays.asList(filter.getName(), filter.getType(), value == SKIP ? "skip"
+                        : value == null ? "null" : value instanceof List ? ((List<?>) value).size() : value.getClass()));
+            }
+            signatures.add(signature);
+        }
+        return Arrays.asList("fql", queryInfo.getCode(), queryInfo.getName(), Arrays.asList(queryInfo.getColumns().values()),
+                queryInfo.getOrders(), queryInfo.getLimit(), queryInfo.getOffset(), queryInfo.isDistinct(), extraColumns,
+                signatures);
+    }
+
+    /**
+     * 按占位符顺序的值, 和 buildSelect 绑定的值一致
+     */
+    static Object[] parameters(List<FilterSet> filters) {
+        var parameters = new ArrayList<Object>();
+        for (var filterSet : filters) {
+            for (var filter : filterSet.getFilters()) {
+                var value = valueOf(filter);
+                if (value == SKIP || value == null) {
+                    continue;
+                }
+                switch (filter.getType()) {
+                    case like:
+                        parameters.add("%" + value + "%");
+                        break;
+                    case start:
+                        parameters.add("%" + value);
+                        break;
+                    case end:
+                        parameters.add(value + "%");
+                        break;
+                    default:
+                        if (value instanceof List) {
+                            parameters.addAll((List<?>) value);
+                        } else {
+                            parameters.add(value);
+                        }
+                }
+            }
+        }
+        return parameters.toArray();
+    }
+
+    List<Map<String, Object>> query(QueryInfo queryInfo, List<FilterSet> filters, List<ColumnInfo> extraColumns) {
+        return this.service.query(shape(queryInfo, filters, extraColumns),
+                () -> this.buildSelect(queryInfo, filters, extraColumns), parameters(filters));
+    }
+
+    Select buildSelect(QueryInfo queryInfo, List<FilterSet> filters, List<ColumnInfo> extraColumns) {
         // table
         var table = Table.create(queryInfo.getCode()).as(queryInfo.getName());
         // select
-        Column[] columns = new Column[queryInfo.getColumns().size()];
         var values = queryInfo.getColumns().values();
-        for (int i = 0; i < columns.length; i++) {
+        Column[] columns = new Column[values.length + extraColumns.size()];
+        for (int i = 0; i < values.length; i++) {
             var column = values[i];
             columns[i] = table.column(column.getCode()).alias(column.getAlias()).build();
         }
+        for (int i = 0; i < extraColumns.size(); i++) {
+            var column = extraColumns.get(i);
+            columns[values.length + i] = table.column(column.getCode()).alias(column.getAlias()).build();
+        }
         // where
         var where = Condition.emptyCondition();
-        for (var orFilter : queryInfo.getFilters()) {
+        for (var orFilter : filters) {
             var condition = Condition.emptyCondition();
             for (var andFilter : orFilter.getFilters()) {
-                switch (andFilter.getType()) {
-                    case eq:
-                        if (andFilter.getValue() == null) {
-                            condition = condition.and(table.column(andFilter.getName()).build().isNull());
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof Number) {
-                            if (andFilter.getValue().toString().contains(".")) {
-                                condition = condition.and(table.doubleColumn(andFilter.getName()).build()
-                                        .eq(Double.valueOf(andFilter.getValue().toString())));
-                            } else {
-                                condition = condition.and(table.intColumn(andFilter.getName()).build()
-                                        .eq(Long.valueOf(andFilter.getValue().toString())));
-                            }
-                            break;
-                        }
-
-                        condition = condition
-                                .and(table.column(andFilter.getName()).build().eq(andFilter.getValue().toString()));
-                        break;
-                    case neq:
-                        if (andFilter.getValue() == null) {
-                            condition = condition.and(table.column(andFilter.getName()).build().isNotNull());
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof Number) {
-                            if (andFilter.getValue().toString().contains(".")) {
-                                condition = condition.and(table.doubleColumn(andFilter.getName()).build()
-                                        .nEq(Double.valueOf(andFilter.getValue().toString())));
-                            } else {
-                                condition = condition.and(table.intColumn(andFilter.getName()).build()
-                                        .nEq(Long.valueOf(andFilter.getValue().toString())));
-                            }
-                            break;
-                        }
-                        condition = condition
-                                .and(table.column(andFilter.getName()).build().nEq(andFilter.getValue().toString()));
-                        break;
-                    case lt:
-                        if (andFilter.getValue() == null) {
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof Number) {
-                            if (andFilter.getValue().toString().contains(".")) {
-                                condition = condition.and(table.doubleColumn(andFilter.getName()).build()
-                                        .lt(Double.valueOf(andFilter.getValue().toString())));
-                            } else {
-                                condition = condition.and(table.intColumn(andFilter.getName()).build()
-                                        .lt(Long.valueOf(andFilter.getValue().toString())));
-                            }
-                            break;
-                        }
-                        break;
-                    case lte:
-                        if (andFilter.getValue() == null) {
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof Number) {
-                            if (andFilter.getValue().toString().contains(".")) {
-                                condition = condition.and(table.doubleColumn(andFilter.getName()).build()
-                                        .ltEq(Double.valueOf(andFilter.getValue().toString())));
-                            } else {
-                                condition = condition.and(table.intColumn(andFilter.getName()).build()
-                                        .ltEq(Long.valueOf(andFilter.getValue().toString())));
-
-                            }
-                            break;
-                        }
-                        break;
-                    case gt:
-                        if (andFilter.getValue() == null) {
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof Number) {
-                            if (andFilter.getValue().toString().contains(".")) {
-                                condition = condition.and(table.doubleColumn(andFilter.getName()).build()
-                                        .gt(Double.valueOf(andFilter.getValue().toString())));
-                            } else {
-                                condition = condition.and(table.intColumn(andFilter.getName()).build()
-                                        .gt(Long.valueOf(andFilter.getValue().toString())));
-                            }
-                            break;
-                        }
-                        break;
-                    case gte:
-                        if (andFilter.getValue() == null) {
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof Number) {
-                            if (andFilter.getValue().toString().contains(".")) {
-                                condition = condition.and(table.doubleColumn(andFilter.getName()).build()
-                                        .gtEq(Double.valueOf(andFilter.getValue().toString())));
-                            } else {
-                                condition = condition.and(table.intColumn(andFilter.getName()).build()
-                                        .gtEq(Long.valueOf(andFilter.getValue().toString())));
-                            }
-                            break;
-                        }
-                        break;
-                    case like:
-                        if (andFilter.getValue() == null) {
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof Number) {
-                            break;
-                        }
-                        condition = condition.and(table.column(andFilter.getName()).build()
-                                .isLike(andFilter.getValue().toString(), LikeType.BOTH));
-                        break;
-                    case start:
-                        if (andFilter.getValue() == null) {
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof Number) {
-                            break;
-                        }
-                        condition = condition.and(table.column(andFilter.getName()).build()
-                                .isLike(andFilter.getValue().toString(), LikeType.BEFORE));
-                        break;
-                    case end:
-                        if (andFilter.getValue() == null) {
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof Number) {
-                            break;
-                        }
-                        condition = condition.and(table.column(andFilter.getName()).build()
-                                .isLike(andFilter.getValue().toString(), LikeType.AFTER));
-                        break;
-                    case in:
-                        if (andFilter.getValue() == null) {
-                            condition = condition.and(table.column(andFilter.getName()).build().isNull());
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof Number) {
-                            if (andFilter.getValue().toString().contains(".")) {
-                                condition = condition.and(table.doubleColumn(andFilter.getName()).build()
-                                        .eq(Double.valueOf(andFilter.getValue().toString())));
-                            } else {
-                                condition = condition.and(table.intColumn(andFilter.getName()).build()
-                                        .eq(Long.valueOf(andFilter.getValue().toString())));
-                            }
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof List) {
-                            var list = (List<String>) andFilter.getValue();
-                            condition = condition.and(table.column(andFilter.getName()).build().isIn(list));
-                            break;
-                        }
-                        condition = condition
-                                .and(table.column(andFilter.getName()).build().eq(andFilter.getValue().toString()));
-                        break;
-                    case nin:
-                        if (andFilter.getValue() == null) {
-                            condition = condition.and(table.column(andFilter.getName()).build().isNotNull());
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof Number) {
-                            if (andFilter.getValue().toString().contains(".")) {
-                                condition = condition.and(table.doubleColumn(andFilter.getName()).build()
-                                        .nEq(Double.valueOf(andFilter.getValue().toString())));
-                            } else {
-                                condition = condition.and(table.intColumn(andFilter.getName()).build()
-                                        .nEq(Long.valueOf(andFilter.getValue().toString())));
-                            }
-                            break;
-                        }
-                        if (andFilter.getValue() instanceof List) {
-                            var list = (List<String>) andFilter.getValue();
-                            condition = condition.and(table.column(andFilter.getName()).build().isNotIn(list));
-                            break;
-                        }
-                        condition = condition
-                                .and(table.column(andFilter.getName()).build().nEq(andFilter.getValue().toString()));
-                        break;
+                var value = valueOf(andFilter);
+                if (value != SKIP) {
+                    condition = condition.and(this.condition(table, andFilter, value));
                 }
             }
             where = where.or(condition);
@@ -335,43 +543,22 @@ public class JdbcFqlVisitor {
         if (queryInfo.isDistinct()) {
             select.distinct();
         }
-
-        var fetchData = this.service.query(select);
-        if (fetchData.size() == 1) {
-            Node child = new Node(fetchData.get(0), queryInfo.getAlias());
-            // 延迟处理
-            for (var selection : todoList) {
-                this.visitSelection(selection, child);
-            }
-            process(node, child);
-        } else {
-            final int size = fetchData.size();
-            for (var i = 0; i < size; i++) {
-                Node child = new Node(fetchData, queryInfo.getAlias(), i);
-                // 延迟处理
-                for (var selection : todoList) {
-                    this.visitSelection(selection, child);
-                }
-                process(node, child);
-            }
-        }
+        return select;
     }
 
-    void visitArguments(List<FqlParser.ArgumentsContext> contextList, QueryInfo.QueryBuilder builder,
-            Map<String, Object> data) throws Exception {
+    void visitArguments(List<FqlParser.ArgumentsContext> contextList, QueryInfo.QueryBuilder builder) throws Exception {
         for (var ctx : contextList) {
             if (ctx.argument() != null && !ctx.argument().isEmpty()) {
                 var filters = new FilterSet();
                 for (var argument : ctx.argument()) {
-                    visitArgument(argument, builder, filters, data);
+                    visitArgument(argument, builder, filters);
                 }
                 builder.filters(filters);
             }
         }
     }
 
-    void visitArgument(FqlParser.ArgumentContext ctx, QueryInfo.QueryBuilder builder, FilterSet filters,
-            Map<String, Object> data) throws Exception {
+    void visitArgument(FqlParser.ArgumentContext ctx, QueryInfo.QueryBuilder builder, FilterSet filters) throws Exception {
         var text = ctx.name().getText();
         var lastIndexOf = text.lastIndexOf('_');
         String operator = "eq";
@@ -411,10 +598,7 @@ public class JdbcFqlVisitor {
                     var list = value.stream().map(c -> c.getText()).collect(Collectors.toList());
                     filters.add(name, op, list);
                 } else if (ctx.valueWithVariable().variable() != null) {
-                    var variableName = ctx.valueWithVariable().variable().name().getText();
-                    if (data.containsKey(variableName)) {
-                        filters.add(name, op, data.get(variableName));
-                    }
+                    filters.add(name, op, new Variable(ctx.valueWithVariable().variable().name().getText()));
                 } else if (ctx.valueWithVariable().FloatValue() != null) {
                     filters.add(name, op, (Double.valueOf(ctx.valueWithVariable().getText())));
                 } else {
@@ -445,4 +629,11 @@ public class JdbcFqlVisitor {
         }
     }
 
+    /**
+     * 参数中引用的父节点变量, 如 $user_id
+     */
+    @Value
+    static class Variable {
+        String name;
+    }
 }
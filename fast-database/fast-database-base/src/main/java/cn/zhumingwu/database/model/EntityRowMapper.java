@@ -0,0 +1,398 @@
+package cn.zhumingwu.database.model;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import javax.persistence.Column;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 实体的行映射, 每个实体类生成一次, 构造器和 setter 由 LambdaMetafactory 生成直接调用, 不再反射
+ * <p>
+ * 列按名字匹配 setter 或公有字段, 忽略大小写和下划线, 也匹配字段上 @Column 的名字; 列序号到 setter 的绑定按结果的列名
+ * 在第一次执行时解析, 列名相同的结果共用, 最多保留 MAX_BINDINGS 种列名, 满了淘汰最久未用的
+ * <p>
+ * 映射器按实体类保存在 ClassValue 中, 随实体类一起卸载, 不会让类加载器泄漏
+ */
+public class EntityRowMapper<T> implements RowMapper<T> {
+    static final int MAX_BINDINGS = 64;
+    static final ClassValue<EntityRowMapper<?>> MAPPERS = new ClassValue<>() {
+        @Override
+        protected EntityRowMapper<?> computeValue(Class<?> type) {
+            return new EntityRowMapper<>(type);
+        }
+    };
+
+    final Class<T> entityClass;
+    final Supplier<T> constructor;
+    // 规范化的列名 -> 属性
+    final Map<String, Property> properties;
+    // 结果的列名 -> 绑定
+    final Map<List<String>, Binding<T>> bindings = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, Binding<T>> eldest) {
+            return size() > MAX_BINDINGS;
+        }
+    });
+
+    public static <T> EntityRowMapper<T> of(Class<T> entityClass) {
+        return (EntityRowMapper<T>) MAPPERS.get(entityClass);
+    }
+
+    EntityRowMapper(Class<T> entityClass) {
+        this.entityClass = entityClass;
+        MethodHandles.Lookup lookup;
+        try {
+            lookup = MethodHandles.privateLookupIn(entityClass, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            lookup = MethodHandles.publicLookup();
+        }
+        this.constructor = constructor(lookup, entityClass);
+        this.properties = properties(lookup, entityClass);
+    }
+
+    /**
+     * 映射器被多个查询共用, 每行按列名取绑定; 整个结果集用 mapAll 只解析一次
+     */
+    @Override
+    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return this.binding(rs.getMetaData()).map(rs);
+    }
+
+    /**
+     * 映射结果集剩余的行
+     */
+    public List<T> mapAll(ResultSet rs) throws SQLException {
+        var binding = this.binding(rs.getMetaData());
+        var list = new ArrayList<T>();
+        while (rs.next()) {
+            list.add(binding.map(rs));
+        }
+        return list;
+    }
+
+    Binding<T> binding(ResultSetMetaData metaData) throws SQLException {
+        var labels = new String[metaData.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = metaData.getColumnLabel(i + 1);
+        }
+        return this.bindings.computeIfAbsent(Arrays.asList(labels), this::resolve);
+    }
+
+    Binding<T> resolve(List<String> labels) {
+        var indexes = new ArrayList<Integer>();
+        var bound = new ArrayList<Property>();
+        for (int i = 0; i < labels.size(); i++) {
+            var property = this.properties.get(normalize(labels.get(i)));
+            if (property != null) {
+                indexes.add(i + 1);
+                bound.add(property);
+            }
+        }
+        return new Binding<>(this.constructor, indexes.stream().mapToInt(Integer::intValue).toArray(),
+                bound.toArray(new Property[0]));
+    }
+
+    static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    static <T> Supplier<T> constructor(MethodHandles.Lookup lookup, Class<T> entityClass) {
+        MethodHandle handle;
+        try {
+            handle = lookup.findConstructor(entityClass, MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            return () -> {
+                throw new IllegalStateException(entityClass.getName() + "没有可以访问的无参构造器", e);
+            };
+        }
+        try {
+            var site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class), handle, MethodType.methodType(entityClass));
+            return (Supplier<T>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            // 不能生成时用方法句柄
+            var generic = handle.asType(MethodType.methodType(Object.class));
+            return () -> {
+                try {
+                    return (T) generic.invokeExact();
+                } catch (Throwable ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+        }
+    }
+
+    static Map<String, Property> properties(MethodHandles.Lookup lookup, Class<?> entityClass) {
+        var properties = new HashMap<String, Property>();
+        for (var method : entityClass.getMethods()) {
+            if (!method.getName().startsWith("set") || method.getName().length() == 3
+                    || method.getParameterCount() != 1 || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            var key = normalize(method.getName().substring(3));
+            if (properties.containsKey(key)) {
+                continue;
+            }
+            var type = ResolvableType.forMethodParameter(method, 0, entityClass).resolve(method.getParameterTypes()[0]);
+            properties.put(key, new Property(reader(type), setter(lookup, method)));
+        }
+        for (var field : entityClass.getFields()) {
+            var key = normalize(field.getName());
+            if (properties.containsKey(key) || Modifier.isStatic(field.getModifiers())
+                    || Modifier.isFinal(field.getModifiers())) {
+                continue;
+            }
+            properties.put(key, new Property(reader(field.getType()), setter(lookup, field)));
+        }
+        // @Column 的名字
+        var columns = new HashMap<String, Property>();
+        ReflectionUtils.doWithFields(entityClass, field -> {
+            var column = field.getAnnotation(Column.class);
+            if (column != null && !column.name().isEmpty()) {
+                var property = properties.get(normalize(field.getName()));
+                if (property != null) {
+                    columns.putIfAbsent(normalize(column.name()), property);
+                }
+            }
+        });
+        columns.forEach(properties::putIfAbsent);
+        return properties;
+    }
+
+    static BiConsumer<Object, Object> setter(MethodHandles.Lookup lookup, Method method) {
+        MethodHandle handle;
+        try {
+            handle = lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(method + "不能访问", e);
+        }
+        try {
+            var site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class), handle,
+                    MethodType.methodType(void.class, method.getDeclaringClass(),
+                            ClassUtils.resolvePrimitiveIfNecessary(method.getParameterTypes()[0])));
+            return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            return setter(handle);
+        }
+    }
+
+    static BiConsumer<Object, Object> setter(MethodHandles.Lookup lookup, Field field) {
+        try {
+            return setter(lookup.unreflectSetter(field));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(field + "不能访问", e);
+        }
+    }
+
+    static BiConsumer<Object, Object> setter(MethodHandle handle) {
+        var generic = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (object, value) -> {
+            try {
+                generic.invokeExact(object, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * 按 setter 的参数类型读取, 包装类型的空值为 null, 基本类型为 0
+     */
+    static ColumnReader reader(Class<?> type) {
+        if (type == String.class) {
+            return ResultSet::getString;
+        }
+        if (type == long.class) {
+            return ResultSet::getLong;
+        }
+        if (type == Long.class) {
+            return (rs, i) -> {
+                var value = rs.getLong(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == int.class) {
+            return ResultSet::getInt;
+        }
+        if (type == Integer.class) {
+            return (rs, i) -> {
+                var value = rs.getInt(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == short.class) {
+            return ResultSet::getShort;
+        }
+        if (type == Short.class) {
+            return (rs, i) -> {
+                var value = rs.getShort(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == byte.class) {
+            return ResultSet::getByte;
+        }
+        if (type == Byte.class) {
+            return (rs, i) -> {
+                var value = rs.getByte(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == double.class) {
+            return ResultSet::getDouble;
+        }
+        if (type == Double.class) {
+            return (rs, i) -> {
+                var value = rs.getDouble(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == float.class) {
+            return ResultSet::getFloat;
+        }
+        if (type == Float.class) {
+            return (rs, i) -> {
+                var value = rs.getFloat(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == boolean.class) {
+            return ResultSet::getBoolean;
+        }
+        if (type == Boolean.class) {
+            return (rs, i) -> {
+                var value = rs.getBoolean(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == BigDecimal.class) {
+            return ResultSet::getBigDecimal;
+        }
+        if (type == java.sql.Date.class) {
+            return ResultSet::getDate;
+        }
+        if (type == java.sql.Time.class) {
+            return ResultSet::getTime;
+        }
+        if (type == Timestamp.class) {
+            return ResultSet::getTimestamp;
+        }
+        if (type == java.util.Date.class) {
+            return (rs, i) -> {
+                var value = rs.getTimestamp(i);
+                return value == null ? null : new java.util.Date(value.getTime());
+            };
+        }
+        // java.time 按 jdbc 的日期类型转换, 不要求驱动支持 getObject(int, Class)
+        if (type == LocalDateTime.class) {
+            return (rs, i) -> {
+                var value = rs.getTimestamp(i);
+                return value == null ? null : value.toLocalDateTime();
+            };
+        }
+        if (type == LocalDate.class) {
+            return (rs, i) -> {
+                var value = rs.getDate(i);
+                return value == null ? null : value.toLocalDate();
+            };
+        }
+        if (type == LocalTime.class) {
+            return (rs, i) -> {
+                var value = rs.getTime(i);
+                return value == null ? null : value.toLocalTime();
+            };
+        }
+        if (type.isEnum()) {
+            // 数值按序号, 字符串按名字
+            var constants = type.getEnumConstants();
+            return (rs, i) -> {
+                var value = rs.getObject(i);
+                if (value instanceof Number) {
+                    var ordinal = ((Number) value).intValue();
+                    return ordinal >= 0 && ordinal < constants.length ? constants[ordinal] : null;
+                }
+                if (value != null) {
+                    for (var constant : constants) {
+                        if (((Enum<?>) constant).name().equals(value.toString())) {
+                            return constant;
+                        }
+                    }
+                }
+                return null;
+            };
+        }
+        if (type == Object.class) {
+            return ResultSet::getObject;
+        }
+        return (rs, i) -> rs.getObject(i, type);
+    }
+
+    @FunctionalInterface
+    interface ColumnReader {
+        Object read(ResultSet rs, int index) throws SQLException;
+    }
+
+    static class Property {
+        final ColumnReader reader;
+        final BiConsumer<Object, Object> setter;
+
+        Property(ColumnReader reader, BiConsumer<Object, Object> setter) {
+            this.reader = reader;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * 一种结果的列序号和属性
+     */
+    static class Binding<T> {
+        final Supplier<T> constructor;
+        final int[] indexes;
+        final Property[] properties;
+
+        Binding(Supplier<T> constructor, int[] indexes, Property[] properties) {
+            this.constructor = constructor;
+            this.indexes = indexes;
+            this.properties = properties;
+        }
+
+        T map(ResultSet rs) throws SQLException {
+            var entity = this.constructor.get();
+            for (int i = 0; i < this.indexes.length; i++) {
+                var property = this.properties[i];
+                property.setter.accept(entity, property.reader.read(rs, this.indexes[i]));
+            }
+            return entity;
+        }
+    }
+}
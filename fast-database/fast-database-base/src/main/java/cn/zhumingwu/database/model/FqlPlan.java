@@ -0,0 +1,23 @@
+package cn.zhumingwu.database.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 编译后的查询, 表和字段已解析, 条件中的变量执行时按父节点取值, 可以重复执行
+ */
+@Data
+@AllArgsConstructor
+public class FqlPlan {
+    List<Selection> selections;
+
+    @Data
+    @AllArgsConstructor
+    public static class Selection {
+        QueryInfo queryInfo;
+        // 子选择, 按层合并查询
+        List<Selection> selections;
+    }
+}
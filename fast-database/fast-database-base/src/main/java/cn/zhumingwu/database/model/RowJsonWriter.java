@@ -0,0 +1,103 @@
+package cn.zhumingwu.database.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 把结果逐行写到 json 生成器, 不在内存中保留结果, 列名只在第一行解析, 值按列序号读取
+ * <p>
+ * 输出流写不出去时写入阻塞, 数据库的读取随之暂停
+ */
+public class RowJsonWriter implements RowCallbackHandler {
+
+    public enum Format {
+        // 一个 json 数组
+        JSON,
+        // 每行一个 json 对象
+        NDJSON,
+    }
+
+    final JsonGenerator generator;
+    final Format format;
+    SerializedString[] names;
+    long rows;
+
+    public RowJsonWriter(JsonGenerator generator, Format format) {
+        this.generator = generator;
+        this.format = format;
+        if (format == Format.NDJSON) {
+            generator.setRootValueSeparator(null);
+        }
+    }
+
+    public void start() throws IOException {
+        if (this.format == Format.JSON) {
+            this.generator.writeStartArray();
+        }
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        if (this.names == null) {
+            var metaData = rs.getMetaData();
+            this.names = new SerializedString[metaData.getColumnCount()];
+            for (int i = 0; i < this.names.length; i++) {
+                this.names[i] = new SerializedString(metaData.getColumnLabel(i + 1));
+            }
+        }
+        try {
+            this.generator.writeStartObject();
+            for (int i = 0; i < this.names.length; i++) {
+                this.generator.writeFieldName(this.names[i]);
+                this.writeValue(rs.getObject(i + 1));
+            }
+            this.generator.writeEndObject();
+            if (this.format == Format.NDJSON) {
+                this.generator.writeRaw('\n');
+            }
+            // 第一行立即发出
+            if (this.rows++ == 0) {
+                this.generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void writeValue(Object value) throws IOException {
+        if (value == null) {
+            this.generator.writeNull();
+        } else if (value instanceof String) {
+            this.generator.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            this.generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            this.generator.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof BigDecimal) {
+            this.generator.writeNumber((BigDecimal) value);
+        } else if (value instanceof Boolean) {
+            this.generator.writeBoolean((Boolean) value);
+        } else {
+            // 日期等交给生成器的 ObjectMapper, 和非流式的结果一致
+            this.generator.writeObject(value);
+        }
+    }
+
+    public void finish() throws IOException {
+        if (this.format == Format.JSON) {
+            this.generator.writeEndArray();
+        }
+        this.generator.flush();
+    }
+
+    public long getRows() {
+        return this.rows;
+    }
+}
@@ -21,6 +21,14 @@ public class JdbcApiProperties {
     private String catalog;
     private String schema;
     private LinkedHashMap<String, Acl[]> acl = new LinkedHashMap<String, Acl[]>();
+    // 缓存的sql语句形状数量
+    private int statementCacheSize = 1024;
+    // 嵌套查询按层合并为 IN 查询
+    private boolean batchEnabled = true;
+    // 缓存的fql执行计划数量
+    private int planCacheSize = 256;
+    // 流式查询每次从数据库取的行数
+    private int fetchSize = 500;
 
     @Data
     public static class TableNameRule {
@@ -2,13 +2,18 @@ package cn.zhumingwu.database.service;
 
 import lombok.extern.slf4j.Slf4j;
 
-import cn.zhumingwu.base.util.NamingUtils;
 import cn.zhumingwu.database.config.DataSourceConfig;
 import cn.zhumingwu.database.entity.BaseEntity;
 import cn.zhumingwu.database.entity.Status;
+import cn.zhumingwu.database.model.EntityRowMapper;
+import cn.zhumingwu.database.sql.columns.Column;
 import cn.zhumingwu.database.sql.conditions.Condition;
+import cn.zhumingwu.database.sql.conditions.GenericCondition;
+import cn.zhumingwu.database.sql.dialect.Dialect;
 import cn.zhumingwu.database.sql.functions.Function;
+import cn.zhumingwu.database.sql.queries.BoundStatement;
 import cn.zhumingwu.database.sql.queries.Queries;
+import cn.zhumingwu.database.sql.queries.StatementCache;
 import cn.zhumingwu.database.sql.schema.Table;
 import cn.zhumingwu.database.utils.PlaceHolder;
 import org.springframework.data.domain.Page;
@@ -16,10 +21,7 @@ import org.springframework.data.domain.Pageable;
 
 import jakarta.annotation.Resource;
 import javax.sql.DataSource;
-import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.sql.ResultSetMetaData;
 import java.util.*;
 
 @Slf4j
@@ -34,6 +36,9 @@ public class BaseService<Entity extends BaseEntity<ID>, ID> implements DataAcces
     protected final Class<Entity> entityClass;
     protected final Class<ID> idClass;
 
+    // 所有实体共享的语句缓存，形状为实体类和方法
+    protected static final StatementCache STATEMENTS = new StatementCache(1024);
+
     public BaseService() {
         //通过this(子类）得到当前类的信息（泛参类型）
         ParameterizedType type = (ParameterizedType) this.getClass().getGenericSuperclass();
@@ -47,44 +52,59 @@ public class BaseService<Entity extends BaseEntity<ID>, ID> implements DataAcces
 
     @Override
     public Optional<Entity> findById(ID id) {
-        var entityInfo = PlaceHolder.genEntityInfo(this.entityClass);
-        var table = Table.create(entityInfo.getName());
-        var entity_id = table.bigIntColumn(entityInfo.getId().getName()).build();
-        var select = Queries.select().where(entity_id.eq((Long) id));
-        List<Entity> list = this.find(entity_id.eq((Integer) id));
+        requireId(id);
+        var statement = STATEMENTS.get(Dialect.getDefault(), List.of(this.entityClass, "findById"), () -> {
+            var entityInfo = PlaceHolder.genEntityInfo(this.entityClass);
+            var table = Table.create(entityInfo.getName());
+            var entity_id = table.column(entityInfo.getId().getName()).build();
+            return Queries.select().from(table).where(idEquals(entity_id, id));
+        }, id);
+        List<Entity> list = this.query(statement);
         if (list.isEmpty()) {
-            return Optional.of(null);
+            return Optional.empty();
         }
         return Optional.of(list.get(0));
     }
 
     @Override
     public List<Entity> findAll() {
-        var entityInfo = PlaceHolder.genEntityInfo(this.entityClass);
-        var queryTable = Table.create(entityInfo.getName());
-        var status = queryTable.intColumn("status").build();
-        return this.find(status.eq(Status.OK.ordinal()));
+        var statement = STATEMENTS.get(Dialect.getDefault(), List.of(this.entityClass, "findAll"), () -> {
+            var entityInfo = PlaceHolder.genEntityInfo(this.entityClass);
+            var queryTable = Table.create(entityInfo.getName());
+            var status = queryTable.intColumn("status").build();
+            return Queries.select().from(queryTable).where(status.eq(Status.OK.ordinal()));
+        }, (long) Status.OK.ordinal());
+        return this.query(statement);
     }
 
     @Override
     public List<Entity> findAllById(ID... ids) {
-        var entityInfo = PlaceHolder.genEntityInfo(this.entityClass);
-        var table = Table.create(entityInfo.getName());
-        var entity_id = table.bigIntColumn(entityInfo.getId().getName()).build();
-        var condition = Condition.emptyCondition();
         for (var id : ids) {
-            condition = condition.or(entity_id.eq((Long) id));
+            requireId(id);
         }
-        return this.find(condition);
+        // id的个数决定占位符的个数
+        var statement = STATEMENTS.get(Dialect.getDefault(), List.of(this.entityClass, "findAllById", ids.length), () -> {
+            var entityInfo = PlaceHolder.genEntityInfo(this.entityClass);
+            var table = Table.create(entityInfo.getName());
+            var entity_id = table.column(entityInfo.getId().getName()).build();
+            var condition = Condition.emptyCondition();
+            for (var id : ids) {
+                condition = condition.or(idEquals(entity_id, id));
+            }
+            return Queries.select().from(table).where(condition);
+        }, ids);
+        return this.query(statement);
     }
 
     @Override
     public long count() {
-        var entityInfo = PlaceHolder.genEntityInfo(this.entityClass);
-        var table = Table.create(entityInfo.getName());
-        var select = Queries.select(Function.count().as("cnt"))
-                .from(table);
-        return this.executeSql(select.build());
+        var statement = STATEMENTS.get(Dialect.getDefault(), List.of(this.entityClass, "count"), () -> {
+            var entityInfo = PlaceHolder.genEntityInfo(this.entityClass);
+            var table = Table.create(entityInfo.getName());
+            return Queries.select(Function.count().as("cnt"))
+                    .from(table);
+        });
+        return this.executeSql(statement.getSql());
     }
 
     @Override
@@ -102,94 +122,36 @@ public class BaseService<Entity extends BaseEntity<ID>, ID> implements DataAcces
         var entityInfo = PlaceHolder.genEntityInfo(this.entityClass);
         var table = Table.create(entityInfo.getName());
 
-        var select = Queries.select().where(where);
+        var select = Queries.select().from(table).where(where);
+        return this.query(select.bind());
+    }
 
-        List<Entity> ls = new ArrayList<>();
-        final Map<String, Method> methods = new HashMap<>();
-        for (var method : this.entityClass.getMethods()) {
-            if (!method.getName().startsWith("set")) {
-                continue;
-            }
-            if (methods.containsKey(method.getName())) {
-                continue;
-            }
-            Type[] paraType = method.getGenericParameterTypes();
-            if (paraType.length != 1) {
-                continue;
-            }
-            methods.put(method.getName(), method);
+    /**
+     * 空的 id 会生成 IS NULL, 直接拒绝
+     */
+    private static void requireId(Object id) {
+        if (id == null) {
+            throw new IllegalArgumentException("The id must not be null");
         }
+    }
+
+    /**
+     * id 按 Object 绑定, 数值、字符串和 UUID 等主键类型都可以
+     */
+    private static Condition idEquals(Column column, Object id) {
+        return new GenericCondition(GenericCondition.GenericConditionType.IS_EQUAL_TO, column, id);
+    }
 
+    protected List<Entity> query(BoundStatement statement) {
         try (var conn = this.reader.getConnection();
-             var pst = conn.prepareStatement(select.build());
+             var pst = statement.prepare(conn);
              var rs = pst.executeQuery();) {
-            //取得ResultSet的列名
-            ResultSetMetaData resultSetMetaData = rs.getMetaData();
-            int columnsCount = resultSetMetaData.getColumnCount();
-            String[] columnNames = new String[columnsCount];
-            for (int i = 0; i < columnsCount; i++) {
-
-                columnNames[i] = resultSetMetaData.getColumnLabel(i + 1);
-            }
-            while (rs.next()) {
-                Entity bean = (Entity) this.entityClass.newInstance();
-                //反射, 从ResultSet绑定到JavaBean
-                for (int i = 0; i < columnNames.length; i++) {
-                    //取得Set方法
-                    String name = NamingUtils.underlineToCamel("set_" + columnNames[i]);
-                    Method method = methods.get(name);
-                    if (method == null) {
-                        continue;
-                    }
-                    var paraType = Arrays.stream(method.getGenericParameterTypes()).findFirst().get().toString();
-                    Object value = null;
-                    if (paraType.indexOf("long") >= 0 || paraType.indexOf("bigint") >= 0)
-                        value = rs.getLong(columnNames[i]);
-                    else if (paraType.indexOf("Integer") >= 0)
-                        value = rs.getInt(columnNames[i]);
-                    else if (paraType.indexOf("String") >= 0)
-                        value = rs.getString(columnNames[i]);
-                    else if (paraType.indexOf("Double") >= 0)
-                        value = rs.getDouble(columnNames[i]);
-                    else if (paraType.indexOf("Float") >= 0)
-                        value = rs.getFloat(columnNames[i]);
-                    else if (paraType.indexOf("java.sql.Date") >= 0)
-                        value = rs.getDate(columnNames[i]);
-                    else if (paraType.indexOf("java.util.Date") >= 0)
-                        value = new java.util.Date(rs.getTimestamp(columnNames[i]).getTime());
-                    else if (paraType.indexOf("Time") >= 0)
-                        value = rs.getDate(columnNames[i]);
-                    else if (paraType.indexOf("Timestamp") >= 0)
-                        value = rs.getTimestamp(columnNames[i]);
-                    else if (paraType.indexOf("BigDecimal") >= 0)
-                        value = rs.getBigDecimal(columnNames[i]);
-                    else if (paraType.indexOf("boolean") >= 0)
-                        value = rs.getBoolean(columnNames[i]);
-                    else if (paraType.indexOf("Short") >= 0)
-                        value = rs.getShort(columnNames[i]);
-                    else if (paraType.indexOf("Byte") >= 0)
-                        value = rs.getByte(columnNames[i]);
-                    else if (paraType.contains(Status.class.getCanonicalName())) {
-                        var status = rs.getInt(columnNames[i]);
-                        for (var v : Status.values()) {
-                            if (v.ordinal() == status) {
-                                value = v;
-                                break;
-                            }
-                        }
-                    } else {
-                        log.info("{}", paraType);
-                        value = (Status) rs.getObject(columnNames[i]);
-                    }
-                    method.invoke(bean, value);
-                }
-                ls.add(bean);
-            }
+            // 生成的行映射, 列序号到 setter 的绑定按结果的列名缓存
+            return EntityRowMapper.of(this.entityClass).mapAll(rs);
         } catch (Exception e) {
             log.error("getObjectList", e);
         }
-        return ls;
-
+        return new ArrayList<>();
     }
 
     @Override
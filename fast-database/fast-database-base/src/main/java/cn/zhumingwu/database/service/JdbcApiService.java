@@ -1,5 +1,6 @@
 package cn.zhumingwu.database.service;
 
+import cn.zhumingwu.database.fql.FqlPlanCache;
 import cn.zhumingwu.database.properties.JdbcApiProperties;
 import com.google.common.base.Strings;
 import io.swagger.models.*;
@@ -12,21 +13,29 @@ import lombok.extern.slf4j.Slf4j;
 import cn.zhumingwu.database.model.RowDataMapper;
 import cn.zhumingwu.database.sql.columns.Column;
 import cn.zhumingwu.database.sql.dialect.Dialect;
+import cn.zhumingwu.database.sql.queries.BoundStatement;
 import cn.zhumingwu.database.sql.queries.Query;
 import cn.zhumingwu.database.sql.queries.Select;
+import cn.zhumingwu.database.sql.queries.StatementCache;
 import cn.zhumingwu.database.sql.schema.Table;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.util.AntPathMatcher;
 
 import javax.sql.DataSource;
+import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class JdbcApiService {
 
+    @Getter
     final JdbcApiProperties properties;
     final DataSource dataSource;
     @Getter
@@ -37,7 +46,12 @@ public class JdbcApiService {
     @Getter
     final Map<String, List<String>> namedKeyColumns;
 
+    @Getter
     final Dialect dialect;
+    @Getter
+    final StatementCache statements;
+    @Getter
+    final FqlPlanCache plans;
 
     public JdbcApiService(JdbcApiProperties properties, DataSource dataSource) {
         this.dataSource = dataSource;
@@ -48,6 +62,8 @@ public class JdbcApiService {
         var mataData = new DataSourceMataData(this.dataSource);
 
         this.dialect = Dialect.forName(this.getDatabaseProductName());
+        this.statements = new StatementCache(this.properties.getStatementCacheSize());
+        this.plans = new FqlPlanCache(this.properties.getPlanCacheSize());
 
         var tables = mataData.listAllTables(this.properties.getCatalog(), this.properties.getSchema());
         this.namedKeyColumns = new HashMap<>();
@@ -75,11 +91,25 @@ public class JdbcApiService {
     }
 
     public List<Map<String, Object>> query(Select select) {
+        return this.query(select.bind(this.dialect));
+    }
+
+    /**
+     * 按语句形状查询，同一形状的select只在第一次构造
+     *
+     * @param shape      语句形状，只有值不同的查询形状相同
+     * @param select     构造select
+     * @param parameters 按占位符顺序的值
+     */
+    public List<Map<String, Object>> query(Object shape, Supplier<Select> select, Object... parameters) {
+        return this.query(this.statements.get(this.dialect, shape, select, parameters));
+    }
+
+    public List<Map<String, Object>> query(BoundStatement statement) {
         var data = new ArrayList<Map<String, Object>>();
-        var sql = select.build(this.dialect);
-        log.debug("sql: {}", sql);
+        log.debug("sql: {}, parameters: {}", statement.getSql(), statement.getParameters());
         try (var conn = this.dataSource.getConnection();
-                var pst = conn.prepareStatement(sql);
+                var pst = statement.prepare(conn);
                 var rs = pst.executeQuery()) {
             // 取得ResultSet的列名
             ResultSetMetaData resultSetMetaData = rs.getMetaData();
@@ -91,7 +121,7 @@ public class JdbcApiService {
             while (rs.next()) {
                 var item = new TreeMap<String, Object>();
                 for (int i = 0; i < columnNames.length; i++) {
-                    item.put(columnNames[i], rs.getObject(columnNames[i]));
+                    item.put(columnNames[i], rs.getObject(i + 1));
                 }
                 data.add(item);
             }
@@ -101,6 +131,45 @@ public class JdbcApiService {
         return data;
     }
 
+    public long stream(Select select, RowCallbackHandler handler) {
+        return this.stream(select.bind(this.dialect), handler);
+    }
+
+    /**
+     * 流式查询，按fetchSize分批从数据库取数，每行交给handler处理，不保留结果
+     *
+     * @return 行数
+     */
+    public long stream(BoundStatement statement, RowCallbackHandler handler) {
+        log.debug("stream sql: {}, parameters: {}", statement.getSql(), statement.getParameters());
+        var jdbcTemplate = new JdbcTemplate(this.dataSource);
+        return jdbcTemplate.execute((ConnectionCallback<Long>) conn -> {
+            // postgresql只在事务中按fetchSize使用游标，否则一次读取全部结果
+            var autoCommit = conn.getAutoCommit();
+            if (autoCommit) {
+                conn.setAutoCommit(false);
+            }
+            try (var pst = conn.prepareStatement(statement.getSql(), ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                pst.setFetchSize(this.dialect.getFetchSize(this.properties.getFetchSize()));
+                statement.bind(pst);
+                try (var rs = pst.executeQuery()) {
+                    var rows = 0L;
+                    while (rs.next()) {
+                        handler.processRow(rs);
+                        rows++;
+                    }
+                    return rows;
+                }
+            } finally {
+                if (autoCommit) {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+            }
+        });
+    }
+
     public List<Map<String, Object>> query(Query query, Map<String, ?> args) {
         var jdbcTemplate = new NamedParameterJdbcTemplate(this.dataSource);
         var sql = query.build(this.dialect);
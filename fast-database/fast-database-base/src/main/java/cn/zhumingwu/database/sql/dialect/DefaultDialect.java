@@ -15,6 +15,7 @@ import cn.zhumingwu.database.sql.utils.BuilderUtils;
 import cn.zhumingwu.database.sql.utils.Indentation;
 
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -74,6 +75,42 @@ public abstract class DefaultDialect implements Dialect {
         return build(builder);
     }
 
+    @Override
+    public final BoundStatement bind(Insert insert, Indentation indentation) {
+        log.debug("binding insert-statement {} / {}", insert, indentation);
+        var context = new BuildingContext(this, indentation.getDelimiter(), new ArrayList<>());
+        var builder = new StringBuilder(indentation.getIndent());
+        appendInsertStatement(builder, insert, context, indentation);
+        return new BoundStatement(build(builder), context.getParameters());
+    }
+
+    @Override
+    public final BoundStatement bind(Update update, Indentation indentation) {
+        log.debug("binding update-statement {} / {}", update, indentation);
+        var context = new BuildingContext(this, indentation.getDelimiter(), new ArrayList<>());
+        var builder = new StringBuilder(indentation.getIndent());
+        appendUpdateStatement(builder, update, context, indentation);
+        return new BoundStatement(build(builder), context.getParameters());
+    }
+
+    @Override
+    public final BoundStatement bind(Delete delete, Indentation indentation) {
+        log.debug("binding delete-statement {} / {}", delete, indentation);
+        var context = new BuildingContext(this, indentation.getDelimiter(), new ArrayList<>());
+        var builder = new StringBuilder(indentation.getIndent());
+        appendDeleteStatement(builder, delete, context, indentation);
+        return new BoundStatement(build(builder), context.getParameters());
+    }
+
+    @Override
+    public final BoundStatement bind(Select select, Indentation indentation) {
+        log.debug("binding select-statement {} / {}", select, indentation);
+        var context = new BuildingContext(this, indentation.getDelimiter(), new ArrayList<>());
+        var builder = new StringBuilder(indentation.getIndent());
+        appendSelectStatement(builder, select, context, indentation);
+        return new BoundStatement(build(builder), context.getParameters());
+    }
+
     @Override
     public String build(CreateTable createTable, Indentation indentation) {
         log.debug("building createTable-statement {} / {}", createTable, indentation);
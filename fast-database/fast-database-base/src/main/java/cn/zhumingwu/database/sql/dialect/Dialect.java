@@ -27,6 +27,14 @@ public interface Dialect
 
     String build(CreateTable createTable, Indentation indentation);
 
+    BoundStatement bind(Insert insert, Indentation indentation);
+
+    BoundStatement bind(Update update, Indentation indentation);
+
+    BoundStatement bind(Delete delete, Indentation indentation);
+
+    BoundStatement bind(Select select, Indentation indentation);
+
     DateTimeFormatter getDateFormatter();
 
     DateTimeFormatter getDateTimeFormatter();
@@ -37,6 +45,23 @@ public interface Dialect
 
     String escape(String value, char apostrophe);
 
+    /**
+     * @return the maximum number of values bound to one statement, MSSQL takes up to 2100 parameters
+     */
+    default int getMaxParameters()
+    {
+        return 2000;
+    }
+
+    /**
+     * @param fetchSize the number of rows to fetch per round trip
+     * @return the fetch size to set on a statement streaming its results
+     */
+    default int getFetchSize(int fetchSize)
+    {
+        return fetchSize;
+    }
+
     public static void register(Dialect dialect)
     {
         Dialects.register(dialect);
@@ -37,6 +37,18 @@ public class MySqlDialect extends DefaultDialect {
         return "MySQL";
     }
 
+    @Override
+    public int getMaxParameters() {
+        // prepared statements take up to 65535 placeholders
+        return 65535;
+    }
+
+    @Override
+    public int getFetchSize(int fetchSize) {
+        // without useCursorFetch the driver only streams row by row, otherwise it reads the whole result
+        return Integer.MIN_VALUE;
+    }
+
     @Override
     protected void appendInsertStatement(StringBuilder builder, Insert insert, BuildingContext context, Indentation indentation) {
         builder.append(context.getDialect().getLabels().getInsertInto()).append(" ").append(insert.getTable().getFullName(context));
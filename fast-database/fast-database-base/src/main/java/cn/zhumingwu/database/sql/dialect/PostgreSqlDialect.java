@@ -35,6 +35,12 @@ public class PostgreSqlDialect extends DefaultDialect {
         return "PostgreSql";
     }
 
+    @Override
+    public int getMaxParameters() {
+        // the wire protocol counts the parameters in 16 bits
+        return 32767;
+    }
+
     @Override
     public Labels getLabels() {
         return new PostgreLabels();
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.List;
+
 /**
  * @author zhumingwu
  *
@@ -17,4 +19,24 @@ public class BuildingContext
 {
     private Dialect dialect;
     private String delimiter;
+    /**
+     * values bound to the {@code ?} placeholders in order, null when the values are written into the sql
+     */
+    private List<Object> parameters;
+
+    public BuildingContext(Dialect dialect, String delimiter)
+    {
+        this(dialect, delimiter, null);
+    }
+
+    public boolean isBinding()
+    {
+        return parameters != null;
+    }
+
+    public String bind(Object value)
+    {
+        parameters.add(value);
+        return "?";
+    }
 }
@@ -0,0 +1,63 @@
+package cn.zhumingwu.database.sql.queries;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The sql of a query with {@code ?} placeholders and the values bound to them, so the same query with other values
+ * keeps the same sql and the database and the driver can reuse its plan.
+ *
+ * @author zhumingwu
+ * @since 3/20/2021 10:36 AM
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class BoundStatement
+{
+    private final String sql;
+    private final List<Object> parameters;
+
+    public BoundStatement(String sql, List<Object> parameters)
+    {
+        this.sql = sql;
+        this.parameters = Collections.unmodifiableList(parameters);
+    }
+
+    /**
+     * Prepares the sql and sets the parameters
+     *
+     * @param connection the connection to prepare the statement with
+     * @return the prepared statement, to be closed by the caller
+     * @throws SQLException if the statement can't be prepared
+     */
+    public PreparedStatement prepare(Connection connection) throws SQLException
+    {
+        var statement = connection.prepareStatement(sql);
+        try
+        {
+            bind(statement);
+        }
+        catch (SQLException e)
+        {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
+    public void bind(PreparedStatement statement) throws SQLException
+    {
+        for (int i = 0; i < parameters.size(); i++)
+        {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+    }
+}
@@ -73,6 +73,12 @@ public class Delete implements UpdatebleQuery
         return dialect.build(this, indentation);
     }
 
+    @Override
+    public BoundStatement bind(Dialect dialect, Indentation indentation)
+    {
+        return dialect.bind(this, indentation);
+    }
+
     public static void clearWheres(Delete delete)
     {
         delete.where = null;
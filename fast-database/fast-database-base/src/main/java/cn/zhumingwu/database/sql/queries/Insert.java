@@ -112,6 +112,12 @@ public class Insert implements UpdatebleQuery
         return dialect.build(this, indentation);
     }
 
+    @Override
+    public BoundStatement bind(Dialect dialect, Indentation indentation)
+    {
+        return dialect.bind(this, indentation);
+    }
+
     public static Insert copy(Insert insert)
     {
         return new Insert(insert);
@@ -7,6 +7,7 @@ import java.io.PrintStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Collections;
 
 import static cn.zhumingwu.database.sql.utils.Indentation.disabled;
 
@@ -164,6 +165,30 @@ public interface Query
         println(printStream, Dialect.forName(dialectName), indentation);
     }
 
+    /**
+     * Builds the query with {@code ?} placeholders for its values, the values are returned in the order of the
+     * placeholders. Queries without values are returned as built.
+     */
+    default BoundStatement bind(Dialect dialect, Indentation indentation)
+    {
+        return new BoundStatement(build(dialect, indentation), Collections.emptyList());
+    }
+
+    default BoundStatement bind()
+    {
+        return bind(Dialect.getDefault());
+    }
+
+    default BoundStatement bind(Dialect dialect)
+    {
+        return bind(dialect, disabled());
+    }
+
+    default BoundStatement bind(String dialectName)
+    {
+        return bind(Dialect.forName(dialectName));
+    }
+
     default PreparedStatement prepare(Connection connection) throws SQLException
     {
         return connection.prepareStatement(build());
@@ -250,6 +250,12 @@ public class Select implements QueryableQuery
         return dialect.build(this, indentation);
     }
 
+    @Override
+    public BoundStatement bind(Dialect dialect, Indentation indentation)
+    {
+        return dialect.bind(this, indentation);
+    }
+
     public static void clearSelects(Select select)
     {
         select.selectables = null;
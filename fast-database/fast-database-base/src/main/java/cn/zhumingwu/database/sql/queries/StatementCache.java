@@ -0,0 +1,88 @@
+package cn.zhumingwu.database.sql.queries;
+
+import cn.zhumingwu.database.sql.dialect.Dialect;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caches the sql of bound statements by their shape, the part of a query that doesn't change with its values, like
+ * the entity and the method of a repository call. A statement with a known shape is not built again, only its
+ * parameters are replaced. The least recently used shapes are dropped once the cache is full, the cache is segmented
+ * so concurrent lookups don't contend on a single lock.
+ *
+ * @author zhumingwu
+ * @since 3/20/2021 10:36 AM
+ */
+@Slf4j
+public class StatementCache
+{
+    private final Cache<List<Object>, String> statements;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StatementCache(int maximumSize)
+    {
+        if (maximumSize <= 0)
+        {
+            throw new IllegalArgumentException("The maximum size should be positive: " + maximumSize);
+        }
+        this.statements = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Returns the statement of the given shape bound to the parameters
+     *
+     * @param dialect    the dialect to build the query with
+     * @param shape      the key of the query, equal for queries which only differ by their values
+     * @param query      builds the query on a miss
+     * @param parameters the values of the query in the order of the placeholders
+     * @return the bound statement
+     * @throws IllegalArgumentException if the built query binds other values than the parameters
+     */
+    public BoundStatement get(Dialect dialect, Object shape, Supplier<? extends Query> query, Object... parameters)
+    {
+        var key = Arrays.asList(dialect.getName(), shape);
+        var sql = statements.getIfPresent(key);
+        if (sql != null)
+        {
+            hits.increment();
+            return new BoundStatement(sql, Arrays.asList(parameters));
+        }
+        misses.increment();
+        var statement = query.get().bind(dialect);
+        if (!statement.getParameters().equals(Arrays.asList(parameters)))
+        {
+            throw new IllegalArgumentException("The parameters " + Arrays.toString(parameters) + " don't match the values "
+                    + statement.getParameters() + " of the statement " + shape);
+        }
+        log.debug("caching statement {}: {}", shape, statement.getSql());
+        statements.put(key, statement.getSql());
+        return statement;
+    }
+
+    public int size()
+    {
+        return (int) statements.size();
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    public void clear()
+    {
+        statements.invalidateAll();
+    }
+}
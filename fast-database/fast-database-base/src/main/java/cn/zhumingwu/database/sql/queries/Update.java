@@ -115,6 +115,12 @@ public class Update implements UpdatebleQuery
         return dialect.build(this, indentation);
     }
 
+    @Override
+    public BoundStatement bind(Dialect dialect, Indentation indentation)
+    {
+        return dialect.bind(this, indentation);
+    }
+
     public static void clearWheres(Update update)
     {
         update.where = null;
@@ -38,8 +38,14 @@ public final class BuilderUtils {
             return ((Plain) value).getValue();
         }
         if (Placeholder.class.isAssignableFrom(value.getClass())) {
+            if (context.isBinding()) {
+                throw new IllegalArgumentException("Placeholders can't be used in a statement with bound values");
+            }
             return ((Placeholder) value).getValue(context, indentation);
         }
+        if (context.isBinding()) {
+            return context.bind(prefix.isEmpty() && postfix.isEmpty() ? value : prefix + value + postfix);
+        }
         if (Number.class.isAssignableFrom(value.getClass())) {
             return String.valueOf(value);
         }
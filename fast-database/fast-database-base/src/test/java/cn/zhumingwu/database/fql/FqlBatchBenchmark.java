@@ -0,0 +1,63 @@
+package cn.zhumingwu.database.fql;
+
+import cn.zhumingwu.database.properties.JdbcApiProperties;
+import cn.zhumingwu.database.service.JdbcApiService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两层嵌套查询, 按层合并和逐行查询的对比, fanOut 为第一层的行数
+ * <p>
+ * 内存数据库没有网络往返, 实际数据库上逐行查询的代价更高
+ */
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@State(Scope.Benchmark)
+public class FqlBatchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int fanOut;
+
+    @Param({"true", "false"})
+    boolean batchEnabled;
+
+    JdbcApiService service;
+
+    @Setup
+    public void setUp() throws Exception {
+        var dataSource = FqlBatchTest.createDataSource("fql_benchmark_" + this.fanOut + "_" + this.batchEnabled, this.fanOut);
+        var properties = new JdbcApiProperties();
+        properties.setBatchEnabled(this.batchEnabled);
+        this.service = new JdbcApiService(properties, dataSource);
+    }
+
+    @Benchmark
+    public Map<String, Object> query() throws Exception {
+        return FqlBatchTest.execute(this.service,
+                FqlBatchTest.QUERY.replace("user_id_gt:0", "user_id_lte:" + this.fanOut));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FqlBatchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
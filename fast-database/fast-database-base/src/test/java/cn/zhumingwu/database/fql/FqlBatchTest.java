@@ -0,0 +1,147 @@
+package cn.zhumingwu.database.fql;
+
+import cn.zhumingwu.database.fql.antlr.FqlLexer;
+import cn.zhumingwu.database.fql.antlr.FqlParser;
+import cn.zhumingwu.database.properties.JdbcApiProperties;
+import cn.zhumingwu.database.service.JdbcApiService;
+import cn.zhumingwu.database.sql.dialect.DefaultDialect;
+import cn.zhumingwu.database.sql.dialect.Dialect;
+import cn.zhumingwu.database.sql.dialect.Labels;
+import cn.zhumingwu.database.sql.queries.BoundStatement;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FqlBatchTest {
+    static final String QUERY = "{\n" +
+            "  users : t_user(user_id_gt:0) {\n" +
+            "    user_id\n" +
+            "    name\n" +
+            "    roles : t_user_role(user_id_eq:$user_id) {\n" +
+            "      role_id\n" +
+            "      role : t_role(role_id_eq:$role_id) {\n" +
+            "        name\n" +
+            "      }\n" +
+            "    }\n" +
+            "  }\n" +
+            "}";
+
+    static DataSource dataSource;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        dataSource = createDataSource("fql_batch", 500);
+    }
+
+    /**
+     * 内存数据库, 每个用户两个角色, 共10个角色
+     */
+    public static DataSource createDataSource(String name, int users) throws Exception {
+        Dialect.register(new H2Dialect());
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE");
+        try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+            statement.execute("create table t_user (user_id bigint primary key, name varchar(32))");
+            statement.execute("create table t_role (role_id int primary key, name varchar(32))");
+            statement.execute("create table t_user_role (id bigint primary key, user_id bigint, role_id bigint)");
+            for (var i = 1; i <= 10; i++) {
+                statement.execute("insert into t_role values (" + i + ", 'role" + i + "')");
+            }
+            for (var i = 1; i <= users; i++) {
+                statement.execute("insert into t_user values (" + i + ", 'user" + i + "')");
+                statement.execute("insert into t_user_role values (" + (2 * i) + ", " + i + ", " + (1 + i % 10) + ")");
+                statement.execute("insert into t_user_role values (" + (2 * i + 1) + ", " + i + ", " + (1 + (i + 3) % 10) + ")");
+            }
+        }
+        return dataSource;
+    }
+
+    static Map<String, Object> execute(JdbcApiService service, String query) throws Exception {
+        var parser = new FqlParser(new CommonTokenStream(new FqlLexer(CharStreams.fromString(query))));
+        return new JdbcFqlVisitor(service).visit(parser.document()).getValue();
+    }
+
+    @Test
+    public void testQueriesPerLevel() throws Exception {
+        var batched = new CountingService(new JdbcApiProperties(), dataSource);
+        var data = execute(batched, QUERY);
+        // 500个用户按100个参数分5批, 1000个角色关系只有10个不同的角色
+        assertThat(batched.count.get()).isEqualTo(1 + 5 + 1);
+
+        var properties = new JdbcApiProperties();
+        properties.setBatchEnabled(false);
+        var single = new CountingService(properties, dataSource);
+        assertThat(execute(single, QUERY)).isEqualTo(data);
+        assertThat(single.count.get()).isEqualTo(1 + 500 + 1000);
+
+        var users = (List<Map<String, Object>>) data.get("users");
+        assertThat(users).hasSize(500);
+        var roles = (List<Map<String, Object>>) users.get(41).get("roles");
+        assertThat(roles).hasSize(2);
+        assertThat(roles.get(0)).doesNotContainKey("_user_id");
+        assertThat(roles.get(0).get("role_id")).isEqualTo(3L);
+        assertThat(((Map<String, Object>) roles.get(0).get("role")).get("name")).isEqualTo("role3");
+        assertThat(((Map<String, Object>) roles.get(1).get("role")).get("name")).isEqualTo("role6");
+    }
+
+    @Test
+    public void testNotBatchable() throws Exception {
+        // 分页的子查询不能合并
+        var query = "{\n" +
+                "  users : t_user(user_id_lte:20) {\n" +
+                "    user_id\n" +
+                "    roles : t_user_role(user_id_eq:$user_id, user_id_limit:1)\n" +
+                "  }\n" +
+                "}";
+        var service = new CountingService(new JdbcApiProperties(), dataSource);
+        var data = execute(service, query);
+        assertThat(service.count.get()).isEqualTo(1 + 20);
+        var users = (List<Map<String, Object>>) data.get("users");
+        assertThat(((Map<String, Object>) users.get(4).get("roles")).get("user_id")).isEqualTo(5L);
+    }
+
+    static class CountingService extends JdbcApiService {
+        final AtomicInteger count = new AtomicInteger();
+
+        CountingService(JdbcApiProperties properties, DataSource dataSource) {
+            super(properties, dataSource);
+        }
+
+        @Override
+        public List<Map<String, Object>> query(BoundStatement statement) {
+            this.count.incrementAndGet();
+            return super.query(statement);
+        }
+    }
+
+    static class H2Dialect extends DefaultDialect {
+        @Override
+        public String getName() {
+            return "H2";
+        }
+
+        @Override
+        public int getMaxParameters() {
+            return 100;
+        }
+
+        @Override
+        public Labels getLabels() {
+            return new Labels() {
+                @Override
+                public char getColumnApostrophe() {
+                    return '"';
+                }
+            };
+        }
+    }
+}
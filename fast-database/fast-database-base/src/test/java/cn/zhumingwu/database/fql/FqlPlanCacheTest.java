@@ -0,0 +1,57 @@
+package cn.zhumingwu.database.fql;
+
+import cn.zhumingwu.database.properties.JdbcApiProperties;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FqlPlanCacheTest {
+    static DataSource dataSource;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        dataSource = FqlBatchTest.createDataSource("fql_plan", 50);
+    }
+
+    @Test
+    public void testNormalize() {
+        assertThat(FqlPlanCache.normalize("{\n  user : t_user(user_id_eq: 1, name_eq: \"a  b\") {\n    user_id\n    name\n  }\n}"))
+                .isEqualTo("{user:t_user(user_id_eq:1 name_eq:\"a  b\"){user_id name}}");
+        assertThat(FqlPlanCache.normalize("{ user:t_user(user_id_eq:1 , name_eq:\"a  b\") { user_id # id\n name } }"))
+                .isEqualTo("{user:t_user(user_id_eq:1 name_eq:\"a  b\"){user_id name}}");
+        // 字符串和注释里的空白不变
+        assertThat(FqlPlanCache.normalize("{a(b_eq:\"x \\\" y\"){c}}")).isEqualTo("{a(b_eq:\"x \\\" y\"){c}}");
+        assertThat(FqlPlanCache.normalize("{a(b_eq:\"\"\" x\n \"\"\"){c}}")).isEqualTo("{a(b_eq:\"\"\" x\n \"\"\"){c}}");
+        assertThat(FqlPlanCache.normalize("{a # b\n c}")).isNotEqualTo(FqlPlanCache.normalize("{a # b c}"));
+    }
+
+    @Test
+    public void testQuery() throws Exception {
+        var service = new FqlBatchTest.CountingService(new JdbcApiProperties(), dataSource);
+        var first = new JdbcFqlVisitor(service).query(FqlBatchTest.QUERY).getValue();
+        assertThat(service.getPlans().getMisses()).isEqualTo(1);
+        var statements = service.getStatements().size();
+
+        // 只有空白不同的查询命中计划和语句缓存
+        var second = new JdbcFqlVisitor(service).query(FqlBatchTest.QUERY.replace("\n", " ")).getValue();
+        assertThat(second).isEqualTo(first);
+        assertThat(service.getPlans().getHits()).isEqualTo(1);
+        assertThat(service.getPlans().getHitRate()).isEqualTo(0.5);
+        assertThat(service.getStatements().size()).isEqualTo(statements);
+        assertThat(((List<?>) second.get("users"))).hasSize(50);
+
+        // 值不同的查询使用不同的计划, 共用缓存的sql
+        var user = new JdbcFqlVisitor(service).query("{user:t_user(user_id_eq:7, name_like:\"7\"){name}}").getValue();
+        var hits = service.getStatements().getHits();
+        var other = new JdbcFqlVisitor(service).query("{user:t_user(user_id_eq:17, name_like:\"17\"){name}}").getValue();
+        assertThat(((Map<?, ?>) user.get("user")).get("name")).isEqualTo("user7");
+        assertThat(((Map<?, ?>) other.get("user")).get("name")).isEqualTo("user17");
+        assertThat(service.getPlans().getMisses()).isEqualTo(3);
+        assertThat(service.getStatements().getHits()).isEqualTo(hits + 1);
+    }
+}
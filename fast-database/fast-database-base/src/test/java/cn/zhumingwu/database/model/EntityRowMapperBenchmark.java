@@ -0,0 +1,112 @@
+package cn.zhumingwu.database.model;
+
+import cn.zhumingwu.base.util.NamingUtils;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 映射 10000 行的耗时, 生成的行映射和原来逐列反射调用 setter 的对比
+ * <p>
+ * 结果集在内存中, 只计映射本身的代价
+ */
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@State(Scope.Benchmark)
+public class EntityRowMapperBenchmark {
+    static final int ROWS = 10000;
+
+    SimpleResultSet rs;
+
+    @Setup
+    public void setUp() {
+        this.rs = EntityRowMapperTest.users(ROWS, "id", "name", "count", "age", "score", "login_time", "enabled");
+    }
+
+    @Benchmark
+    public List<EntityRowMapperTest.User> generated() throws Exception {
+        this.rs.beforeFirst();
+        return EntityRowMapper.of(EntityRowMapperTest.User.class).mapAll(this.rs);
+    }
+
+    @Benchmark
+    public List<EntityRowMapperTest.User> reflection() throws Exception {
+        this.rs.beforeFirst();
+        return reflect(this.rs, EntityRowMapperTest.User.class);
+    }
+
+    /**
+     * 原来 BaseService.query 的映射方式
+     */
+    static <T> List<T> reflect(ResultSet rs, Class<T> entityClass) throws Exception {
+        List<T> ls = new ArrayList<>();
+        final Map<String, Method> methods = new HashMap<>();
+        for (var method : entityClass.getMethods()) {
+            if (method.getName().startsWith("set") && method.getParameterCount() == 1) {
+                methods.putIfAbsent(method.getName(), method);
+            }
+        }
+        var metaData = rs.getMetaData();
+        var columnNames = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnNames[i] = metaData.getColumnLabel(i + 1);
+        }
+        while (rs.next()) {
+            T bean = entityClass.getDeclaredConstructor().newInstance();
+            for (int i = 0; i < columnNames.length; i++) {
+                Method method = methods.get(NamingUtils.underlineToCamel("set_" + columnNames[i]));
+                if (method == null) {
+                    continue;
+                }
+                var paraType = Arrays.stream(method.getGenericParameterTypes()).findFirst().get().toString();
+                Object value;
+                if (paraType.indexOf("long") >= 0 || paraType.indexOf("Long") >= 0)
+                    value = rs.getLong(columnNames[i]);
+                else if (paraType.indexOf("Integer") >= 0)
+                    value = rs.getInt(columnNames[i]);
+                else if (paraType.indexOf("String") >= 0)
+                    value = rs.getString(columnNames[i]);
+                else if (paraType.indexOf("Double") >= 0)
+                    value = rs.getDouble(columnNames[i]);
+                else if (paraType.indexOf("Timestamp") >= 0)
+                    value = rs.getTimestamp(columnNames[i]);
+                else if (paraType.indexOf("boolean") >= 0)
+                    value = rs.getBoolean(columnNames[i]);
+                else
+                    value = rs.getObject(columnNames[i]);
+                method.invoke(bean, value);
+            }
+            ls.add(bean);
+        }
+        return ls;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EntityRowMapperBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,121 @@
+package cn.zhumingwu.database.model;
+
+import cn.zhumingwu.database.entity.BaseEntity;
+import cn.zhumingwu.database.entity.Status;
+import lombok.Getter;
+import lombok.Setter;
+import org.h2.tools.SimpleResultSet;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntityRowMapperTest {
+
+    @Getter
+    @Setter
+    public static class User extends BaseEntity<Long> {
+        private Long id;
+        private long count;
+        private Integer age;
+        private Double score;
+        private Timestamp loginTime;
+        private boolean enabled;
+    }
+
+    public static class Pojo {
+        public Long id;
+        public String name;
+    }
+
+    public static class Item {
+        public Long id;
+        public String name;
+    }
+
+    static SimpleResultSet users(int rows, String... labels) {
+        var rs = new SimpleResultSet();
+        rs.setAutoClose(false);
+        var types = new int[]{Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.INTEGER, Types.DOUBLE,
+                Types.TIMESTAMP, Types.BOOLEAN, Types.TIMESTAMP, Types.BIGINT, Types.INTEGER, Types.VARCHAR};
+        for (int i = 0; i < labels.length; i++) {
+            rs.addColumn(labels[i], types[i], 0, 0);
+        }
+        for (int i = 1; i <= rows; i++) {
+            rs.addRow((long) i, "user" + i, (long) i * 10, i % 2 == 0 ? null : i, i * 0.5,
+                    new Timestamp(1_000_000L * i), i % 2 == 0, Timestamp.valueOf("2023-01-02 03:04:05"),
+                    7L, 2, "ignored");
+        }
+        return rs;
+    }
+
+    static final String[] LABELS = {"id", "name", "count", "age", "score", "login_time", "enabled", "create_time",
+            "create_by", "status", "unknown"};
+
+    @Test
+    public void testMapAll() throws Exception {
+        var users = EntityRowMapper.of(User.class).mapAll(users(3, LABELS));
+        assertThat(users).hasSize(3);
+        var user = users.get(0);
+        assertThat(user.getId()).isEqualTo(1L);
+        assertThat(user.getName()).isEqualTo("user1");
+        assertThat(user.getCount()).isEqualTo(10L);
+        assertThat(user.getAge()).isEqualTo(1);
+        assertThat(user.getScore()).isEqualTo(0.5);
+        assertThat(user.getLoginTime()).isEqualTo(new Timestamp(1_000_000L));
+        assertThat(user.isEnabled()).isFalse();
+        assertThat(user.getCreateTime()).isEqualTo(LocalDateTime.of(2023, 1, 2, 3, 4, 5));
+        // 泛型的 setter 按实体的类型参数读取
+        assertThat(user.getCreateBy()).isEqualTo(7L);
+        assertThat(user.getStatus()).isEqualTo(Status.DELETE);
+        // 包装类型的空值为 null
+        assertThat(users.get(1).getAge()).isNull();
+        assertThat(users.get(1).isEnabled()).isTrue();
+    }
+
+    @Test
+    public void testShapes() throws Exception {
+        var mapper = EntityRowMapper.of(User.class);
+        assertThat(EntityRowMapper.of(User.class)).isSameAs(mapper);
+        // 大写和驼峰的列名也能匹配, 每种列名解析一次
+        var upper = mapper.mapAll(users(2, "ID", "NAME", "COUNT"));
+        var camel = mapper.mapAll(users(2, "id", "name", "count", "age", "score", "loginTime"));
+        mapper.mapAll(users(1, "ID", "NAME", "COUNT"));
+        assertThat(upper.get(1).getName()).isEqualTo("user2");
+        assertThat(upper.get(1).getCount()).isEqualTo(20L);
+        assertThat(camel.get(0).getLoginTime()).isEqualTo(new Timestamp(1_000_000L));
+        assertThat(mapper.bindings).containsKeys(List.of("ID", "NAME", "COUNT"));
+        assertThat(mapper.bindings.get(List.of("ID", "NAME", "COUNT")).indexes).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void testMapRow() throws Exception {
+        var rs = users(2, "id", "name", "status");
+        var mapper = EntityRowMapper.of(Pojo.class);
+        rs.next();
+        var first = mapper.mapRow(rs, 0);
+        rs.next();
+        var second = mapper.mapRow(rs, 1);
+        // 公有字段
+        assertThat(first.id).isEqualTo(1L);
+        assertThat(second.name).isEqualTo("user2");
+        assertThat(mapper.bindings).hasSize(1);
+    }
+
+    @Test
+    public void testBindingsBounded() throws Exception {
+        var mapper = EntityRowMapper.of(Item.class);
+        for (int i = 0; i < EntityRowMapper.MAX_BINDINGS + 10; i++) {
+            var items = mapper.mapAll(users(1, "id", "name", "extra" + i));
+            assertThat(items.get(0).name).isEqualTo("user1");
+        }
+        // 只保留最近用过的列名
+        assertThat(mapper.bindings).hasSize(EntityRowMapper.MAX_BINDINGS);
+        assertThat(mapper.bindings).containsKey(List.of("id", "name", "extra" + (EntityRowMapper.MAX_BINDINGS + 9)));
+        assertThat(mapper.bindings).doesNotContainKey(List.of("id", "name", "extra0"));
+    }
+}
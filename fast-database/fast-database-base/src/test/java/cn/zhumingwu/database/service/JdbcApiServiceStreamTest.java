@@ -0,0 +1,67 @@
+package cn.zhumingwu.database.service;
+
+import cn.zhumingwu.database.fql.FqlBatchTest;
+import cn.zhumingwu.database.model.RowJsonWriter;
+import cn.zhumingwu.database.properties.JdbcApiProperties;
+import cn.zhumingwu.database.sql.queries.Queries;
+import cn.zhumingwu.database.sql.schema.Table;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JdbcApiServiceStreamTest {
+    static JdbcApiService service;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        var properties = new JdbcApiProperties();
+        properties.setFetchSize(7);
+        service = new JdbcApiService(properties, FqlBatchTest.createDataSource("stream", 100));
+    }
+
+    String write(RowJsonWriter.Format format, long expectedRows) throws Exception {
+        var table = Table.create("t_user").as("u");
+        var select = Queries.select(table.column("user_id").build(), table.column("name").build())
+                .from(table)
+                .where(table.intColumn("user_id").build().lt(50L));
+        var mapper = new ObjectMapper();
+        var out = new ByteArrayOutputStream();
+        try (var generator = mapper.getFactory().createGenerator(out)) {
+            var writer = new RowJsonWriter(generator, format);
+            writer.start();
+            assertThat(service.stream(select, writer)).isEqualTo(expectedRows);
+            writer.finish();
+            assertThat(writer.getRows()).isEqualTo(expectedRows);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        var json = this.write(RowJsonWriter.Format.JSON, 49);
+        var rows = new ObjectMapper().readValue(json, List.class);
+        assertThat(rows).hasSize(49);
+        assertThat(rows.get(6)).isEqualTo(Map.of("user_id", 7, "name", "user7"));
+        // 和非流式查询的结果相同
+        var table = Table.create("t_user").as("u");
+        var query = service.query(Queries.select(table.column("user_id").build(), table.column("name").build())
+                .from(table)
+                .where(table.intColumn("user_id").build().lt(50L)));
+        assertThat(new ObjectMapper().readValue(new ObjectMapper().writeValueAsString(query), List.class)).isEqualTo(rows);
+    }
+
+    @Test
+    public void testNdjson() throws Exception {
+        var lines = this.write(RowJsonWriter.Format.NDJSON, 49).split("\n");
+        assertThat(lines).hasSize(49);
+        assertThat(lines[0]).isEqualTo("{\"user_id\":1,\"name\":\"user1\"}");
+        assertThat(lines[48]).isEqualTo("{\"user_id\":49,\"name\":\"user49\"}");
+    }
+}
@@ -0,0 +1,124 @@
+package cn.zhumingwu.database.sql.queries;
+
+import cn.zhumingwu.database.sql.columns.datetime.DateColumn;
+import cn.zhumingwu.database.sql.columns.number.integer.IntColumn;
+import cn.zhumingwu.database.sql.columns.string.VarCharColumn;
+import cn.zhumingwu.database.sql.domain.Placeholder;
+import cn.zhumingwu.database.sql.functions.Function;
+import cn.zhumingwu.database.sql.schema.Table;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cn.zhumingwu.database.sql.dialect.Dialects.MYSQL;
+import static cn.zhumingwu.database.sql.domain.LikeType.AFTER;
+import static cn.zhumingwu.database.sql.queries.Queries.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.easymock.EasyMock.expect;
+import static org.powermock.api.easymock.PowerMock.*;
+
+class BoundStatementTest {
+    private static final Table PERSONS = Table.create("persons");
+    private static final VarCharColumn LASTNAME = PERSONS.varCharColumn("lastname").build();
+    private static final VarCharColumn NICKNAME = PERSONS.varCharColumn("nickname").build();
+    private static final IntColumn AGE = PERSONS.intColumn("age").build();
+    private static final DateColumn BIRTHDAY = PERSONS.dateColumn("birthday").build();
+
+    @Test
+    void testBindSelect() {
+        var select = select(LASTNAME, AGE)
+                .from(PERSONS)
+                .where(LASTNAME.isLike("Schu", AFTER)
+                        .and(AGE.isGreaterThan(18))
+                        .and(NICKNAME.isIn("a", "b"))
+                        .and(NICKNAME.isEqualTo(LASTNAME))
+                        .and(BIRTHDAY.isEqualTo(LocalDate.of(2020, 4, 24))))
+                .limit(10);
+
+        var statement = select.bind(MYSQL);
+        assertThat(statement.getSql())
+                .isEqualTo("SELECT `persons`.`lastname`, `persons`.`age` FROM `persons` WHERE (`persons`.`lastname` LIKE ? AND `persons`.`age` > ? AND `persons`.`nickname` IN (?, ?) AND `persons`.`nickname` = `persons`.`lastname` AND `persons`.`birthday` = ?) LIMIT 10");
+        assertThat(statement.getParameters()).containsExactly("Schu%", 18L, "a", "b", LocalDate.of(2020, 4, 24));
+
+        // building still writes the values into the sql
+        assertThat(select.build(MYSQL)).contains("`persons`.`lastname` LIKE 'Schu%'").contains("IN ('a', 'b')");
+    }
+
+    @Test
+    void testBindUpdateInsertDelete() {
+        var update = update(PERSONS).set(LASTNAME, "Schumacher").set(AGE, Function.now()).where(AGE.isEqualTo(38));
+        assertThat(update.bind(MYSQL)).isEqualTo(new BoundStatement(
+                "UPDATE `persons` SET `persons`.`lastname` = ?, `persons`.`age` = NOW() WHERE `persons`.`age` = ?", List.of("Schumacher", 38L)));
+
+        var insert = insertInto(PERSONS).set(LASTNAME, "Schumacher").set(AGE, 38);
+        assertThat(insert.bind(MYSQL)).isEqualTo(new BoundStatement(
+                "INSERT INTO `persons` (`lastname`, `age`) VALUES (?, ?)", List.of("Schumacher", 38L)));
+
+        var table = Table.create("persons").as("p");
+        var delete = deleteFrom(table).where(table.intColumn("age").build().isLessThan(3));
+        assertThat(delete.bind(MYSQL).getSql()).endsWith(" WHERE `p`.`age` < ?");
+        assertThat(delete.bind(MYSQL).getParameters()).containsExactly(3L);
+
+        assertThat(createTable(PERSONS).bind(MYSQL).getParameters()).isEmpty();
+    }
+
+    @Test
+    void testPlaceholderNotBound() {
+        var select = select().from(PERSONS).where(AGE.isEqualTo(Placeholder.placeholder()));
+        assertThat(select.build(MYSQL)).isEqualTo("SELECT * FROM `persons` WHERE `persons`.`age` = ?");
+        assertThatThrownBy(() -> select.bind(MYSQL)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testPrepare() throws SQLException {
+        var statement = select().from(PERSONS).where(LASTNAME.isEqualTo("Schumacher").and(AGE.isEqualTo(38))).bind(MYSQL);
+
+        try (var connection = createStrictMock(Connection.class)) {
+            var preparedStatement = createStrictMock(PreparedStatement.class);
+            expect(connection.prepareStatement("SELECT * FROM `persons` WHERE (`persons`.`lastname` = ? AND `persons`.`age` = ?)"))
+                    .andReturn(preparedStatement);
+            preparedStatement.setObject(1, "Schumacher");
+            preparedStatement.setObject(2, 38L);
+            connection.close();
+
+            replayAll();
+            assertThat(statement.prepare(connection)).isSameAs(preparedStatement);
+        }
+
+        verifyAll();
+    }
+
+    @Test
+    void testStatementCache() {
+        var cache = new StatementCache(2);
+        var builds = new AtomicInteger();
+        for (var age = 0; age < 5; age++) {
+            var statement = cache.get(MYSQL, "byAge", () -> {
+                builds.incrementAndGet();
+                return select().from(PERSONS).where(AGE.isEqualTo(18));
+            }, 18L + age);
+            assertThat(statement.getSql()).isEqualTo("SELECT * FROM `persons` WHERE `persons`.`age` = ?");
+            assertThat(statement.getParameters()).containsExactly(18L + age);
+        }
+        assertThat(builds.get()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(4);
+        assertThat(cache.getMisses()).isEqualTo(1);
+
+        // the parameters are checked against the values of the built query
+        assertThatThrownBy(() -> cache.get(MYSQL, "byName", () -> select().from(PERSONS).where(LASTNAME.isEqualTo("a")), "b"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // the least recently used shape is dropped
+        cache.get(MYSQL, "all", () -> select().from(PERSONS));
+        cache.get(MYSQL, "count", () -> select(Function.count()).from(PERSONS));
+        assertThat(cache.size()).isEqualTo(2);
+        cache.get(MYSQL, "byAge", () -> select().from(PERSONS).where(AGE.isEqualTo(18)), 18L);
+        assertThat(cache.getMisses()).isEqualTo(5);
+    }
+}
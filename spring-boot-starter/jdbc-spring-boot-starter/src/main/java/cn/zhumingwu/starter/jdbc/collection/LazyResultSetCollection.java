@@ -1,18 +1,28 @@
 package cn.zhumingwu.starter.jdbc.collection;
 
 
+import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.jdbc.core.RowMapper;
 
 import java.sql.ResultSet;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.sql.SQLException;
 import java.util.Iterator;
-import java.util.List;
-
-public class LazyResultSetCollection<E> implements Collection<E> {
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 按需映射的结果集, 只能遍历一次, 遍历时结果集必须保持打开
+ * <p>
+ * 大小未知, 所以不是 Collection, 只能通过 iterator 或 stream 读取
+ */
+public class LazyResultSetCollection<E> implements Iterable<E> {
     private final ResultSet rs;
     private final RowMapper<E> mapper;
     private final Class<E> clazz;
+    private boolean iterated = false;
 
     public LazyResultSetCollection(ResultSet resultSet, RowMapper<E> mapper, Class<E> clazz) {
         this.rs = resultSet;
@@ -20,121 +30,51 @@ public class LazyResultSetCollection<E> implements Collection<E> {
         this.clazz = clazz;
     }
 
-    @Override
-    public int size() {
-        return 0;
-    }
-
-    @Override
-    public boolean isEmpty() {
-        return true;
-    }
-
-    @Override
-    public boolean contains(Object o) {
-        return true;
-    }
-
     @Override
     public Iterator<E> iterator() {
-        return new ResultSetIterator<>(rs, clazz);
-    }
-
-    @Override
-    public Object[] toArray() {
-        List<E> results = new ArrayList<>();
-
-        this.stream().forEach(results::add);
-
-        return results.toArray();
-    }
-
-    @Override
-    public <T> T[] toArray(T[] a) {
-        List<E> results = new ArrayList<>();
-
-        this.stream().forEach(results::add);
-
-        return results.toArray(a);
-    }
-
-    @Override
-    public boolean add(E e) {
-        return true;
-    }
-
-    @Override
-    public boolean remove(Object o) {
-        return true;
-    }
-
-    @Override
-    public boolean containsAll(Collection<?> c) {
-        return true;
-    }
-
-    @Override
-    public boolean addAll(Collection<? extends E> c) {
-        return true;
-    }
-
-    @Override
-    public boolean removeAll(Collection<?> c) {
-        return true;
-    }
-
-    @Override
-    public boolean retainAll(Collection<?> c) {
-        return true;
+        if (this.iterated) {
+            throw new IllegalStateException("The result set can only be iterated once");
+        }
+        this.iterated = true;
+        return new ResultSetIterator();
     }
 
-    @Override
-    public void clear() {
+    public Stream<E> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED), false);
     }
 
-    private class ResultSetIterator<C> implements Iterator<C> {
-        private final ResultSet rs;
-        private C next;
-
-        public ResultSetIterator(ResultSet resultSet, Class<C> clazz) {
-            rs = resultSet;
-        }
+    private class ResultSetIterator implements Iterator<E> {
+        private E next;
+        private boolean fetched = false;
+        private boolean done = false;
+        private int rowNum = 0;
 
         @Override
         public boolean hasNext() {
-            if (next == null) {
-                boolean hasNext = false;
+            if (!this.fetched && !this.done) {
                 try {
-                    if (hasNext = rs.next()) {
-                        next = (C)mapper.mapRow(rs, 0);
+                    if (rs.next()) {
+                        this.next = clazz.cast(mapper.mapRow(rs, this.rowNum++));
+                        this.fetched = true;
                     } else {
-                        return false;
+                        this.done = true;
                     }
-
-                } catch (Exception e) {
+                } catch (SQLException e) {
+                    throw new UncategorizedSQLException("LazyResultSetCollection", null, e);
                 }
-
-                return hasNext;
-            } else {
-
-                return true;
             }
+            return this.fetched;
         }
 
         @Override
-        public C next() {
-            if (next == null) {
-                try {
-                    rs.next();
-                    return (C)mapper.mapRow(rs, 0);
-                } catch (Exception e) {
-                    return null;
-                }
-            } else {
-                C returnItem = next;
-                next = null;
-                return returnItem;
+        public E next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
             }
+            this.fetched = false;
+            var item = this.next;
+            this.next = null;
+            return item;
         }
     }
 }
@@ -3,25 +3,25 @@ package cn.zhumingwu.starter.jdbc.controller;
 import cn.zhumingwu.base.model.HttpCode;
 import cn.zhumingwu.base.model.Result;
 import cn.zhumingwu.database.fql.JdbcFqlVisitor;
-import cn.zhumingwu.database.fql.antlr.FqlLexer;
-import cn.zhumingwu.database.fql.antlr.FqlParser;
+import cn.zhumingwu.database.model.RowJsonWriter;
 import cn.zhumingwu.database.service.JdbcApiService;
 import cn.zhumingwu.database.sql.columns.Column;
 import cn.zhumingwu.database.sql.conditions.Condition;
+import cn.zhumingwu.database.sql.conditions.GenericCondition;
 import cn.zhumingwu.database.sql.domain.Placeholder;
 import cn.zhumingwu.database.sql.queries.Queries;
 import cn.zhumingwu.web.controller.BaseController;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
 import io.swagger.models.Swagger;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 
 import cn.zhumingwu.starter.jdbc.model.ViewResult;
 import cn.zhumingwu.starter.jdbc.model.ViewUpdate;
-import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
@@ -29,6 +29,7 @@ import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
 
 
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.LinkedHashMap;
 import java.util.Locale;
@@ -41,6 +42,8 @@ public class JdbcApiController extends BaseController {
 
     @Autowired
     JdbcApiService service;
+    @Autowired
+    ObjectMapper objectMapper;
 
     @RequestMapping(value = "/api-docs", method = RequestMethod.GET)
     public Swagger getApiDocs(@RequestParam(value = "group", required = false) String group,
@@ -95,6 +98,53 @@ public class JdbcApiController extends BaseController {
         return Result.success(result);
     }
 
+    /**
+     * 流式导出, 其他参数作为等值条件, format=ndjson 时每行一个对象, 否则为 json 数组
+     */
+    @RequestMapping(value = "/{model}/stream", method = RequestMethod.GET)
+    public void stream(@PathVariable String model, @RequestParam Map<String, String> params,
+            HttpServletResponse response) throws IOException {
+        var table = this.service.getNamedTables().get(model);
+        if (table == null) {
+            response.sendError(HttpCode.NOT_FOUND.getCode(), "No data resource！");
+            return;
+        }
+        // 数据库字段名
+        var columns = this.service.getNamedColumns().get(table.getAlias());
+        if (columns == null) {
+            response.sendError(HttpCode.NOT_FOUND.getCode(), "No data description！");
+            return;
+        }
+        var format = "ndjson".equalsIgnoreCase(params.get("format")) ? RowJsonWriter.Format.NDJSON
+                : RowJsonWriter.Format.JSON;
+        var condition = Condition.emptyCondition();
+        for (var entry : params.entrySet()) {
+            if ("format".equals(entry.getKey())) {
+                continue;
+            }
+            var column = columns.get(entry.getKey());
+            if (column == null) {
+                response.sendError(HttpCode.BAD_REQUEST.getCode(), entry.getKey() + "can not be found!");
+                return;
+            }
+            condition = condition.and(new GenericCondition(GenericCondition.GenericConditionType.IS_EQUAL_TO, column,
+                    convertColumnData(column.getColumnDefinition().getDefinitionName(), entry.getValue())));
+        }
+        var sql = Queries.select(columns.values().toArray(new Column[0])).from(table).where(condition);
+
+        response.setContentType(format == RowJsonWriter.Format.NDJSON ? "application/x-ndjson" : "application/json");
+        response.setCharacterEncoding("UTF-8");
+        // 直接写到输出流, 客户端读得慢时写入阻塞, 数据库的读取随之暂停
+        try (var generator = this.objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            // 导出失败时不补全结尾的 ], 让客户端看到的是不完整的流而不是截断的合法数组
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            var writer = new RowJsonWriter(generator, format);
+            writer.start();
+            this.service.stream(sql, writer);
+            writer.finish();
+        }
+    }
+
     @RequestMapping(value = "/{model}/{key}", method = RequestMethod.GET, produces = "application/json")
     public Result<Object> queryByKey(@PathVariable String model, @PathVariable String key) {
         var table = this.service.getNamedTables().get(model);
@@ -347,19 +397,29 @@ public class JdbcApiController extends BaseController {
                 query = "{" + query + "}";
             }
 
-            CharStream input = CharStreams.fromString(query);
-
-            var lexer = new FqlLexer(input);
-            var tokens = new CommonTokenStream(lexer);
-            var parser = new FqlParser(tokens);
-            var document = parser.document();
+            // 相同的查询文本使用缓存的执行计划
             var visitor = new JdbcFqlVisitor(this.service);
-            return Result.success(visitor.visit(document).getObject());
+            return Result.success(visitor.query(query).getObject());
         } catch (Exception ex) {
             return Result.error(ex);
         }
     }
 
+    @RequestMapping(value = "/query/stats", method = RequestMethod.GET, produces = "application/json")
+    public Result<Object> queryStats() {
+        var plans = this.service.getPlans();
+        var statements = this.service.getStatements();
+        var result = new LinkedHashMap<String, Object>();
+        result.put("planSize", plans.size());
+        result.put("planHits", plans.getHits());
+        result.put("planMisses", plans.getMisses());
+        result.put("planHitRate", plans.getHitRate());
+        result.put("statementSize", statements.size());
+        result.put("statementHits", statements.getHits());
+        result.put("statementMisses", statements.getMisses());
+        return Result.success(result);
+    }
+
     private Object convertColumnData(String type, Object data) {
         type = type.toUpperCase(Locale.ROOT);
         try {
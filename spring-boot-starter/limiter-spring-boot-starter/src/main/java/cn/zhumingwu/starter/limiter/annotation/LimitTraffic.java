@@ -1,5 +1,6 @@
 package cn.zhumingwu.starter.limiter.annotation;
 
+import cn.zhumingwu.starter.limiter.properties.LimiterProperties;
 import org.springframework.stereotype.Indexed;
 
 import java.lang.annotation.*;
@@ -46,4 +47,19 @@ public @interface LimitTraffic {
      * @return TimeUnit
      */
     TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+
+    /**
+     * SpEL expression over the method parameters, such as #userId or #request.tenantId,
+     * each value is limited separately. Empty limits all calls of the method together
+     *
+     * @return String
+     */
+    String key() default "";
+
+    /**
+     * Limiting algorithm, defaults to project.limiter.algorithm
+     *
+     * @return Algorithm
+     */
+    LimiterProperties.Algorithm algorithm() default LimiterProperties.Algorithm.DEFAULT;
 }
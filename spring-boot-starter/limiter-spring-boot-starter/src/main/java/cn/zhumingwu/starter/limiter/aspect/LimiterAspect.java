@@ -1,20 +1,25 @@
 package cn.zhumingwu.starter.limiter.aspect;
 
+import cn.zhumingwu.starter.limiter.annotation.LimitTraffic;
+import cn.zhumingwu.starter.limiter.core.configure.TokenLimitedTrafficConfigure;
+import cn.zhumingwu.starter.limiter.core.factory.LimiterEngineFactory;
+import cn.zhumingwu.starter.limiter.core.factory.TokenLimitedTrafficConfigureFactory;
+import cn.zhumingwu.starter.limiter.core.partition.LimitedMethod;
+import cn.zhumingwu.starter.limiter.core.partition.Partition;
+import cn.zhumingwu.starter.limiter.core.utils.AspectUtils;
+import cn.zhumingwu.starter.limiter.properties.LimiterProperties;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import cn.zhumingwu.starter.limiter.core.execution.RedisOperationsExecution;
-import cn.zhumingwu.starter.limiter.core.factory.RedisOperationsFactory;
-import cn.zhumingwu.starter.limiter.core.utils.AspectUtils;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
-import org.springframework.data.redis.core.BoundListOperations;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.util.ObjectUtils;
 
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @Aspect
@@ -22,26 +27,52 @@ import java.lang.reflect.Method;
 @Data
 public class LimiterAspect {
     private RedisTemplate<Object, Object> redisTemplate;
+    private LimiterProperties limiterProperties;
+    private final Map<Method, LimitedMethod> methods = new ConcurrentHashMap<>();
 
-    public LimiterAspect(RedisTemplate<Object, Object> redisTemplate) {
+    public LimiterAspect(RedisTemplate<Object, Object> redisTemplate, LimiterProperties limiterProperties) {
         this.redisTemplate = redisTemplate;
+        this.limiterProperties = limiterProperties;
     }
 
-    @Pointcut("@annotation(com.github.thierrysquirrel.annotation.LimitTraffic)")
+    @Pointcut("@annotation(cn.zhumingwu.starter.limiter.annotation.LimitTraffic)")
     public void limitTrafficPointcut() {
         log.debug("Start limiting traffic");
     }
 
+    /**
+     * The annotation is not bound as an advice argument, that makes the pointcut dynamic and matched on every call
+     */
     @Around("limitTrafficPointcut()")
     public Object limitTrafficAround(ProceedingJoinPoint point) throws Throwable {
         Method method = AspectUtils.getMethod(point);
-        BoundListOperations<Object, Object> boundListOperations =
-                RedisOperationsFactory.getBoundListOperations(
-                        redisTemplate, DigestUtils.sha1(method.toString()));
-        Object token = RedisOperationsExecution.getToken(boundListOperations);
-        if (ObjectUtils.isEmpty(token)) {
+        LimitedMethod limitedMethod = this.methods.get(method);
+        if (limitedMethod == null) {
+            limitedMethod = this.getLimitedMethod(
+                    method, AnnotatedElementUtils.findMergedAnnotation(method, LimitTraffic.class));
+        }
+        Partition partition = limitedMethod.tryAcquire(limitedMethod.isPartitioned() ? point.getArgs() : null);
+        if (partition == null) {
             return null;
         }
-        return point.proceed();
+        try {
+            return point.proceed();
+        } finally {
+            partition.release();
+        }
+    }
+
+    public LimitedMethod getLimitedMethod(Method method, LimitTraffic limitTraffic) {
+        LimitedMethod limitedMethod = this.methods.get(method);
+        if (limitedMethod != null) {
+            return limitedMethod;
+        }
+        return this.methods.computeIfAbsent(method, key -> {
+            TokenLimitedTrafficConfigure configure =
+                    TokenLimitedTrafficConfigureFactory.getRedisExecutionConfigure(key, limitTraffic);
+            return new LimitedMethod(key, configure, this.limiterProperties, partition ->
+                    LimiterEngineFactory.createLimiterEngine(
+                            configure, this.limiterProperties, this.redisTemplate, partition));
+        });
     }
 }
@@ -1,10 +1,15 @@
 package cn.zhumingwu.starter.limiter.config;
 
 import cn.zhumingwu.starter.limiter.annotation.EnableLimiter;
+import cn.zhumingwu.starter.limiter.endpoint.LimiterEndpoint;
 import cn.zhumingwu.starter.limiter.initialize.LimiterInitialize;
 import cn.zhumingwu.starter.limiter.aspect.LimiterAspect;
+import cn.zhumingwu.starter.limiter.properties.LimiterProperties;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -13,19 +18,30 @@ import jakarta.annotation.Resource;
 
 @Configuration
 @ConditionalOnBean(annotation = EnableLimiter.class)
+@EnableConfigurationProperties(LimiterProperties.class)
 public class LimiterAutoConfiguration {
     @Resource
     private RedisTemplate<Object, Object> redisTemplate;
 
     @Bean
     @ConditionalOnMissingBean(LimiterInitialize.class)
-    public LimiterInitialize limiterInitialize() {
-        return new LimiterInitialize(redisTemplate);
+    public LimiterInitialize limiterInitialize(LimiterAspect limiterAspect) {
+        return new LimiterInitialize(limiterAspect);
     }
 
     @Bean
     @ConditionalOnMissingBean(LimiterAspect.class)
-    public LimiterAspect limiterAspect() {
-        return new LimiterAspect(redisTemplate);
+    public LimiterAspect limiterAspect(LimiterProperties limiterProperties) {
+        return new LimiterAspect(redisTemplate, limiterProperties);
+    }
+
+    @Configuration
+    @ConditionalOnClass(Endpoint.class)
+    static class LimiterEndpointConfiguration {
+        @Bean
+        @ConditionalOnMissingBean(LimiterEndpoint.class)
+        public LimiterEndpoint limiterEndpoint(LimiterAspect limiterAspect) {
+            return new LimiterEndpoint(limiterAspect);
+        }
     }
 }
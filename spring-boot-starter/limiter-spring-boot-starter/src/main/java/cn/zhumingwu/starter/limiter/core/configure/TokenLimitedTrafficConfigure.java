@@ -1,5 +1,6 @@
 package cn.zhumingwu.starter.limiter.core.configure;
 
+import cn.zhumingwu.starter.limiter.properties.LimiterProperties;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -8,13 +9,16 @@ import java.util.concurrent.TimeUnit;
 
 @Data
 public class TokenLimitedTrafficConfigure implements Serializable {
-    private byte[] tokenKey;
-    private Integer tokenValue;
-    private String lockKey;
-    private Integer lockValue;
+    private String tokenKey;
     private long initialQuantity;
     private long maximumCapacity;
     private long addedQuantity;
     private long intervalTime;
     private TimeUnit timeUnit;
+    private String key;
+    private LimiterProperties.Algorithm algorithm;
+
+    public long getIntervalNanos() {
+        return this.timeUnit.toNanos(this.intervalTime);
+    }
 }
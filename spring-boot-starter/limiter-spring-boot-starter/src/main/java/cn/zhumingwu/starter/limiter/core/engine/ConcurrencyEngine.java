@@ -0,0 +1,41 @@
+package cn.zhumingwu.starter.limiter.core.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Semaphore-style limit on the calls in progress, a permit is given back when the call finishes
+ */
+public class ConcurrencyEngine implements LimiterEngine {
+    private final long permits;
+    private final AtomicLong inFlight = new AtomicLong();
+
+    public ConcurrencyEngine(long permits) {
+        this.permits = permits;
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = this.inFlight.get();
+            if (current >= this.permits) {
+                return false;
+            }
+        } while (!this.inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    @Override
+    public void release() {
+        this.inFlight.decrementAndGet();
+    }
+
+    @Override
+    public boolean isIdle() {
+        return this.inFlight.get() == 0;
+    }
+
+    public long getInFlight() {
+        return this.inFlight.get();
+    }
+}
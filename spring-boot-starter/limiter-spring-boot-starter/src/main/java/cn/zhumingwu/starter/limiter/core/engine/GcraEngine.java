@@ -0,0 +1,41 @@
+package cn.zhumingwu.starter.limiter.core.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free generic cell rate algorithm, one token is emitted every intervalNanos / addedQuantity
+ * and at most maximumCapacity tokens may be taken at once
+ * <p>
+ * The whole state is the theoretical arrival time of the next call, updated with one compare-and-set
+ */
+public class GcraEngine implements LimiterEngine {
+    private final long emissionNanos;
+    private final long toleranceNanos;
+    private final LongSupplier clock;
+    private final AtomicLong arrival;
+
+    public GcraEngine(long initialQuantity, long maximumCapacity, long addedQuantity, long intervalNanos,
+                      LongSupplier clock) {
+        this.emissionNanos = Math.max(1, intervalNanos / Math.max(1, addedQuantity));
+        this.toleranceNanos = maximumCapacity * this.emissionNanos;
+        this.clock = clock;
+        // initialQuantity tokens are available right away
+        this.arrival = new AtomicLong(clock.getAsLong() + (maximumCapacity - initialQuantity) * this.emissionNanos);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        long now = this.clock.getAsLong();
+        long current;
+        long next;
+        do {
+            current = this.arrival.get();
+            next = Math.max(current, now) + this.emissionNanos;
+            if (next - now > this.toleranceNanos) {
+                return false;
+            }
+        } while (!this.arrival.compareAndSet(current, next));
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+package cn.zhumingwu.starter.limiter.core.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Spends tokens leased in batches from a shared bucket, only the call that finds the lease empty goes to the source
+ * <p>
+ * Leased tokens not spent within leaseNanos are dropped so a node cannot hoard them. When the source has no tokens
+ * the calls are rejected locally for retryNanos instead of asking the source again on every call
+ */
+public class LeasedTokenEngine implements LimiterEngine {
+    private final TokenSource source;
+    private final long leaseSize;
+    private final long leaseNanos;
+    private final long retryNanos;
+    private final LongSupplier clock;
+    private final AtomicLong tokens = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long expires;
+    private volatile long retry;
+
+    public LeasedTokenEngine(TokenSource source, long leaseSize, long leaseNanos, long retryNanos,
+                             LongSupplier clock) {
+        this.source = source;
+        this.leaseSize = Math.max(1, leaseSize);
+        this.leaseNanos = leaseNanos;
+        this.retryNanos = retryNanos;
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.expires = now;
+        this.retry = now;
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        long now = this.clock.getAsLong();
+        if (now - this.expires < 0 && this.take()) {
+            return true;
+        }
+        if (now - this.retry < 0) {
+            return false;
+        }
+        return this.lease();
+    }
+
+    private boolean lease() {
+        this.lock.lock();
+        try {
+            // another call may have leased while this one waited
+            long now = this.clock.getAsLong();
+            if (now - this.expires < 0 && this.take()) {
+                return true;
+            }
+            if (now - this.retry < 0) {
+                return false;
+            }
+            long granted = this.source.lease(this.leaseSize);
+            if (granted <= 0) {
+                this.tokens.set(0);
+                this.retry = now + this.retryNanos;
+                return false;
+            }
+            this.tokens.set(granted - 1);
+            this.expires = now + this.leaseNanos;
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean take() {
+        long current;
+        do {
+            current = this.tokens.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!this.tokens.compareAndSet(current, current - 1));
+        return true;
+    }
+}
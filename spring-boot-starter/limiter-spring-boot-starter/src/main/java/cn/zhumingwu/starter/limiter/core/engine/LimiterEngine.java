@@ -0,0 +1,29 @@
+package cn.zhumingwu.starter.limiter.core.engine;
+
+/**
+ * Decides whether one call of a limited method may proceed
+ */
+public interface LimiterEngine {
+
+    /**
+     * Take one token without blocking
+     *
+     * @return true if the call may proceed
+     */
+    boolean tryAcquire();
+
+    /**
+     * Called when a call that acquired has finished, only concurrency limits give anything back
+     */
+    default void release() {
+    }
+
+    /**
+     * Whether the state can be dropped without letting more calls through, false while calls hold permits
+     *
+     * @return boolean
+     */
+    default boolean isIdle() {
+        return true;
+    }
+}
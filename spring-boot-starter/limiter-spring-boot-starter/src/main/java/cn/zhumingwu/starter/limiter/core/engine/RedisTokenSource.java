@@ -0,0 +1,44 @@
+package cn.zhumingwu.starter.limiter.core.engine;
+
+import cn.zhumingwu.starter.limiter.core.configure.TokenLimitedTrafficConfigure;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.List;
+
+/**
+ * Token bucket kept in a redis hash, refilled and leased by one lua script call
+ */
+public class RedisTokenSource implements TokenSource {
+    private static final RedisScript<Long> LEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/limiter_lease.lua"), Long.class);
+    private static final RedisSerializer<Long> RESULT_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    private final RedisTemplate<Object, Object> redisTemplate;
+    private final List<Object> keys;
+    private final String initialQuantity;
+    private final String maximumCapacity;
+    private final String addedQuantity;
+    private final String intervalMicros;
+
+    public RedisTokenSource(
+            RedisTemplate<Object, Object> redisTemplate, TokenLimitedTrafficConfigure configure, String tokenKey) {
+        this.redisTemplate = redisTemplate;
+        this.keys = List.of(tokenKey);
+        this.initialQuantity = String.valueOf(configure.getInitialQuantity());
+        this.maximumCapacity = String.valueOf(configure.getMaximumCapacity());
+        this.addedQuantity = String.valueOf(configure.getAddedQuantity());
+        this.intervalMicros = String.valueOf(Math.max(1, configure.getTimeUnit().toMicros(configure.getIntervalTime())));
+    }
+
+    @Override
+    public long lease(long requested) {
+        Long granted = this.redisTemplate.execute(LEASE_SCRIPT, RedisSerializer.string(), RESULT_SERIALIZER,
+                this.keys, this.initialQuantity, this.maximumCapacity, this.addedQuantity, this.intervalMicros,
+                String.valueOf(requested));
+        return granted == null ? 0 : granted;
+    }
+}
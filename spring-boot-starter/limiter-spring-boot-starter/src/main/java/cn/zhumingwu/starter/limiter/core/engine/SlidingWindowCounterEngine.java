@@ -0,0 +1,43 @@
+package cn.zhumingwu.starter.limiter.core.engine;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding window counter, counts the calls of the current and the previous fixed window and estimates the calls
+ * of the last windowNanos by weighting the previous count with the part of it still inside the sliding window
+ * <p>
+ * Constant memory per partition whatever the limit
+ */
+public class SlidingWindowCounterEngine implements LimiterEngine {
+    private final long limit;
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private long windowStart;
+    private long current;
+    private long previous;
+
+    public SlidingWindowCounterEngine(long limit, long windowNanos, LongSupplier clock) {
+        this.limit = limit;
+        this.windowNanos = Math.max(1, windowNanos);
+        this.clock = clock;
+        this.windowStart = clock.getAsLong();
+    }
+
+    @Override
+    public synchronized boolean tryAcquire() {
+        long elapsed = this.clock.getAsLong() - this.windowStart;
+        if (elapsed >= this.windowNanos) {
+            long windows = elapsed / this.windowNanos;
+            this.previous = windows == 1 ? this.current : 0;
+            this.current = 0;
+            this.windowStart += windows * this.windowNanos;
+            elapsed -= windows * this.windowNanos;
+        }
+        double weight = (double) (this.windowNanos - elapsed) / this.windowNanos;
+        if (this.previous * weight + this.current >= this.limit) {
+            return false;
+        }
+        this.current++;
+        return true;
+    }
+}
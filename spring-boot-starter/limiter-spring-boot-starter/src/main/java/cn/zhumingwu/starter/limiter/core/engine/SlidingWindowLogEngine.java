@@ -0,0 +1,39 @@
+package cn.zhumingwu.starter.limiter.core.engine;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding window log, at most limit calls in any window of windowNanos
+ * <p>
+ * The times of the last limit accepted calls are kept in a ring, so the memory grows with the limit;
+ * prefer the sliding window counter for large limits
+ */
+public class SlidingWindowLogEngine implements LimiterEngine {
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private final long[] accepted;
+    private int oldest;
+    private int size;
+
+    public SlidingWindowLogEngine(int limit, long windowNanos, LongSupplier clock) {
+        this.windowNanos = windowNanos;
+        this.clock = clock;
+        this.accepted = new long[Math.max(1, limit)];
+    }
+
+    @Override
+    public synchronized boolean tryAcquire() {
+        long now = this.clock.getAsLong();
+        if (this.size < this.accepted.length) {
+            this.accepted[(this.oldest + this.size++) % this.accepted.length] = now;
+            return true;
+        }
+        // the ring is full, the oldest call must have left the window
+        if (now - this.accepted[this.oldest] >= this.windowNanos) {
+            this.accepted[this.oldest] = now;
+            this.oldest = (this.oldest + 1) % this.accepted.length;
+            return true;
+        }
+        return false;
+    }
+}
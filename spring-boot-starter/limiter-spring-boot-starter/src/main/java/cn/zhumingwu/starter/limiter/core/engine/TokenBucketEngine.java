@@ -0,0 +1,60 @@
+package cn.zhumingwu.starter.limiter.core.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket, addedQuantity tokens are added for every elapsed interval up to the maximum capacity
+ * <p>
+ * The refill is computed from System.nanoTime on acquire, no thread adds the tokens
+ */
+public class TokenBucketEngine implements LimiterEngine {
+    private final long maximumCapacity;
+    private final long addedQuantity;
+    private final long intervalNanos;
+    private final LongSupplier clock;
+    private final AtomicLong tokens;
+    private final AtomicLong refilled;
+
+    public TokenBucketEngine(long initialQuantity, long maximumCapacity, long addedQuantity, long intervalNanos,
+                             LongSupplier clock) {
+        this.maximumCapacity = maximumCapacity;
+        this.addedQuantity = addedQuantity;
+        this.intervalNanos = Math.max(1, intervalNanos);
+        this.clock = clock;
+        this.tokens = new AtomicLong(initialQuantity);
+        this.refilled = new AtomicLong(clock.getAsLong());
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        this.refill();
+        long current;
+        do {
+            current = this.tokens.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!this.tokens.compareAndSet(current, current - 1));
+        return true;
+    }
+
+    private void refill() {
+        long last = this.refilled.get();
+        long periods = (this.clock.getAsLong() - last) / this.intervalNanos;
+        if (periods <= 0 || this.addedQuantity <= 0) {
+            return;
+        }
+        // only the thread that moves the refill time adds the tokens of those periods
+        if (this.refilled.compareAndSet(last, last + periods * this.intervalNanos)) {
+            long added = periods > this.maximumCapacity / this.addedQuantity
+                    ? this.maximumCapacity : periods * this.addedQuantity;
+            this.tokens.accumulateAndGet(added, (tokens, add) -> Math.min(this.maximumCapacity, tokens + add));
+        }
+    }
+
+    public long getTokens() {
+        this.refill();
+        return Math.max(0, this.tokens.get());
+    }
+}
@@ -0,0 +1,16 @@
+package cn.zhumingwu.starter.limiter.core.engine;
+
+/**
+ * Shared bucket that hands out tokens in batches
+ */
+@FunctionalInterface
+public interface TokenSource {
+
+    /**
+     * Take up to the requested number of tokens
+     *
+     * @param requested requested
+     * @return the number of tokens granted, 0 when the bucket is empty
+     */
+    long lease(long requested);
+}
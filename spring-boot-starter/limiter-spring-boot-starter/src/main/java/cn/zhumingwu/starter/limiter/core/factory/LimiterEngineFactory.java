@@ -0,0 +1,94 @@
+package cn.zhumingwu.starter.limiter.core.factory;
+
+import cn.zhumingwu.starter.limiter.core.configure.TokenLimitedTrafficConfigure;
+import cn.zhumingwu.starter.limiter.core.engine.ConcurrencyEngine;
+import cn.zhumingwu.starter.limiter.core.engine.GcraEngine;
+import cn.zhumingwu.starter.limiter.core.engine.LeasedTokenEngine;
+import cn.zhumingwu.starter.limiter.core.engine.LimiterEngine;
+import cn.zhumingwu.starter.limiter.core.engine.RedisTokenSource;
+import cn.zhumingwu.starter.limiter.core.engine.SlidingWindowCounterEngine;
+import cn.zhumingwu.starter.limiter.core.engine.SlidingWindowLogEngine;
+import cn.zhumingwu.starter.limiter.core.engine.TokenBucketEngine;
+import cn.zhumingwu.starter.limiter.core.engine.TokenSource;
+import cn.zhumingwu.starter.limiter.properties.LimiterProperties;
+import org.springframework.data.redis.core.RedisTemplate;
+
+public class LimiterEngineFactory {
+    private LimiterEngineFactory() {
+    }
+
+    public static LimiterProperties.Algorithm getAlgorithm(
+            TokenLimitedTrafficConfigure configure, LimiterProperties properties) {
+        LimiterProperties.Algorithm algorithm = configure.getAlgorithm();
+        if (algorithm == null || algorithm == LimiterProperties.Algorithm.DEFAULT) {
+            algorithm = properties.getAlgorithm();
+        }
+        return algorithm == LimiterProperties.Algorithm.DEFAULT ? LimiterProperties.Algorithm.TOKEN_BUCKET : algorithm;
+    }
+
+    /**
+     * Only the token algorithms are shared in LEASED mode, windows and concurrency are always limited per node
+     *
+     * @param partition the key of the partition, null when the method is not partitioned
+     */
+    public static LimiterEngine createLimiterEngine(
+            TokenLimitedTrafficConfigure configure,
+            LimiterProperties properties,
+            RedisTemplate<Object, Object> redisTemplate,
+            String partition) {
+        LimiterProperties.Algorithm algorithm = getAlgorithm(configure, properties);
+        boolean tokens = algorithm == LimiterProperties.Algorithm.TOKEN_BUCKET
+                || algorithm == LimiterProperties.Algorithm.GCRA;
+        if (tokens && properties.getMode() == LimiterProperties.Mode.LEASED) {
+            String tokenKey = partition == null ? configure.getTokenKey() : configure.getTokenKey() + ":" + partition;
+            return createLeasedEngine(configure, properties, new RedisTokenSource(redisTemplate, configure, tokenKey));
+        }
+        return createLocalEngine(configure, algorithm);
+    }
+
+    public static LimiterEngine createLocalEngine(
+            TokenLimitedTrafficConfigure configure, LimiterProperties.Algorithm algorithm) {
+        switch (algorithm) {
+            case GCRA:
+                return new GcraEngine(
+                        configure.getInitialQuantity(),
+                        configure.getMaximumCapacity(),
+                        configure.getAddedQuantity(),
+                        configure.getIntervalNanos(),
+                        System::nanoTime);
+            case SLIDING_WINDOW_LOG:
+                return new SlidingWindowLogEngine(
+                        (int) Math.min(Integer.MAX_VALUE, configure.getAddedQuantity()),
+                        configure.getIntervalNanos(),
+                        System::nanoTime);
+            case SLIDING_WINDOW_COUNTER:
+                return new SlidingWindowCounterEngine(
+                        configure.getAddedQuantity(),
+                        configure.getIntervalNanos(),
+                        System::nanoTime);
+            case CONCURRENCY:
+                return new ConcurrencyEngine(configure.getMaximumCapacity());
+            default:
+                return new TokenBucketEngine(
+                        configure.getInitialQuantity(),
+                        configure.getMaximumCapacity(),
+                        configure.getAddedQuantity(),
+                        configure.getIntervalNanos(),
+                        System::nanoTime);
+        }
+    }
+
+    /**
+     * Leased tokens live for one interval, an empty shared bucket is asked again after the time of one token
+     */
+    public static LimiterEngine createLeasedEngine(
+            TokenLimitedTrafficConfigure configure, LimiterProperties properties, TokenSource source) {
+        long intervalNanos = configure.getIntervalNanos();
+        return new LeasedTokenEngine(
+                source,
+                Math.min(properties.getLeaseSize(), Math.max(1, configure.getMaximumCapacity())),
+                intervalNanos,
+                intervalNanos / Math.max(1, configure.getAddedQuantity()),
+                System::nanoTime);
+    }
+}
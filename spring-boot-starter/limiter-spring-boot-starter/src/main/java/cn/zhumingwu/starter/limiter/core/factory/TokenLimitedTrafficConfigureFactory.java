@@ -5,30 +5,28 @@ import cn.zhumingwu.starter.limiter.core.configure.TokenLimitedTrafficConfigure;
 import org.apache.commons.codec.digest.DigestUtils;
 
 import java.lang.reflect.Method;
-import java.util.Arrays;
 
 
 public class TokenLimitedTrafficConfigureFactory {
+    private static final String TOKEN_KEY_PREFIX = "limiter:";
+
     private TokenLimitedTrafficConfigureFactory() {
     }
 
     public static TokenLimitedTrafficConfigure getRedisExecutionConfigure(
             Method method, LimitTraffic limitTraffic) {
         TokenLimitedTrafficConfigure redisExecutionConfigure = new TokenLimitedTrafficConfigure();
-        String methodString = method.toString();
-        byte[] tokenKey = DigestUtils.sha1(methodString);
-        redisExecutionConfigure.setTokenKey(tokenKey);
-        redisExecutionConfigure.setTokenValue(Arrays.hashCode(tokenKey));
-
-        String lockKey = DigestUtils.sha1Hex(methodString);
-        redisExecutionConfigure.setLockKey(lockKey);
-        redisExecutionConfigure.setLockValue(lockKey.hashCode());
+        redisExecutionConfigure.setTokenKey(TOKEN_KEY_PREFIX + DigestUtils.sha1Hex(method.toString()));
 
         redisExecutionConfigure.setInitialQuantity(limitTraffic.initialQuantity());
-        redisExecutionConfigure.setMaximumCapacity(limitTraffic.maximumCapacity());
+        // maximumCapacity < initialQuantity, maximumCapacity = initialQuantity
+        redisExecutionConfigure.setMaximumCapacity(
+                Math.max(limitTraffic.maximumCapacity(), limitTraffic.initialQuantity()));
         redisExecutionConfigure.setAddedQuantity(limitTraffic.addedQuantity());
         redisExecutionConfigure.setIntervalTime(limitTraffic.intervalTime());
         redisExecutionConfigure.setTimeUnit(limitTraffic.timeUnit());
+        redisExecutionConfigure.setKey(limitTraffic.key());
+        redisExecutionConfigure.setAlgorithm(limitTraffic.algorithm());
 
         return redisExecutionConfigure;
     }
@@ -0,0 +1,133 @@
+package cn.zhumingwu.starter.limiter.core.partition;
+
+import cn.zhumingwu.starter.limiter.core.configure.TokenLimitedTrafficConfigure;
+import cn.zhumingwu.starter.limiter.core.engine.LimiterEngine;
+import cn.zhumingwu.starter.limiter.properties.LimiterProperties;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Everything the aspect needs for one limited method, built once per method: the redis key, the parsed key
+ * expression with the parameter names, and the partitions
+ */
+public class LimitedMethod {
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, LimitedMethod.class.getClassLoader()));
+    private static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER = new DefaultParameterNameDiscoverer();
+
+    private final Method method;
+    private final TokenLimitedTrafficConfigure configure;
+    private final Expression key;
+    private final String[][] variables;
+    private final Partition partition;
+    private final PartitionMap<Partition> partitions;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param engineFactory creates the engine of a partition from its key, null for a method that is not partitioned
+     */
+    public LimitedMethod(Method method, TokenLimitedTrafficConfigure configure, LimiterProperties properties,
+                         Function<String, LimiterEngine> engineFactory) {
+        this.method = method;
+        this.configure = configure;
+        if (!StringUtils.hasText(configure.getKey())) {
+            this.key = null;
+            this.variables = null;
+            this.partition = new Partition(null, engineFactory.apply(null));
+            this.partitions = null;
+            return;
+        }
+        this.key = PARSER.parseExpression(configure.getKey());
+        this.variables = variables(method);
+        this.partition = null;
+        LimiterProperties.Partitions settings = properties.getPartitions();
+        // a window log or counter remembers the calls of a whole interval, its key must not expire before it
+        long expireNanos = Math.max(settings.getExpireAfterAccess().toNanos(), configure.getIntervalNanos());
+        this.partitions = new PartitionMap<>(
+                settings.getMaximumKeys(),
+                settings.getStripes(),
+                expireNanos,
+                key -> new Partition(key, engineFactory.apply(key)),
+                Partition::isIdle,
+                System::nanoTime);
+    }
+
+    /**
+     * Take a token of the partition of the arguments
+     *
+     * @param args the arguments, only read when the method is partitioned
+     * @return the partition to release when the call finishes, null when the call is rejected
+     */
+    public Partition tryAcquire(Object[] args) {
+        Partition partition = this.partition == null ? this.partitions.get(this.partitionKey(args)) : this.partition;
+        if (partition.tryAcquire()) {
+            this.accepted.increment();
+            return partition;
+        }
+        this.rejected.increment();
+        return null;
+    }
+
+    public boolean isPartitioned() {
+        return this.partitions != null;
+    }
+
+    String partitionKey(Object[] args) {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        for (int i = 0; i < args.length; i++) {
+            for (String variable : this.variables[i]) {
+                context.setVariable(variable, args[i]);
+            }
+        }
+        return String.valueOf(this.key.getValue(context));
+    }
+
+    /**
+     * The variables of each parameter: its name when compiled with -parameters, #p0 and #a0
+     */
+    private static String[][] variables(Method method) {
+        String[] names = PARAMETER_NAME_DISCOVERER.getParameterNames(method);
+        String[][] variables = new String[method.getParameterCount()][];
+        for (int i = 0; i < variables.length; i++) {
+            variables[i] = names == null || names[i] == null
+                    ? new String[]{"p" + i, "a" + i}
+                    : new String[]{names[i], "p" + i, "a" + i};
+        }
+        return variables;
+    }
+
+    public Method getMethod() {
+        return this.method;
+    }
+
+    public TokenLimitedTrafficConfigure getConfigure() {
+        return this.configure;
+    }
+
+    public Partition getPartition() {
+        return this.partition;
+    }
+
+    public PartitionMap<Partition> getPartitions() {
+        return this.partitions;
+    }
+
+    public long getAccepted() {
+        return this.accepted.sum();
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+}
@@ -0,0 +1,53 @@
+package cn.zhumingwu.starter.limiter.core.partition;
+
+import cn.zhumingwu.starter.limiter.core.engine.LimiterEngine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The engine of one key of a limited method and its counters
+ */
+public class Partition {
+    private final String key;
+    private final LimiterEngine engine;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public Partition(String key, LimiterEngine engine) {
+        this.key = key;
+        this.engine = engine;
+    }
+
+    public boolean tryAcquire() {
+        if (this.engine.tryAcquire()) {
+            this.accepted.increment();
+            return true;
+        }
+        this.rejected.increment();
+        return false;
+    }
+
+    public void release() {
+        this.engine.release();
+    }
+
+    public boolean isIdle() {
+        return this.engine.isIdle();
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    public LimiterEngine getEngine() {
+        return this.engine;
+    }
+
+    public long getAccepted() {
+        return this.accepted.sum();
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+}
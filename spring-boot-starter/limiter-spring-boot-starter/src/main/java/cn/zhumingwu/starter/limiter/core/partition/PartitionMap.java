@@ -0,0 +1,123 @@
+package cn.zhumingwu.starter.limiter.core.partition;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Bounded map of the per key state, split into independently locked stripes each kept in least recently used order
+ * <p>
+ * A value not used for expireNanos is replaced by a new one on the next access, and the least recently used value
+ * of a stripe is dropped when the stripe is full or expired. Values that are not idle are never dropped
+ */
+public class PartitionMap<V> {
+    private final Stripe<V>[] stripes;
+    private final int mask;
+    private final long expireNanos;
+    private final Function<String, V> factory;
+    private final Predicate<V> idle;
+    private final LongSupplier clock;
+
+    public PartitionMap(int maximumKeys, int stripes, long expireNanos,
+                        Function<String, V> factory, Predicate<V> idle, LongSupplier clock) {
+        int count = Integer.highestOneBit(Math.max(1, stripes) - 1) << 1;
+        count = Math.max(1, Math.min(count, 1 << 16));
+        @SuppressWarnings("unchecked")
+        Stripe<V>[] array = (Stripe<V>[]) new Stripe<?>[count];
+        this.stripes = array;
+        this.mask = count - 1;
+        this.expireNanos = expireNanos;
+        this.factory = factory;
+        this.idle = idle;
+        this.clock = clock;
+        int capacity = Math.max(1, maximumKeys / count);
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe<>(capacity, this);
+        }
+    }
+
+    public V get(String key) {
+        long now = this.clock.getAsLong();
+        Stripe<V> stripe = this.stripe(key);
+        synchronized (stripe) {
+            stripe.now = now;
+            Entry<V> entry = stripe.get(key);
+            if (entry == null || this.isExpired(entry, now)) {
+                entry = new Entry<>(this.factory.apply(key), now);
+                stripe.put(key, entry);
+            } else {
+                entry.accessed = now;
+            }
+            return entry.value;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Visit the live values one stripe at a time, the stripe is locked while it is visited
+     */
+    public void forEach(BiConsumer<String, V> consumer) {
+        long now = this.clock.getAsLong();
+        for (Stripe<V> stripe : this.stripes) {
+            synchronized (stripe) {
+                for (Map.Entry<String, Entry<V>> entry : stripe.entrySet()) {
+                    if (!this.isExpired(entry.getValue(), now)) {
+                        consumer.accept(entry.getKey(), entry.getValue().value);
+                    }
+                }
+            }
+        }
+    }
+
+    private Stripe<V> stripe(String key) {
+        int hash = key.hashCode();
+        return this.stripes[(hash ^ (hash >>> 16)) & this.mask];
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return now - entry.accessed >= this.expireNanos && this.idle.test(entry.value);
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private long accessed;
+
+        Entry(V value, long accessed) {
+            this.value = value;
+            this.accessed = accessed;
+        }
+    }
+
+    private static class Stripe<V> extends LinkedHashMap<String, Entry<V>> {
+        private final int capacity;
+        private final PartitionMap<V> map;
+        private long now;
+
+        Stripe(int capacity, PartitionMap<V> map) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.map = map;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+            Entry<V> entry = eldest.getValue();
+            if (this.size() > this.capacity) {
+                return this.map.idle.test(entry.value);
+            }
+            return this.map.isExpired(entry, this.now);
+        }
+    }
+}
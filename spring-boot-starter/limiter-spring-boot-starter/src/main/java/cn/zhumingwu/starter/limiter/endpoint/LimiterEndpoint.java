@@ -0,0 +1,87 @@
+package cn.zhumingwu.starter.limiter.endpoint;
+
+import cn.zhumingwu.starter.limiter.aspect.LimiterAspect;
+import cn.zhumingwu.starter.limiter.core.partition.LimitedMethod;
+import cn.zhumingwu.starter.limiter.core.partition.Partition;
+import lombok.Data;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Accepted and rejected calls of each limited method, with the keys that were rejected the most
+ */
+@Endpoint(id = "limiter")
+@Data
+public class LimiterEndpoint {
+    private static final Comparator<Partition> BY_REJECTED = Comparator.comparingLong(Partition::getRejected);
+
+    private LimiterAspect limiterAspect;
+
+    public LimiterEndpoint(LimiterAspect limiterAspect) {
+        this.limiterAspect = limiterAspect;
+    }
+
+    @ReadOperation
+    public Map<String, MethodStats> read() {
+        int top = this.limiterAspect.getLimiterProperties().getPartitions().getTopRejected();
+        Map<String, MethodStats> stats = new LinkedHashMap<>();
+        this.limiterAspect.getMethods().forEach((method, limitedMethod) ->
+                stats.put(method.toString(), stats(limitedMethod, top)));
+        return stats;
+    }
+
+    static MethodStats stats(LimitedMethod limitedMethod, int top) {
+        MethodStats stats = new MethodStats();
+        stats.setAccepted(limitedMethod.getAccepted());
+        stats.setRejected(limitedMethod.getRejected());
+        if (!limitedMethod.isPartitioned()) {
+            stats.setKeys(1);
+            return stats;
+        }
+        // keep the top rejected keys in a small heap instead of sorting every key
+        PriorityQueue<Partition> heap = new PriorityQueue<>(Math.max(1, top), BY_REJECTED);
+        int[] keys = new int[1];
+        limitedMethod.getPartitions().forEach((key, partition) -> {
+            keys[0]++;
+            if (top <= 0 || partition.getRejected() == 0) {
+                return;
+            }
+            if (heap.size() < top) {
+                heap.add(partition);
+            } else if (partition.getRejected() > heap.peek().getRejected()) {
+                heap.poll();
+                heap.add(partition);
+            }
+        });
+        stats.setKeys(keys[0]);
+        List<PartitionStats> topRejected = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            Partition partition = heap.poll();
+            topRejected.add(0, new PartitionStats(partition.getKey(), partition.getAccepted(), partition.getRejected()));
+        }
+        stats.setTopRejected(topRejected);
+        return stats;
+    }
+
+    @Data
+    public static class MethodStats {
+        private long accepted;
+        private long rejected;
+        private long keys;
+        private List<PartitionStats> topRejected = List.of();
+    }
+
+    @Data
+    public static class PartitionStats {
+        private final String key;
+        private final long accepted;
+        private final long rejected;
+    }
+}
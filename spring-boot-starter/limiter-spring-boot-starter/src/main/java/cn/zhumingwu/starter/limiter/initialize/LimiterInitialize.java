@@ -1,29 +1,28 @@
 package cn.zhumingwu.starter.limiter.initialize;
 
-import lombok.Data;
 import cn.zhumingwu.starter.limiter.annotation.LimitTraffic;
 import cn.zhumingwu.starter.limiter.annotation.TokenLimitedTraffic;
-import cn.zhumingwu.starter.limiter.core.execution.RedisLimitTrafficExecution;
-import cn.zhumingwu.starter.limiter.core.execution.ThreadPoolExecutorExecution;
-import cn.zhumingwu.starter.limiter.core.factory.ThreadPoolFactory;
+import cn.zhumingwu.starter.limiter.aspect.LimiterAspect;
 import cn.zhumingwu.starter.limiter.core.utils.AnnotatedMethodsUtils;
+import lombok.Data;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
-import org.springframework.data.redis.core.RedisTemplate;
 
 import jakarta.annotation.PostConstruct;
 import java.lang.reflect.Method;
 import java.util.Map;
-import java.util.concurrent.ThreadPoolExecutor;
 
-// todo: zhumingwu read it
+/**
+ * Builds the limited methods of the annotated beans up front: the redis keys, the key expressions and the engines
+ * of the methods that are not partitioned. The tokens are refilled on acquire and need no threads
+ */
 @Data
 public class LimiterInitialize implements ApplicationContextAware {
     private ApplicationContext applicationContext;
-    private RedisTemplate<Object, Object> redisTemplate;
+    private LimiterAspect limiterAspect;
 
-    public LimiterInitialize(RedisTemplate<Object, Object> redisTemplate) {
-        this.redisTemplate = redisTemplate;
+    public LimiterInitialize(LimiterAspect limiterAspect) {
+        this.limiterAspect = limiterAspect;
     }
 
     @PostConstruct
@@ -34,14 +33,7 @@ public class LimiterInitialize implements ApplicationContextAware {
                 (beanName, bean) -> {
                     Map<Method, LimitTraffic> methodAndAnnotation =
                             AnnotatedMethodsUtils.getMethodAndAnnotation(bean, LimitTraffic.class);
-                    ThreadPoolExecutor tokenLimitedTrafficThreadPool =
-                            ThreadPoolFactory.createTokenLimitedTrafficThreadPool(
-                                    beanName, methodAndAnnotation.size());
-                    methodAndAnnotation.forEach(
-                            (method, limitTraffic) ->
-                                    ThreadPoolExecutorExecution.statsThread(
-                                            tokenLimitedTrafficThreadPool,
-                                            new RedisLimitTrafficExecution(redisTemplate, method, limitTraffic)));
+                    methodAndAnnotation.forEach(limiterAspect::getLimitedMethod);
                 });
     }
 
@@ -0,0 +1,89 @@
+package cn.zhumingwu.starter.limiter.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = LimiterProperties.PREFIX)
+public class LimiterProperties {
+    public static final String PREFIX = "project.limiter";
+
+    /**
+     * LOCAL keeps the tokens in this process, LEASED leases batches of tokens from a bucket shared in redis
+     */
+    private Mode mode = Mode.LOCAL;
+
+    /**
+     * Algorithm of the methods that do not choose one
+     */
+    private Algorithm algorithm = Algorithm.TOKEN_BUCKET;
+
+    /**
+     * Number of tokens taken from redis in one script call in LEASED mode, capped by the maximum capacity
+     */
+    private long leaseSize = 10;
+
+    private Partitions partitions = new Partitions();
+
+    public enum Mode {
+        LOCAL,
+        LEASED
+    }
+
+    public enum Algorithm {
+        /**
+         * The project.limiter.algorithm setting, only meaningful on the annotation
+         */
+        DEFAULT,
+        /**
+         * addedQuantity tokens are added at the end of every interval, leased from redis in LEASED mode
+         */
+        TOKEN_BUCKET,
+        /**
+         * Generic cell rate algorithm, the tokens of an interval are spread evenly over it,
+         * leased from redis in LEASED mode
+         */
+        GCRA,
+        /**
+         * At most addedQuantity calls in any interval, keeps the time of each accepted call
+         */
+        SLIDING_WINDOW_LOG,
+        /**
+         * At most about addedQuantity calls in any interval, estimated from two fixed window counters
+         */
+        SLIDING_WINDOW_COUNTER,
+        /**
+         * At most maximumCapacity calls in progress at the same time
+         */
+        CONCURRENCY
+    }
+
+    /**
+     * State of the methods limited per key
+     */
+    @Data
+    public static class Partitions {
+        /**
+         * Maximum number of keys kept per method, the least recently used are dropped
+         */
+        private int maximumKeys = 1_000_000;
+
+        /**
+         * Keys not used for this long are dropped and start again from the initial quantity, never less than the
+         * interval of the rule
+         */
+        private Duration expireAfterAccess = Duration.ofMinutes(10);
+
+        /**
+         * Number of independently locked stripes of each method, rounded up to a power of two
+         */
+        private int stripes = 64;
+
+        /**
+         * Number of keys with the most rejections reported by the limiter endpoint
+         */
+        private int topRejected = 20;
+    }
+}
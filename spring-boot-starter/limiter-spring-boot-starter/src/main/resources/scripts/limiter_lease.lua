@@ -0,0 +1,34 @@
+-- Token bucket shared by the cluster, grants up to ARGV[5] tokens in one call
+-- KEYS[1] bucket hash, ARGV: initial quantity, maximum capacity, added quantity, interval in microseconds, requested
+if redis.replicate_commands then
+    redis.replicate_commands()
+end
+local initial = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local added = tonumber(ARGV[3])
+local interval = tonumber(ARGV[4])
+local requested = tonumber(ARGV[5])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'refilled')
+local tokens = tonumber(state[1])
+local refilled = tonumber(state[2])
+if tokens == nil or refilled == nil then
+    tokens = initial
+    refilled = now
+end
+
+local periods = math.floor((now - refilled) / interval)
+if periods > 0 then
+    tokens = math.min(capacity, tokens + periods * added)
+    refilled = refilled + periods * interval
+end
+
+local granted = math.min(tokens, requested)
+tokens = tokens - granted
+redis.call('HSET', KEYS[1], 'tokens', tokens, 'refilled', refilled)
+-- a bucket untouched until it would be full again is not needed any more
+local full = math.ceil((capacity - tokens) / math.max(added, 1)) + 1
+redis.call('PEXPIRE', KEYS[1], math.ceil(full * interval / 1000))
+return granted
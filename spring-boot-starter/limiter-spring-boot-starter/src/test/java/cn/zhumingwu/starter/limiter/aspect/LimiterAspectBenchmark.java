@@ -0,0 +1,91 @@
+package cn.zhumingwu.starter.limiter.aspect;
+
+import cn.zhumingwu.starter.limiter.annotation.LimitTraffic;
+import cn.zhumingwu.starter.limiter.core.factory.LimiterEngineFactory;
+import cn.zhumingwu.starter.limiter.core.factory.TokenLimitedTrafficConfigureFactory;
+import cn.zhumingwu.starter.limiter.core.partition.LimitedMethod;
+import cn.zhumingwu.starter.limiter.properties.LimiterProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a method limited by the aspect, the limit is high enough that no call is rejected
+ * <p>
+ * The leased modes use a token source that spins for {@link #ROUND_TRIP_NANOS} instead of redis, lease size 1 costs
+ * one round trip per call like the previous redis list limiter
+ */
+@Fork(1)
+@Threads(4)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@State(Scope.Benchmark)
+public class LimiterAspectBenchmark {
+    static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    public static class Hello {
+        @LimitTraffic(initialQuantity = Long.MAX_VALUE / 4, addedQuantity = Long.MAX_VALUE / 4)
+        public String hello() {
+            return "world";
+        }
+    }
+
+    @Param({"NONE", "TOKEN_BUCKET", "GCRA", "LEASED_1", "LEASED_100"})
+    String mode;
+
+    Hello hello;
+
+    @Setup
+    public void setUp() throws Exception {
+        if ("NONE".equals(this.mode)) {
+            this.hello = new Hello();
+            return;
+        }
+        var properties = new LimiterProperties();
+        var aspect = new LimiterAspect(null, properties);
+        if (this.mode.startsWith("LEASED")) {
+            properties.setLeaseSize(Long.parseLong(this.mode.substring("LEASED_".length())));
+            var method = Hello.class.getMethod("hello");
+            var configure = TokenLimitedTrafficConfigureFactory.getRedisExecutionConfigure(
+                    method, method.getAnnotation(LimitTraffic.class));
+            var engine = LimiterEngineFactory.createLeasedEngine(configure, properties, requested -> {
+                long end = System.nanoTime() + ROUND_TRIP_NANOS;
+                while (System.nanoTime() < end) {
+                    Thread.onSpinWait();
+                }
+                return requested;
+            });
+            aspect.getMethods().put(method, new LimitedMethod(method, configure, properties, partition -> engine));
+        } else {
+            properties.setAlgorithm(LimiterProperties.Algorithm.valueOf(this.mode));
+        }
+        this.hello = LimiterAspectTest.proxy(aspect, new Hello());
+    }
+
+    @Benchmark
+    public String hello() {
+        return this.hello.hello();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LimiterAspectBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package cn.zhumingwu.starter.limiter.aspect;
+
+import cn.zhumingwu.starter.limiter.annotation.LimitTraffic;
+import cn.zhumingwu.starter.limiter.endpoint.LimiterEndpoint;
+import cn.zhumingwu.starter.limiter.properties.LimiterProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LimiterAspectTest {
+
+    public static class Hello {
+        @LimitTraffic(initialQuantity = 3, addedQuantity = 1, intervalTime = 1, timeUnit = TimeUnit.HOURS)
+        public String hello() {
+            return "world";
+        }
+
+        public String unlimited() {
+            return "world";
+        }
+
+        @LimitTraffic(initialQuantity = 2, addedQuantity = 1, intervalTime = 1, timeUnit = TimeUnit.HOURS,
+                key = "#tenant + ':' + #p1")
+        public String tenant(String tenant, int user) {
+            return tenant;
+        }
+
+        @LimitTraffic(initialQuantity = 1, addedQuantity = 1, algorithm = LimiterProperties.Algorithm.CONCURRENCY)
+        public String concurrent(Runnable inside) {
+            inside.run();
+            return "world";
+        }
+    }
+
+    static <T> T proxy(LimiterAspect aspect, T target) {
+        var factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    @Test
+    public void testLocal() {
+        var aspect = new LimiterAspect(null, new LimiterProperties());
+        var hello = proxy(aspect, new Hello());
+        for (int i = 0; i < 3; i++) {
+            assertThat(hello.hello()).isEqualTo("world");
+        }
+        assertThat(hello.hello()).isNull();
+        assertThat(hello.unlimited()).isEqualTo("world");
+        assertThat(aspect.getMethods()).hasSize(1);
+    }
+
+    @Test
+    public void testPartitioned() {
+        var properties = new LimiterProperties();
+        properties.getPartitions().setTopRejected(1);
+        var aspect = new LimiterAspect(null, properties);
+        var hello = proxy(aspect, new Hello());
+        for (int i = 0; i < 2; i++) {
+            assertThat(hello.tenant("a", 1)).isEqualTo("a");
+            assertThat(hello.tenant("a", 2)).isEqualTo("a");
+            assertThat(hello.tenant("b", 1)).isEqualTo("b");
+        }
+        assertThat(hello.tenant("a", 1)).isNull();
+        assertThat(hello.tenant("a", 1)).isNull();
+        assertThat(hello.tenant("c", 1)).isEqualTo("c");
+
+        var limitedMethod = aspect.getMethods().values().iterator().next();
+        assertThat(limitedMethod.isPartitioned()).isTrue();
+        assertThat(limitedMethod.getAccepted()).isEqualTo(7);
+        assertThat(limitedMethod.getRejected()).isEqualTo(2);
+        var stats = new LimiterEndpoint(aspect).read().get(limitedMethod.getMethod().toString());
+        assertThat(stats.getKeys()).isEqualTo(4);
+        assertThat(stats.getTopRejected()).containsExactly(new LimiterEndpoint.PartitionStats("a:1", 2, 2));
+    }
+
+    @Test
+    public void testConcurrency() {
+        var aspect = new LimiterAspect(null, new LimiterProperties());
+        var hello = proxy(aspect, new Hello());
+        var inner = new String[1];
+        assertThat(hello.concurrent(() -> inner[0] = hello.concurrent(() -> {
+        }))).isEqualTo("world");
+        // the nested call was rejected while the outer call held the permit, which is given back after it
+        assertThat(inner[0]).isNull();
+        assertThat(hello.concurrent(() -> {
+        })).isEqualTo("world");
+    }
+}
@@ -0,0 +1,131 @@
+package cn.zhumingwu.starter.limiter.core.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LimiterEngineTest {
+    static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    final AtomicLong clock = new AtomicLong(12345);
+
+    static int acquire(LimiterEngine engine, int calls) {
+        int acquired = 0;
+        for (int i = 0; i < calls; i++) {
+            if (engine.tryAcquire()) {
+                acquired++;
+            }
+        }
+        return acquired;
+    }
+
+    @Test
+    public void testTokenBucket() {
+        var engine = new TokenBucketEngine(5, 8, 3, SECOND, clock::get);
+        assertThat(acquire(engine, 10)).isEqualTo(5);
+
+        // tokens are added per whole interval
+        clock.addAndGet(SECOND - 1);
+        assertThat(engine.tryAcquire()).isFalse();
+        clock.addAndGet(1);
+        assertThat(acquire(engine, 10)).isEqualTo(3);
+
+        // capped by the maximum capacity
+        clock.addAndGet(1000 * SECOND);
+        assertThat(engine.getTokens()).isEqualTo(8);
+        assertThat(acquire(engine, 10)).isEqualTo(8);
+    }
+
+    @Test
+    public void testGcra() {
+        var engine = new GcraEngine(5, 8, 4, SECOND, clock::get);
+        assertThat(acquire(engine, 10)).isEqualTo(5);
+
+        // one token every quarter of a second
+        clock.addAndGet(SECOND / 4 - 1);
+        assertThat(engine.tryAcquire()).isFalse();
+        clock.addAndGet(1);
+        assertThat(engine.tryAcquire()).isTrue();
+        assertThat(engine.tryAcquire()).isFalse();
+
+        clock.addAndGet(1000 * SECOND);
+        assertThat(acquire(engine, 10)).isEqualTo(8);
+    }
+
+    @Test
+    public void testLeased() {
+        var shared = new AtomicLong(25);
+        var leases = new AtomicLong();
+        TokenSource source = requested -> {
+            leases.incrementAndGet();
+            long granted = Math.min(requested, shared.get());
+            shared.addAndGet(-granted);
+            return granted;
+        };
+        var engine = new LeasedTokenEngine(source, 10, SECOND, SECOND / 10, clock::get);
+        assertThat(acquire(engine, 10)).isEqualTo(10);
+        assertThat(leases.get()).isEqualTo(1);
+        assertThat(acquire(engine, 20)).isEqualTo(15);
+        assertThat(leases.get()).isEqualTo(4);
+
+        // an empty source is not asked again until the retry time
+        assertThat(acquire(engine, 100)).isZero();
+        assertThat(leases.get()).isEqualTo(4);
+        clock.addAndGet(SECOND / 10);
+        shared.set(100);
+        assertThat(engine.tryAcquire()).isTrue();
+        assertThat(leases.get()).isEqualTo(5);
+
+        // unspent tokens of an expired lease are dropped
+        clock.addAndGet(SECOND);
+        assertThat(engine.tryAcquire()).isTrue();
+        assertThat(leases.get()).isEqualTo(6);
+        assertThat(shared.get()).isEqualTo(80);
+    }
+
+    @Test
+    public void testSlidingWindowLog() {
+        var engine = new SlidingWindowLogEngine(3, SECOND, clock::get);
+        assertThat(acquire(engine, 2)).isEqualTo(2);
+        clock.addAndGet(SECOND / 2);
+        assertThat(acquire(engine, 5)).isEqualTo(1);
+
+        // the first two calls leave the window, the third is still in it
+        clock.addAndGet(SECOND / 2);
+        assertThat(acquire(engine, 5)).isEqualTo(2);
+        clock.addAndGet(SECOND / 2);
+        assertThat(acquire(engine, 5)).isEqualTo(1);
+    }
+
+    @Test
+    public void testSlidingWindowCounter() {
+        var engine = new SlidingWindowCounterEngine(10, SECOND, clock::get);
+        assertThat(acquire(engine, 20)).isEqualTo(10);
+
+        // a quarter into the next window three quarters of the previous count still weigh
+        clock.addAndGet(SECOND + SECOND / 4);
+        assertThat(acquire(engine, 20)).isEqualTo(3);
+        clock.addAndGet(SECOND / 2);
+        assertThat(acquire(engine, 20)).isEqualTo(5);
+
+        // an empty window in between forgets the previous count
+        clock.addAndGet(2 * SECOND);
+        assertThat(acquire(engine, 20)).isEqualTo(10);
+    }
+
+    @Test
+    public void testConcurrency() {
+        var engine = new ConcurrencyEngine(2);
+        assertThat(acquire(engine, 5)).isEqualTo(2);
+        assertThat(engine.isIdle()).isFalse();
+        engine.release();
+        assertThat(engine.tryAcquire()).isTrue();
+        assertThat(engine.tryAcquire()).isFalse();
+        engine.release();
+        engine.release();
+        assertThat(engine.isIdle()).isTrue();
+    }
+}
@@ -0,0 +1,58 @@
+package cn.zhumingwu.starter.limiter.core.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PartitionMapTest {
+    final AtomicLong clock = new AtomicLong();
+    final AtomicInteger created = new AtomicInteger();
+
+    PartitionMap<String> map(int maximumKeys, int stripes, AtomicBoolean idle) {
+        return new PartitionMap<>(maximumKeys, stripes, 100,
+                key -> key + created.incrementAndGet(), value -> idle.get(), clock::get);
+    }
+
+    @Test
+    public void testBounded() {
+        var map = map(4, 1, new AtomicBoolean(true));
+        assertThat(map.get("a")).isEqualTo("a1");
+        assertThat(map.get("a")).isEqualTo("a1");
+        map.get("b");
+        map.get("c");
+        map.get("d");
+        // a is the most recently used, b is dropped
+        map.get("a");
+        map.get("e");
+        assertThat(map.size()).isEqualTo(4);
+        var values = new HashMap<String, String>();
+        map.forEach(values::put);
+        assertThat(values).containsOnlyKeys("a", "c", "d", "e");
+        assertThat(map.get("b")).isEqualTo("b6");
+    }
+
+    @Test
+    public void testExpired() {
+        var idle = new AtomicBoolean(false);
+        var map = map(1000, 4, idle);
+        assertThat(map.get("a")).isEqualTo("a1");
+        clock.addAndGet(100);
+        // values in use are kept
+        assertThat(map.get("a")).isEqualTo("a1");
+        clock.addAndGet(100);
+        idle.set(true);
+        assertThat(map.get("a")).isEqualTo("a2");
+        map.get("b");
+        clock.addAndGet(99);
+        assertThat(map.get("b")).isEqualTo("b3");
+        clock.addAndGet(1);
+        var values = new HashMap<String, String>();
+        map.forEach(values::put);
+        assertThat(values).containsOnlyKeys("b");
+    }
+}